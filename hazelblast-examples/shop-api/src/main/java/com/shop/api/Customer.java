@@ -1,9 +1,12 @@
 package com.shop.api;
 
+import com.hazelblast.codec.GenerateCodec;
+
 import java.io.Serializable;
 
 import static com.hazelblast.utils.Arguments.notNull;
 
+@GenerateCodec
 public final class Customer implements Serializable {
     private final String id;
     private boolean fired = false;
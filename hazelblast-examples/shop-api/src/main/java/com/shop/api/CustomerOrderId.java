@@ -1,11 +1,13 @@
 package com.shop.api;
 
+import com.hazelblast.codec.GenerateCodec;
 import com.hazelcast.core.PartitionAware;
 
 import java.io.Serializable;
 
 import static com.hazelblast.utils.Arguments.notNull;
 
+@GenerateCodec
 public class CustomerOrderId implements Serializable, PartitionAware {
     private final String customerId;
     private final String orderId;
@@ -1,11 +1,14 @@
 package com.shop.api;
 
+import com.hazelblast.codec.GenerateCodec;
+
 import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
 import static com.hazelblast.utils.Arguments.notNull;
 
+@GenerateCodec
 public class Order implements Serializable{
 
     private final String orderId;
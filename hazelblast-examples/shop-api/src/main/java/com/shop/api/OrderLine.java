@@ -1,10 +1,12 @@
 package com.shop.api;
 
+import com.hazelblast.codec.GenerateCodec;
 
 import java.io.Serializable;
 
 import static com.hazelblast.utils.Arguments.notNull;
 
+@GenerateCodec
 public class OrderLine implements Serializable {
 
     private final String articleId;
@@ -1,6 +1,6 @@
 package com.shop;
 
-import com.hazelblast.client.ProxyProvider;
+import com.hazelblast.client.impl.DataSerializableDistributedMethodInvocationFactory;
 import com.hazelblast.client.impl.ProxyProviderImpl;
 import com.shop.api.*;
 
@@ -9,7 +9,9 @@ import java.util.UUID;
 public class ClientMain {
 
     public static void main(String[] args) {
-        ProxyProvider proxyProvider = new ProxyProviderImpl();
+        ProxyProviderImpl proxyProvider = new ProxyProviderImpl();
+        //the shop-api classes are annotated with @GenerateCodec, so they are send using their generated Codecs.
+        proxyProvider.setDistributedMethodInvocationFactory(DataSerializableDistributedMethodInvocationFactory.INSTANCE);
         CustomerService customerService = proxyProvider.getProxy(CustomerService.class);
         OrderService orderService = proxyProvider.getProxy(OrderService.class);
 
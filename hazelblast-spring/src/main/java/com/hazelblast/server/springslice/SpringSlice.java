@@ -1,5 +1,6 @@
 package com.hazelblast.server.springslice;
 
+import com.hazelblast.codec.CodecRegistry;
 import com.hazelblast.server.Slice;
 import com.hazelblast.server.SliceConfig;
 import com.hazelblast.server.SliceLifecycleListener;
@@ -117,6 +118,10 @@ public class SpringSlice implements Slice {
         return hazelcastInstance;
     }
 
+    public CodecRegistry getCodecRegistry() {
+        return sliceConfig.codecRegistry;
+    }
+
     public Object getService(String name) {
         notNull("name", name);
 
@@ -0,0 +1,29 @@
+package com.hazelblast.client.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that can be placed on a {@link Partitioned} or {@link LoadBalanced} method to compress the
+ * arguments and the result of a call when they are larger than the threshold, even when compression is not enabled on
+ * the {@link com.hazelblast.client.impl.ProxyProviderImpl}.
+ * <p/>
+ * Compression is only applied if the DistributedMethodInvocationFactory supports it, like the
+ * {@link com.hazelblast.client.impl.DataSerializableDistributedMethodInvocationFactory}.
+ *
+ * @author Peter Veentjer.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Compressed {
+
+    /**
+     * The minimum size in bytes of the encoded arguments or result before they are compressed. If smaller than 0,
+     * the threshold of the ProxyProviderImpl is used.
+     *
+     * @return the threshold in bytes.
+     */
+    int thresholdBytes() default -1;
+}
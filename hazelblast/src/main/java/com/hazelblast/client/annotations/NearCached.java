@@ -0,0 +1,49 @@
+package com.hazelblast.client.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that can be placed on a read only {@link Partitioned} method to cache its results on the client, so
+ * a repeated call with the same arguments doesn't need to go to the member. This is useful for read mostly calls like
+ * looking up a customer.
+ * <p/>
+ * The results are cached per method, keyed by the arguments; so the arguments need to have a proper equals and
+ * hashcode. A cached result is removed when:
+ * <ol>
+ * <li>it is older than {@link #ttlMs()}.</li>
+ * <li>the cache is full; the least recently used result is evicted.</li>
+ * <li>the partition of the result migrates, or its owner leaves the cluster.</li>
+ * <li>a {@link Partitioned} method without this annotation or {@link SingleFlight}, of the same
+ * {@link DistributedService} interface, is called with the same partition key through the same ProxyProvider. Such a
+ * method is considered to be a write.</li>
+ * </ol>
+ * Changes made by other clients, or by the members themselves, are only seen when the cached result expires. Since a
+ * {@link OneWay} call is not acknowledged, such a write can't invalidate the cached results after it has been executed;
+ * so the interface of a near cached method can't contain {@link OneWay} writes.
+ * <p/>
+ * Exceptions are not cached. The method can't be void, {@link OneWay}, {@link Pipelined}, return a
+ * {@link java.util.concurrent.Future} or return an {@link java.util.Iterator}.
+ *
+ * @author Peter Veentjer.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface NearCached {
+
+    /**
+     * The maximum time in milliseconds a result is cached. Should be larger than 0.
+     *
+     * @return the time to live of a cached result.
+     */
+    long ttlMs() default 60 * 1000;
+
+    /**
+     * The maximum number of results cached for the method.
+     *
+     * @return the maximum number of cached results.
+     */
+    int maxEntries() default 1000;
+}
@@ -0,0 +1,27 @@
+package com.hazelblast.client.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that can be placed on a void {@link Partitioned} or {@link LoadBalanced} method to make calls to it
+ * fire and forget: the call is handed over to the executor and the method returns immediately, without waiting for
+ * the member to execute it.
+ * <p/>
+ * The call still is retried and timed out like any other call, but failures are not thrown to the caller; they are
+ * reported to the {@link com.hazelblast.client.impl.OneWayFailureListener} of the
+ * {@link com.hazelblast.client.impl.ProxyProviderImpl}.
+ * <p/>
+ * A call to a one way method never blocks the calling thread, and the calling thread never executes the call itself:
+ * if the concurrency limit of the member is reached, the call fails immediately (and the failure is reported) instead
+ * of waiting for a slot, and if the local executor is saturated a local call fails (and the failure is reported)
+ * instead of being executed by the calling thread.
+ *
+ * @author Peter Veentjer.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OneWay {
+}
@@ -0,0 +1,35 @@
+package com.hazelblast.client.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that can be placed on a {@link Partitioned} method to pipeline the calls to it: successive calls for
+ * the same partition can be issued without waiting for the previous ones to complete, and are guaranteed to be
+ * executed by the owner of the partition in the order they were issued. This ordering also holds between different
+ * pipelined methods, as long as their calls are for the same partition.
+ * <p/>
+ * Since the caller should not wait, the method either needs to return a {@link java.util.concurrent.Future} or needs
+ * to be {@link OneWay}.
+ * <p/>
+ * Calls for the same partition are send one batch at the time: while a batch is being executed, new calls are
+ * queued and they are send as the next batch when the current batch completes. The failure semantics are:
+ * <ol>
+ * <li>if a call throws an exception, the calls behind it are executed normally.</li>
+ * <li>if the partition moved before a call could be executed, that call and all calls behind it are send to the new
+ * owner of the partition, so the order is preserved.</li>
+ * <li>if the owner left or the batch could not be send, it is unknown which calls have been executed. So the calls
+ * in the batch and all queued calls fail with a {@link com.hazelblast.client.exceptions.PipelineBrokenException}, and
+ * they are not retried. Calls issued afterwards start a new pipeline.</li>
+ * </ol>
+ * A call that times out or is cancelled while it is queued is not send, but a call that times out while its batch is
+ * being executed still can be executed.
+ *
+ * @author Peter Veentjer.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Pipelined {
+}
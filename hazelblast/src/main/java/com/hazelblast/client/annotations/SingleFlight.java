@@ -0,0 +1,27 @@
+package com.hazelblast.client.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that can be placed on a read only {@link Partitioned} or {@link LoadBalanced} method, to collapse
+ * concurrent identical calls: if a call with equal arguments already is in flight, the caller doesn't send its own
+ * call but waits for the result of the call in flight. This prevents a hot key from being requested many times at
+ * once, for example when a cache in front of it expires.
+ * <p/>
+ * The callers share the result (or the exception) of the call, so the result should not be modified. A call to a
+ * {@link Partitioned} method without this annotation, of the same {@link DistributedService} interface, is
+ * considered to be a write: callers that arrive after a write with the same partition key don't join a call that
+ * was in flight before the write.
+ * <p/>
+ * The method can't be void, {@link OneWay}, {@link Pipelined}, return a {@link java.util.concurrent.Future} or return
+ * an {@link java.util.Iterator}. It can be combined with {@link NearCached}; then only a cache miss is collapsed.
+ *
+ * @author Peter Veentjer.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SingleFlight {
+}
@@ -0,0 +1,16 @@
+package com.hazelblast.client.exceptions;
+
+/**
+ * A {@link RemotingException} thrown when a call is not send to a member because the circuit breaker for that member
+ * is open; so the member recently failed too many calls.
+ *
+ * @author Peter Veentjer.
+ * @see com.hazelblast.client.impl.CircuitBreaker
+ */
+public class CircuitBreakerOpenException extends RemotingException {
+    static final long serialVersionUID = 1;
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.hazelblast.client.exceptions;
+
+/**
+ * A {@link RemotingException} thrown when a call can't be send to a member because the number of outstanding calls to
+ * that member already reached its limit, and no slot became available within the allowed waiting time.
+ *
+ * @author Peter Veentjer.
+ * @see com.hazelblast.client.impl.AdaptiveConcurrencyLimiter
+ */
+public class ConcurrencyLimitExceededException extends RemotingException {
+    static final long serialVersionUID = 1;
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
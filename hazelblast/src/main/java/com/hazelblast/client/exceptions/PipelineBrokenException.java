@@ -0,0 +1,16 @@
+package com.hazelblast.client.exceptions;
+
+/**
+ * A {@link RemotingException} thrown when a call to a {@link com.hazelblast.client.annotations.Pipelined} method
+ * fails because its pipeline broke, for example because the owner of the partition left while the call was being
+ * executed. It is unknown if the call has been executed.
+ *
+ * @author Peter Veentjer.
+ */
+public class PipelineBrokenException extends RemotingException {
+    static final long serialVersionUID = 1;
+
+    public PipelineBrokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
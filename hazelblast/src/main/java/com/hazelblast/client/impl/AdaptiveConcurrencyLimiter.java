@@ -0,0 +1,236 @@
+package com.hazelblast.client.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.String.format;
+
+/**
+ * Limits the number of outstanding calls to a single {@link com.hazelcast.core.Member}. The limit is not fixed, but
+ * adjusted based on the observed latency using AIMD (additive increase, multiplicative decrease):
+ * <ol>
+ * <li>when a call completes within {@link #getLatencyTolerance()} times the 'no load' latency, and the limit was actually
+ * used, the limit is increased by roughly 1 per 'limit' calls.</li>
+ * <li>when a call completes slower, or doesn't complete at all (timeout/member left), the limit is multiplied by the
+ * backoff ratio.</li>
+ * </ol>
+ * The 'no load' latency is the smallest latency seen in the last {@link #RTT_WINDOW_SIZE} calls, so that it is able to
+ * adapt when the characteristics of the member change.
+ * <p/>
+ * Calls that don't get a slot, can wait for one to become available or fail fast; this is controlled by the
+ * timeout passed to {@link #acquire(long)}.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+    static final int RTT_WINDOW_SIZE = 500;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotAvailable = lock.newCondition();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private double limit;
+    private int inFlight;
+    private long noLoadRttNs = Long.MAX_VALUE;
+    private long windowMinRttNs = Long.MAX_VALUE;
+    private int windowSamples;
+
+    /**
+     * Creates an AdaptiveConcurrencyLimiter with the default settings.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_BACKOFF_RATIO, DEFAULT_LATENCY_TOLERANCE);
+    }
+
+    /**
+     * Creates an AdaptiveConcurrencyLimiter.
+     *
+     * @param initialLimit     the initial limit.
+     * @param minLimit         the minimum limit.
+     * @param maxLimit         the maximum limit.
+     * @param backoffRatio     the ratio the limit is multiplied with when a call is dropped or too slow.
+     * @param latencyTolerance how many times slower than the 'no load' latency a call is allowed to be before it is
+     *                         seen as a sign of overload.
+     * @throws IllegalArgumentException if minLimit smaller than 1, if initialLimit not between minLimit and maxLimit,
+     *                                  if backoffRatio not between 0 and 1 (exclusive) or if latencyTolerance is
+     *                                  smaller than 1.
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException(format("minLimit can't be smaller than 1, minLimit was [%s]", minLimit));
+        }
+
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(format("initialLimit [%s] should be between minLimit [%s] and maxLimit [%s]",
+                    initialLimit, minLimit, maxLimit));
+        }
+
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException(format("backoffRatio should be between 0 and 1, backoffRatio was [%s]", backoffRatio));
+        }
+
+        if (latencyTolerance < 1) {
+            throw new IllegalArgumentException(format("latencyTolerance can't be smaller than 1, latencyTolerance was [%s]", latencyTolerance));
+        }
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Tries to acquire a slot for a call.
+     *
+     * @param timeoutNs the maximum time in nanoseconds to wait for a slot to become available. If 0 or smaller, the
+     *                  call fails fast.
+     * @return true if a slot was acquired, false otherwise.
+     * @throws InterruptedException if the calling thread was interrupted while waiting.
+     */
+    public boolean acquire(long timeoutNs) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (timeoutNs <= 0) {
+                    return false;
+                }
+                timeoutNs = slotAvailable.awaitNanos(timeoutNs);
+            }
+
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot that was acquired using {@link #acquire(long)} and updates the limit based on the outcome of the
+     * call.
+     *
+     * @param rttNs   the time in nanoseconds between sending the call and receiving the response.
+     * @param dropped true if no response was received (e.g. a timeout or the member left), false otherwise.
+     */
+    public void release(long rttNs, boolean dropped) {
+        lock.lock();
+        try {
+            int usedInFlight = inFlight;
+            inFlight--;
+
+            if (dropped) {
+                decrease();
+            } else {
+                sample(rttNs);
+                if (rttNs > noLoadRttNs * latencyTolerance) {
+                    decrease();
+                } else if (usedInFlight * 2 >= (int) limit) {
+                    //we only increase the limit if it actually is being used, otherwise a long period of low load would
+                    //make the limit grow without any evidence that the member can deal with it.
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+
+            slotAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot that was acquired using {@link #acquire(long)} without updating the limit. This is used for
+     * calls that were cancelled by the caller, since their outcome doesn't say anything about the member.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private void sample(long rttNs) {
+        if (rttNs < windowMinRttNs) {
+            windowMinRttNs = rttNs;
+        }
+
+        if (rttNs < noLoadRttNs) {
+            noLoadRttNs = rttNs;
+        }
+
+        windowSamples++;
+        if (windowSamples == RTT_WINDOW_SIZE) {
+            noLoadRttNs = windowMinRttNs;
+            windowMinRttNs = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the current limit.
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of calls currently in flight.
+     *
+     * @return the number of calls in flight.
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the latency tolerance.
+     *
+     * @return the latency tolerance.
+     */
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return format("AdaptiveConcurrencyLimiter{limit=%s, inFlight=%s, noLoadRtt=%s ms}",
+                    (int) limit, inFlight, noLoadRttNs == Long.MAX_VALUE ? "?" : TimeUnit.NANOSECONDS.toMillis(noLoadRttNs));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.nio.DataSerializable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import static com.hazelblast.utils.CompactEncoding.*;
+
+/**
+ * A composite task containing the calls to the same member that were gathered by an {@link InvocationBatcher}. The
+ * calls are executed one after the other by the member, and their results (or failures) are send back together in a
+ * {@link BatchResult}.
+ * <p/>
+ * The calls are written using the {@link com.hazelblast.utils.CompactEncoding}, so they can be
+ * {@link DataSerializable} (like the calls of the {@link DataSerializableDistributedMethodInvocationFactory}) or
+ * Serializable.
+ * <p/>
+ * If the batch is ordered (see {@link com.hazelblast.client.annotations.Pipelined}), the calls behind a call that failed
+ * with a {@link PartitionMovedException} are not executed, but fail with the same exception; so the client can send
+ * them, in order, to the new owner of the partition.
+ * <p/>
+ * It needs to be public with a public no arg constructor, since Hazelcast creates the instance before calling
+ * {@link #readData(java.io.DataInput)}.
+ *
+ * @author Peter Veentjer.
+ */
+public final class BatchInvocation implements Callable<BatchInvocation.BatchResult>, DataSerializable, HazelcastInstanceAware {
+
+    private Callable[] calls;
+    private boolean ordered;
+
+    public BatchInvocation() {
+    }
+
+    BatchInvocation(Callable[] calls) {
+        this(calls, false);
+    }
+
+    BatchInvocation(Callable[] calls, boolean ordered) {
+        this.calls = calls;
+        this.ordered = ordered;
+    }
+
+    public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+        //Hazelcast only injects the HazelcastInstance in the task itself, so it is passed on to the calls.
+        for (Callable call : calls) {
+            if (call instanceof HazelcastInstanceAware) {
+                ((HazelcastInstanceAware) call).setHazelcastInstance(hazelcastInstance);
+            }
+        }
+    }
+
+    public BatchResult call() {
+        Object[] values = new Object[calls.length];
+        boolean[] failed = new boolean[calls.length];
+        PartitionMovedException partitionMoved = null;
+        for (int k = 0; k < calls.length; k++) {
+            if (partitionMoved != null) {
+                values[k] = partitionMoved;
+                failed[k] = true;
+                continue;
+            }
+
+            try {
+                values[k] = calls[k].call();
+            } catch (Throwable e) {
+                //a failing call should not fail the other calls in the batch.
+                values[k] = e;
+                failed[k] = true;
+                if (ordered && e instanceof PartitionMovedException) {
+                    partitionMoved = (PartitionMovedException) e;
+                }
+            }
+        }
+        return new BatchResult(values, failed);
+    }
+
+    public void writeData(DataOutput out) throws IOException {
+        out.writeBoolean(ordered);
+        writeVarInt(out, calls.length);
+        for (Callable call : calls) {
+            writeObject(out, call);
+        }
+    }
+
+    public void readData(DataInput in) throws IOException {
+        ordered = in.readBoolean();
+        calls = new Callable[readVarInt(in)];
+        for (int k = 0; k < calls.length; k++) {
+            calls[k] = (Callable) readObject(in);
+        }
+    }
+
+    int size() {
+        return calls.length;
+    }
+
+    /**
+     * The results of the calls in a {@link BatchInvocation}, in the same order as the calls.
+     */
+    public static final class BatchResult implements DataSerializable {
+
+        private Object[] values;
+        private boolean[] failed;
+
+        public BatchResult() {
+        }
+
+        BatchResult(Object[] values, boolean[] failed) {
+            this.values = values;
+            this.failed = failed;
+        }
+
+        int size() {
+            return values.length;
+        }
+
+        /**
+         * Returns the result of a call, or the Throwable it failed with.
+         *
+         * @param index the index of the call.
+         * @return the result or the Throwable.
+         */
+        Object getValue(int index) {
+            return values[index];
+        }
+
+        boolean isFailed(int index) {
+            return failed[index];
+        }
+
+        public void writeData(DataOutput out) throws IOException {
+            writeVarInt(out, values.length);
+            for (int k = 0; k < values.length; k++) {
+                out.writeBoolean(failed[k]);
+                writeObject(out, values[k]);
+            }
+        }
+
+        public void readData(DataInput in) throws IOException {
+            int size = readVarInt(in);
+            values = new Object[size];
+            failed = new boolean[size];
+            for (int k = 0; k < size; k++) {
+                failed[k] = in.readBoolean();
+                values[k] = readObject(in);
+            }
+        }
+    }
+}
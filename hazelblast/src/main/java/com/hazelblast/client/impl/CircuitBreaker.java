@@ -0,0 +1,222 @@
+package com.hazelblast.client.impl;
+
+import static java.lang.String.format;
+
+/**
+ * A circuit breaker that protects the client against a single member that stops responding.
+ * <p/>
+ * The CircuitBreaker keeps track of the outcome of the last {@code windowSize} calls:
+ * <ol>
+ * <li>{@link State#CLOSED}: calls are allowed. When at least {@code minimumCalls} have been recorded and the percentage
+ * of failed calls reaches the {@code failureRateThreshold}, the breaker opens.</li>
+ * <li>{@link State#OPEN}: calls are not allowed. After {@code openDurationMs} the breaker becomes half open.</li>
+ * <li>{@link State#HALF_OPEN}: only {@code halfOpenTrialCalls} trial calls are allowed. If they all succeed, the
+ * breaker closes; if one of them fails, the breaker opens again.</li>
+ * </ol>
+ * A failure is a call that didn't get a response from the member (a timeout or the member left). An exception thrown by
+ * the service itself is a response, and therefor counts as a success.
+ * <p/>
+ * Every call for which {@link #tryAcquirePermission()} returned true, should be completed with exactly one of
+ * {@link #onSuccess()}, {@link #onFailure()} or {@link #onCancelled()}.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class CircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final int DEFAULT_MINIMUM_CALLS = 10;
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final long DEFAULT_OPEN_DURATION_MS = 5000;
+    public static final int DEFAULT_HALF_OPEN_TRIAL_CALLS = 3;
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenTrialCalls;
+
+    private State state = State.CLOSED;
+    private int windowIndex;
+    private int recordedCalls;
+    private int failedCalls;
+    private long openedAtMs;
+    private int trialCallsStarted;
+    private int trialCallsSucceeded;
+
+    /**
+     * Creates a CircuitBreaker with the default settings.
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_CALLS, DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_OPEN_DURATION_MS,
+                DEFAULT_HALF_OPEN_TRIAL_CALLS);
+    }
+
+    /**
+     * Creates a CircuitBreaker.
+     *
+     * @param windowSize           the number of most recent calls used to calculate the failure rate.
+     * @param minimumCalls         the minimum number of calls recorded before the breaker is allowed to open.
+     * @param failureRateThreshold the percentage of failed calls that opens the breaker.
+     * @param openDurationMs       the time in milliseconds the breaker stays open before trial calls are allowed.
+     * @param halfOpenTrialCalls   the number of trial calls when half open.
+     * @throws IllegalArgumentException if windowSize, minimumCalls or halfOpenTrialCalls smaller than 1, if minimumCalls
+     *                                  larger than windowSize, if failureRateThreshold not between 1 and 100 or if
+     *                                  openDurationMs smaller than 0.
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openDurationMs, int halfOpenTrialCalls) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException(format("windowSize can't be smaller than 1, windowSize was [%s]", windowSize));
+        }
+
+        if (minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException(
+                    format("minimumCalls should be between 1 and windowSize [%s], minimumCalls was [%s]", windowSize, minimumCalls));
+        }
+
+        if (failureRateThreshold < 1 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException(
+                    format("failureRateThreshold should be between 1 and 100, failureRateThreshold was [%s]", failureRateThreshold));
+        }
+
+        if (openDurationMs < 0) {
+            throw new IllegalArgumentException(format("openDurationMs can't be smaller than 0, openDurationMs was [%s]", openDurationMs));
+        }
+
+        if (halfOpenTrialCalls < 1) {
+            throw new IllegalArgumentException(
+                    format("halfOpenTrialCalls can't be smaller than 1, halfOpenTrialCalls was [%s]", halfOpenTrialCalls));
+        }
+
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenTrialCalls = halfOpenTrialCalls;
+    }
+
+    /**
+     * Checks if a call is allowed to be send.
+     *
+     * @return true if the call is allowed, false otherwise.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAtMs < openDurationMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialCallsStarted = 0;
+                trialCallsSucceeded = 0;
+                //fall through; the first trial call is this one.
+            case HALF_OPEN:
+                if (trialCallsStarted >= halfOpenTrialCalls) {
+                    return false;
+                }
+                trialCallsStarted++;
+                return true;
+            default:
+                throw new IllegalStateException("Unrecognized state: " + state);
+        }
+    }
+
+    /**
+     * Records that a permitted call received a response.
+     */
+    public synchronized void onSuccess() {
+        switch (state) {
+            case CLOSED:
+                record(false);
+                break;
+            case HALF_OPEN:
+                trialCallsSucceeded++;
+                if (trialCallsSucceeded >= halfOpenTrialCalls) {
+                    close();
+                }
+                break;
+            case OPEN:
+                //a call that was permitted before the breaker opened; it doesn't change the verdict.
+                break;
+            default:
+                throw new IllegalStateException("Unrecognized state: " + state);
+        }
+    }
+
+    /**
+     * Records that a permitted call didn't receive a response.
+     */
+    public synchronized void onFailure() {
+        switch (state) {
+            case CLOSED:
+                record(true);
+                if (recordedCalls >= minimumCalls && failedCalls * 100 >= failureRateThreshold * recordedCalls) {
+                    open();
+                }
+                break;
+            case HALF_OPEN:
+                open();
+                break;
+            case OPEN:
+                break;
+            default:
+                throw new IllegalStateException("Unrecognized state: " + state);
+        }
+    }
+
+    /**
+     * Records that a permitted call was never send, so the permission is returned without recording an outcome.
+     */
+    public synchronized void onCancelled() {
+        if (state == State.HALF_OPEN && trialCallsStarted > 0) {
+            trialCallsStarted--;
+        }
+    }
+
+    /**
+     * Returns the current State of this CircuitBreaker.
+     *
+     * @return the current State.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == window.length) {
+            if (window[windowIndex]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+
+        window[windowIndex] = failure;
+        if (failure) {
+            failedCalls++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMs = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        recordedCalls = 0;
+        failedCalls = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return format("CircuitBreaker{state=%s, recordedCalls=%s, failedCalls=%s}", state, recordedCalls, failedCalls);
+    }
+}
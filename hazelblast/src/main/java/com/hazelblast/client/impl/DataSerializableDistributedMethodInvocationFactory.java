@@ -0,0 +1,573 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.codec.CodecRegistry;
+import com.hazelblast.codec.CodecRegistryAware;
+import com.hazelblast.codec.CompressionAware;
+import com.hazelblast.codec.CompressionStats;
+import com.hazelblast.codec.Compressor;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.utils.ByteBufferPool;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.nio.DataSerializable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static com.hazelblast.utils.CompactEncoding.*;
+import static java.lang.String.format;
+
+/**
+ * A DistributedMethodInvocationFactory that generates {@link Callable} implementations that are serialized using the
+ * Hazelcast {@link DataSerializable} mechanism instead of Java serialization.
+ * <p/>
+ * The envelope (slice, service, method, partition and argument types) is written field by field, and the arguments
+ * are written using the {@link com.hazelblast.utils.CompactEncoding}, so primitives, Strings, arrays and the common
+ * collections don't carry class descriptors. Arguments of other types are written using the {@link com.hazelblast.codec.Codec}
+ * registered for them and only fall back to Java serialization if there is none. The client uses the
+ * {@link ProxyProviderImpl#getCodecRegistry()} and the member the {@link com.hazelblast.server.Slice#getCodecRegistry()}.
+ * <p/>
+ * The call is split in a small header (slice, service, method, partition, argument types and the remaining timeout)
+ * and an opaque payload containing the arguments. The arguments are decoded when the call is executed: the Slice (and
+ * therefor its Codecs) is not known while Hazelcast deserializes the call, and a call for a partition that has moved
+ * or a call the caller already gave up on, is rejected based on the header alone. The result is send back as a {@link DistributedMethodResult} that is encoded the
+ * same way.
+ * <p/>
+ * When compression is configured (see {@link ProxyProviderImpl#setCompressionEnabled(boolean)}), the encoded arguments
+ * and result are compressed when they are larger than the threshold. The member compresses the result using the
+ * Compressor in its CodecRegistry with the same id as the one used for the arguments.
+ * <p/>
+ * When the timing breakdown is enabled (see {@link ProxyProviderImpl#setTimingBreakdownEnabled(boolean)}), the member
+ * measures the phases of the call and sends them back as {@link ServerTimings} after the result.
+ * <p/>
+ * Arguments and results of type byte[] and {@link ByteBuffer} are not encoded in the payload, but written after it
+ * as length prefixed raw regions; straight from the array or buffer and never compressed. On the member a ByteBuffer
+ * argument is read into a pooled direct buffer that is released after the result has been written, so a service should
+ * not hold on to a ByteBuffer argument after returning (returning the buffer, a slice of it or a result that refers to
+ * it is allowed). On the client a ByteBuffer result is a heap buffer.
+ *
+ * @author Peter Veentjer.
+ */
+public final class DataSerializableDistributedMethodInvocationFactory implements DistributedMethodInvocationFactory {
+
+    public final static DataSerializableDistributedMethodInvocationFactory INSTANCE = new DataSerializableDistributedMethodInvocationFactory();
+
+    private final static byte RAW_BYTE_ARRAY = 1;
+    private final static byte RAW_BYTE_BUFFER = 2;
+    //set in the kind byte of a result that is followed by ServerTimings.
+    private final static byte TIMINGS_FLAG = (byte) 0x80;
+
+    /**
+     * The pool of the direct buffers ByteBuffer arguments are read into on the member.
+     */
+    final static ByteBufferPool RECEIVE_BUFFER_POOL = new ByteBufferPool();
+
+    public <T> Callable<T> create(String sliceName, String serviceName, String methodName, Object[] args, String[] argTypes, int partitionId) {
+        return new DistributedMethodInvocation(sliceName, serviceName, methodName, args, argTypes, partitionId);
+    }
+
+    /**
+     * The Callable send to the member. It needs to be public with a public no arg constructor, since Hazelcast creates
+     * the instance before calling {@link #readData(java.io.DataInput)}.
+     */
+    public static class DistributedMethodInvocation
+            implements Callable, DataSerializable, HazelcastInstanceAware, CodecRegistryAware, CompressionAware, TimeoutAware,
+            TimingAware {
+
+        private transient ILogger logger;
+
+        private String sliceName;
+        private String serviceName;
+        private String methodName;
+        private Object[] args;
+        private Payload argPayload;
+        private transient int[] rawArgIndexes;
+        private transient Object[] rawArgs;
+        private int partitionId;
+        private String[] argTypes;
+        private byte compressorId;
+        private int compressionThresholdBytes = -1;
+        private long timeoutMs = -1;
+        private boolean timingRequested;
+        private transient long receivedNs;
+        private volatile transient HazelcastInstance hazelcastInstance;
+        private transient CodecRegistry codecRegistry;
+        private transient Compressor compressor;
+        private transient CompressionStats compressionStats;
+
+        public DistributedMethodInvocation() {
+        }
+
+        DistributedMethodInvocation(String sliceName, String serviceName, String methodName, Object[] args, String[] argTypes, int partitionId) {
+            this.sliceName = sliceName;
+            this.serviceName = serviceName;
+            this.methodName = methodName;
+            this.args = args;
+            this.partitionId = partitionId;
+            this.argTypes = argTypes;
+        }
+
+        public void writeData(DataOutput out) throws IOException {
+            writeString(out, sliceName);
+            writeString(out, serviceName);
+            writeString(out, methodName);
+            writeVarInt(out, partitionId);
+            writeVarLong(out, timeoutMs);
+
+            writeVarInt(out, argTypes.length);
+            for (String argType : argTypes) {
+                writeString(out, argType);
+            }
+
+            out.writeByte(compressorId);
+            writeVarInt(out, compressionThresholdBytes);
+            out.writeBoolean(timingRequested);
+
+            if (argPayload == null) {
+                argPayload = Payload.create(encodeArgs(), compressor, compressionThresholdBytes, compressionStats);
+            }
+            argPayload.writeTo(out);
+            writeRawArgs(out);
+        }
+
+        private void writeRawArgs(DataOutput out) throws IOException {
+            if (args == null) {
+                //the arguments have not been decoded yet, so the raw arguments that were read are written again.
+                int rawCount = rawArgs == null ? 0 : rawArgs.length;
+                writeVarInt(out, rawCount);
+                for (int k = 0; k < rawCount; k++) {
+                    writeVarInt(out, rawArgIndexes[k]);
+                    writeRaw(out, rawArgs[k]);
+                }
+                return;
+            }
+
+            int rawCount = 0;
+            for (Object arg : args) {
+                if (isRaw(arg)) {
+                    rawCount++;
+                }
+            }
+
+            writeVarInt(out, rawCount);
+            for (int k = 0; k < args.length; k++) {
+                if (isRaw(args[k])) {
+                    writeVarInt(out, k);
+                    writeRaw(out, args[k]);
+                }
+            }
+        }
+
+        private byte[] encodeArgs() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            //a method without arguments is called with a null args array.
+            if (args == null) {
+                writeVarInt(out, -1);
+            } else {
+                writeVarInt(out, args.length);
+                for (Object arg : args) {
+                    //raw arguments are written after the payload.
+                    writeObject(out, isRaw(arg) ? null : arg, codecRegistry);
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        public void readData(DataInput in) throws IOException {
+            sliceName = readString(in);
+            serviceName = readString(in);
+            methodName = readString(in);
+            partitionId = readVarInt(in);
+            timeoutMs = readVarLong(in);
+            receivedNs = System.nanoTime();
+
+            argTypes = new String[readVarInt(in)];
+            for (int k = 0; k < argTypes.length; k++) {
+                argTypes[k] = readString(in);
+            }
+
+            compressorId = in.readByte();
+            compressionThresholdBytes = readVarInt(in);
+            timingRequested = in.readBoolean();
+            argPayload = Payload.readFrom(in);
+
+            int rawCount = readVarInt(in);
+            if (rawCount > 0) {
+                rawArgIndexes = new int[rawCount];
+                rawArgs = new Object[rawCount];
+                for (int k = 0; k < rawCount; k++) {
+                    rawArgIndexes[k] = readVarInt(in);
+                    rawArgs[k] = readRaw(in, RECEIVE_BUFFER_POOL);
+                }
+            }
+        }
+
+        private Object[] decodeArgs(CodecRegistry codecRegistry) throws IOException {
+            DataInput in = new DataInputStream(new ByteArrayInputStream(argPayload.getBytes(codecRegistry, null)));
+
+            int argCount = readVarInt(in);
+            if (argCount < 0) {
+                return null;
+            }
+
+            Object[] args = new Object[argCount];
+            for (int k = 0; k < argCount; k++) {
+                args[k] = readObject(in, codecRegistry);
+            }
+
+            if (rawArgs != null) {
+                for (int k = 0; k < rawArgs.length; k++) {
+                    args[rawArgIndexes[k]] = rawArgs[k];
+                }
+            }
+            return args;
+        }
+
+        public void setCodecRegistry(CodecRegistry codecRegistry) {
+            this.codecRegistry = codecRegistry;
+        }
+
+        public void setRemainingNs(long remainingNs) {
+            //the remaining time is send instead of a deadline, since the clocks of the machines are not in sync.
+            this.timeoutMs = remainingNs == Long.MAX_VALUE ? -1 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNs));
+        }
+
+        public void setCompression(Compressor compressor, int thresholdBytes, CompressionStats stats) {
+            this.compressor = compressor;
+            this.compressorId = compressor == null ? 0 : compressor.getId();
+            this.compressionThresholdBytes = compressor == null ? -1 : thresholdBytes;
+            this.compressionStats = stats;
+        }
+
+        public void setTimingRequested(boolean timingRequested) {
+            this.timingRequested = timingRequested;
+        }
+
+        public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+            this.logger = hazelcastInstance.getLoggingService().getLogger(DistributedMethodInvocation.class.getName());
+        }
+
+        public Object call() throws Exception {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, format("started %s.%s in Slice %s", serviceName, methodName, sliceName));
+            }
+
+            Object result = null;
+            try {
+                long startNs = System.nanoTime();
+                if (args == null && argPayload != null) {
+                    //the header is validated first, so that no time is wasted on deserializing the arguments of a call
+                    //that is going to be rejected anyway.
+                    checkExpired();
+                    SliceServer.checkPartition(hazelcastInstance, sliceName, partitionId);
+                }
+                long checkedNs = System.nanoTime();
+
+                CodecRegistry codecRegistry = SliceServer.getCodecRegistry(hazelcastInstance, sliceName);
+                if (args == null && argPayload != null) {
+                    args = decodeArgs(codecRegistry);
+                }
+                long decodedNs = System.nanoTime();
+
+                result = SliceServer.executeMethod(hazelcastInstance, sliceName, serviceName, methodName, argTypes, args, partitionId);
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, format("finished %s.%s in Slice %s", serviceName, methodName, sliceName));
+                }
+
+                DistributedMethodResult methodResult = new DistributedMethodResult(result, codecRegistry);
+                //the result can share its memory with a ByteBuffer argument (e.g. it is a slice of it), so the
+                //buffers are only released after the result has been written.
+                methodResult.receiveBuffers = takeReceiveBuffers();
+                if (compressorId != 0 && codecRegistry != null) {
+                    methodResult.compressor = codecRegistry.getCompressor(compressorId);
+                    methodResult.compressionThresholdBytes = compressionThresholdBytes;
+                }
+                if (timingRequested) {
+                    //a call that was not deserialized (e.g. because the executor is not a Hazelcast executor) has not
+                    //been queued by Hazelcast.
+                    long queueWaitNs = receivedNs == 0 ? 0 : Math.max(0, startNs - receivedNs);
+                    methodResult.timings = new ServerTimings(
+                            queueWaitNs, decodedNs - checkedNs, checkedNs - startNs, System.nanoTime() - decodedNs, 0);
+                }
+                return methodResult;
+            } catch (PartitionMovedException e) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, format("failed to call %s.%s in Slice %s", serviceName, methodName, sliceName), e);
+                }
+
+                throw e;
+            } catch (DistributedMethodTimeoutException e) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, format("failed to call %s.%s in Slice %s", serviceName, methodName, sliceName), e);
+                }
+
+                throw e;
+            } catch (Exception e) {
+                if (logger.isLoggable(Level.SEVERE)) {
+                    logger.log(Level.SEVERE, format("failed to call %s.%s in Slice %s", serviceName, methodName, sliceName), e);
+                }
+                throw e;
+            } catch (Throwable e) {
+                if (logger.isLoggable(Level.SEVERE)) {
+                    logger.log(Level.SEVERE, format("failed to call %s.%s in Slice %s", serviceName, methodName, sliceName), e);
+                }
+
+                throw new RuntimeException(e);
+            } finally {
+                //the call failed, so nothing refers to the buffers anymore.
+                releaseReceiveBuffers(takeReceiveBuffers());
+            }
+        }
+
+        private ByteBuffer[] takeReceiveBuffers() {
+            if (rawArgs == null) {
+                return null;
+            }
+
+            List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(rawArgs.length);
+            for (Object rawArg : rawArgs) {
+                if (rawArg instanceof ByteBuffer) {
+                    buffers.add((ByteBuffer) rawArg);
+                }
+            }
+            rawArgs = null;
+            rawArgIndexes = null;
+            return buffers.isEmpty() ? null : buffers.toArray(new ByteBuffer[buffers.size()]);
+        }
+
+        private void checkExpired() {
+            if (timeoutMs < 0) {
+                return;
+            }
+
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - receivedNs);
+            if (waitedMs >= timeoutMs) {
+                throw new DistributedMethodTimeoutException(
+                        format("Call %s.%s in Slice %s expired after waiting [%s] ms to be executed, timeout was [%s] ms",
+                                serviceName, methodName, sliceName, waitedMs, timeoutMs), null);
+            }
+        }
+
+        public int getPartitionId() {
+            return partitionId;
+        }
+    }
+
+    /**
+     * The result of a {@link DistributedMethodInvocation}. The value is encoded using the CodecRegistry of the
+     * Slice, and decoded by the client using {@link #getValue(com.hazelblast.codec.CodecRegistry)}.
+     */
+    public static class DistributedMethodResult implements DataSerializable {
+
+        private transient Object value;
+        private transient CodecRegistry codecRegistry;
+        private transient Compressor compressor;
+        private transient int compressionThresholdBytes = -1;
+        private transient ByteBuffer[] receiveBuffers;
+        private Payload payload;
+        private ServerTimings timings;
+
+        public DistributedMethodResult() {
+        }
+
+        DistributedMethodResult(Object value, CodecRegistry codecRegistry) {
+            this.value = value;
+            this.codecRegistry = codecRegistry;
+        }
+
+        /**
+         * Returns the value of the result.
+         *
+         * @param codecRegistry    the CodecRegistry used to decode the value, can be null.
+         * @param compressionStats the CompressionStats to record the decompression of the value in, can be null.
+         * @return the value.
+         * @throws IOException if the value could not be decoded.
+         */
+        public Object getValue(CodecRegistry codecRegistry, CompressionStats compressionStats) throws IOException {
+            if (payload == null) {
+                //the result was not serialized (e.g. because the call was executed locally) or it was read raw.
+                return value;
+            }
+
+            byte[] bytes = payload.getBytes(codecRegistry, compressionStats);
+            return readObject(new DataInputStream(new ByteArrayInputStream(bytes)), codecRegistry);
+        }
+
+        /**
+         * Returns the ServerTimings of the call.
+         *
+         * @return the ServerTimings, or null if they were not requested.
+         */
+        public ServerTimings getServerTimings() {
+            return timings;
+        }
+
+        public void writeData(DataOutput out) throws IOException {
+            try {
+                long startNs = System.nanoTime();
+                byte timingsFlag = timings == null ? 0 : TIMINGS_FLAG;
+                if (isRaw(value)) {
+                    writeRaw(out, value, timingsFlag);
+                } else {
+                    out.writeByte(timingsFlag);
+                    if (payload == null) {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        writeObject(new DataOutputStream(bytes), value, codecRegistry);
+                        payload = Payload.create(bytes.toByteArray(), compressor, compressionThresholdBytes, null);
+                    }
+                    payload.writeTo(out);
+                }
+
+                if (timings != null) {
+                    //the timings are written after the result, so the time spent writing the result is included.
+                    timings.writeTo(out, System.nanoTime() - startNs);
+                }
+            } finally {
+                //a raw value is written straight from the buffer, so it can't be written again after the release.
+                ByteBuffer[] buffers = receiveBuffers;
+                receiveBuffers = null;
+                releaseReceiveBuffers(buffers);
+            }
+        }
+
+        public void readData(DataInput in) throws IOException {
+            byte kind = in.readByte();
+            boolean hasTimings = (kind & TIMINGS_FLAG) != 0;
+            kind = (byte) (kind & ~TIMINGS_FLAG);
+            if (kind == 0) {
+                payload = Payload.readFrom(in);
+            } else {
+                value = readRaw(kind, in, null);
+            }
+
+            if (hasTimings) {
+                timings = ServerTimings.readFrom(in);
+            }
+        }
+    }
+
+    private static void releaseReceiveBuffers(ByteBuffer[] buffers) {
+        if (buffers == null) {
+            return;
+        }
+
+        for (ByteBuffer buffer : buffers) {
+            RECEIVE_BUFFER_POOL.release(buffer);
+        }
+    }
+
+    private static boolean isRaw(Object object) {
+        return object instanceof byte[] || object instanceof ByteBuffer;
+    }
+
+    private static void writeRaw(DataOutput out, Object object) throws IOException {
+        writeRaw(out, object, (byte) 0);
+    }
+
+    private static void writeRaw(DataOutput out, Object object, byte flags) throws IOException {
+        if (object instanceof byte[]) {
+            byte[] bytes = (byte[]) object;
+            out.writeByte(RAW_BYTE_ARRAY | flags);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeByte(RAW_BYTE_BUFFER | flags);
+            writeByteBuffer(out, (ByteBuffer) object);
+        }
+    }
+
+    private static Object readRaw(DataInput in, ByteBufferPool pool) throws IOException {
+        return readRaw(in.readByte(), in, pool);
+    }
+
+    private static Object readRaw(byte kind, DataInput in, ByteBufferPool pool) throws IOException {
+        switch (kind) {
+            case RAW_BYTE_ARRAY:
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                return bytes;
+            case RAW_BYTE_BUFFER:
+                return readByteBuffer(in, pool);
+            default:
+                throw new IOException(format("Unknown raw region kind [%s]", kind));
+        }
+    }
+
+    /**
+     * Encoded arguments or an encoded result, optionally compressed.
+     */
+    static final class Payload {
+        private final byte compressorId;
+        private final int length;
+        private final byte[] bytes;
+
+        private Payload(byte compressorId, int length, byte[] bytes) {
+            this.compressorId = compressorId;
+            this.length = length;
+            this.bytes = bytes;
+        }
+
+        static Payload create(byte[] bytes, Compressor compressor, int thresholdBytes, CompressionStats stats) throws IOException {
+            if (compressor == null || thresholdBytes < 0 || bytes.length < thresholdBytes) {
+                return new Payload((byte) 0, bytes.length, bytes);
+            }
+
+            byte[] compressed = compressor.compress(bytes);
+            if (compressed.length >= bytes.length) {
+                if (stats != null) {
+                    stats.onIncompressible();
+                }
+                return new Payload((byte) 0, bytes.length, bytes);
+            }
+
+            if (stats != null) {
+                stats.onCompressed(bytes.length, compressed.length);
+            }
+            return new Payload(compressor.getId(), bytes.length, compressed);
+        }
+
+        static Payload readFrom(DataInput in) throws IOException {
+            byte compressorId = in.readByte();
+            int length = compressorId == 0 ? -1 : readVarInt(in);
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            return new Payload(compressorId, compressorId == 0 ? bytes.length : length, bytes);
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(compressorId);
+            if (compressorId != 0) {
+                writeVarInt(out, length);
+            }
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        byte[] getBytes(CodecRegistry codecRegistry, CompressionStats stats) throws IOException {
+            if (compressorId == 0) {
+                return bytes;
+            }
+
+            Compressor compressor = codecRegistry == null ? null : codecRegistry.getCompressor(compressorId);
+            if (compressor == null) {
+                throw new IOException(format("No Compressor registered with id [%s]", compressorId));
+            }
+
+            if (stats != null) {
+                stats.onCompressed(length, bytes.length);
+            }
+            return compressor.decompress(bytes, length);
+        }
+    }
+}
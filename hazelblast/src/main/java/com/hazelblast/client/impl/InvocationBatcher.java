@@ -0,0 +1,198 @@
+package com.hazelblast.client.impl;
+
+import com.hazelcast.core.DistributedTask;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.Member;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.hazelblast.utils.Arguments.notNull;
+
+/**
+ * Gathers the calls to a single member and sends them as a single {@link BatchInvocation}, to reduce the per message
+ * overhead when many small calls are made. A batch is send when it contains
+ * {@link ProxyProviderImpl#getMaxBatchSize()} calls, or when the batch window
+ * ({@link ProxyProviderImpl#getBatchWindowMicros()}) after the first call in the batch has passed; whichever comes
+ * first. A batch containing a single call is send as a normal task.
+ * <p/>
+ * The member executes the calls in a batch one after the other, so batching is meant for small and fast calls; a slow
+ * call delays the calls behind it in the batch.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class InvocationBatcher {
+
+    private final ProxyProviderImpl proxyProvider;
+    private final Member member;
+    private List<Entry> pending;
+    private ScheduledFuture flushFuture;
+
+    InvocationBatcher(ProxyProviderImpl proxyProvider, Member member) {
+        this.proxyProvider = notNull("proxyProvider", proxyProvider);
+        this.member = notNull("member", member);
+    }
+
+    /**
+     * Adds a call to the current batch.
+     *
+     * @param callable the call.
+     * @param future   the InvocationFuture that is completed with the result of the call.
+     */
+    void add(Callable callable, InvocationFuture<Object> future) {
+        Entry entry = new Entry(callable, future);
+        List<Entry> batch = null;
+        synchronized (this) {
+            if (pending == null) {
+                try {
+                    flushFuture = proxyProvider.callbackExecutor.schedule(new Runnable() {
+                        public void run() {
+                            flush();
+                        }
+                    }, proxyProvider.batchWindowMicros, TimeUnit.MICROSECONDS);
+                    pending = new ArrayList<Entry>();
+                } catch (RejectedExecutionException e) {
+                    //the ProxyProvider is shut down, so the batch window would never be closed; the call is send on
+                    //its own instead.
+                    batch = Collections.singletonList(entry);
+                }
+            }
+
+            if (batch == null) {
+                pending.add(entry);
+                if (pending.size() >= proxyProvider.maxBatchSize) {
+                    batch = pending;
+                    pending = null;
+                    flushFuture.cancel(false);
+                    flushFuture = null;
+                }
+            }
+        }
+
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Sends the current batch, if there is one.
+     */
+    void flush() {
+        List<Entry> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = null;
+            flushFuture = null;
+        }
+
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    private void send(final List<Entry> batch) {
+        Callable task;
+        if (batch.size() == 1) {
+            task = batch.get(0).callable;
+        } else {
+            Callable[] calls = new Callable[batch.size()];
+            for (int k = 0; k < calls.length; k++) {
+                calls[k] = batch.get(k).callable;
+            }
+            task = new BatchInvocation(calls);
+        }
+
+        DistributedTask distributedTask = new DistributedTask(task, member);
+        distributedTask.setExecutionCallback(new ExecutionCallback() {
+            private final AtomicBoolean responseClaimed = new AtomicBoolean();
+
+            public void done(final Future future) {
+                //only a single thread is allowed to get the result of a DistributedTask.
+                if (!responseClaimed.compareAndSet(false, true)) {
+                    return;
+                }
+
+                try {
+                    proxyProvider.callbackExecutor.execute(new Runnable() {
+                        public void run() {
+                            onResponse(batch, future);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    //the ProxyProvider is shut down; the response is available, so processing it doesn't block.
+                    onResponse(batch, future);
+                }
+            }
+        });
+
+        Future future;
+        try {
+            future = proxyProvider.executorService.submit(distributedTask);
+        } catch (RuntimeException e) {
+            for (Entry entry : batch) {
+                entry.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        if (future != distributedTask) {
+            //the executor is not a Hazelcast executor, so the ExecutionCallback will not be called and the future is
+            //waited for directly.
+            onResponse(batch, future);
+        }
+    }
+
+    private void onResponse(List<Entry> batch, Future future) {
+        Object result;
+        try {
+            result = future.get();
+        } catch (ExecutionException e) {
+            //a MemberLeftException has no cause.
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            for (Entry entry : batch) {
+                entry.future.completeExceptionally(cause);
+            }
+            return;
+        } catch (Throwable e) {
+            for (Entry entry : batch) {
+                entry.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        if (batch.size() == 1) {
+            batch.get(0).future.complete(result);
+            return;
+        }
+
+        BatchInvocation.BatchResult batchResult = (BatchInvocation.BatchResult) result;
+        for (int k = 0; k < batch.size(); k++) {
+            Entry entry = batch.get(k);
+            if (batchResult.isFailed(k)) {
+                entry.future.completeExceptionally((Throwable) batchResult.getValue(k));
+            } else {
+                entry.future.complete(batchResult.getValue(k));
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Callable callable;
+        private final InvocationFuture<Object> future;
+
+        private Entry(Callable callable, InvocationFuture<Object> future) {
+            this.callable = callable;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.hazelblast.client.impl;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import static java.lang.String.format;
+
+/**
+ * A {@link Future} that is completed by the invocation layer of the {@link ProxyProviderImpl} instead of by the thread
+ * that executes the call. This is the Future returned by methods of a distributed service that return a {@link Future}.
+ * <p/>
+ * Callbacks can be registered using {@link #addCallback(ExecutionCallback)}. They are executed by the thread that
+ * completes the future (normally one of the threads of the callback pool of the ProxyProviderImpl), so they should
+ * not block. If the future already is completed, the callback is executed by the calling thread.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @param <V> the type of the result.
+ * @author Peter Veentjer.
+ */
+public class InvocationFuture<V> implements Future<V> {
+
+    private final static ILogger logger = Logger.getLogger(InvocationFuture.class.getName());
+
+    private boolean done;
+    private boolean cancelled;
+    private V result;
+    private Throwable failure;
+    private List<ExecutionCallback<V>> callbacks;
+
+    /**
+     * Completes this InvocationFuture with the given result.
+     *
+     * @param result the result.
+     * @return true if this call completed the future, false if it already was completed.
+     */
+    public boolean complete(V result) {
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.result = result;
+            this.done = true;
+            notifyAll();
+        }
+
+        onDone();
+        notifyCallbacks();
+        return true;
+    }
+
+    /**
+     * Completes this InvocationFuture with the given failure.
+     *
+     * @param failure the cause of the failure.
+     * @return true if this call completed the future, false if it already was completed.
+     * @throws NullPointerException if failure is null.
+     */
+    public boolean completeExceptionally(Throwable failure) {
+        if (failure == null) {
+            throw new NullPointerException("'failure' can't be null");
+        }
+
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.failure = failure;
+            this.done = true;
+            notifyAll();
+        }
+
+        onDone();
+        notifyCallbacks();
+        return true;
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.cancelled = true;
+            this.failure = new CancellationException();
+            this.done = true;
+            notifyAll();
+        }
+
+        onCancel(mayInterruptIfRunning);
+        onDone();
+        notifyCallbacks();
+        return true;
+    }
+
+    /**
+     * Called once when this InvocationFuture is cancelled, before the callbacks are notified. Can be overridden to
+     * cancel the actual execution of the call.
+     *
+     * @param mayInterruptIfRunning if the thread executing the call should be interrupted.
+     */
+    protected void onCancel(boolean mayInterruptIfRunning) {
+    }
+
+    /**
+     * Called once when this InvocationFuture completes (normally, exceptionally or because it was cancelled), before
+     * the callbacks are notified.
+     */
+    protected void onDone() {
+    }
+
+    /**
+     * Returns the result without waiting. Only meaningful once this InvocationFuture is done.
+     *
+     * @return the result, or null if not completed normally.
+     */
+    synchronized V peekResult() {
+        return result;
+    }
+
+    /**
+     * Returns the failure without waiting. Only meaningful once this InvocationFuture is done.
+     *
+     * @return the failure, or null if not completed exceptionally.
+     */
+    synchronized Throwable peekFailure() {
+        return failure;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    public synchronized V get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    public synchronized V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long remainingNs = unit.toNanos(timeout);
+        long deadlineNs = System.nanoTime() + remainingNs;
+        while (!done) {
+            if (remainingNs <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNs);
+            remainingNs = deadlineNs - System.nanoTime();
+        }
+        return getResult();
+    }
+
+    private V getResult() throws ExecutionException {
+        if (cancelled) {
+            throw (CancellationException) failure;
+        }
+
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a callback that is executed when this InvocationFuture completes.
+     *
+     * @param callback the callback to add.
+     * @throws NullPointerException if callback is null.
+     */
+    public void addCallback(ExecutionCallback<V> callback) {
+        if (callback == null) {
+            throw new NullPointerException("'callback' can't be null");
+        }
+
+        synchronized (this) {
+            if (!done) {
+                if (callbacks == null) {
+                    callbacks = new LinkedList<ExecutionCallback<V>>();
+                }
+                callbacks.add(callback);
+                return;
+            }
+        }
+
+        callback.done(this);
+    }
+
+    private void notifyCallbacks() {
+        List<ExecutionCallback<V>> callbacks;
+        synchronized (this) {
+            callbacks = this.callbacks;
+            this.callbacks = null;
+        }
+
+        if (callbacks == null) {
+            return;
+        }
+
+        for (ExecutionCallback<V> callback : callbacks) {
+            try {
+                callback.done(this);
+            } catch (RuntimeException e) {
+                //a misbehaving callback should not prevent the other callbacks from being notified.
+                if (logger.isLoggable(Level.WARNING)) {
+                    logger.log(Level.WARNING, format("Failed to notify ExecutionCallback [%s]", callback), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.client.router.Target;
+
+import java.lang.reflect.Method;
+
+/**
+ * Intercepts the calls to the {@link com.hazelblast.client.annotations.Partitioned} and
+ * {@link com.hazelblast.client.annotations.LoadBalanced} methods of the proxies, e.g. to record metrics, to propagate
+ * tracing information or to throttle calls.
+ * <p/>
+ * Every call starts with {@link #beforeRouting(Method, Object[])}; the context it returns is passed to the other
+ * methods of this interceptor for the same call, so no state needs to be looked up. Then every attempt to send the
+ * call is routed and announced through {@link #afterRouting(Method, Object[], Target, Object)}, a failed attempt that
+ * is retried through {@link #onRetry(Method, Object[], Throwable, int, Object)}, and the call ends with exactly one
+ * {@link #onCompletion(Method, Object[], Object, Throwable, long, Object)}.
+ * <p/>
+ * An exception thrown by beforeRouting or afterRouting fails the call, so a call can be rejected. An exception thrown
+ * by onRetry or onCompletion is logged and ignored.
+ * <p/>
+ * The methods can be called by the calling thread and by the callback threads of the ProxyProvider, so they should not
+ * block. When no interceptors are registered, the calls don't pay anything for this mechanism.
+ *
+ * @author Peter Veentjer.
+ * @see ProxyProviderImpl#addInvocationInterceptor(InvocationInterceptor)
+ */
+public interface InvocationInterceptor {
+
+    /**
+     * Called when a call starts, before it is routed.
+     *
+     * @param method the method that is called.
+     * @param args   the arguments of the call, can be null.
+     * @return the context of the call for this interceptor, can be null.
+     * @throws RuntimeException to fail the call.
+     */
+    Object beforeRouting(Method method, Object[] args);
+
+    /**
+     * Called when an attempt of a call has been routed, just before it is send.
+     *
+     * @param method  the method that is called.
+     * @param args    the arguments of the call, can be null.
+     * @param target  the target the attempt is send to, or null if the executor selects the member.
+     * @param context the context returned by beforeRouting.
+     * @throws RuntimeException to fail the attempt; the failure is handled like any other failed attempt.
+     */
+    void afterRouting(Method method, Object[] args, Target target, Object context);
+
+    /**
+     * Called when a failed attempt of a call is going to be retried.
+     *
+     * @param method     the method that is called.
+     * @param args       the arguments of the call, can be null.
+     * @param cause      the failure of the attempt.
+     * @param retryCount the number of retries including this one.
+     * @param context    the context returned by beforeRouting.
+     */
+    void onRetry(Method method, Object[] args, Throwable cause, int retryCount, Object context);
+
+    /**
+     * Called when a call completes: normally, exceptionally, because it timed out or because it was cancelled.
+     *
+     * @param method     the method that is called.
+     * @param args       the arguments of the call, can be null.
+     * @param result     the result of the call, null if it failed.
+     * @param failure    the failure of the call, null if it completed normally.
+     * @param durationNs the time the call took in nanoseconds.
+     * @param context    the context returned by beforeRouting.
+     */
+    void onCompletion(Method method, Object[] args, Object result, Throwable failure, long durationNs, Object context);
+}
@@ -0,0 +1,264 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.server.IteratorUpload;
+import com.hazelblast.server.SliceServer;
+import com.hazelcast.core.DistributedTask;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MemberLeftException;
+import com.hazelcast.logging.ILogger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import static java.lang.String.format;
+
+/**
+ * Pushes the elements of an {@link Iterator} argument of a remote call to the member executing the call, in chunks
+ * of {@link ProxyProviderImpl#getUploadChunkSize()} elements. The argument itself is replaced by an
+ * {@link IteratorUpload}.
+ * <p/>
+ * A single chunk is in flight at any moment and the next chunk is only read from the Iterator once the member has
+ * accepted the previous one. The member only accepts a chunk when it has room for it, so the Iterator is consumed as
+ * fast as the service consumes the elements; neither side holds more than a few chunks in memory.
+ * <p/>
+ * The member waits a bounded time for room before it rejects a chunk, so a slow service holds back the upload without
+ * a stream of retries. A chunk the member doesn't accept, because the call has not started executing yet or because
+ * there still is no room, is offered again later; the delay doubles with every rejection up to
+ * {@link #MAX_RETRY_DELAY_MS}. The chunks are executed on the member by the {@link #EXECUTOR_NAME} executor: the call
+ * itself blocks a thread of the executor it was send to while waiting for the chunks, and Hazelcast could queue a
+ * chunk behind it.
+ * <p/>
+ * The Iterator is read and the chunks are pushed by the upload threads of the ProxyProvider; the callback threads only
+ * schedule the retries, so a slow Iterator can't delay the callbacks of other calls.
+ *
+ * @author Peter Veentjer.
+ */
+final class IteratorUploader {
+
+    public static final String EXECUTOR_NAME = "hazelblast-upload";
+
+    private static final Random RANDOM = new Random();
+    private static final long MIN_RETRY_DELAY_MS = 5;
+    private static final long MAX_RETRY_DELAY_MS = 100;
+
+    private final ProxyProviderImpl proxyProvider;
+    private final ILogger logger;
+    private final Iterator source;
+    private final long uploadId = RANDOM.nextLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Member target;
+    private volatile boolean started;
+    private volatile boolean stopped;
+    private byte[] pendingChunk;
+    private boolean pendingLast;
+    private long retryDelayMs = MIN_RETRY_DELAY_MS;
+
+    IteratorUploader(ProxyProviderImpl proxyProvider, Iterator source) {
+        this.proxyProvider = proxyProvider;
+        this.source = source;
+        this.logger = proxyProvider.hazelcastInstance.getLoggingService().getLogger(IteratorUploader.class.getName());
+    }
+
+    /**
+     * Returns the IteratorUpload that is send instead of the Iterator.
+     *
+     * @return the IteratorUpload.
+     */
+    IteratorUpload getUpload() {
+        return new IteratorUpload(uploadId);
+    }
+
+    /**
+     * Checks if the member has accepted a chunk. Once it has, the elements can't be send again, so the call can't be
+     * retried.
+     *
+     * @return true if a chunk has been accepted.
+     */
+    boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Starts pushing the chunks to the given member, or continues pushing to the given member if already started.
+     *
+     * @param member the member the call is send to.
+     */
+    void start(Member member) {
+        this.target = member;
+        if (running.compareAndSet(false, true)) {
+            schedule(0);
+        }
+    }
+
+    /**
+     * Stops pushing the chunks; e.g. because the call has completed.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    private void schedule(long delayMs) {
+        if (stopped) {
+            return;
+        }
+
+        final Runnable push = new Runnable() {
+            public void run() {
+                push();
+            }
+        };
+
+        try {
+            if (delayMs == 0) {
+                proxyProvider.uploadExecutor.execute(push);
+            } else {
+                proxyProvider.callbackExecutor.schedule(new Runnable() {
+                    public void run() {
+                        execute(push);
+                    }
+                }, delayMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            onFailure(e);
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            proxyProvider.uploadExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            onFailure(e);
+        }
+    }
+
+    private void retry() {
+        long delayMs = retryDelayMs;
+        retryDelayMs = Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+        schedule(delayMs);
+    }
+
+    private void push() {
+        if (stopped) {
+            return;
+        }
+
+        try {
+            if (pendingChunk == null) {
+                readChunk();
+            }
+
+            DistributedTask<Boolean> task = new DistributedTask<Boolean>(
+                    new UploadChunk(proxyProvider.sliceName, uploadId, pendingChunk), target);
+            task.setExecutionCallback(new ExecutionCallback<Boolean>() {
+                private final AtomicBoolean responseClaimed = new AtomicBoolean();
+
+                public void done(final Future<Boolean> future) {
+                    //only a single thread is allowed to get the result of a DistributedTask.
+                    if (!responseClaimed.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    //the next chunk is read from the Iterator, which should not be done by a Hazelcast thread.
+                    execute(new Runnable() {
+                        public void run() {
+                            onResponse(future);
+                        }
+                    });
+                }
+            });
+            proxyProvider.hazelcastInstance.getExecutorService(EXECUTOR_NAME).execute(task);
+        } catch (Throwable e) {
+            onFailure(e);
+        }
+    }
+
+    private void readChunk() throws Exception {
+        int chunkSize = proxyProvider.uploadChunkSize;
+        List<Object> elements = new ArrayList<Object>(Math.min(chunkSize, 16));
+        while (elements.size() < chunkSize && source.hasNext()) {
+            elements.add(source.next());
+        }
+        pendingLast = !source.hasNext();
+        pendingChunk = IteratorUpload.encodeChunk(elements, pendingLast, proxyProvider.codecRegistry);
+    }
+
+    private void onResponse(Future<Boolean> future) {
+        boolean accepted;
+        try {
+            accepted = future.get();
+        } catch (ExecutionException e) {
+            if (e instanceof MemberLeftException || e.getCause() instanceof MemberLeftException) {
+                //the call is retried on a different member, which will be the new target.
+                retry();
+            } else {
+                onFailure(e.getCause() == null ? e : e.getCause());
+            }
+            return;
+        } catch (Throwable e) {
+            onFailure(e);
+            return;
+        }
+
+        if (!accepted) {
+            retry();
+            return;
+        }
+
+        started = true;
+        retryDelayMs = MIN_RETRY_DELAY_MS;
+        pendingChunk = null;
+        if (pendingLast) {
+            stopped = true;
+        } else {
+            push();
+        }
+    }
+
+    private void onFailure(Throwable e) {
+        //the service will not receive the remaining elements, so the call itself fails on the member.
+        stopped = true;
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, format("Failed to push upload [%s] to member [%s]", uploadId, target), e);
+        }
+    }
+
+    /**
+     * The Callable that offers a chunk to the member.
+     */
+    static class UploadChunk implements Callable<Boolean>, Serializable, HazelcastInstanceAware {
+
+        static final long serialVersionUID = 1;
+
+        private final String sliceName;
+        private final long uploadId;
+        private final byte[] chunk;
+        private transient volatile HazelcastInstance hazelcastInstance;
+
+        UploadChunk(String sliceName, long uploadId, byte[] chunk) {
+            this.sliceName = sliceName;
+            this.uploadId = uploadId;
+            this.chunk = chunk;
+        }
+
+        public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public Boolean call() throws Exception {
+            return SliceServer.offerUploadChunk(hazelcastInstance, sliceName, uploadId, chunk);
+        }
+    }
+}
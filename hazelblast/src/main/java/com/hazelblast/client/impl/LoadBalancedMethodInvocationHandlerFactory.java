@@ -1,6 +1,7 @@
 package com.hazelblast.client.impl;
 
 import com.hazelblast.client.annotations.LoadBalanced;
+import com.hazelblast.client.annotations.SingleFlight;
 import com.hazelblast.client.router.NoOpRouter;
 import com.hazelblast.client.router.Router;
 import com.hazelcast.core.HazelcastInstance;
@@ -50,6 +51,11 @@ public class LoadBalancedMethodInvocationHandlerFactory extends RoutedMethodInvo
             }
         }
 
-        return new RoutedMethodInvocationHandler(method, timeoutMs, interruptOnTimeout, loadBalancer);
+        MethodInvocationHandler handler = new RoutedMethodInvocationHandler(method, timeoutMs, interruptOnTimeout, loadBalancer, true);
+        if (method.isAnnotationPresent(SingleFlight.class)) {
+            handler = new SingleFlightGroup.SingleFlightMethodInvocationHandler(
+                    method, handler, null, proxyProvider.getSingleFlightGroup(method), timeoutMs);
+        }
+        return handler;
     }
 }
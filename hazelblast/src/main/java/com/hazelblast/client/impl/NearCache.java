@@ -0,0 +1,349 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.client.annotations.NearCached;
+import com.hazelblast.client.exceptions.RemotingException;
+import com.hazelblast.client.router.PartitionRouter;
+import com.hazelblast.codec.CodecRegistry;
+import com.hazelcast.core.ExecutionCallback;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelblast.utils.CompactEncoding.readObject;
+import static com.hazelblast.utils.CompactEncoding.writeObject;
+import static java.lang.String.format;
+
+/**
+ * The client side cache of a {@link NearCached} method. It is a LRU cache bounded by
+ * {@link NearCached#maxEntries()}, and the results are indexed by their partition key, so the results for a key can
+ * be invalidated when a write for that key is done.
+ * <p/>
+ * The results are cached in encoded form and decoded on every hit, so every caller gets its own copy: a caller that
+ * modifies a result doesn't change the result other callers get. A result that can't be encoded is not cached.
+ * <p/>
+ * A call that misses the cache records the generation of the cache before it is send, and its result is only placed
+ * in the cache if its partition was not invalidated in the meantime. Otherwise a write or migration that happened
+ * while the call was in flight, could be overwritten by a stale result. The invalidations are tracked per partition,
+ * so a steady stream of writes to some keys doesn't prevent the results for keys in other partitions from being
+ * cached.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class NearCache {
+
+    private final Class serviceClass;
+    private final long ttlNs;
+    private final int maxEntries;
+    private final Map<CacheKey, Entry> entries;
+    private final Map<Object, Set<CacheKey>> keysByPartitionKey = new HashMap<Object, Set<CacheKey>>();
+    private final Map<Integer, Long> invalidationGenerations = new HashMap<Integer, Long>();
+    private final CodecRegistry codecRegistry;
+    private long generation;
+    private long clearGeneration;
+
+    NearCache(Method method, NearCached nearCached, CodecRegistry codecRegistry) {
+        if (nearCached.ttlMs() < 1) {
+            throw new IllegalArgumentException(
+                    format("@NearCached ttlMs of method '%s' can't be smaller than 1, ttlMs was [%s]", method, nearCached.ttlMs()));
+        }
+        if (nearCached.maxEntries() < 1) {
+            throw new IllegalArgumentException(
+                    format("@NearCached maxEntries of method '%s' can't be smaller than 1, maxEntries was [%s]",
+                            method, nearCached.maxEntries()));
+        }
+
+        this.serviceClass = method.getDeclaringClass();
+        this.ttlNs = TimeUnit.MILLISECONDS.toNanos(nearCached.ttlMs());
+        this.maxEntries = nearCached.maxEntries();
+        this.codecRegistry = codecRegistry;
+        this.entries = new LinkedHashMap<CacheKey, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+                if (size() <= NearCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the interface declaring the cached method.
+     *
+     * @return the service class.
+     */
+    Class getServiceClass() {
+        return serviceClass;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the current generation of the cache. The generation is increased by every invalidation, and the
+     * generation of the invalidation is recorded for the invalidated partition.
+     *
+     * @return the current generation.
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the cached result of a call.
+     *
+     * @param key the arguments of the call.
+     * @return the Entry containing the result, or null if the result is not cached or has expired.
+     */
+    synchronized Entry get(CacheKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.createdNs > ttlNs) {
+            entries.remove(key);
+            unindex(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Decodes the result of an Entry. Every call returns a new copy of the result.
+     *
+     * @param entry the Entry.
+     * @return the decoded result.
+     * @throws RemotingException if the result can't be decoded.
+     */
+    Object getValue(Entry entry) {
+        try {
+            return readObject(new DataInputStream(new ByteArrayInputStream(entry.value)), codecRegistry);
+        } catch (IOException e) {
+            throw new RemotingException(format("Failed to decode the near cached result of a method of [%s]",
+                    serviceClass.getName()), e);
+        }
+    }
+
+    /**
+     * Caches the result of a call, unless the partition of the call has been invalidated since the call was send.
+     *
+     * @param key          the arguments of the call.
+     * @param value        the result of the call.
+     * @param partitionKey the partition key of the call.
+     * @param partitionId  the id of the partition of the call.
+     * @param generation   the generation of the cache when the call was send.
+     */
+    void put(CacheKey key, Object value, Object partitionKey, int partitionId, long generation) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeObject(new DataOutputStream(out), value, codecRegistry);
+            bytes = out.toByteArray();
+        } catch (IOException e) {
+            return;
+        } catch (IllegalArgumentException e) {
+            //e.g. a result of a local call that isn't serializable.
+            return;
+        }
+
+        synchronized (this) {
+            Long invalidationGeneration = invalidationGenerations.get(partitionId);
+            if (clearGeneration > generation || (invalidationGeneration != null && invalidationGeneration > generation)) {
+                return;
+            }
+
+            Entry entry = new Entry(bytes, partitionKey, partitionId);
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                unindex(key, old);
+            }
+
+            Set<CacheKey> keys = keysByPartitionKey.get(partitionKey);
+            if (keys == null) {
+                keys = new HashSet<CacheKey>();
+                keysByPartitionKey.put(partitionKey, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Removes the cached results for the given partition key.
+     *
+     * @param partitionKey the partition key.
+     * @param partitionId  the id of the partition of the partition key.
+     */
+    synchronized void invalidateKey(Object partitionKey, int partitionId) {
+        generation++;
+        invalidationGenerations.put(partitionId, generation);
+        Set<CacheKey> keys = keysByPartitionKey.remove(partitionKey);
+        if (keys != null) {
+            for (CacheKey key : keys) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes the cached results for the given partition.
+     *
+     * @param partitionId the id of the partition.
+     */
+    synchronized void invalidatePartition(int partitionId) {
+        generation++;
+        invalidationGenerations.put(partitionId, generation);
+        for (Iterator<Map.Entry<CacheKey, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<CacheKey, Entry> mapEntry = it.next();
+            if (mapEntry.getValue().partitionId == partitionId) {
+                it.remove();
+                unindex(mapEntry.getKey(), mapEntry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    synchronized void clear() {
+        generation++;
+        clearGeneration = generation;
+        invalidationGenerations.clear();
+        entries.clear();
+        keysByPartitionKey.clear();
+    }
+
+    private void unindex(CacheKey key, Entry entry) {
+        Set<CacheKey> keys = keysByPartitionKey.get(entry.partitionKey);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByPartitionKey.remove(entry.partitionKey);
+            }
+        }
+    }
+
+    static final class Entry {
+        final byte[] value;
+        final Object partitionKey;
+        final int partitionId;
+        final long createdNs = System.nanoTime();
+
+        Entry(byte[] value, Object partitionKey, int partitionId) {
+            this.value = value;
+            this.partitionKey = partitionKey;
+            this.partitionId = partitionId;
+        }
+    }
+
+    /**
+     * The arguments of a call, compared by value.
+     */
+    static final class CacheKey {
+        private final Object[] args;
+        private final int hashCode;
+
+        CacheKey(Object[] args) {
+            this.args = args == null ? new Object[0] : args.clone();
+            this.hashCode = Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return hashCode == that.hashCode && Arrays.deepEquals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The MethodInvocationHandler of a {@link NearCached} method: it looks up the result in the NearCache, and only
+     * calls the member on a miss.
+     */
+    static final class CachingMethodInvocationHandler implements MethodInvocationHandler {
+        private final Method method;
+        private final MethodInvocationHandler handler;
+        private final PartitionRouter router;
+        private final NearCache nearCache;
+
+        CachingMethodInvocationHandler(Method method, MethodInvocationHandler handler, PartitionRouter router,
+                                       NearCache nearCache) {
+            this.method = method;
+            this.handler = handler;
+            this.router = router;
+            this.nearCache = nearCache;
+        }
+
+        public Object invoke(Object proxy, Object[] args) throws Throwable {
+            CacheKey key = new CacheKey(args);
+            Entry entry = nearCache.get(key);
+            if (entry != null) {
+                return nearCache.getValue(entry);
+            }
+
+            long generation = nearCache.getGeneration();
+            Object result = handler.invoke(proxy, args);
+            Object partitionKey = router.getPartitionKey(method, args);
+            nearCache.put(key, result, partitionKey, router.getPartitionId(partitionKey), generation);
+            return result;
+        }
+    }
+
+    /**
+     * The MethodInvocationHandler of a method that writes: a partitioned method without the {@link NearCached} or
+     * {@link com.hazelblast.client.annotations.SingleFlight} annotation, in an interface that contains such methods.
+     * The cached results for the partition key of the call are invalidated before the call is send and again when it
+     * completes, so a read that was in flight during the write can't cache a stale result.
+     */
+    static final class InvalidatingMethodInvocationHandler implements MethodInvocationHandler {
+        private final Method method;
+        private final MethodInvocationHandler handler;
+        private final PartitionRouter router;
+        private final ProxyProviderImpl proxyProvider;
+
+        InvalidatingMethodInvocationHandler(Method method, MethodInvocationHandler handler, PartitionRouter router,
+                                            ProxyProviderImpl proxyProvider) {
+            this.method = method;
+            this.handler = handler;
+            this.router = router;
+            this.proxyProvider = proxyProvider;
+        }
+
+        public Object invoke(Object proxy, Object[] args) throws Throwable {
+            final Object partitionKey = router.getPartitionKey(method, args);
+            final int partitionId = router.getPartitionId(partitionKey);
+            proxyProvider.onWrite(method.getDeclaringClass(), partitionKey, partitionId);
+            try {
+                Object result = handler.invoke(proxy, args);
+                if (result instanceof InvocationFuture) {
+                    //an asynchronous write is only done when its future completes.
+                    ((InvocationFuture<Object>) result).addCallback(new ExecutionCallback<Object>() {
+                        public void done(Future<Object> future) {
+                            proxyProvider.onWrite(method.getDeclaringClass(), partitionKey, partitionId);
+                        }
+                    });
+                }
+                return result;
+            } finally {
+                proxyProvider.onWrite(method.getDeclaringClass(), partitionKey, partitionId);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.hazelblast.client.impl;
+
+import java.lang.reflect.Method;
+
+/**
+ * Gets notified when a call to a {@link com.hazelblast.client.annotations.OneWay} method fails. Since the caller
+ * doesn't wait for a one way call, this is the only place a failure shows up.
+ * <p/>
+ * The listener is called by a callback thread of the ProxyProvider, so it should not block.
+ *
+ * @author Peter Veentjer.
+ */
+public interface OneWayFailureListener {
+
+    /**
+     * Called when a call to a one way method has failed; after the retries were exhausted.
+     *
+     * @param method the method that was called.
+     * @param args   the arguments of the call, can be null.
+     * @param cause  the cause of the failure.
+     */
+    void onFailure(Method method, Object[] args, Throwable cause);
+}
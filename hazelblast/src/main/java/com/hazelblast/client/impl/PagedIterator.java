@@ -0,0 +1,188 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.client.exceptions.RemotingException;
+import com.hazelblast.codec.CodecRegistry;
+import com.hazelblast.server.IteratorPage;
+import com.hazelblast.server.SliceServer;
+import com.hazelcast.core.DistributedTask;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.Member;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+
+import static com.hazelblast.utils.CompactEncoding.readObject;
+import static com.hazelblast.utils.CompactEncoding.writeObject;
+import static java.lang.String.format;
+
+/**
+ * The client side of an {@link Iterator} returned by a remotely called service method. It iterates over the
+ * elements of the current {@link IteratorPage} and fetches the next page from the member that has the cursor.
+ * <p/>
+ * The next page is requested as soon as a page is received, so it is transferred while the caller processes the
+ * current page, but never more than one page is requested ahead. So at most 2 pages are kept in memory on the client
+ * and the member doesn't advance the Iterator further than the client asks for.
+ * <p/>
+ * When the member that has the cursor leaves the cluster, the iteration can't be continued and a
+ * {@link RemotingException} is thrown.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class PagedIterator implements Iterator<Object> {
+
+    private final HazelcastInstance hazelcastInstance;
+    private final ExecutorService executor;
+    private final String sliceName;
+    private final CodecRegistry codecRegistry;
+    private final long timeoutNs;
+    private final Member member;
+    private final long cursorId;
+    private List<Object> elements;
+    private int index;
+    private boolean last;
+    private Future<byte[]> nextPage;
+
+    /**
+     * Creates a PagedIterator.
+     *
+     * @param proxyProvider the ProxyProviderImpl used to fetch the next pages.
+     * @param page          the first page.
+     * @param timeoutNs     the maximum time in nanoseconds to wait for a page.
+     */
+    PagedIterator(ProxyProviderImpl proxyProvider, IteratorPage page, long timeoutNs) {
+        this.hazelcastInstance = proxyProvider.hazelcastInstance;
+        this.executor = proxyProvider.executorService;
+        this.sliceName = proxyProvider.sliceName;
+        this.codecRegistry = proxyProvider.codecRegistry;
+        this.timeoutNs = timeoutNs;
+        this.cursorId = page.getCursorId();
+        this.member = page.isLast() ? null : findMember(page.getMemberUuid());
+        accept(page);
+    }
+
+    private Member findMember(String memberUuid) {
+        for (Member member : hazelcastInstance.getCluster().getMembers()) {
+            if (member.getUuid().equals(memberUuid)) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    private void accept(IteratorPage page) {
+        elements = page.getElements();
+        index = 0;
+        last = page.isLast();
+        nextPage = last ? null : fetch();
+    }
+
+    private Future<byte[]> fetch() {
+        if (member == null) {
+            //the member has left the cluster; this is reported when the page is needed.
+            return null;
+        }
+
+        DistributedTask<byte[]> task = new DistributedTask<byte[]>(new IteratorPageFetch(sliceName, cursorId), member);
+        executor.execute(task);
+        return task;
+    }
+
+    private IteratorPage awaitNextPage() {
+        Future<byte[]> nextPage = this.nextPage;
+        this.nextPage = null;
+        if (nextPage == null) {
+            throw new RemotingException(format("Failed to fetch the next page of cursor [%s], the member has left the cluster", cursorId));
+        }
+
+        byte[] bytes;
+        try {
+            if (timeoutNs == Long.MAX_VALUE) {
+                bytes = nextPage.get();
+            } else {
+                bytes = nextPage.get(timeoutNs, TimeUnit.NANOSECONDS);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RemotingException(format("Failed to fetch the next page of cursor [%s]", cursorId), e.getCause());
+        } catch (TimeoutException e) {
+            nextPage.cancel(true);
+            throw new DistributedMethodTimeoutException(
+                    format("Failed to fetch the next page of cursor [%s] in %s ms", cursorId, TimeUnit.NANOSECONDS.toMillis(timeoutNs)), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemotingException(format("Interrupted while fetching the next page of cursor [%s]", cursorId), e);
+        }
+
+        try {
+            return (IteratorPage) readObject(new DataInputStream(new ByteArrayInputStream(bytes)), codecRegistry);
+        } catch (IOException e) {
+            throw new RemotingException(format("Failed to decode the next page of cursor [%s]", cursorId), e);
+        }
+    }
+
+    public boolean hasNext() {
+        while (index == elements.size()) {
+            if (last) {
+                return false;
+            }
+            accept(awaitNextPage());
+        }
+        return true;
+    }
+
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Object element = elements.get(index);
+        //the element is not referenced by the page anymore, so it can be garbage collected once the caller is done.
+        elements.set(index, null);
+        index++;
+        return element;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The Callable that fetches the next page of a cursor. The page is encoded using the CodecRegistry of the Slice,
+     * so the elements don't need to be Serializable when they have a Codec.
+     */
+    static class IteratorPageFetch implements Callable<byte[]>, Serializable, HazelcastInstanceAware {
+
+        static final long serialVersionUID = 1;
+
+        private final String sliceName;
+        private final long cursorId;
+        private transient volatile HazelcastInstance hazelcastInstance;
+
+        IteratorPageFetch(String sliceName, long cursorId) {
+            this.sliceName = sliceName;
+            this.cursorId = cursorId;
+        }
+
+        public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public byte[] call() throws Exception {
+            IteratorPage page = SliceServer.fetchIteratorPage(hazelcastInstance, sliceName, cursorId);
+            CodecRegistry codecRegistry = SliceServer.getCodecRegistry(hazelcastInstance, sliceName);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeObject(new DataOutputStream(bytes), page, codecRegistry);
+            return bytes.toByteArray();
+        }
+    }
+}
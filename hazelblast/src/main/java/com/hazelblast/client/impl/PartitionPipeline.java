@@ -0,0 +1,242 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.client.exceptions.PipelineBrokenException;
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelcast.core.DistributedTask;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.Member;
+import com.hazelcast.partition.Partition;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.String.format;
+
+/**
+ * Sends the calls to {@link com.hazelblast.client.annotations.Pipelined} methods for a single partition, in the order
+ * they were issued. At most one batch is in flight: the calls issued while a batch is being executed are queued and
+ * send as the next batch (of at most {@link ProxyProviderImpl#getMaxBatchSize()} calls) when the current batch
+ * completes. The member executes the calls in a batch one after the other, so the calls are executed in issue order.
+ * <p/>
+ * If the partition moved, the calls that were not executed are placed back in front of the queue and send to the new
+ * owner. If the batch fails as a whole, it is unknown which calls have been executed, so the pipeline is broken: the
+ * calls in the batch and the queued calls fail with a {@link PipelineBrokenException}.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class PartitionPipeline {
+
+    private static final long RESEND_DELAY_MS = 50;
+
+    private final ProxyProviderImpl proxyProvider;
+    private final int partitionId;
+    private final LinkedList<Entry> queue = new LinkedList<Entry>();
+    private volatile Partition partition;
+    private boolean inFlight;
+
+    PartitionPipeline(ProxyProviderImpl proxyProvider, int partitionId) {
+        this.proxyProvider = proxyProvider;
+        this.partitionId = partitionId;
+    }
+
+    /**
+     * Adds a call to the end of the pipeline.
+     *
+     * @param callable the call.
+     * @param future   the InvocationFuture that is completed with the result of the call.
+     */
+    void add(Callable callable, InvocationFuture<Object> future) {
+        List<Entry> batch;
+        synchronized (this) {
+            queue.add(new Entry(callable, future));
+            if (inFlight) {
+                return;
+            }
+            batch = takeBatch();
+        }
+
+        send(batch);
+    }
+
+    /**
+     * Takes the next batch from the queue. The calls that completed while they were queued (because they timed out or
+     * were cancelled) are skipped. Should be called while holding the lock.
+     *
+     * @return the next batch, or null if there are no calls to send.
+     */
+    private List<Entry> takeBatch() {
+        List<Entry> batch = new ArrayList<Entry>();
+        int maxBatchSize = proxyProvider.maxBatchSize;
+        while (!queue.isEmpty() && batch.size() < maxBatchSize) {
+            Entry entry = queue.removeFirst();
+            if (!entry.future.isDone()) {
+                batch.add(entry);
+            }
+        }
+
+        inFlight = !batch.isEmpty();
+        return inFlight ? batch : null;
+    }
+
+    private void sendNext() {
+        List<Entry> batch;
+        synchronized (this) {
+            batch = takeBatch();
+        }
+        send(batch);
+    }
+
+    private void send(final List<Entry> batch) {
+        if (batch == null) {
+            return;
+        }
+
+        Member owner = getOwner();
+        if (owner == null) {
+            //the partition is being migrated, so we try again a bit later.
+            resend(batch);
+            return;
+        }
+
+        Callable[] calls = new Callable[batch.size()];
+        for (int k = 0; k < calls.length; k++) {
+            calls[k] = batch.get(k).callable;
+        }
+
+        DistributedTask task = new DistributedTask(new BatchInvocation(calls, true), owner);
+        task.setExecutionCallback(new ExecutionCallback() {
+            private final AtomicBoolean responseClaimed = new AtomicBoolean();
+
+            public void done(final Future future) {
+                //only a single thread is allowed to get the result of a DistributedTask.
+                if (!responseClaimed.compareAndSet(false, true)) {
+                    return;
+                }
+
+                try {
+                    proxyProvider.callbackExecutor.execute(new Runnable() {
+                        public void run() {
+                            onResponse(batch, future);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    //the ProxyProvider is shut down, so the pipeline can't make progress anymore.
+                    broken(batch, e);
+                }
+            }
+        });
+
+        Future future;
+        try {
+            future = proxyProvider.executorService.submit(task);
+        } catch (RuntimeException e) {
+            broken(batch, e);
+            return;
+        }
+
+        if (future != task) {
+            //the executor is not a Hazelcast executor, so the ExecutionCallback will not be called and the future is
+            //waited for directly.
+            onResponse(batch, future);
+        }
+    }
+
+    private Member getOwner() {
+        Partition partition = this.partition;
+        if (partition == null) {
+            for (Partition p : proxyProvider.hazelcastInstance.getPartitionService().getPartitions()) {
+                if (p.getPartitionId() == partitionId) {
+                    partition = p;
+                    break;
+                }
+            }
+            this.partition = partition;
+        }
+        return partition == null ? null : partition.getOwner();
+    }
+
+    private void onResponse(List<Entry> batch, Future future) {
+        BatchInvocation.BatchResult result;
+        try {
+            result = (BatchInvocation.BatchResult) future.get();
+        } catch (ExecutionException e) {
+            broken(batch, e.getCause() == null ? e : e.getCause());
+            return;
+        } catch (Throwable e) {
+            broken(batch, e);
+            return;
+        }
+
+        for (int k = 0; k < batch.size(); k++) {
+            Entry entry = batch.get(k);
+            if (!result.isFailed(k)) {
+                entry.future.complete(result.getValue(k));
+            } else if (result.getValue(k) instanceof PartitionMovedException) {
+                //this call and the ones behind it have not been executed.
+                resend(batch.subList(k, batch.size()));
+                return;
+            } else {
+                entry.future.completeExceptionally((Throwable) result.getValue(k));
+            }
+        }
+
+        sendNext();
+    }
+
+    /**
+     * Places the calls back in front of the queue, and sends them after a delay to give the partition table time to
+     * get updated. The pipeline remains in flight in the meantime, so no newer calls can overtake them.
+     */
+    private void resend(List<Entry> batch) {
+        synchronized (this) {
+            queue.addAll(0, batch);
+        }
+
+        partition = null;
+        try {
+            proxyProvider.callbackExecutor.schedule(new Runnable() {
+                public void run() {
+                    sendNext();
+                }
+            }, RESEND_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            //the ProxyProvider is shut down; the calls placed back in the queue are failed by broken.
+            broken(new ArrayList<Entry>(), e);
+        }
+    }
+
+    private void broken(List<Entry> batch, Throwable cause) {
+        List<Entry> failed = new ArrayList<Entry>(batch);
+        synchronized (this) {
+            failed.addAll(queue);
+            queue.clear();
+            inFlight = false;
+        }
+
+        PipelineBrokenException exception = new PipelineBrokenException(
+                format("The pipeline of partition [%s] is broken, it is unknown if the call has been executed", partitionId),
+                cause);
+        for (Entry entry : failed) {
+            entry.future.completeExceptionally(exception);
+        }
+    }
+
+    private static final class Entry {
+        private final Callable callable;
+        private final InvocationFuture<Object> future;
+
+        private Entry(Callable callable, InvocationFuture<Object> future) {
+            this.callable = callable;
+            this.future = future;
+        }
+    }
+}
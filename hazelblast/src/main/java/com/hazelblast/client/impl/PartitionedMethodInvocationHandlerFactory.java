@@ -1,9 +1,11 @@
 package com.hazelblast.client.impl;
 
+import com.hazelblast.client.annotations.NearCached;
+import com.hazelblast.client.annotations.OneWay;
 import com.hazelblast.client.annotations.PartitionKey;
 import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.client.annotations.SingleFlight;
 import com.hazelblast.client.router.PartitionRouter;
-import com.hazelblast.client.router.Router;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
@@ -62,8 +64,55 @@ public class PartitionedMethodInvocationHandlerFactory extends RoutedMethodInvoc
             }
         }
 
-        Router router = new PartitionRouter(hazelcastInstance, propertyMethod, propertyField, partitionKeyIndex);
-        return new RoutedMethodInvocationHandler(partitionedMethod, timeoutMs, interruptOnTimeout, router);
+        PartitionRouter router = new PartitionRouter(hazelcastInstance, propertyMethod, propertyField, partitionKeyIndex);
+        router.setHotKeySampler(proxyProvider.getHotKeySampler());
+        MethodInvocationHandler handler = new RoutedMethodInvocationHandler(partitionedMethod, timeoutMs, interruptOnTimeout, router);
+
+        boolean read = false;
+        if (partitionedMethod.isAnnotationPresent(SingleFlight.class)) {
+            read = true;
+            handler = new SingleFlightGroup.SingleFlightMethodInvocationHandler(
+                    partitionedMethod, handler, router, proxyProvider.getSingleFlightGroup(partitionedMethod), timeoutMs);
+        }
+
+        NearCached nearCached = partitionedMethod.getAnnotation(NearCached.class);
+        if (nearCached != null) {
+            read = true;
+            NearCache nearCache = proxyProvider.getNearCache(partitionedMethod, nearCached);
+            handler = new NearCache.CachingMethodInvocationHandler(partitionedMethod, handler, router, nearCache);
+        }
+
+        if (!read && partitionedMethod.isAnnotationPresent(OneWay.class)
+                && hasNearCachedMethod(partitionedMethod.getDeclaringClass())) {
+            //a one way call is not acknowledged, so the cached results can't be invalidated after the write is done.
+            throw new IllegalArgumentException(format("Method '%s' is annotated with @OneWay, but its interface " +
+                    "contains @NearCached methods whose results it can't invalidate", partitionedMethod));
+        }
+
+        if (!read && hasReadMethod(partitionedMethod.getDeclaringClass())) {
+            //every other partitioned method of the interface is considered to be a write.
+            return new NearCache.InvalidatingMethodInvocationHandler(partitionedMethod, handler, router, proxyProvider);
+        }
+
+        return handler;
+    }
+
+    private static boolean hasNearCachedMethod(Class serviceClass) {
+        for (Method method : serviceClass.getMethods()) {
+            if (method.isAnnotationPresent(NearCached.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasReadMethod(Class serviceClass) {
+        for (Method method : serviceClass.getMethods()) {
+            if (method.isAnnotationPresent(NearCached.class) || method.isAnnotationPresent(SingleFlight.class)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static String uppercaseFirstLetter(String s) {
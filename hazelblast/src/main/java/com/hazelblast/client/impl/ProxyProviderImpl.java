@@ -3,20 +3,45 @@ package com.hazelblast.client.impl;
 
 import com.hazelblast.client.ProxyProvider;
 import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.NearCached;
+import com.hazelblast.client.router.HotKeySampler;
+import com.hazelblast.codec.CodecRegistry;
+import com.hazelblast.codec.CompressionStats;
+import com.hazelblast.codec.Compressor;
+import com.hazelblast.codec.DeflateCompressor;
 import com.hazelblast.server.Slice;
+import com.hazelblast.utils.MethodStatsRegistry;
 import com.hazelcast.core.Cluster;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MembershipEvent;
+import com.hazelcast.core.MembershipListener;
 import com.hazelcast.logging.ILogger;
+import com.hazelcast.partition.MigrationEvent;
+import com.hazelcast.partition.MigrationListener;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 import static com.hazelblast.utils.Arguments.notNull;
 import static java.lang.String.format;
@@ -32,22 +57,82 @@ import static java.lang.String.format;
  * This ProxyProvider implementation is very customizable, one can add/remove/replace MethodInvocationHandlerFactories
  * that process certain annotations. If you want to add support for a new annotation (or change the behavior of an
  * existing annotation) just write a custom MethodInvocationHandlerFactory and register it with this {@link ProxyProviderImpl}.
+ * <p/>
+ * A ProxyProviderImpl registers listeners on the HazelcastInstance and owns a few threads, so it should be shut down
+ * using {@link #shutdown()} when it no longer is needed.
  */
 public final class ProxyProviderImpl implements ProxyProvider {
 
+    public static final int DEFAULT_CALLBACK_THREAD_COUNT = 2;
+    public static final int DEFAULT_LOCAL_THREAD_COUNT = 16;
+    public static final int DEFAULT_LOCAL_QUEUE_CAPACITY = 1000;
+    public static final int DEFAULT_UPLOAD_THREAD_COUNT = 4;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD_BYTES = 64 * 1024;
+    public static final int DEFAULT_UPLOAD_CHUNK_SIZE = 256;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 32;
+    public static final long DEFAULT_BATCH_WINDOW_MICROS = 100;
+    public static final int HOT_KEY_LOG_COUNT = 5;
+    public static final long DEFAULT_SLOW_CALL_THRESHOLD_MS = 1000;
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final InvocationInterceptor[] NO_INVOCATION_INTERCEPTORS = new InvocationInterceptor[0];
+
     protected final ILogger logger;
     protected final HazelcastInstance hazelcastInstance;
     protected final ExecutorService executorService;
     protected final Cluster cluster;
     protected final String sliceName;
+    protected final ScheduledThreadPoolExecutor callbackExecutor;
+    protected final ThreadPoolExecutor localExecutor;
+    protected final ThreadPoolExecutor uploadExecutor;
+    protected final CodecRegistry codecRegistry = new CodecRegistry();
+    protected final CompressionStats compressionStats = new CompressionStats();
+    protected final HotKeySampler hotKeySampler = new HotKeySampler();
+    protected final MethodStatsRegistry methodStats;
     protected volatile boolean localCallOptimizationEnabled = true;
+    protected volatile boolean concurrencyLimitEnabled = false;
+    protected volatile long concurrencyLimitMaxWaitMs = 0;
+    protected volatile boolean circuitBreakerEnabled = false;
+    protected volatile int circuitBreakerFailureRateThreshold = CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD;
+    protected volatile long circuitBreakerOpenDurationMs = CircuitBreaker.DEFAULT_OPEN_DURATION_MS;
+    protected volatile boolean retryBudgetEnabled = false;
+    protected volatile RetryBudget retryBudget = new RetryBudget();
+    protected volatile boolean compressionEnabled = false;
+    protected volatile int compressionThresholdBytes = DEFAULT_COMPRESSION_THRESHOLD_BYTES;
+    protected volatile Compressor compressor = new DeflateCompressor();
+    protected volatile int uploadChunkSize = DEFAULT_UPLOAD_CHUNK_SIZE;
+    protected volatile OneWayFailureListener oneWayFailureListener;
+    protected volatile InvocationInterceptor[] invocationInterceptors = NO_INVOCATION_INTERCEPTORS;
+    protected volatile boolean batchingEnabled = false;
+    protected volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    protected volatile long batchWindowMicros = DEFAULT_BATCH_WINDOW_MICROS;
+    protected volatile boolean timingBreakdownEnabled = false;
+    protected volatile long slowCallThresholdMs = DEFAULT_SLOW_CALL_THRESHOLD_MS;
     protected volatile DistributedMethodInvocationFactory distributedMethodInvocationFactory
             = SerializableDistributedMethodInvocationFactory.INSTANCE;
+    protected volatile boolean shutdown = false;
     private final ToStringEqualsHashCodeInvocationHandlerFactory toStringEqualsHashCodeInvocationHandlerFactory
             = new ToStringEqualsHashCodeInvocationHandlerFactory();
     private final ConcurrentMap<Class, Object> proxies = new ConcurrentHashMap<Class, Object>();
     private final ConcurrentMap<Class<? extends Annotation>, MethodInvocationHandlerFactory> methodInvocationHandlerFactories
             = new ConcurrentHashMap<Class<? extends Annotation>, MethodInvocationHandlerFactory>();
+    private final ConcurrentMap<Member, AdaptiveConcurrencyLimiter> concurrencyLimiters
+            = new ConcurrentHashMap<Member, AdaptiveConcurrencyLimiter>();
+    private final ConcurrentMap<Member, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<Member, CircuitBreaker>();
+    private final ConcurrentMap<Member, InvocationBatcher> invocationBatchers
+            = new ConcurrentHashMap<Member, InvocationBatcher>();
+    private final ConcurrentMap<Integer, PartitionPipeline> partitionPipelines
+            = new ConcurrentHashMap<Integer, PartitionPipeline>();
+    private final ConcurrentMap<Method, NearCache> nearCaches = new ConcurrentHashMap<Method, NearCache>();
+    private final ConcurrentMap<Method, SingleFlightGroup> singleFlightGroups
+            = new ConcurrentHashMap<Method, SingleFlightGroup>();
+    private final AtomicBoolean migrationListenerRegistered = new AtomicBoolean();
+    private final MembershipListener membershipListener = new MembershipListenerImpl();
+    private final MigrationListener migrationListener = new MigrationListenerImpl();
+    private volatile ObjectName hotKeySamplerObjectName;
+    private final Object hotKeyLogLock = new Object();
+    private long hotKeyLogIntervalMs = 0;
+    private ScheduledFuture hotKeyLogFuture;
 
     /**
      * Creates a new ProxyProvider that connects to the 'default' Slice.
@@ -93,12 +178,100 @@ public final class ProxyProviderImpl implements ProxyProvider {
         this.executorService = notNull("executorService", executorService);
         this.cluster = hazelcastInstance.getCluster();
         this.logger = hazelcastInstance.getLoggingService().getLogger(ProxyProviderImpl.class.getName());
+        this.methodStats = new MethodStatsRegistry(format("com.hazelblast:type=ClientMethodStats,slice=%s,instance=%s,id=%s",
+                ObjectName.quote(sliceName), ObjectName.quote(hazelcastInstance.getName()), System.identityHashCode(this)),
+                logger);
+        this.callbackExecutor = new ScheduledThreadPoolExecutor(DEFAULT_CALLBACK_THREAD_COUNT, new DaemonThreadFactory("hazelblast-callback-"));
+        //idle callback threads are released, so a ProxyProvider that isn't used doesn't keep threads around.
+        this.callbackExecutor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        this.callbackExecutor.allowCoreThreadTimeOut(true);
+        //timeouts of calls that completed in time are cancelled; they should not linger in the queue.
+        this.callbackExecutor.setRemoveOnCancelPolicy(true);
+        this.localExecutor = new ThreadPoolExecutor(DEFAULT_LOCAL_THREAD_COUNT, DEFAULT_LOCAL_THREAD_COUNT,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(DEFAULT_LOCAL_QUEUE_CAPACITY),
+                new DaemonThreadFactory("hazelblast-local-"));
+        this.localExecutor.allowCoreThreadTimeOut(true);
+        //Iterator arguments are read by their own threads, a slow Iterator should not delay the callbacks of other calls.
+        this.uploadExecutor = new ThreadPoolExecutor(DEFAULT_UPLOAD_THREAD_COUNT, DEFAULT_UPLOAD_THREAD_COUNT,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("hazelblast-upload-"));
+        this.uploadExecutor.allowCoreThreadTimeOut(true);
         registerMethodInvocationHandlerFactory(new LoadBalancedMethodInvocationHandlerFactory());
         registerMethodInvocationHandlerFactory(new PartitionedMethodInvocationHandlerFactory());
 
         for (MethodInvocationHandlerFactory invocationHandlerFactory : methodInvocationHandlerFactories.values()) {
             invocationHandlerFactory.proxyProvider = this;
         }
+
+        cluster.addMembershipListener(membershipListener);
+    }
+
+    /**
+     * Shuts down this ProxyProvider: the listeners it registered on the HazelcastInstance are removed, the MBeans it
+     * registered are unregistered and its threads are stopped.
+     * <p/>
+     * Calls that are in flight still complete or time out, but new calls fail with an {@link IllegalStateException}.
+     * <p/>
+     * This call is thread safe and can safely be made if this ProxyProvider already is shut down.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+        }
+
+        if (logger.isLoggable(Level.INFO)) {
+            logger.log(Level.INFO, format("[%s] Shutdown ProxyProvider", sliceName));
+        }
+
+        cluster.removeMembershipListener(membershipListener);
+        if (migrationListenerRegistered.get()) {
+            hazelcastInstance.getPartitionService().removeMigrationListener(migrationListener);
+        }
+
+        setHotKeyLogIntervalMs(0);
+        unregisterHotKeySamplerMBean();
+        methodStats.setJmxEnabled(false);
+
+        //the timeouts that already are scheduled are still executed, so the calls in flight can't hang.
+        callbackExecutor.shutdown();
+        localExecutor.shutdown();
+        uploadExecutor.shutdown();
+    }
+
+    /**
+     * Checks if this ProxyProvider is shut down.
+     *
+     * @return true if shut down, false otherwise.
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Blocks until all threads of this ProxyProvider have terminated after a shutdown request, or the timeout occurs,
+     * or the current thread is interrupted, whichever happens first.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout argument
+     * @return <tt>true</tt> if this ProxyProvider terminated and <tt>false</tt> if the timeout elapsed before
+     *         termination
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if unit is null
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadlineNs = System.nanoTime() + unit.toNanos(timeout);
+        if (!callbackExecutor.awaitTermination(timeout, unit)) {
+            return false;
+        }
+        if (!localExecutor.awaitTermination(deadlineNs - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        return uploadExecutor.awaitTermination(deadlineNs - System.nanoTime(), TimeUnit.NANOSECONDS);
     }
 
     /**
@@ -138,9 +311,14 @@ public final class ProxyProviderImpl implements ProxyProvider {
      * Local means that the HazelcastInstance of this ProxyProvider is the same HazelcastInstance as the HazelcastInstance
      * of the {@link com.hazelblast.server.SliceServer} that it going to process the call. So serialisation/deserialisation
      * of the arguments (and some other metadata) and the HazelcastExecutor is skipped completely, and the call is
-     * executed on the calling thread.
+     * executed by the calling thread itself.
      * <p/>
-     * The main drawback is that the timeout option is not obeyed.
+     * Local calls obey the timeout and the interruptOnTimeout option just like remote calls: the calling thread is
+     * interrupted when the timeout expires, and a call that completes after its timeout fails with a
+     * {@link com.hazelblast.client.exceptions.DistributedMethodTimeoutException}. Only the calls that the calling thread
+     * doesn't wait for (asynchronous and one way calls) and retries are executed on the bounded local executor (see
+     * {@link #setLocalThreadCount(int)}); such a call that is rejected because the local executor is saturated fails
+     * with a {@link com.hazelblast.client.exceptions.RemotingException}.
      *
      * @param localCallOptimizationEnabled if local calls should be optimized or not.
      */
@@ -148,6 +326,811 @@ public final class ProxyProviderImpl implements ProxyProvider {
         this.localCallOptimizationEnabled = localCallOptimizationEnabled;
     }
 
+    /**
+     * Returns the number of threads used to complete calls and to schedule retries and timeouts.
+     *
+     * @return the number of callback threads.
+     * @see #setCallbackThreadCount(int)
+     */
+    public int getCallbackThreadCount() {
+        return callbackExecutor.getCorePoolSize();
+    }
+
+    /**
+     * Sets the number of threads used to complete calls and to schedule retries and timeouts. By default this is set
+     * to {@link #DEFAULT_CALLBACK_THREAD_COUNT}.
+     * <p/>
+     * A remote call doesn't occupy a thread while it is in flight: when the response is received, the Future of the
+     * call is completed by one of the callback threads. So a few threads are able to deal with a large number of
+     * outstanding calls, especially when the methods of the distributed service return a {@link java.util.concurrent.Future}.
+     * Callbacks registered on such a Future run on these threads as well, so they should not block.
+     *
+     * @param callbackThreadCount the number of callback threads.
+     * @throws IllegalArgumentException if callbackThreadCount is smaller than 1.
+     */
+    public void setCallbackThreadCount(int callbackThreadCount) {
+        if (callbackThreadCount < 1) {
+            throw new IllegalArgumentException(
+                    format("callbackThreadCount can't be smaller than 1, callbackThreadCount was [%s]", callbackThreadCount));
+        }
+        callbackExecutor.setCorePoolSize(callbackThreadCount);
+    }
+
+    /**
+     * Returns the number of threads used to execute local calls that the calling thread doesn't execute itself.
+     *
+     * @return the number of local threads.
+     * @see #setLocalThreadCount(int)
+     */
+    public int getLocalThreadCount() {
+        return localExecutor.getMaximumPoolSize();
+    }
+
+    /**
+     * Sets the number of threads used to execute local calls that the calling thread doesn't execute itself, see
+     * {@link #setLocalCallOptimizationEnabled(boolean)}. By default this is set to
+     * {@link #DEFAULT_LOCAL_THREAD_COUNT}. At most {@link #DEFAULT_LOCAL_QUEUE_CAPACITY} local calls are queued
+     * waiting for a thread; local calls that don't fit in the queue fail with a
+     * {@link com.hazelblast.client.exceptions.RemotingException}.
+     *
+     * @param localThreadCount the number of local threads.
+     * @throws IllegalArgumentException if localThreadCount is smaller than 1.
+     * @see #setLocalCallOptimizationEnabled(boolean)
+     */
+    public void setLocalThreadCount(int localThreadCount) {
+        if (localThreadCount < 1) {
+            throw new IllegalArgumentException(
+                    format("localThreadCount can't be smaller than 1, localThreadCount was [%s]", localThreadCount));
+        }
+
+        //the core pool size is not allowed to exceed the maximum pool size, so the order matters.
+        if (localThreadCount > localExecutor.getMaximumPoolSize()) {
+            localExecutor.setMaximumPoolSize(localThreadCount);
+            localExecutor.setCorePoolSize(localThreadCount);
+        } else {
+            localExecutor.setCorePoolSize(localThreadCount);
+            localExecutor.setMaximumPoolSize(localThreadCount);
+        }
+    }
+
+    /**
+     * Returns true if the number of outstanding calls per member is limited, false otherwise.
+     *
+     * @return true if concurrency limiting is enabled.
+     * @see #setConcurrencyLimitEnabled(boolean)
+     */
+    public boolean isConcurrencyLimitEnabled() {
+        return concurrencyLimitEnabled;
+    }
+
+    /**
+     * Enables or disables limiting the number of outstanding calls per member. By default this is set to false.
+     * <p/>
+     * When enabled, each member gets an {@link AdaptiveConcurrencyLimiter} that caps the number of calls this
+     * ProxyProvider has in flight to that member. The limit is lowered when the member gets slower or stops responding,
+     * so that a struggling member isn't hammered by every client. Calls that exceed the limit wait at most
+     * {@link #getConcurrencyLimitMaxWaitMs()} for a slot and fail with a
+     * {@link com.hazelblast.client.exceptions.ConcurrencyLimitExceededException} otherwise.
+     * <p/>
+     * Local calls (see {@link #setLocalCallOptimizationEnabled(boolean)}) are not limited.
+     *
+     * @param concurrencyLimitEnabled if the number of outstanding calls per member should be limited.
+     */
+    public void setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled) {
+        this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a call waits for a slot if the concurrency limit of a member is reached.
+     *
+     * @return the maximum waiting time in milliseconds.
+     * @see #setConcurrencyLimitMaxWaitMs(long)
+     */
+    public long getConcurrencyLimitMaxWaitMs() {
+        return concurrencyLimitMaxWaitMs;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds a call waits for a slot if the concurrency limit of a member is reached.
+     * By default this is set to 0, so calls fail fast. The waiting time never exceeds the timeout of the call itself.
+     *
+     * @param concurrencyLimitMaxWaitMs the maximum waiting time in milliseconds.
+     * @throws IllegalArgumentException if concurrencyLimitMaxWaitMs is smaller than 0.
+     */
+    public void setConcurrencyLimitMaxWaitMs(long concurrencyLimitMaxWaitMs) {
+        if (concurrencyLimitMaxWaitMs < 0) {
+            throw new IllegalArgumentException(
+                    format("concurrencyLimitMaxWaitMs can't be smaller than 0, concurrencyLimitMaxWaitMs was [%s]", concurrencyLimitMaxWaitMs));
+        }
+        this.concurrencyLimitMaxWaitMs = concurrencyLimitMaxWaitMs;
+    }
+
+    /**
+     * Gets the {@link AdaptiveConcurrencyLimiter} for the given member. If none exists, it is created.
+     *
+     * @param member the member to get the AdaptiveConcurrencyLimiter for.
+     * @return the AdaptiveConcurrencyLimiter.
+     * @throws NullPointerException if member is null.
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter(Member member) {
+        notNull("member", member);
+
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.get(member);
+        if (limiter == null) {
+            limiter = new AdaptiveConcurrencyLimiter();
+            AdaptiveConcurrencyLimiter found = concurrencyLimiters.putIfAbsent(member, limiter);
+            limiter = found == null ? limiter : found;
+        }
+        return limiter;
+    }
+
+    /**
+     * Returns true if calls are protected by a circuit breaker per member, false otherwise.
+     *
+     * @return true if circuit breaking is enabled.
+     * @see #setCircuitBreakerEnabled(boolean)
+     */
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    /**
+     * Enables or disables a {@link CircuitBreaker} per member. By default this is set to false.
+     * <p/>
+     * When a member fails too many calls (they time out, or the member left), the breaker of that member opens and calls
+     * to that member fail fast with a {@link com.hazelblast.client.exceptions.CircuitBreakerOpenException} instead of
+     * waiting for the full timeout. Load balanced calls are rerouted to a different member if possible. After
+     * {@link #getCircuitBreakerOpenDurationMs()} a few trial calls are let through to see if the member has recovered.
+     * <p/>
+     * Local calls (see {@link #setLocalCallOptimizationEnabled(boolean)}) are not protected.
+     *
+     * @param circuitBreakerEnabled if calls should be protected by a circuit breaker.
+     */
+    public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+    }
+
+    /**
+     * Returns the percentage of failed calls that opens the circuit breaker of a member.
+     *
+     * @return the failure rate threshold.
+     * @see #setCircuitBreakerFailureRateThreshold(int)
+     */
+    public int getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    /**
+     * Sets the percentage of failed calls that opens the circuit breaker of a member. By default this is set to
+     * {@link CircuitBreaker#DEFAULT_FAILURE_RATE_THRESHOLD}.
+     * <p/>
+     * The new value only applies to circuit breakers that are created after this call.
+     *
+     * @param circuitBreakerFailureRateThreshold
+     *         the failure rate threshold.
+     * @throws IllegalArgumentException if circuitBreakerFailureRateThreshold is not between 1 and 100.
+     */
+    public void setCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+        if (circuitBreakerFailureRateThreshold < 1 || circuitBreakerFailureRateThreshold > 100) {
+            throw new IllegalArgumentException(
+                    format("circuitBreakerFailureRateThreshold should be between 1 and 100, circuitBreakerFailureRateThreshold was [%s]",
+                            circuitBreakerFailureRateThreshold));
+        }
+        this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+    }
+
+    /**
+     * Returns the time in milliseconds the circuit breaker of a member stays open before trial calls are let through.
+     *
+     * @return the open duration in milliseconds.
+     * @see #setCircuitBreakerOpenDurationMs(long)
+     */
+    public long getCircuitBreakerOpenDurationMs() {
+        return circuitBreakerOpenDurationMs;
+    }
+
+    /**
+     * Sets the time in milliseconds the circuit breaker of a member stays open before trial calls are let through.
+     * By default this is set to {@link CircuitBreaker#DEFAULT_OPEN_DURATION_MS}.
+     * <p/>
+     * The new value only applies to circuit breakers that are created after this call.
+     *
+     * @param circuitBreakerOpenDurationMs the open duration in milliseconds.
+     * @throws IllegalArgumentException if circuitBreakerOpenDurationMs is smaller than 0.
+     */
+    public void setCircuitBreakerOpenDurationMs(long circuitBreakerOpenDurationMs) {
+        if (circuitBreakerOpenDurationMs < 0) {
+            throw new IllegalArgumentException(
+                    format("circuitBreakerOpenDurationMs can't be smaller than 0, circuitBreakerOpenDurationMs was [%s]",
+                            circuitBreakerOpenDurationMs));
+        }
+        this.circuitBreakerOpenDurationMs = circuitBreakerOpenDurationMs;
+    }
+
+    /**
+     * Gets the {@link CircuitBreaker} for the given member. If none exists, it is created.
+     *
+     * @param member the member to get the CircuitBreaker for.
+     * @return the CircuitBreaker.
+     * @throws NullPointerException if member is null.
+     */
+    public CircuitBreaker getCircuitBreaker(Member member) {
+        notNull("member", member);
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(member);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(
+                    CircuitBreaker.DEFAULT_WINDOW_SIZE,
+                    CircuitBreaker.DEFAULT_MINIMUM_CALLS,
+                    circuitBreakerFailureRateThreshold,
+                    circuitBreakerOpenDurationMs,
+                    CircuitBreaker.DEFAULT_HALF_OPEN_TRIAL_CALLS);
+            CircuitBreaker found = circuitBreakers.putIfAbsent(member, circuitBreaker);
+            circuitBreaker = found == null ? circuitBreaker : found;
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns true if the retry budget is enforced, false otherwise.
+     *
+     * @return true if the retry budget is enforced.
+     * @see #setRetryBudgetEnabled(boolean)
+     */
+    public boolean isRetryBudgetEnabled() {
+        return retryBudgetEnabled;
+    }
+
+    /**
+     * Enables or disables enforcing the {@link RetryBudget}. By default this is set to false, so calls are retried
+     * until they time out.
+     * <p/>
+     * When enabled, a call that fails with a retryable exception (e.g. the partition moved) is only retried if the
+     * retry budget of this ProxyProvider allows it; otherwise it fails with a
+     * {@link com.hazelblast.client.exceptions.RemotingException} containing the original cause. This prevents all clients
+     * from multiplying the load on the cluster by retrying during a cluster wide migration.
+     * <p/>
+     * The retry statistics of the RetryBudget are recorded even if the budget is not enforced.
+     *
+     * @param retryBudgetEnabled if the retry budget should be enforced.
+     */
+    public void setRetryBudgetEnabled(boolean retryBudgetEnabled) {
+        this.retryBudgetEnabled = retryBudgetEnabled;
+    }
+
+    /**
+     * Gets the RetryBudget.
+     *
+     * @return the RetryBudget.
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Sets the RetryBudget.
+     * <p/>
+     * A volatile field is used to store the RetryBudget.
+     *
+     * @param retryBudget the new RetryBudget.
+     * @throws NullPointerException if retryBudget is null.
+     */
+    public void setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = notNull("retryBudget", retryBudget);
+    }
+
+    /**
+     * Gets the {@link CodecRegistry} used to encode the arguments and decode the results of distributed calls. Codecs
+     * can be registered on it at any moment, but they should also be registered on the
+     * {@link Slice#getCodecRegistry()} of the members.
+     * <p/>
+     * The CodecRegistry is only used by a {@link DistributedMethodInvocationFactory} that supports it, like the
+     * {@link DataSerializableDistributedMethodInvocationFactory}.
+     *
+     * @return the CodecRegistry.
+     */
+    public CodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+
+    /**
+     * Returns true if the arguments and results of all calls are compressed when they are larger than the threshold.
+     *
+     * @return true if compression is enabled.
+     * @see #setCompressionEnabled(boolean)
+     */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * Enables or disables compression of the arguments and results of all calls that are larger than
+     * {@link #getCompressionThresholdBytes()}. By default this is set to false; compression can also be enabled for
+     * a single method using the {@link com.hazelblast.client.annotations.Compressed} annotation.
+     * <p/>
+     * Compression is only applied if the {@link DistributedMethodInvocationFactory} supports it, like the
+     * {@link DataSerializableDistributedMethodInvocationFactory}. The member uses the same Compressor and threshold
+     * for the result, so it needs a Compressor with the same id in the {@link Slice#getCodecRegistry()}.
+     *
+     * @param compressionEnabled if compression should be enabled.
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * Returns the minimum size in bytes of the encoded arguments or result before they are compressed.
+     *
+     * @return the compression threshold in bytes.
+     */
+    public int getCompressionThresholdBytes() {
+        return compressionThresholdBytes;
+    }
+
+    /**
+     * Sets the minimum size in bytes of the encoded arguments or result before they are compressed. By default this is
+     * set to {@link #DEFAULT_COMPRESSION_THRESHOLD_BYTES}; small payloads hardly compress and the CPU time is better
+     * spend elsewhere.
+     *
+     * @param compressionThresholdBytes the compression threshold in bytes.
+     * @throws IllegalArgumentException if compressionThresholdBytes is smaller than 0.
+     */
+    public void setCompressionThresholdBytes(int compressionThresholdBytes) {
+        if (compressionThresholdBytes < 0) {
+            throw new IllegalArgumentException(
+                    format("compressionThresholdBytes can't be smaller than 0, compressionThresholdBytes was [%s]", compressionThresholdBytes));
+        }
+        this.compressionThresholdBytes = compressionThresholdBytes;
+    }
+
+    /**
+     * Gets the Compressor.
+     *
+     * @return the Compressor.
+     */
+    public Compressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Sets the Compressor used to compress the arguments. By default a {@link DeflateCompressor} is used.
+     * <p/>
+     * A volatile field is used to store the Compressor.
+     *
+     * @param compressor the new Compressor.
+     * @throws NullPointerException if compressor is null.
+     */
+    public void setCompressor(Compressor compressor) {
+        this.compressor = notNull("compressor", compressor);
+    }
+
+    /**
+     * Returns the CompressionStats, containing both the compressed arguments that were send and the compressed results
+     * that were received.
+     *
+     * @return the CompressionStats.
+     */
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    /**
+     * Returns the maximum number of elements of an {@link java.util.Iterator} argument that are send in a single chunk.
+     *
+     * @return the upload chunk size.
+     */
+    public int getUploadChunkSize() {
+        return uploadChunkSize;
+    }
+
+    /**
+     * Sets the maximum number of elements of an {@link java.util.Iterator} argument that are send in a single chunk.
+     * By default this is set to {@link #DEFAULT_UPLOAD_CHUNK_SIZE}.
+     * <p/>
+     * A volatile field is used to store the upload chunk size.
+     *
+     * @param uploadChunkSize the upload chunk size.
+     * @throws IllegalArgumentException if uploadChunkSize is smaller than 1.
+     */
+    public void setUploadChunkSize(int uploadChunkSize) {
+        if (uploadChunkSize < 1) {
+            throw new IllegalArgumentException(
+                    format("uploadChunkSize can't be smaller than 1, uploadChunkSize was [%s]", uploadChunkSize));
+        }
+        this.uploadChunkSize = uploadChunkSize;
+    }
+
+    /**
+     * Returns the OneWayFailureListener.
+     *
+     * @return the OneWayFailureListener, or null if the failures of one way calls are logged.
+     */
+    public OneWayFailureListener getOneWayFailureListener() {
+        return oneWayFailureListener;
+    }
+
+    /**
+     * Sets the OneWayFailureListener that is notified when a call to a {@link com.hazelblast.client.annotations.OneWay}
+     * method fails. By default this is null, and the failures are logged as a warning.
+     * <p/>
+     * A volatile field is used to store the OneWayFailureListener.
+     *
+     * @param oneWayFailureListener the OneWayFailureListener, can be null.
+     */
+    public void setOneWayFailureListener(OneWayFailureListener oneWayFailureListener) {
+        this.oneWayFailureListener = oneWayFailureListener;
+    }
+
+    /**
+     * Adds an InvocationInterceptor. The interceptors are called in the order they were added; onCompletion is called
+     * in the reverse order. A call only sees the interceptors that were registered when it started.
+     * <p/>
+     * The interceptors are stored in a copy on write array, so adding and removing is expensive, but calling them is
+     * cheap. When there are no interceptors, calls don't pay anything for them.
+     *
+     * @param interceptor the InvocationInterceptor to add.
+     * @throws NullPointerException if interceptor is null.
+     */
+    public synchronized void addInvocationInterceptor(InvocationInterceptor interceptor) {
+        notNull("interceptor", interceptor);
+
+        InvocationInterceptor[] interceptors = Arrays.copyOf(invocationInterceptors, invocationInterceptors.length + 1);
+        interceptors[interceptors.length - 1] = interceptor;
+        invocationInterceptors = interceptors;
+    }
+
+    /**
+     * Removes an InvocationInterceptor. Calls that already started still call it.
+     *
+     * @param interceptor the InvocationInterceptor to remove.
+     * @return true if the interceptor was removed, false if it was not registered.
+     */
+    public synchronized boolean removeInvocationInterceptor(InvocationInterceptor interceptor) {
+        List<InvocationInterceptor> interceptors = new ArrayList<InvocationInterceptor>(Arrays.asList(invocationInterceptors));
+        if (!interceptors.remove(interceptor)) {
+            return false;
+        }
+
+        invocationInterceptors = interceptors.isEmpty()
+                ? NO_INVOCATION_INTERCEPTORS
+                : interceptors.toArray(new InvocationInterceptor[interceptors.size()]);
+        return true;
+    }
+
+    /**
+     * Returns the registered InvocationInterceptors.
+     *
+     * @return the InvocationInterceptors in the order they are called.
+     */
+    public List<InvocationInterceptor> getInvocationInterceptors() {
+        return Collections.unmodifiableList(Arrays.asList(invocationInterceptors));
+    }
+
+    /**
+     * Returns true if calls to the same member are batched, false otherwise.
+     *
+     * @return true if batching is enabled.
+     */
+    public boolean isBatchingEnabled() {
+        return batchingEnabled;
+    }
+
+    /**
+     * Enables or disables the batching of calls. If enabled, the partitioned calls to the same member are gathered for
+     * at most the batch window and send as a single task, which reduces the overhead of sending many small calls. The
+     * member executes the calls in a batch one after the other, so batching only pays off for small and fast calls.
+     * Calls with an {@link java.util.Iterator} argument are never batched. By default batching is disabled.
+     * <p/>
+     * A volatile field is used to store the batching enabled flag.
+     *
+     * @param batchingEnabled true if batching should be enabled, false otherwise.
+     */
+    public void setBatchingEnabled(boolean batchingEnabled) {
+        this.batchingEnabled = batchingEnabled;
+    }
+
+    /**
+     * Returns the maximum number of calls in a single batch.
+     *
+     * @return the maximum batch size.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of calls in a single batch. A batch that reaches this size is send immediately, without
+     * waiting for the batch window to pass. It also is the maximum number of calls to a
+     * {@link com.hazelblast.client.annotations.Pipelined} method in a single batch of its pipeline.
+     * By default this is set to {@link #DEFAULT_MAX_BATCH_SIZE}.
+     * <p/>
+     * A volatile field is used to store the maximum batch size.
+     *
+     * @param maxBatchSize the maximum batch size.
+     * @throws IllegalArgumentException if maxBatchSize is smaller than 1.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException(
+                    format("maxBatchSize can't be smaller than 1, maxBatchSize was [%s]", maxBatchSize));
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Returns the time in microseconds calls are gathered before a batch is send.
+     *
+     * @return the batch window in microseconds.
+     */
+    public long getBatchWindowMicros() {
+        return batchWindowMicros;
+    }
+
+    /**
+     * Sets the time in microseconds calls are gathered before a batch is send; the window starts with the first call
+     * in the batch. A larger window gives bigger batches, but adds more latency to every call.
+     * By default this is set to {@link #DEFAULT_BATCH_WINDOW_MICROS}.
+     * <p/>
+     * A volatile field is used to store the batch window.
+     *
+     * @param batchWindowMicros the batch window in microseconds.
+     * @throws IllegalArgumentException if batchWindowMicros is smaller than 0.
+     */
+    public void setBatchWindowMicros(long batchWindowMicros) {
+        if (batchWindowMicros < 0) {
+            throw new IllegalArgumentException(
+                    format("batchWindowMicros can't be smaller than 0, batchWindowMicros was [%s]", batchWindowMicros));
+        }
+        this.batchWindowMicros = batchWindowMicros;
+    }
+
+    /**
+     * Returns true if the timing breakdown of calls is enabled, false otherwise.
+     *
+     * @return true if the timing breakdown is enabled.
+     * @see #setTimingBreakdownEnabled(boolean)
+     */
+    public boolean isTimingBreakdownEnabled() {
+        return timingBreakdownEnabled;
+    }
+
+    /**
+     * Enables or disables the timing breakdown of calls. By default this is set to false.
+     * <p/>
+     * When enabled, the member executing a call measures how long the call waited in the queue and how long it spent
+     * on the deserialization of the arguments, the partition check, the execution and the serialization of the result.
+     * These {@link ServerTimings} are send back with the response. Every call that takes at least
+     * {@link #getSlowCallThresholdMs()} is logged with the breakdown; the time the member didn't account for was spent
+     * on the network and in the client. The ServerTimings are only send back by the
+     * {@link DataSerializableDistributedMethodInvocationFactory}, for other factories only the total time is logged.
+     * <p/>
+     * A volatile field is used to store the timing breakdown setting.
+     *
+     * @param timingBreakdownEnabled true if the timing breakdown should be enabled.
+     */
+    public void setTimingBreakdownEnabled(boolean timingBreakdownEnabled) {
+        this.timingBreakdownEnabled = timingBreakdownEnabled;
+    }
+
+    /**
+     * Returns the minimum time in milliseconds of a call that is logged as slow call.
+     *
+     * @return the slow call threshold in milliseconds.
+     */
+    public long getSlowCallThresholdMs() {
+        return slowCallThresholdMs;
+    }
+
+    /**
+     * Sets the minimum time in milliseconds of a call that is logged as slow call. Slow calls are only logged when
+     * the timing breakdown is enabled. By default this is set to {@link #DEFAULT_SLOW_CALL_THRESHOLD_MS}.
+     * <p/>
+     * A volatile field is used to store the slow call threshold.
+     *
+     * @param slowCallThresholdMs the slow call threshold in milliseconds.
+     * @throws IllegalArgumentException if slowCallThresholdMs is smaller than 0.
+     * @see #setTimingBreakdownEnabled(boolean)
+     */
+    public void setSlowCallThresholdMs(long slowCallThresholdMs) {
+        if (slowCallThresholdMs < 0) {
+            throw new IllegalArgumentException(
+                    format("slowCallThresholdMs can't be smaller than 0, slowCallThresholdMs was [%s]", slowCallThresholdMs));
+        }
+        this.slowCallThresholdMs = slowCallThresholdMs;
+    }
+
+    /**
+     * Returns the latency histograms and the failure, retry and timeout counts of the methods of the proxies. The
+     * statistics are always recorded. They are only published as MBeans after
+     * {@link MethodStatsRegistry#setJmxEnabled(boolean)} is called; JMX is disabled again by {@link #shutdown()}.
+     *
+     * @return the MethodStatsRegistry.
+     */
+    public MethodStatsRegistry getMethodStats() {
+        return methodStats;
+    }
+
+    /**
+     * Returns the HotKeySampler that samples the partition keys of the partitioned calls, so the keys receiving the
+     * most calls can be found.
+     *
+     * @return the HotKeySampler.
+     * @see #registerHotKeySamplerMBean()
+     * @see #setHotKeyLogIntervalMs(long)
+     */
+    public HotKeySampler getHotKeySampler() {
+        return hotKeySampler;
+    }
+
+    /**
+     * Registers the HotKeySampler as MBean in the platform MBeanServer under the ObjectName
+     * 'com.hazelblast:type=HotKeySampler,slice=[sliceName],instance=[hazelcastInstanceName],id=[id]'.
+     * The MBean is unregistered by {@link #shutdown()}.
+     *
+     * @return the ObjectName the MBean is registered under.
+     * @throws JMException if the MBean can't be registered.
+     */
+    public ObjectName registerHotKeySamplerMBean() throws JMException {
+        ObjectName objectName = new ObjectName(format("com.hazelblast:type=HotKeySampler,slice=%s,instance=%s,id=%s",
+                ObjectName.quote(sliceName), ObjectName.quote(hazelcastInstance.getName()),
+                System.identityHashCode(this)));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(hotKeySampler, objectName);
+        hotKeySamplerObjectName = objectName;
+        return objectName;
+    }
+
+    private void unregisterHotKeySamplerMBean() {
+        ObjectName objectName = hotKeySamplerObjectName;
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, format("[%s] Failed to unregister the HotKeySampler MBean", sliceName), e);
+            }
+        }
+        hotKeySamplerObjectName = null;
+    }
+
+    /**
+     * Returns the interval in milliseconds between logging the hottest partition keys.
+     *
+     * @return the hot key log interval in milliseconds, 0 if the hottest keys are not logged.
+     */
+    public long getHotKeyLogIntervalMs() {
+        synchronized (hotKeyLogLock) {
+            return hotKeyLogIntervalMs;
+        }
+    }
+
+    /**
+     * Sets the interval in milliseconds between logging the hottest partition keys that were sampled in that
+     * interval. The HotKeySampler is reset after the hottest keys are logged, so each log line only covers a single
+     * interval. By default this is set to 0.
+     *
+     * @param hotKeyLogIntervalMs the hot key log interval in milliseconds, 0 to disable logging the hottest keys.
+     * @throws IllegalArgumentException if hotKeyLogIntervalMs is smaller than 0.
+     */
+    public void setHotKeyLogIntervalMs(long hotKeyLogIntervalMs) {
+        if (hotKeyLogIntervalMs < 0) {
+            throw new IllegalArgumentException(
+                    format("hotKeyLogIntervalMs can't be smaller than 0, hotKeyLogIntervalMs was [%s]", hotKeyLogIntervalMs));
+        }
+
+        synchronized (hotKeyLogLock) {
+            this.hotKeyLogIntervalMs = hotKeyLogIntervalMs;
+            if (hotKeyLogFuture != null) {
+                hotKeyLogFuture.cancel(false);
+                hotKeyLogFuture = null;
+            }
+
+            if (hotKeyLogIntervalMs > 0 && !shutdown) {
+                hotKeyLogFuture = callbackExecutor.scheduleAtFixedRate(
+                        new HotKeyLogTask(hotKeyLogIntervalMs), hotKeyLogIntervalMs, hotKeyLogIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link InvocationBatcher} for the given member. If none exists, it is created.
+     *
+     * @param member the member to get the InvocationBatcher for.
+     * @return the InvocationBatcher.
+     * @throws NullPointerException if member is null.
+     */
+    InvocationBatcher getInvocationBatcher(Member member) {
+        notNull("member", member);
+
+        InvocationBatcher batcher = invocationBatchers.get(member);
+        if (batcher == null) {
+            batcher = new InvocationBatcher(this, member);
+            InvocationBatcher found = invocationBatchers.putIfAbsent(member, batcher);
+            batcher = found == null ? batcher : found;
+        }
+        return batcher;
+    }
+
+    /**
+     * Gets the {@link PartitionPipeline} for the given partition. If none exists, it is created.
+     *
+     * @param partitionId the id of the partition to get the PartitionPipeline for.
+     * @return the PartitionPipeline.
+     */
+    PartitionPipeline getPartitionPipeline(int partitionId) {
+        PartitionPipeline pipeline = partitionPipelines.get(partitionId);
+        if (pipeline == null) {
+            pipeline = new PartitionPipeline(this, partitionId);
+            PartitionPipeline found = partitionPipelines.putIfAbsent(partitionId, pipeline);
+            pipeline = found == null ? pipeline : found;
+        }
+        return pipeline;
+    }
+
+    /**
+     * Gets the {@link NearCache} for the given {@link NearCached} method. If none exists, it is created.
+     *
+     * @param method     the near cached method.
+     * @param nearCached the NearCached annotation of the method.
+     * @return the NearCache.
+     * @throws IllegalArgumentException if the NearCached annotation contains an invalid setting.
+     */
+    NearCache getNearCache(Method method, NearCached nearCached) {
+        NearCache nearCache = nearCaches.get(method);
+        if (nearCache == null) {
+            if (migrationListenerRegistered.compareAndSet(false, true)) {
+                //the listener is only registered when it is needed, since every migration event is send to it.
+                hazelcastInstance.getPartitionService().addMigrationListener(migrationListener);
+            }
+
+            nearCache = new NearCache(method, nearCached, codecRegistry);
+            NearCache found = nearCaches.putIfAbsent(method, nearCache);
+            nearCache = found == null ? nearCache : found;
+        }
+        return nearCache;
+    }
+
+    /**
+     * Gets the {@link SingleFlightGroup} for the given {@link com.hazelblast.client.annotations.SingleFlight} method.
+     * If none exists, it is created.
+     *
+     * @param method the single flight method.
+     * @return the SingleFlightGroup.
+     */
+    SingleFlightGroup getSingleFlightGroup(Method method) {
+        SingleFlightGroup group = singleFlightGroups.get(method);
+        if (group == null) {
+            group = new SingleFlightGroup(method, codecRegistry);
+            SingleFlightGroup found = singleFlightGroups.putIfAbsent(method, group);
+            group = found == null ? group : found;
+        }
+        return group;
+    }
+
+    /**
+     * Is called when a write for the given partition key is done. The cached results of the near cached methods of
+     * the service class are removed, and the calls in flight of its single flight methods are detached.
+     *
+     * @param serviceClass the interface declaring the write method.
+     * @param partitionKey the partition key.
+     * @param partitionId  the id of the partition of the partition key.
+     */
+    void onWrite(Class serviceClass, Object partitionKey, int partitionId) {
+        for (NearCache nearCache : nearCaches.values()) {
+            if (nearCache.getServiceClass().equals(serviceClass)) {
+                nearCache.invalidateKey(partitionKey, partitionId);
+            }
+        }
+
+        for (SingleFlightGroup group : singleFlightGroups.values()) {
+            if (group.getServiceClass().equals(serviceClass)) {
+                group.detach(partitionKey);
+            }
+        }
+    }
+
     /**
      * Removes the MethodInvocationHandlerFactory for the given annotation class.
      *
@@ -222,6 +1205,7 @@ public final class ProxyProviderImpl implements ProxyProvider {
 
     public <T> T getProxy(Class<T> distributedServiceClass) {
         notNull("distributedServiceClass", distributedServiceClass);
+        checkNotShutdown();
 
         Object proxy = proxies.get(distributedServiceClass);
         if (proxy == null) {
@@ -238,6 +1222,17 @@ public final class ProxyProviderImpl implements ProxyProvider {
         return (T) proxy;
     }
 
+    /**
+     * Checks that this ProxyProvider isn't shut down.
+     *
+     * @throws IllegalStateException if this ProxyProvider is shut down.
+     */
+    void checkNotShutdown() {
+        if (shutdown) {
+            throw new IllegalStateException(format("ProxyProvider for slice [%s] is shut down", sliceName));
+        }
+    }
+
     private DistributedServiceInvocationHandler buildDistributedServiceInvocationHandler(Class distributedServiceClass) {
         if (!distributedServiceClass.isInterface()) {
             throw new IllegalArgumentException(format("Class [%s] is not an interface so is not allowed to be proxied",
@@ -324,6 +1319,82 @@ public final class ProxyProviderImpl implements ProxyProvider {
         return annotations.get(0);
     }
 
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private class MembershipListenerImpl implements MembershipListener {
+
+        public void memberAdded(MembershipEvent e) {
+        }
+
+        public void memberRemoved(MembershipEvent e) {
+            concurrencyLimiters.remove(e.getMember());
+            InvocationBatcher batcher = invocationBatchers.remove(e.getMember());
+            if (batcher != null) {
+                //the pending calls are send anyway, so they fail with a MemberLeftException and are retried.
+                batcher.flush();
+            }
+            circuitBreakers.remove(e.getMember());
+
+            //the partitions of the member have a new owner.
+            for (NearCache nearCache : nearCaches.values()) {
+                nearCache.clear();
+            }
+        }
+    }
+
+    private class MigrationListenerImpl implements MigrationListener {
+
+        public void migrationStarted(MigrationEvent e) {
+            invalidate(e.getPartitionId());
+        }
+
+        public void migrationCompleted(MigrationEvent e) {
+            //the partition is invalidated again, in case a call that read the old owner completed during the migration.
+            invalidate(e.getPartitionId());
+        }
+
+        private void invalidate(int partitionId) {
+            for (NearCache nearCache : nearCaches.values()) {
+                nearCache.invalidatePartition(partitionId);
+            }
+        }
+    }
+
+    private class HotKeyLogTask implements Runnable {
+        private final long intervalMs;
+
+        private HotKeyLogTask(long intervalMs) {
+            this.intervalMs = intervalMs;
+        }
+
+        public void run() {
+            List<HotKeySampler.HotKey> hotKeys = hotKeySampler.getTopKeys(HOT_KEY_LOG_COUNT);
+            hotKeySampler.reset();
+            if (hotKeys.isEmpty() || !logger.isLoggable(Level.INFO)) {
+                return;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(format("[%s] Hottest partition keys in the last %s ms:", sliceName, intervalMs));
+            for (HotKeySampler.HotKey hotKey : hotKeys) {
+                sb.append(" [").append(hotKey).append("]");
+            }
+            logger.log(Level.INFO, sb.toString());
+        }
+    }
+
     private class DistributedServiceInvocationHandler implements InvocationHandler {
 
         private final Map<Method, MethodInvocationHandler> proxiedMethods;
@@ -0,0 +1,204 @@
+package com.hazelblast.client.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.String.format;
+
+/**
+ * A client-wide budget for retries, so that retries can't amplify the load on the cluster. E.g. during a migration
+ * all calls to the moved partitions fail with a {@link com.hazelblast.server.exceptions.PartitionMovedException}, and
+ * without a budget every client would retry every call until its timeout.
+ * <p/>
+ * The budget allows a number of retries equal to {@code retryRatioPercentage} of the first attempts in the last
+ * {@code windowSeconds}, with a floor of {@code minRetriesPerSecond} so that a client with little traffic can still
+ * retry.
+ * <p/>
+ * Next to the budget, the RetryBudget records how many retries each call needed. These statistics are always recorded,
+ * even if the budget itself is not enforced.
+ * <p/>
+ * The counting is done using one bucket per second, so the budget is an approximation.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class RetryBudget {
+
+    public static final int DEFAULT_RETRY_RATIO_PERCENTAGE = 20;
+    public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+    public static final int DEFAULT_WINDOW_SECONDS = 10;
+
+    /**
+     * The number of buckets in the distribution returned by {@link #getRetriesPerCallDistribution()}.
+     */
+    public static final int DISTRIBUTION_SIZE = 11;
+
+    private final int retryRatioPercentage;
+    private final int minRetriesPerSecond;
+    private final int windowSeconds;
+
+    private final AtomicLongArray bucketSeconds;
+    private final AtomicLongArray firstAttempts;
+    private final AtomicLongArray retries;
+
+    private final AtomicLong firstAttemptCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong deniedRetryCount = new AtomicLong();
+    private final AtomicLongArray retriesPerCall = new AtomicLongArray(DISTRIBUTION_SIZE);
+
+    /**
+     * Creates a RetryBudget with the default settings.
+     */
+    public RetryBudget() {
+        this(DEFAULT_RETRY_RATIO_PERCENTAGE, DEFAULT_MIN_RETRIES_PER_SECOND, DEFAULT_WINDOW_SECONDS);
+    }
+
+    /**
+     * Creates a RetryBudget.
+     *
+     * @param retryRatioPercentage the number of retries allowed, as a percentage of the first attempts.
+     * @param minRetriesPerSecond  the number of retries per second that always is allowed.
+     * @param windowSeconds        the number of seconds the budget looks back.
+     * @throws IllegalArgumentException if retryRatioPercentage or minRetriesPerSecond smaller than 0, or if
+     *                                  windowSeconds smaller than 1.
+     */
+    public RetryBudget(int retryRatioPercentage, int minRetriesPerSecond, int windowSeconds) {
+        if (retryRatioPercentage < 0) {
+            throw new IllegalArgumentException(
+                    format("retryRatioPercentage can't be smaller than 0, retryRatioPercentage was [%s]", retryRatioPercentage));
+        }
+
+        if (minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException(
+                    format("minRetriesPerSecond can't be smaller than 0, minRetriesPerSecond was [%s]", minRetriesPerSecond));
+        }
+
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException(format("windowSeconds can't be smaller than 1, windowSeconds was [%s]", windowSeconds));
+        }
+
+        this.retryRatioPercentage = retryRatioPercentage;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.windowSeconds = windowSeconds;
+        this.bucketSeconds = new AtomicLongArray(windowSeconds);
+        this.firstAttempts = new AtomicLongArray(windowSeconds);
+        this.retries = new AtomicLongArray(windowSeconds);
+    }
+
+    /**
+     * Records the first attempt of a call.
+     */
+    public void onFirstAttempt() {
+        firstAttemptCount.incrementAndGet();
+        firstAttempts.incrementAndGet(bucket(currentSecond()));
+    }
+
+    /**
+     * Tries to withdraw a retry from the budget.
+     *
+     * @return true if the retry is allowed, false otherwise.
+     */
+    public boolean tryAcquireRetry() {
+        long nowSecond = currentSecond();
+        int bucket = bucket(nowSecond);
+
+        long firstAttemptsInWindow = 0;
+        long retriesInWindow = 0;
+        for (int k = 0; k < windowSeconds; k++) {
+            if (nowSecond - bucketSeconds.get(k) < windowSeconds) {
+                firstAttemptsInWindow += firstAttempts.get(k);
+                retriesInWindow += retries.get(k);
+            }
+        }
+
+        long allowed = (long) minRetriesPerSecond * windowSeconds + firstAttemptsInWindow * retryRatioPercentage / 100;
+        if (retriesInWindow >= allowed) {
+            deniedRetryCount.incrementAndGet();
+            return false;
+        }
+
+        retries.incrementAndGet(bucket);
+        retryCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records a retry that is done without consulting the budget.
+     */
+    public void onRetry() {
+        retries.incrementAndGet(bucket(currentSecond()));
+        retryCount.incrementAndGet();
+    }
+
+    /**
+     * Records the number of retries a call needed once it has completed (successfully or not).
+     *
+     * @param retryCount the number of retries.
+     */
+    public void onCallCompleted(int retryCount) {
+        retriesPerCall.incrementAndGet(Math.min(retryCount, DISTRIBUTION_SIZE - 1));
+    }
+
+    private int bucket(long second) {
+        int index = (int) (second % windowSeconds);
+        long bucketSecond = bucketSeconds.get(index);
+        if (bucketSecond != second && bucketSeconds.compareAndSet(index, bucketSecond, second)) {
+            //the bucket contains information of a second that is outside of the window, so it can be recycled.
+            firstAttempts.set(index, 0);
+            retries.set(index, 0);
+        }
+        return index;
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * Returns the total number of first attempts.
+     *
+     * @return the total number of first attempts.
+     */
+    public long getFirstAttemptCount() {
+        return firstAttemptCount.get();
+    }
+
+    /**
+     * Returns the total number of retries.
+     *
+     * @return the total number of retries.
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Returns the total number of retries that were denied because the budget was exhausted.
+     *
+     * @return the total number of denied retries.
+     */
+    public long getDeniedRetryCount() {
+        return deniedRetryCount.get();
+    }
+
+    /**
+     * Returns how many retries completed calls needed. The element at index k contains the number of calls that needed
+     * k retries; the last element contains the number of calls that needed {@code DISTRIBUTION_SIZE - 1} or more retries.
+     *
+     * @return the distribution of retries per call.
+     */
+    public long[] getRetriesPerCallDistribution() {
+        long[] result = new long[DISTRIBUTION_SIZE];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = retriesPerCall.get(k);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return format("RetryBudget{retryRatioPercentage=%s, minRetriesPerSecond=%s, windowSeconds=%s, firstAttempts=%s, retries=%s, deniedRetries=%s}",
+                retryRatioPercentage, minRetriesPerSecond, windowSeconds, getFirstAttemptCount(), getRetryCount(), getDeniedRetryCount());
+    }
+}
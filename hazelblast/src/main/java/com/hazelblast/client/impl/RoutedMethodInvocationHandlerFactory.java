@@ -1,18 +1,38 @@
 package com.hazelblast.client.impl;
 
+import com.hazelblast.client.annotations.Compressed;
+import com.hazelblast.client.annotations.NearCached;
+import com.hazelblast.client.annotations.OneWay;
+import com.hazelblast.client.annotations.Pipelined;
+import com.hazelblast.client.annotations.SingleFlight;
+import com.hazelblast.client.exceptions.CircuitBreakerOpenException;
+import com.hazelblast.client.exceptions.ConcurrencyLimitExceededException;
 import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.client.exceptions.RemotingException;
+import com.hazelblast.client.router.RoundRobinLoadBalancer;
 import com.hazelblast.client.router.Router;
 import com.hazelblast.client.router.Target;
+import com.hazelblast.codec.CodecRegistryAware;
+import com.hazelblast.codec.CompressionAware;
+import com.hazelblast.server.IteratorPage;
+import com.hazelblast.server.LocalServiceMethod;
+import com.hazelblast.server.SliceServer;
 import com.hazelblast.server.exceptions.NoMemberAvailableException;
 import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.utils.MethodStats;
 import com.hazelcast.core.DistributedTask;
+import com.hazelcast.core.ExecutionCallback;
 import com.hazelcast.core.HazelcastInstanceAware;
 import com.hazelcast.core.Member;
 import com.hazelcast.core.MemberLeftException;
 import com.hazelcast.logging.ILogger;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Random;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import static java.lang.String.format;
@@ -27,6 +47,10 @@ import static java.lang.String.format;
  */
 public abstract class RoutedMethodInvocationHandlerFactory extends MethodInvocationHandlerFactory {
 
+    private static final Random RANDOM = new Random();
+
+    private enum Outcome {RESPONDED, DROPPED, CANCELLED}
+
     public class RoutedMethodInvocationHandler implements MethodInvocationHandler {
         private final Method method;
         private final String[] argTypes;
@@ -35,11 +59,43 @@ public abstract class RoutedMethodInvocationHandlerFactory extends MethodInvocat
         private final boolean interruptOnTimeout;
         private final ILogger logger;
         private final Member localMember;
+        private final boolean rerouteWhenUnavailable;
+        private final boolean async;
+        private final boolean oneWay;
+        private final boolean pipelined;
+        private final Compressed compressed;
+        private final int[] uploadIndexes;
+        private final MethodStats stats;
+        private final boolean directLocalCall;
+        private volatile LocalServiceMethod localMethod;
 
         public RoutedMethodInvocationHandler(Method method,
                                              long timeoutMs,
                                              boolean interruptOnTimeout,
                                              Router router) {
+            this(method, timeoutMs, interruptOnTimeout, router, false);
+        }
+
+        /**
+         * Creates a RoutedMethodInvocationHandler.
+         * <p/>
+         * If the method returns a {@link Future}, the call is asynchronous: the invocation returns an
+         * {@link InvocationFuture} immediately and the timeout is enforced by the callback pool of the ProxyProvider.
+         *
+         * @param method                 the method this handler is for.
+         * @param timeoutMs              the maximum time in milliseconds for the call to complete.
+         * @param interruptOnTimeout     if the serverside thread should be interrupted on timeout.
+         * @param router                 the Router used to select the target, or null if the executor decides.
+         * @param rerouteWhenUnavailable if the router should be asked for a different target when the circuit breaker
+         *                               of the selected member is open. This only makes sense if any member can
+         *                               process the call, so for load balanced calls.
+         */
+        public RoutedMethodInvocationHandler(Method method,
+                                             long timeoutMs,
+                                             boolean interruptOnTimeout,
+                                             Router router,
+                                             boolean rerouteWhenUnavailable) {
+            this.rerouteWhenUnavailable = rerouteWhenUnavailable;
             this.logger = hazelcastInstance.getLoggingService().getLogger(RoutedMethodInvocationHandler.class.getName());
             this.localMember = hazelcastInstance.getCluster().getLocalMember();
             this.method = method;
@@ -48,14 +104,68 @@ public abstract class RoutedMethodInvocationHandlerFactory extends MethodInvocat
             } else {
                 this.timeoutNs = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
             }
-            this.router = router;
             this.interruptOnTimeout = interruptOnTimeout;
+            this.async = Future.class.equals(method.getReturnType());
+            this.oneWay = method.isAnnotationPresent(OneWay.class);
+            if (oneWay && !void.class.equals(method.getReturnType())) {
+                throw new IllegalArgumentException(format("Method '%s' is annotated with @OneWay, but it doesn't return void", method));
+            }
+            this.pipelined = method.isAnnotationPresent(Pipelined.class);
+            if (pipelined && (rerouteWhenUnavailable || router == null)) {
+                throw new IllegalArgumentException(format("Method '%s' is annotated with @Pipelined, but it isn't @Partitioned", method));
+            }
+            if (pipelined && !async && !oneWay) {
+                throw new IllegalArgumentException(
+                        format("Method '%s' is annotated with @Pipelined, but it doesn't return a Future and isn't @OneWay", method));
+            }
+            if (method.isAnnotationPresent(NearCached.class)) {
+                if (rerouteWhenUnavailable || router == null) {
+                    throw new IllegalArgumentException(format("Method '%s' is annotated with @NearCached, but it isn't @Partitioned", method));
+                }
+                Class returnType = method.getReturnType();
+                if (void.class.equals(returnType) || async || pipelined || Iterator.class.equals(returnType)) {
+                    throw new IllegalArgumentException(
+                            format("Method '%s' is annotated with @NearCached, but it doesn't return a cacheable value", method));
+                }
+            }
+            if (method.isAnnotationPresent(SingleFlight.class)) {
+                Class returnType = method.getReturnType();
+                if (void.class.equals(returnType) || async || pipelined || Iterator.class.equals(returnType)) {
+                    throw new IllegalArgumentException(
+                            format("Method '%s' is annotated with @SingleFlight, but it doesn't return a shareable value", method));
+                }
+            }
+            this.compressed = method.getAnnotation(Compressed.class);
 
             Class[] parameterTypes = method.getParameterTypes();
             this.argTypes = new String[parameterTypes.length];
+            int uploadCount = 0;
             for (int k = 0; k < argTypes.length; k++) {
                 argTypes[k] = parameterTypes[k].getName();
+                if (Iterator.class.equals(parameterTypes[k])) {
+                    uploadCount++;
+                }
+            }
+
+            if (pipelined && uploadCount > 0) {
+                throw new IllegalArgumentException(
+                        format("Method '%s' is annotated with @Pipelined, but it has an Iterator argument", method));
+            }
+
+            this.uploadIndexes = new int[uploadCount];
+            for (int k = 0, i = 0; k < parameterTypes.length; k++) {
+                if (Iterator.class.equals(parameterTypes[k])) {
+                    uploadIndexes[i++] = k;
+                }
             }
+
+            if (router == null && uploadCount > 0) {
+                //the chunks of an Iterator argument are pushed to the member executing the call, so it needs to be known.
+                router = new RoundRobinLoadBalancer(hazelcastInstance);
+            }
+            this.router = router;
+            this.stats = proxyProvider.methodStats.get(method);
+            this.directLocalCall = router != null && !async && !oneWay && !pipelined && uploadCount == 0;
         }
 
         public Object invoke(Object proxy, Object[] args) throws Throwable {
@@ -63,178 +173,1073 @@ public abstract class RoutedMethodInvocationHandlerFactory extends MethodInvocat
                 logger.log(Level.FINE, format("Starting method '%s'", method));
             }
 
-            long spendNs = 0;
+            proxyProvider.checkNotShutdown();
+
+            Target target = null;
+            if (isDirectLocalCallAllowed()) {
+                try {
+                    target = router.getTarget(method, args);
+                } catch (RuntimeException e) {
+                    //e.g. no member is available yet; the RoutedInvocation routes the call again and retries.
+                    target = null;
+                }
+                if (target != null && target.getMember() != null && isLocal(target)) {
+                    LocalServiceMethod localMethod = getLocalMethod();
+                    if (localMethod != null) {
+                        return invokeDirect(localMethod, args, target.getPartitionId());
+                    }
+                }
+            }
+
+            RoutedInvocation invocation = new RoutedInvocation(args, System.nanoTime(), target);
+            if (oneWay) {
+                invocation.addCallback(new OneWayCallback(args));
+                invocation.start(true);
+                return null;
+            }
+
+            if (async) {
+                invocation.start(true);
+                return invocation;
+            }
+
+            invocation.start(false);
+            return invocation.join();
+        }
+
+        private boolean isDirectLocalCallAllowed() {
+            return directLocalCall
+                    && proxyProvider.localCallOptimizationEnabled
+                    && proxyProvider.invocationInterceptors.length == 0
+                    && !proxyProvider.timingBreakdownEnabled;
+        }
+
+        /**
+         * Executes a synchronous local call on the calling thread, without the bookkeeping of a
+         * {@link RoutedInvocation}. A failure that is worth retrying, e.g. because the partition has moved, is handed
+         * to a RoutedInvocation that retries the call.
+         */
+        private Object invokeDirect(LocalServiceMethod localMethod, Object[] args, int partitionId) throws Throwable {
+            long startTimeNs = System.nanoTime();
+            CallerInterrupter interrupter = scheduleInterrupt(timeoutNs);
+            Object result = null;
+            Throwable failure = null;
+            try {
+                result = localMethod.invoke(args, partitionId);
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                if (interrupter != null) {
+                    interrupter.cancel();
+                }
+            }
+
+            long durationNs = System.nanoTime() - startTimeNs;
+            if (timeoutNs != Long.MAX_VALUE && durationNs >= timeoutNs) {
+                failure = new DistributedMethodTimeoutException(
+                        format("Failed to complete method '%s' in %s ms", method.toString(), TimeUnit.NANOSECONDS.toMillis(timeoutNs)),
+                        new TimeoutException());
+            } else if (failure != null && isWorthRetrying(failure)) {
+                RoutedInvocation invocation = new RoutedInvocation(args, startTimeNs, null);
+                invocation.retry(failure);
+                return invocation.join();
+            }
+
+            RetryBudget retryBudget = proxyProvider.retryBudget;
+            retryBudget.onFirstAttempt();
+            retryBudget.onCallCompleted(0);
+            if (failure != null) {
+                stats.onFailure(failure instanceof DistributedMethodTimeoutException);
+            }
+            stats.onCall(durationNs);
+
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, format("Completed method '%s' in %s ms", method, TimeUnit.NANOSECONDS.toMillis(durationNs)));
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+
+        private Target getTarget(Object[] args) throws Throwable {
+            Target target = router.getTarget(method, args);
+
+            if (target.getMember() == null) {
+                //just retry the call.
+                throw new MemberLeftException();
+            }
+
+            return target;
+        }
+
+        private boolean isLocal(Target target) {
+            return target.getMember().equals(localMember) && proxyProvider.localCallOptimizationEnabled;
+        }
+
+        private int getMaxReroutes() {
+            return hazelcastInstance.getCluster().getMembers().size();
+        }
+
+        private AdaptiveConcurrencyLimiter acquireSlot(Member member, long remainingNs) throws InterruptedException {
+            AdaptiveConcurrencyLimiter limiter = proxyProvider.getConcurrencyLimiter(member);
+            long waitNs = Math.min(TimeUnit.MILLISECONDS.toNanos(proxyProvider.concurrencyLimitMaxWaitMs), remainingNs);
+            if (!limiter.acquire(waitNs)) {
+                throw new ConcurrencyLimitExceededException(
+                        format("Failed to send method '%s' to member [%s], the concurrency limit [%s] has been reached",
+                                method, member, limiter.getLimit()));
+            }
+            return limiter;
+        }
+
+        private boolean isWorthRetrying(Throwable e) {
+            if (e instanceof MemberLeftException) {
+                return true;
+            }
+
+            if (e instanceof ExecutionException) {
+                if (e.getCause() == null) {
+                    return true;
+                } else {
+                    e = e.getCause();
+                }
+            }
+
+            if (e instanceof MemberLeftException) {
+                //a batched call reports the member leaving as the cause of the failure.
+                return true;
+            }
 
-            for (; ; ) {
-                long startTimeNs = System.nanoTime();
+            if (e instanceof PartitionMovedException) {
+                return true;
+            }
+
+            if (e instanceof NoMemberAvailableException) {
+                return true;
+            }
 
-                Future future = null;
+            return false;
+        }
+
+        private Throwable getRetryCause(Throwable e) {
+            if (e instanceof ExecutionException && e.getCause() != null) {
+                return e.getCause();
+            }
+            return e;
+        }
+
+        private long getRetryDelayNs() {
+            //the delay is randomized between 50 and 150 ms, to prevent clients from retrying in lockstep.
+            return TimeUnit.MILLISECONDS.toNanos(50) + (long) (RANDOM.nextDouble() * TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        /**
+         * A single call of the method. A call consists of one or more attempts, and is completed when an attempt gets
+         * a response that is not worth retrying, when the retry budget is exhausted or when the call times out.
+         * <p/>
+         * No thread waits for a remote attempt: its response is processed by a callback thread of the ProxyProvider,
+         * and retries and timeouts are scheduled on the same threads. Only a synchronous call blocks the calling
+         * thread, in {@link #join()}.
+         */
+        private class RoutedInvocation extends InvocationFuture<Object> {
+            private final Object[] args;
+            private final long startTimeNs;
+            private final RetryBudget retryBudget = proxyProvider.retryBudget;
+            private volatile int retryCount;
+            private volatile Attempt attempt;
+            private volatile ScheduledFuture timeoutFuture;
+            private volatile boolean remoteFailure;
+            private volatile ServerTimings serverTimings;
+            private final InvocationInterceptor[] interceptors = proxyProvider.invocationInterceptors;
+            private Object[] interceptorContexts;
+            private volatile int startedInterceptorCount;
+            private volatile IteratorUploader[] uploaders;
+            private Object[] uploadArgs;
+            private Target target;
+
+            /**
+             * Creates a RoutedInvocation.
+             *
+             * @param args        the arguments of the call.
+             * @param startTimeNs the start time of the call, the timeout is measured from this time.
+             * @param target      the target the router already selected for the first attempt, or null.
+             */
+            RoutedInvocation(Object[] args, long startTimeNs, Target target) {
+                this.args = args;
+                this.startTimeNs = startTimeNs;
+                this.target = target;
+            }
+
+            /**
+             * Returns the arguments to send to a member: the Iterator arguments are replaced by an IteratorUpload, so
+             * their elements can be pushed in chunks.
+             */
+            private synchronized Object[] getRemoteArgs() {
+                if (uploadIndexes.length == 0 || args == null) {
+                    return args;
+                }
+
+                if (uploadArgs == null) {
+                    IteratorUploader[] uploaders = new IteratorUploader[uploadIndexes.length];
+                    uploadArgs = args.clone();
+                    for (int k = 0; k < uploadIndexes.length; k++) {
+                        Iterator source = (Iterator) args[uploadIndexes[k]];
+                        if (source != null) {
+                            uploaders[k] = new IteratorUploader(proxyProvider, source);
+                            uploadArgs[uploadIndexes[k]] = uploaders[k].getUpload();
+                        }
+                    }
+                    this.uploaders = uploaders;
+                }
+                return uploadArgs;
+            }
+
+            private void startUploads(Member member) {
+                IteratorUploader[] uploaders = this.uploaders;
+                if (uploaders == null) {
+                    return;
+                }
+
+                for (IteratorUploader uploader : uploaders) {
+                    if (uploader != null) {
+                        uploader.start(member);
+                    }
+                }
+            }
+
+            private boolean isUploadStarted() {
+                IteratorUploader[] uploaders = this.uploaders;
+                if (uploaders == null) {
+                    return false;
+                }
+
+                for (IteratorUploader uploader : uploaders) {
+                    if (uploader != null && uploader.isStarted()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            void start(boolean scheduleTimeout) {
+                retryBudget.onFirstAttempt();
+
+                if (interceptors.length != 0 && !beforeRouting()) {
+                    return;
+                }
+
+                if (scheduleTimeout && timeoutNs != Long.MAX_VALUE) {
+                    timeoutFuture = proxyProvider.callbackExecutor.schedule(new Runnable() {
+                        public void run() {
+                            onTimeout();
+                        }
+                    }, timeoutNs, TimeUnit.NANOSECONDS);
+                }
+
+                //the thread calling a one way method should never wait.
+                attempt(!oneWay);
+            }
+
+            /**
+             * Continues a call whose first attempt was executed directly by the calling thread, and failed with a
+             * failure that is worth retrying.
+             */
+            void retry(Throwable failure) {
+                retryBudget.onFirstAttempt();
+
+                if (interceptors.length != 0 && !beforeRouting()) {
+                    return;
+                }
+
+                onFailure(failure);
+            }
+
+            Object join() throws Throwable {
                 try {
-                    if (spendNs > timeoutNs) {
-                        throw new TimeoutException();
+                    if (timeoutNs == Long.MAX_VALUE) {
+                        return get();
                     }
 
-                    Object result;
                     try {
-                        boolean optimizeLocalCall;
+                        return get(getRemainingNs(), TimeUnit.NANOSECONDS);
+                    } catch (TimeoutException e) {
+                        onTimeout();
+                        return get();
+                    }
+                } catch (InterruptedException e) {
+                    //the caller stops waiting, so the call is abandoned.
+                    Thread.currentThread().interrupt();
+                    cancel(false);
+                    throw new RemotingException(format("Interrupted while waiting for method '%s'", method), e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (remoteFailure) {
+                        StackTraceElement[] clientSideStackTrace = Thread.currentThread().getStackTrace();
+                        fixStackTrace(cause, clientSideStackTrace);
+                    }
+                    throw cause;
+                }
+            }
+
+            private boolean beforeRouting() {
+                Object[] contexts = new Object[interceptors.length];
+                interceptorContexts = contexts;
+                for (int k = 0; k < interceptors.length; k++) {
+                    try {
+                        contexts[k] = interceptors[k].beforeRouting(method, args);
+                    } catch (Throwable e) {
+                        //only the interceptors that saw the start of the call, see its completion.
+                        startedInterceptorCount = k;
+                        completeExceptionally(e);
+                        return false;
+                    }
+                }
+                startedInterceptorCount = interceptors.length;
+                return true;
+            }
+
+            private void afterRouting(Target target) {
+                for (int k = 0; k < interceptors.length; k++) {
+                    interceptors[k].afterRouting(method, args, target, interceptorContexts[k]);
+                }
+            }
+
+            private void onRetryIntercepted(Throwable cause) {
+                for (int k = 0; k < interceptors.length; k++) {
+                    try {
+                        interceptors[k].onRetry(method, args, cause, retryCount, interceptorContexts[k]);
+                    } catch (Throwable e) {
+                        logger.log(Level.WARNING, format("InvocationInterceptor [%s] failed on retry of method '%s'",
+                                interceptors[k], method), e);
+                    }
+                }
+            }
+
+            private void onCompletionIntercepted(long durationNs) {
+                Object result = peekResult();
+                Throwable failure = peekFailure();
+                for (int k = startedInterceptorCount - 1; k >= 0; k--) {
+                    try {
+                        interceptors[k].onCompletion(method, args, result, failure, durationNs, interceptorContexts[k]);
+                    } catch (Throwable e) {
+                        logger.log(Level.WARNING, format("InvocationInterceptor [%s] failed on completion of method '%s'",
+                                interceptors[k], method), e);
+                    }
+                }
+            }
+
+            /**
+             * Returns the target the router already selected for the first attempt, so the router isn't asked twice,
+             * or asks the router for a new target.
+             */
+            private Target nextTarget() throws Throwable {
+                Target target = this.target;
+                this.target = null;
+                if (target == null || target.getMember() == null) {
+                    return getTarget(args);
+                }
+                return target;
+            }
+
+            private long getRemainingNs() {
+                if (timeoutNs == Long.MAX_VALUE) {
+                    return Long.MAX_VALUE;
+                }
+                return timeoutNs - (System.nanoTime() - startTimeNs);
+            }
+
+            private void attempt(boolean callerThread) {
+                if (isDone()) {
+                    return;
+                }
+
+                long remainingNs = getRemainingNs();
+                if (remainingNs <= 0) {
+                    onTimeout();
+                    return;
+                }
+
+                Attempt attempt = new Attempt(args);
+                this.attempt = attempt;
+                if (isDone()) {
+                    //the call timed out or was cancelled before the attempt was registered.
+                    return;
+                }
+
+                try {
+                    attempt.send(callerThread, remainingNs);
+                } catch (Throwable e) {
+                    attempt.finish(Outcome.CANCELLED);
+                    onFailure(e);
+                }
+            }
+
+            private void onFailure(Throwable e) {
+                if (isDone()) {
+                    return;
+                }
+
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, format("Executing of method '%s' throw an exception", method), e);
+                }
+
+                if (isWorthRetrying(e) && isUploadStarted()) {
+                    completeExceptionally(new RemotingException(
+                            format("Failed to complete method '%s', it can't be retried since its Iterator argument has been partially consumed",
+                                    method), getRetryCause(e)));
+                } else if (isWorthRetrying(e)) {
+                    if (!proxyProvider.retryBudgetEnabled) {
+                        retryBudget.onRetry();
+                    } else if (!retryBudget.tryAcquireRetry()) {
+                        completeExceptionally(new RemotingException(
+                                format("Failed to complete method '%s' after %s retries, the retry budget is exhausted",
+                                        method, retryCount), getRetryCause(e)));
+                        return;
+                    }
+                    retryCount++;
+                    stats.onRetry();
+                    if (interceptors.length != 0) {
+                        onRetryIntercepted(e);
+                    }
+
+                    long delayNs = Math.max(0, Math.min(getRetryDelayNs(), getRemainingNs()));
+                    try {
+                        proxyProvider.callbackExecutor.schedule(new Runnable() {
+                            public void run() {
+                                attempt(false);
+                            }
+                        }, delayNs, TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException rejected) {
+                        completeExceptionally(new RemotingException(
+                                format("Failed to retry method '%s', the ProxyProvider is shut down", method), getRetryCause(e)));
+                    }
+                } else {
+                    Throwable cause = e;
+                    if (e instanceof ExecutionException) {
+                        cause = e.getCause();
+                        remoteFailure = true;
+                    }
+                    completeExceptionally(cause);
+                }
+            }
+
+            private void onTimeout() {
+                Attempt attempt = this.attempt;
+                DistributedMethodTimeoutException timeoutException = new DistributedMethodTimeoutException(
+                        format("Failed to complete method '%s' in %s ms", method.toString(), TimeUnit.NANOSECONDS.toMillis(timeoutNs)),
+                        new TimeoutException());
+                if (completeExceptionally(timeoutException) && attempt != null) {
+                    attempt.abort(Outcome.DROPPED, interruptOnTimeout);
+                }
+            }
+
+            @Override
+            protected void onCancel(boolean mayInterruptIfRunning) {
+                Attempt attempt = this.attempt;
+                if (attempt != null) {
+                    attempt.abort(Outcome.CANCELLED, mayInterruptIfRunning);
+                }
+            }
+
+            @Override
+            public boolean completeExceptionally(Throwable failure) {
+                if (!super.completeExceptionally(failure)) {
+                    return false;
+                }
+
+                stats.onFailure(failure instanceof DistributedMethodTimeoutException);
+                return true;
+            }
+
+            @Override
+            protected void onDone() {
+                long durationNs = System.nanoTime() - startTimeNs;
+                stats.onCall(durationNs);
+                if (proxyProvider.timingBreakdownEnabled) {
+                    logIfSlow(durationNs);
+                }
+                if (interceptors.length != 0) {
+                    onCompletionIntercepted(durationNs);
+                }
+
+                ScheduledFuture timeoutFuture = this.timeoutFuture;
+                if (timeoutFuture != null) {
+                    timeoutFuture.cancel(false);
+                }
+
+                retryBudget.onCallCompleted(retryCount);
+
+                IteratorUploader[] uploaders = this.uploaders;
+                if (uploaders != null) {
+                    for (IteratorUploader uploader : uploaders) {
+                        if (uploader != null) {
+                            uploader.stop();
+                        }
+                    }
+                }
+
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, format("Completed method '%s' in %s ms",
+                            method, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNs)));
+                }
+            }
+
+            private void logIfSlow(long durationNs) {
+                long thresholdMs = proxyProvider.slowCallThresholdMs;
+                if (TimeUnit.NANOSECONDS.toMillis(durationNs) < thresholdMs || !logger.isLoggable(Level.WARNING)) {
+                    return;
+                }
+
+                ServerTimings timings = serverTimings;
+                String breakdown;
+                if (timings == null) {
+                    breakdown = "no server timings available";
+                } else {
+                    //the rest of the time was spent on the network and in the client, e.g. encoding the arguments.
+                    breakdown = format("%s, networkAndClientMicros=%s", timings,
+                            TimeUnit.NANOSECONDS.toMicros(durationNs - timings.getTotalNs()));
+                }
+
+                logger.log(Level.WARNING, format("Slow call of method '%s' took %s ms with %s retries, threshold is %s ms: %s",
+                        method, TimeUnit.NANOSECONDS.toMillis(durationNs), retryCount, thresholdMs, breakdown));
+            }
+
+            /**
+             * A single attempt to execute the call. The resources acquired for the attempt (a circuit breaker permission
+             * and a concurrency limiter slot) are released exactly once, by whoever finishes the attempt first: the
+             * response, a timeout or a cancel.
+             */
+            private class Attempt implements ExecutionCallback<Object> {
+                private final Object[] args;
+                private final AtomicBoolean responseClaimed = new AtomicBoolean();
+                private boolean finished;
+                private Future future;
+                private AdaptiveConcurrencyLimiter limiter;
+                private CircuitBreaker circuitBreaker;
+                private long submitTimeNs;
+
+                Attempt(Object[] args) {
+                    this.args = args;
+                }
+
+                void send(boolean callerThread, long remainingNs) throws Throwable {
+                    Callable callable;
+                    DistributedTask task;
+                    Member uploadTarget = null;
+                    Member batchTarget = null;
+                    CircuitBreaker circuitBreaker = null;
+                    AdaptiveConcurrencyLimiter limiter = null;
+                    try {
                         if (router == null) {
-                             //if no router is available, we'll let the executor decide if it wants to apply load balancing
-                            Callable callable = proxyProvider.distributedMethodInvocationFactory.create(
-                                    proxyProvider.sliceName,
-                                    method.getDeclaringClass().getSimpleName(),
-                                    method.getName(),
-                                    args,
-                                    argTypes,
-                                    -1);
-
-                            optimizeLocalCall = false;
-
-                            future = executor.submit(callable);
+                            //if no router is available, we'll let the executor decide if it wants to apply load balancing
+                            callable = createCallable(args, -1, remainingNs);
+                            task = new DistributedTask(callable);
+                            if (interceptors.length != 0) {
+                                afterRouting(null);
+                            }
                         } else {
                             //a router was found, so we'll use the result of this router to figure out to which machine
                             //the task is send.
 
-                            Target target = router.getTarget(method, args);
-
-                            if (target.getMember() == null) {
-                                //just retry the call.
-                                throw new MemberLeftException();
+                            if (pipelined) {
+                                //the pipeline sends the call to the owner of the partition, so the owner doesn't need
+                                //to be known yet.
+                                Target target = router.getTarget(method, args);
+                                if (interceptors.length != 0) {
+                                    afterRouting(target);
+                                }
+                                int partitionId = target.getPartitionId();
+                                sendPipelined(partitionId, createCallable(args, partitionId, remainingNs));
+                                return;
                             }
 
-                            final Callable callable = proxyProvider.distributedMethodInvocationFactory.create(
-                                    proxyProvider.sliceName,
-                                    method.getDeclaringClass().getSimpleName(),
-                                    method.getName(),
-                                    args,
-                                    argTypes,
-                                    target.getPartitionId());
+                            Target target = nextTarget();
+                            boolean optimizeLocalCall = isLocal(target);
 
+                            if (!optimizeLocalCall && proxyProvider.circuitBreakerEnabled) {
+                                circuitBreaker = proxyProvider.getCircuitBreaker(target.getMember());
+                                int reroutes = 0;
+                                while (!circuitBreaker.tryAcquirePermission()) {
+                                    if (!rerouteWhenUnavailable || reroutes >= getMaxReroutes()) {
+                                        circuitBreaker = null;
+                                        throw new CircuitBreakerOpenException(
+                                                format("Failed to send method '%s' to member [%s], its circuit breaker is open",
+                                                        method, target.getMember()));
+                                    }
 
-                            optimizeLocalCall = target.getMember().equals(localMember) && proxyProvider.localCallOptimizationEnabled;
-                            if (optimizeLocalCall) {
-                                if (callable instanceof HazelcastInstanceAware) {
-                                    ((HazelcastInstanceAware) callable).setHazelcastInstance(hazelcastInstance);
+                                    reroutes++;
+                                    target = getTarget(args);
+                                    optimizeLocalCall = isLocal(target);
+                                    if (optimizeLocalCall) {
+                                        circuitBreaker = null;
+                                        break;
+                                    }
+                                    circuitBreaker = proxyProvider.getCircuitBreaker(target.getMember());
                                 }
-                                future = new CallerRunsFuture(callable);
-                            } else {
-                                future = executor.submit(new DistributedTask(callable, target.getMember()));
                             }
+
+                            if (interceptors.length != 0) {
+                                afterRouting(target);
+                            }
+
+                            if (optimizeLocalCall) {
+                                sendLocal(createLocalCallable(args, target.getPartitionId()), callerThread);
+                                return;
+                            }
+
+                            callable = createCallable(getRemoteArgs(), target.getPartitionId(), remainingNs);
+                            uploadTarget = target.getMember();
+                            if (proxyProvider.batchingEnabled && uploadIndexes.length == 0) {
+                                batchTarget = target.getMember();
+                            }
+
+                            if (proxyProvider.concurrencyLimitEnabled) {
+                                //only the calling thread is allowed to wait for a slot; a callback thread should never block.
+                                limiter = acquireSlot(target.getMember(), callerThread ? remainingNs : 0);
+                            }
+                            task = new DistributedTask(callable, target.getMember());
+                        }
+                    } catch (Throwable e) {
+                        if (circuitBreaker != null) {
+                            circuitBreaker.onCancelled();
                         }
+                        throw e;
+                    }
 
-                        if (timeoutNs == Long.MAX_VALUE || optimizeLocalCall) {
-                            result = future.get();
-                        } else {
-                            result = future.get(timeoutNs - spendNs, TimeUnit.NANOSECONDS);
+                    if (batchTarget != null) {
+                        sendBatched(batchTarget, callable, circuitBreaker, limiter);
+                        return;
+                    }
+
+                    task.setExecutionCallback(this);
+                    synchronized (this) {
+                        this.circuitBreaker = circuitBreaker;
+                        this.limiter = limiter;
+                        if (finished) {
+                            //the call timed out or was cancelled while the attempt was being prepared.
+                            release(Outcome.CANCELLED);
+                            return;
+                        }
+                        this.future = task;
+                        this.submitTimeNs = System.nanoTime();
+                    }
+
+                    Future future = executor.submit(task);
+                    if (uploadTarget != null) {
+                        startUploads(uploadTarget);
+                    }
+                    if (future != task) {
+                        //the executor is not a Hazelcast executor, so the ExecutionCallback will not be called and
+                        //the future is waited for directly.
+                        onResponse(future);
+                    }
+                }
+
+                private void sendBatched(Member member, Callable callable, CircuitBreaker circuitBreaker,
+                                         AdaptiveConcurrencyLimiter limiter) {
+                    InvocationFuture<Object> entry = register(circuitBreaker, limiter);
+                    if (entry != null) {
+                        proxyProvider.getInvocationBatcher(member).add(callable, entry);
+                    }
+                }
+
+                private void sendPipelined(int partitionId, Callable callable) {
+                    InvocationFuture<Object> entry = register(null, null);
+                    if (entry != null) {
+                        proxyProvider.getPartitionPipeline(partitionId).add(callable, entry);
+                    }
+                }
+
+                /**
+                 * Registers the InvocationFuture a batched or pipelined call is completed with, as the future of this
+                 * attempt.
+                 *
+                 * @return the InvocationFuture, or null if the attempt already finished.
+                 */
+                private InvocationFuture<Object> register(CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimiter limiter) {
+                    InvocationFuture<Object> entry = new InvocationFuture<Object>();
+                    synchronized (this) {
+                        this.circuitBreaker = circuitBreaker;
+                        this.limiter = limiter;
+                        if (finished) {
+                            release(Outcome.CANCELLED);
+                            return null;
                         }
-                    } finally {
-                        spendNs += System.nanoTime() - startTimeNs;
+                        this.future = entry;
+                        this.submitTimeNs = System.nanoTime();
                     }
 
-                    if (logger.isLoggable(Level.FINE)) {
-                        logger.log(Level.FINE, format("Completed method '%s' in %s ms", method, TimeUnit.NANOSECONDS.toMillis(spendNs)));
+                    entry.addCallback(this);
+                    return entry;
+                }
+
+                private void sendLocal(Callable callable, boolean callerThread) {
+                    LocalTask task = new LocalTask(callable);
+
+                    synchronized (this) {
+                        if (finished) {
+                            return;
+                        }
+                        this.future = task;
                     }
 
-                    return result;
-                } catch (TimeoutException e) {
-                    if (future != null && interruptOnTimeout) {
+                    if (callerThread && !async) {
+                        //the calling thread would only wait for another thread to execute the call, so it executes
+                        //the call itself. The deadline is checked when the call completes.
+                        CallerInterrupter interrupter = scheduleInterrupt(getRemainingNs());
+                        try {
+                            task.run();
+                        } finally {
+                            if (interrupter != null) {
+                                interrupter.cancel();
+                            }
+                        }
+                        return;
+                    }
+
+                    try {
+                        proxyProvider.localExecutor.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        //the local executor is saturated (or shut down). The call is not executed by the current
+                        //thread, since that could be a callback thread or a caller that is not allowed to block.
+                        if (finish(Outcome.CANCELLED)) {
+                            onFailure(new RemotingException(
+                                    format("Failed to execute method '%s' locally, the local executor is saturated", method), e));
+                        }
+                    }
+                }
+
+                public void done(final Future<Object> future) {
+                    //Hazelcast calls this for every response of the member, including the ones that make it redo the
+                    //call. The result of a DistributedTask is pulled from a response queue by the thread calling get,
+                    //so only a single thread is allowed to call get.
+                    if (!responseClaimed.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    //this is called by a Hazelcast thread, so the response is processed by a callback thread instead.
+                    try {
+                        proxyProvider.callbackExecutor.execute(new Runnable() {
+                            public void run() {
+                                onResponse(future);
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        //the ProxyProvider is shut down; the response is available, so processing it doesn't block.
+                        onResponse(future);
+                    }
+                }
+
+                private void onResponse(Future future) {
+                    Object result;
+                    try {
+                        result = future.get();
+                    } catch (ExecutionException e) {
+                        //an exception thrown by the member still is a response, unless the member has left.
+                        boolean memberLeft = e instanceof MemberLeftException || e.getCause() instanceof MemberLeftException;
+                        if (finish(memberLeft ? Outcome.DROPPED : Outcome.RESPONDED)) {
+                            onFailure(e);
+                        }
+                        return;
+                    } catch (CancellationException e) {
+                        finish(Outcome.CANCELLED);
+                        return;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        if (finish(Outcome.CANCELLED)) {
+                            onFailure(e);
+                        }
+                        return;
+                    }
+
+                    if (result instanceof DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult) {
+                        DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult methodResult
+                                = (DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult) result;
+                        serverTimings = methodResult.getServerTimings();
+                        try {
+                            result = methodResult.getValue(proxyProvider.codecRegistry, proxyProvider.compressionStats);
+                        } catch (IOException e) {
+                            if (finish(Outcome.RESPONDED)) {
+                                completeExceptionally(new RemotingException(
+                                        format("Failed to decode the result of method [%s]", method), e));
+                            }
+                            return;
+                        }
+                    }
+
+                    if (result instanceof IteratorPage && Iterator.class.equals(method.getReturnType())) {
+                        //the member only send the first page; the rest is fetched while iterating.
+                        try {
+                            result = new PagedIterator(proxyProvider, (IteratorPage) result, timeoutNs);
+                        } catch (RuntimeException e) {
+                            if (finish(Outcome.RESPONDED)) {
+                                completeExceptionally(e);
+                            }
+                            return;
+                        }
+                    }
+
+                    if (finish(Outcome.RESPONDED)) {
+                        complete(result);
+                    }
+                }
+
+                void abort(Outcome outcome, boolean mayInterruptIfRunning) {
+                    Future future;
+                    synchronized (this) {
+                        if (!finish(outcome)) {
+                            return;
+                        }
+                        future = this.future;
+                    }
+
+                    if (future != null && mayInterruptIfRunning) {
                         future.cancel(true);
                     }
-                    throw new DistributedMethodTimeoutException(
-                            format("Failed to complete method '%s' in %s ms", method.toString(), TimeUnit.NANOSECONDS.toMillis(timeoutNs)), e);
-                } catch (Exception e) {
-                    if(logger.isLoggable(Level.FINE)){
-                        logger.log(Level.FINE, format("Executing of method '%s' throw an exception",method),e);
+                }
+
+                synchronized boolean finish(Outcome outcome) {
+                    if (finished) {
+                        return false;
+                    }
+                    finished = true;
+                    release(outcome);
+                    return true;
+                }
+
+                /**
+                 * A local call. When it completes, the response is processed by the thread that executed it.
+                 */
+                private class LocalTask extends FutureTask<Object> {
+                    LocalTask(Callable<Object> callable) {
+                        super(callable);
                     }
 
-                    if (isWorthRetrying(e)) {
-                        spendNs = sleep(spendNs, timeoutNs);
-                    } else {
-                        Throwable cause = e;
-                        if (e instanceof ExecutionException) {
-                            cause = e.getCause();
-                            StackTraceElement[] clientSideStackTrace = Thread.currentThread().getStackTrace();
-                            fixStackTrace(cause, clientSideStackTrace);
+                    @Override
+                    protected void done() {
+                        if (getRemainingNs() <= 0) {
+                            //a call executed by the calling thread can only be interrupted, so it can complete late.
+                            onTimeout();
+                            return;
+                        }
+                        onResponse(this);
+                    }
+                }
+
+                private void release(Outcome outcome) {
+                    if (limiter != null) {
+                        long rttNs = System.nanoTime() - submitTimeNs;
+                        switch (outcome) {
+                            case RESPONDED:
+                                limiter.release(rttNs, false);
+                                break;
+                            case DROPPED:
+                                limiter.release(rttNs, true);
+                                break;
+                            default:
+                                limiter.release();
+                        }
+                    }
+
+                    if (circuitBreaker != null) {
+                        if (future == null || outcome == Outcome.CANCELLED) {
+                            circuitBreaker.onCancelled();
+                        } else if (outcome == Outcome.RESPONDED) {
+                            circuitBreaker.onSuccess();
+                        } else {
+                            circuitBreaker.onFailure();
                         }
-                        throw cause;
                     }
                 }
             }
         }
 
-        private boolean isWorthRetrying(Throwable e) {
-            if (e instanceof MemberLeftException) {
-                return true;
+        /**
+         * Reports the failure of a one way call to the OneWayFailureListener.
+         */
+        private class OneWayCallback implements ExecutionCallback<Object> {
+            private final Object[] args;
+
+            OneWayCallback(Object[] args) {
+                this.args = args;
             }
 
-            if (e instanceof ExecutionException) {
-                if (e.getCause() == null) {
-                    return true;
-                } else {
-                    e = e.getCause();
+            public void done(Future<Object> future) {
+                Throwable cause;
+                try {
+                    future.get();
+                    return;
+                } catch (ExecutionException e) {
+                    cause = e.getCause();
+                } catch (CancellationException e) {
+                    cause = e;
+                } catch (InterruptedException e) {
+                    //the future is done, so this can't happen.
+                    Thread.currentThread().interrupt();
+                    cause = e;
                 }
-            }
 
-            if (e instanceof PartitionMovedException) {
-                return true;
+                OneWayFailureListener listener = proxyProvider.oneWayFailureListener;
+                if (listener == null) {
+                    if (logger.isLoggable(Level.WARNING)) {
+                        logger.log(Level.WARNING, format("One way method '%s' failed", method), cause);
+                    }
+                    return;
+                }
+
+                try {
+                    listener.onFailure(method, args, cause);
+                } catch (Throwable e) {
+                    logger.log(Level.SEVERE, format("OneWayFailureListener [%s] failed", listener), e);
+                }
             }
+        }
 
-            if (e instanceof NoMemberAvailableException) {
-                return true;
+        /**
+         * Schedules the interrupt of the calling thread for when the deadline of a call that it executes itself
+         * expires.
+         *
+         * @param remainingNs the time until the deadline.
+         * @return the CallerInterrupter, or null if the call isn't interrupted on timeout.
+         */
+        private CallerInterrupter scheduleInterrupt(long remainingNs) {
+            if (!interruptOnTimeout || timeoutNs == Long.MAX_VALUE) {
+                return null;
             }
 
-            return false;
+            CallerInterrupter interrupter = new CallerInterrupter(Thread.currentThread());
+            try {
+                interrupter.future = proxyProvider.callbackExecutor.schedule(interrupter, remainingNs, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                //the ProxyProvider is shut down; the call still is executed, but it can't be interrupted anymore.
+                return null;
+            }
+            return interrupter;
         }
 
-        private long sleep(long spendNs, long timeoutNs) throws InterruptedException {
-            long sleepPeriodNs = TimeUnit.MILLISECONDS.toNanos(100);
-            if (timeoutNs != Long.MAX_VALUE) {
-                if (sleepPeriodNs > timeoutNs - spendNs) {
-                    sleepPeriodNs = timeoutNs - spendNs;
-                }
+        /**
+         * Interrupts a thread that executes a local call itself, when the deadline of the call expires.
+         */
+        private class CallerInterrupter implements Runnable {
+            private final Thread thread;
+            private volatile ScheduledFuture future;
+            private boolean running = true;
+            private boolean interrupted;
+
+            CallerInterrupter(Thread thread) {
+                this.thread = thread;
             }
 
-            if (sleepPeriodNs < 0) {
-                return spendNs;
+            public synchronized void run() {
+                if (running) {
+                    interrupted = true;
+                    thread.interrupt();
+                }
             }
 
-            int ns = (int) (sleepPeriodNs % (1000 * 1000));
-            long ms = sleepPeriodNs / (1000 * 1000);
-            Thread.sleep(ms, ns);
-            return spendNs + sleepPeriodNs;
+            /**
+             * Cancels the interrupt. Must be called by the interrupted thread once the call completes; an interrupt
+             * that was delivered is cleared, so it doesn't leak out of the call.
+             */
+            void cancel() {
+                future.cancel(false);
+                synchronized (this) {
+                    running = false;
+                    if (interrupted) {
+                        Thread.interrupted();
+                    }
+                }
+            }
         }
 
-        private class CallerRunsFuture implements Future {
-            private final Callable callable;
+        private Callable createLocalCallable(Object[] args, int partitionId) {
+            LocalServiceMethod localMethod = getLocalMethod();
+            if (localMethod != null) {
+                return new LocalMethodInvocation(localMethod, args, partitionId);
+            }
 
-            public CallerRunsFuture(Callable callable) {
-                this.callable = callable;
+            //there is no SliceServer running locally (anymore), so the slow path is taken; it will fail and the call
+            //is retried.
+            Callable callable = createCallable(args, partitionId, Long.MAX_VALUE);
+            if (callable instanceof HazelcastInstanceAware) {
+                ((HazelcastInstanceAware) callable).setHazelcastInstance(hazelcastInstance);
             }
+            return callable;
+        }
 
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                throw new UnsupportedOperationException();
+        private LocalServiceMethod getLocalMethod() {
+            LocalServiceMethod localMethod = this.localMethod;
+            if (localMethod == null || !localMethod.isBound()) {
+                localMethod = SliceServer.bindLocalMethod(
+                        hazelcastInstance,
+                        proxyProvider.sliceName,
+                        method.getDeclaringClass().getSimpleName(),
+                        method.getName(),
+                        argTypes);
+                this.localMethod = localMethod;
             }
+            return localMethod;
+        }
 
-            public boolean isCancelled() {
-                throw new UnsupportedOperationException();
+        private Callable createCallable(Object[] args, int partitionId, long remainingNs) {
+            Callable callable = proxyProvider.distributedMethodInvocationFactory.create(
+                    proxyProvider.sliceName,
+                    method.getDeclaringClass().getSimpleName(),
+                    method.getName(),
+                    args,
+                    argTypes,
+                    partitionId);
+            if (callable instanceof CodecRegistryAware) {
+                ((CodecRegistryAware) callable).setCodecRegistry(proxyProvider.codecRegistry);
             }
+            if (callable instanceof TimeoutAware) {
+                ((TimeoutAware) callable).setRemainingNs(remainingNs);
+            }
+            if (callable instanceof TimingAware) {
+                ((TimingAware) callable).setTimingRequested(proxyProvider.timingBreakdownEnabled);
+            }
+            if (callable instanceof CompressionAware) {
+                int thresholdBytes = getCompressionThresholdBytes();
+                if (thresholdBytes >= 0) {
+                    ((CompressionAware) callable).setCompression(
+                            proxyProvider.compressor, thresholdBytes, proxyProvider.compressionStats);
+                }
+            }
+            return callable;
+        }
 
-            public boolean isDone() {
-                throw new UnsupportedOperationException();
+        private int getCompressionThresholdBytes() {
+            if (compressed != null) {
+                return compressed.thresholdBytes() >= 0 ? compressed.thresholdBytes() : proxyProvider.compressionThresholdBytes;
             }
+            return proxyProvider.compressionEnabled ? proxyProvider.compressionThresholdBytes : -1;
+        }
 
-            public Object get() throws InterruptedException, ExecutionException {
-                try {
-                    return callable.call();
-                } catch (Exception e) {
-                    throw new ExecutionException(e);
-                }
+        /**
+         * A local call that directly invokes the bound {@link LocalServiceMethod}, so without the lookups done by
+         * {@link SliceServer#executeMethod(com.hazelcast.core.HazelcastInstance, String, String, String, String[], Object[], int)}.
+         */
+        private class LocalMethodInvocation implements Callable {
+            private final LocalServiceMethod localMethod;
+            private final Object[] args;
+            private final int partitionId;
+
+            LocalMethodInvocation(LocalServiceMethod localMethod, Object[] args, int partitionId) {
+                this.localMethod = localMethod;
+                this.args = args;
+                this.partitionId = partitionId;
             }
 
-            public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            public Object call() throws Exception {
                 try {
-                    return callable.call();
+                    return localMethod.invoke(args, partitionId);
                 } catch (Exception e) {
-                    throw new ExecutionException(e);
+                    throw e;
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
                 }
             }
         }
@@ -0,0 +1,121 @@
+package com.hazelblast.client.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelblast.utils.CompactEncoding.readVarLong;
+import static com.hazelblast.utils.CompactEncoding.writeVarLong;
+import static java.lang.String.format;
+
+/**
+ * The time a call spent on the member executing it, split in its phases. The client can subtract the total from the
+ * time it measured for the call, to get the time spent on the network and in the client.
+ * <p/>
+ * The timings are measured with the clock of the member and are only compared with each other, so the clocks of the
+ * client and the member don't need to be in sync.
+ * <p/>
+ * This class is immutable.
+ *
+ * @author Peter Veentjer.
+ * @see ProxyProviderImpl#setTimingBreakdownEnabled(boolean)
+ */
+public final class ServerTimings {
+
+    private final long queueWaitNs;
+    private final long deserializationNs;
+    private final long partitionCheckNs;
+    private final long executionNs;
+    private final long serializationNs;
+
+    ServerTimings(long queueWaitNs, long deserializationNs, long partitionCheckNs, long executionNs, long serializationNs) {
+        this.queueWaitNs = queueWaitNs;
+        this.deserializationNs = deserializationNs;
+        this.partitionCheckNs = partitionCheckNs;
+        this.executionNs = executionNs;
+        this.serializationNs = serializationNs;
+    }
+
+    /**
+     * Returns the time between receiving the call and starting to execute it, e.g. waiting in the queue of the executor.
+     *
+     * @return the queue wait in nanoseconds.
+     */
+    public long getQueueWaitNs() {
+        return queueWaitNs;
+    }
+
+    /**
+     * Returns the time spent decoding the arguments.
+     *
+     * @return the deserialization time in nanoseconds.
+     */
+    public long getDeserializationNs() {
+        return deserializationNs;
+    }
+
+    /**
+     * Returns the time spent checking if the call has expired and if the partition is owned by the member.
+     *
+     * @return the partition check time in nanoseconds.
+     */
+    public long getPartitionCheckNs() {
+        return partitionCheckNs;
+    }
+
+    /**
+     * Returns the time spent executing the service method.
+     *
+     * @return the execution time in nanoseconds.
+     */
+    public long getExecutionNs() {
+        return executionNs;
+    }
+
+    /**
+     * Returns the time spent encoding the result.
+     *
+     * @return the serialization time in nanoseconds.
+     */
+    public long getSerializationNs() {
+        return serializationNs;
+    }
+
+    /**
+     * Returns the total time the call spent on the member.
+     *
+     * @return the total time in nanoseconds.
+     */
+    public long getTotalNs() {
+        return queueWaitNs + deserializationNs + partitionCheckNs + executionNs + serializationNs;
+    }
+
+    /**
+     * Writes the timings, with the serialization time given separately since it is only known while the result is
+     * written.
+     */
+    void writeTo(DataOutput out, long serializationNs) throws IOException {
+        writeVarLong(out, queueWaitNs);
+        writeVarLong(out, deserializationNs);
+        writeVarLong(out, partitionCheckNs);
+        writeVarLong(out, executionNs);
+        writeVarLong(out, serializationNs);
+    }
+
+    static ServerTimings readFrom(DataInput in) throws IOException {
+        return new ServerTimings(readVarLong(in), readVarLong(in), readVarLong(in), readVarLong(in), readVarLong(in));
+    }
+
+    @Override
+    public String toString() {
+        return format("ServerTimings{queueWaitMicros=%s, deserializationMicros=%s, partitionCheckMicros=%s, " +
+                "executionMicros=%s, serializationMicros=%s}",
+                micros(queueWaitNs), micros(deserializationNs), micros(partitionCheckNs), micros(executionNs),
+                micros(serializationNs));
+    }
+
+    private static long micros(long ns) {
+        return TimeUnit.NANOSECONDS.toMicros(ns);
+    }
+}
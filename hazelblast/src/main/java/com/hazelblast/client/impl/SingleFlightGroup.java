@@ -0,0 +1,192 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.client.exceptions.RemotingException;
+import com.hazelblast.client.router.PartitionRouter;
+import com.hazelblast.codec.CodecRegistry;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelblast.utils.CompactEncoding.readObject;
+import static com.hazelblast.utils.CompactEncoding.writeObject;
+import static java.lang.String.format;
+
+/**
+ * Keeps track of the calls in flight of a {@link com.hazelblast.client.annotations.SingleFlight} method, so that
+ * concurrent calls with equal arguments can share a single call.
+ * <p/>
+ * The result is shared in encoded form, so every caller that joined a call gets its own copy of the result. If the
+ * result can't be encoded, the callers that joined send a call of their own.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class SingleFlightGroup {
+
+    private static final Object NOT_SHARED = new Object();
+
+    private final Class serviceClass;
+    private final CodecRegistry codecRegistry;
+    private final ConcurrentMap<NearCache.CacheKey, Flight> flights = new ConcurrentHashMap<NearCache.CacheKey, Flight>();
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    SingleFlightGroup(Method method, CodecRegistry codecRegistry) {
+        this.serviceClass = method.getDeclaringClass();
+        this.codecRegistry = codecRegistry;
+    }
+
+    /**
+     * Returns the interface declaring the method.
+     *
+     * @return the service class.
+     */
+    Class getServiceClass() {
+        return serviceClass;
+    }
+
+    /**
+     * Returns the number of calls that were not send, but shared the result of a call in flight.
+     *
+     * @return the number of shared calls.
+     */
+    long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    /**
+     * Detaches the calls in flight for the given partition key, so that new callers send a new call. The callers that
+     * already joined a call keep waiting for it.
+     *
+     * @param partitionKey the partition key.
+     */
+    void detach(Object partitionKey) {
+        for (Map.Entry<NearCache.CacheKey, Flight> entry : flights.entrySet()) {
+            if (partitionKey.equals(entry.getValue().partitionKey)) {
+                flights.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private byte[] encode(Object result) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeObject(new DataOutputStream(out), result, codecRegistry);
+            return out.toByteArray();
+        } catch (IOException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            //e.g. a result of a local call that isn't serializable.
+            return null;
+        }
+    }
+
+    private Object decode(byte[] bytes) {
+        try {
+            return readObject(new DataInputStream(new ByteArrayInputStream(bytes)), codecRegistry);
+        } catch (IOException e) {
+            throw new RemotingException(format("Failed to decode the shared result of a method of [%s]",
+                    serviceClass.getName()), e);
+        }
+    }
+
+    private static final class Flight extends InvocationFuture<Object> {
+        private final Object partitionKey;
+        private volatile boolean joined;
+
+        private Flight(Object partitionKey) {
+            this.partitionKey = partitionKey;
+        }
+    }
+
+    /**
+     * The MethodInvocationHandler of a {@link com.hazelblast.client.annotations.SingleFlight} method. The first
+     * caller sends the call and the callers with equal arguments that arrive while it is in flight wait for its
+     * result, at most for the timeout of the method.
+     */
+    static final class SingleFlightMethodInvocationHandler implements MethodInvocationHandler {
+        private final Method method;
+        private final MethodInvocationHandler handler;
+        private final PartitionRouter router;
+        private final SingleFlightGroup singleFlight;
+        private final long timeoutMs;
+
+        /**
+         * Creates a SingleFlightMethodInvocationHandler.
+         *
+         * @param method       the method.
+         * @param handler      the MethodInvocationHandler that sends the call.
+         * @param router       the PartitionRouter of the method, or null if the method is not partitioned.
+         * @param singleFlight the SingleFlightGroup of the method.
+         * @param timeoutMs    the maximum time in milliseconds to wait for the result of a call in flight.
+         */
+        SingleFlightMethodInvocationHandler(Method method, MethodInvocationHandler handler, PartitionRouter router,
+                                            SingleFlightGroup singleFlight, long timeoutMs) {
+            this.method = method;
+            this.handler = handler;
+            this.router = router;
+            this.singleFlight = singleFlight;
+            this.timeoutMs = timeoutMs;
+        }
+
+        public Object invoke(Object proxy, Object[] args) throws Throwable {
+            NearCache.CacheKey key = new NearCache.CacheKey(args);
+            Flight flight = new Flight(router == null ? null : router.getPartitionKey(method, args));
+            Flight found = singleFlight.flights.putIfAbsent(key, flight);
+            if (found != null) {
+                found.joined = true;
+                Object shared = await(found);
+                if (shared == NOT_SHARED) {
+                    //the result can't be copied, or the call completed before this caller joined it.
+                    return handler.invoke(proxy, args);
+                }
+                singleFlight.sharedCount.incrementAndGet();
+                return singleFlight.decode((byte[]) shared);
+            }
+
+            Object result;
+            try {
+                result = handler.invoke(proxy, args);
+            } catch (Throwable e) {
+                singleFlight.flights.remove(key, flight);
+                flight.completeExceptionally(e);
+                throw e;
+            }
+
+            //the flight is removed before it completes, so a caller that arrives after the result has been
+            //returned, always sends a new call.
+            singleFlight.flights.remove(key, flight);
+            Object shared = null;
+            if (flight.joined) {
+                shared = singleFlight.encode(result);
+            }
+            flight.complete(shared == null ? NOT_SHARED : shared);
+            return result;
+        }
+
+        private Object await(Flight flight) throws Throwable {
+            try {
+                if (timeoutMs == Long.MAX_VALUE) {
+                    return flight.get();
+                }
+                return flight.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (TimeoutException e) {
+                throw new DistributedMethodTimeoutException(
+                        format("Failed to complete method '%s' in %s ms", method.toString(), timeoutMs), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemotingException(format("Interrupted while waiting for method '%s'", method), e);
+            }
+        }
+    }
+}
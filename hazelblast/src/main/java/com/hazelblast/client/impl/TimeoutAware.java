@@ -0,0 +1,17 @@
+package com.hazelblast.client.impl;
+
+/**
+ * Can be implemented by the Callable created by a {@link DistributedMethodInvocationFactory} that wants to know how
+ * much time the caller is willing to wait for the call, e.g. to skip calls the caller already has given up on.
+ *
+ * @author Peter Veentjer.
+ */
+public interface TimeoutAware {
+
+    /**
+     * Sets the remaining time of the call.
+     *
+     * @param remainingNs the remaining time in nanoseconds, or Long.MAX_VALUE if there is no timeout.
+     */
+    void setRemainingNs(long remainingNs);
+}
@@ -0,0 +1,17 @@
+package com.hazelblast.client.impl;
+
+/**
+ * Can be implemented by the Callable created by a {@link DistributedMethodInvocationFactory} that can send the
+ * {@link ServerTimings} of the call back with the result.
+ *
+ * @author Peter Veentjer.
+ */
+public interface TimingAware {
+
+    /**
+     * Sets if the member should send the ServerTimings of the call back with the result.
+     *
+     * @param timingRequested true if the ServerTimings should be send back.
+     */
+    void setTimingRequested(boolean timingRequested);
+}
@@ -0,0 +1,228 @@
+package com.hazelblast.client.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps track of the partition keys that receive the most calls, so that a hot key (e.g. a very large customer) that
+ * overloads a single partition can be found.
+ * <p/>
+ * Only 1 in every {@link #getSampleInterval()} calls is sampled, and the sampled keys are counted using the
+ * Space-Saving algorithm: at most {@link #getCapacity()} keys are counted and when a new key is sampled while all
+ * counters are in use, the key with the lowest count is replaced. So the memory is bounded no matter how many keys
+ * there are, and a key that receives a substantial share of the calls will always be found. The counts are estimates;
+ * a count is at most {@link HotKey#getError()} too high.
+ * <p/>
+ * The sample interval is counted per thread, so the calls that are not sampled don't cause any contention.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class HotKeySampler implements HotKeySamplerMBean {
+
+    public static final int DEFAULT_CAPACITY = 100;
+    public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    private final int capacity;
+    private final Map<Object, Counter> counters = new HashMap<Object, Counter>();
+    private final ThreadLocal<int[]> callCount = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+    private volatile int sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+    /**
+     * Creates a HotKeySampler with the {@link #DEFAULT_CAPACITY}.
+     */
+    public HotKeySampler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a HotKeySampler.
+     *
+     * @param capacity the maximum number of keys that are counted.
+     * @throws IllegalArgumentException if capacity smaller than 1.
+     */
+    public HotKeySampler(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(format("capacity can't be smaller than 1, capacity was [%s]", capacity));
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the maximum number of keys that are counted.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets the number of calls between two samples. The lower the interval, the more accurate the counts, but the
+     * higher the overhead.
+     * <p/>
+     * A volatile field is used to store the sample interval.
+     *
+     * @param sampleInterval the sample interval.
+     * @throws IllegalArgumentException if sampleInterval smaller than 1.
+     */
+    public void setSampleInterval(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException(
+                    format("sampleInterval can't be smaller than 1, sampleInterval was [%s]", sampleInterval));
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Signals that a call for the given partition key is made. The key is only counted if the call is sampled.
+     *
+     * @param partitionKey the partition key of the call.
+     */
+    public void onCall(Object partitionKey) {
+        int[] count = callCount.get();
+        if (++count[0] < sampleInterval) {
+            return;
+        }
+
+        count[0] = 0;
+        sample(partitionKey);
+    }
+
+    private synchronized void sample(Object partitionKey) {
+        Counter counter = counters.get(partitionKey);
+        if (counter != null) {
+            counter.count++;
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counters.put(partitionKey, new Counter(1, 0));
+            return;
+        }
+
+        Object minKey = null;
+        Counter min = null;
+        for (Map.Entry<Object, Counter> entry : counters.entrySet()) {
+            if (min == null || entry.getValue().count < min.count) {
+                minKey = entry.getKey();
+                min = entry.getValue();
+            }
+        }
+
+        counters.remove(minKey);
+        counters.put(partitionKey, new Counter(min.count + 1, min.count));
+    }
+
+    /**
+     * Returns the partition keys with the most calls, hottest first.
+     *
+     * @param count the maximum number of keys to return.
+     * @return the hottest keys.
+     */
+    public List<HotKey> getTopKeys(int count) {
+        List<HotKey> hotKeys = new ArrayList<HotKey>();
+        int interval = sampleInterval;
+        synchronized (this) {
+            for (Map.Entry<Object, Counter> entry : counters.entrySet()) {
+                Counter counter = entry.getValue();
+                hotKeys.add(new HotKey(entry.getKey(), counter.count * interval, counter.error * interval));
+            }
+        }
+
+        Collections.sort(hotKeys, new Comparator<HotKey>() {
+            public int compare(HotKey k1, HotKey k2) {
+                long c1 = k1.getCount();
+                long c2 = k2.getCount();
+                return c1 > c2 ? -1 : (c1 == c2 ? 0 : 1);
+            }
+        });
+        return hotKeys.size() > count ? hotKeys.subList(0, count) : hotKeys;
+    }
+
+    public String[] getHotKeys() {
+        List<HotKey> hotKeys = getTopKeys(capacity);
+        String[] result = new String[hotKeys.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = hotKeys.get(k).toString();
+        }
+        return result;
+    }
+
+    public synchronized void reset() {
+        counters.clear();
+    }
+
+    @Override
+    public String toString() {
+        return format("HotKeySampler{capacity=%s, sampleInterval=%s}", capacity, sampleInterval);
+    }
+
+    private static final class Counter {
+        private long count;
+        private final long error;
+
+        private Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * A partition key with its estimated number of calls.
+     */
+    public static final class HotKey {
+        private final Object key;
+        private final long count;
+        private final long error;
+
+        HotKey(Object key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the estimated number of calls, scaled by the sample interval.
+         *
+         * @return the estimated number of calls.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the maximum number of calls the count is too high.
+         *
+         * @return the maximum overestimation of the count.
+         */
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return format("key=%s calls=%s error=%s", key, count, error);
+        }
+    }
+}
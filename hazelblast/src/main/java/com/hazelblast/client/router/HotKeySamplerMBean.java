@@ -0,0 +1,37 @@
+package com.hazelblast.client.router;
+
+/**
+ * The JMX management interface of a {@link HotKeySampler}.
+ *
+ * @author Peter Veentjer.
+ */
+public interface HotKeySamplerMBean {
+
+    /**
+     * Returns the number of calls between two samples.
+     *
+     * @return the sample interval.
+     */
+    int getSampleInterval();
+
+    /**
+     * Sets the number of calls between two samples.
+     *
+     * @param sampleInterval the sample interval.
+     * @throws IllegalArgumentException if sampleInterval smaller than 1.
+     */
+    void setSampleInterval(int sampleInterval);
+
+    /**
+     * Returns the partition keys with the most calls, hottest first, formatted as
+     * 'key=[key] calls=[estimated count] error=[maximum overestimation]'.
+     *
+     * @return the hottest partition keys.
+     */
+    String[] getHotKeys();
+
+    /**
+     * Resets the sampled partition keys.
+     */
+    void reset();
+}
@@ -27,6 +27,7 @@ public class PartitionRouter implements Router {
     private final Field propertyField;
     private final int partitionKeyIndex;
     private final PartitionService partitionService;
+    private volatile HotKeySampler hotKeySampler;
 
     public PartitionRouter(HazelcastInstance hazelcastInstance, Method propertyMethod, Field propertyField, int partitionKeyIndex) {
         notNull("hazelcastInstance", hazelcastInstance);
@@ -36,14 +37,50 @@ public class PartitionRouter implements Router {
         this.partitionKeyIndex = partitionKeyIndex;
     }
 
+    /**
+     * Sets the HotKeySampler the partition keys of the calls are sampled with.
+     * <p/>
+     * A volatile field is used to store the HotKeySampler.
+     *
+     * @param hotKeySampler the HotKeySampler, or null if the partition keys should not be sampled.
+     */
+    public void setHotKeySampler(HotKeySampler hotKeySampler) {
+        this.hotKeySampler = hotKeySampler;
+    }
+
     public Target getTarget(Method method, Object[] args) throws Throwable {
         Object partitionKey = getPartitionKey(method, args);
+        HotKeySampler sampler = hotKeySampler;
+        if (sampler != null) {
+            sampler.onCall(partitionKey);
+        }
+
         Partition partition = partitionService.getPartition(partitionKey);
         Member member = partition.getOwner();
         return new Target(member, partition.getPartitionId());
     }
 
-    private Object getPartitionKey(Method method, Object[] args) throws Throwable {
+    /**
+     * Gets the id of the partition of a partition key.
+     *
+     * @param partitionKey the partition key, see {@link #getPartitionKey(Method, Object[])}.
+     * @return the id of the partition.
+     */
+    public int getPartitionId(Object partitionKey) {
+        return partitionService.getPartition(partitionKey).getPartitionId();
+    }
+
+    /**
+     * Gets the partition key of a call: the @PartitionKey argument, or the property of it, resolved through
+     * {@link PartitionAware} if it implements it.
+     *
+     * @param method the method called.
+     * @param args   the arguments of the call.
+     * @return the partition key.
+     * @throws NullPointerException if the partition key is null.
+     * @throws Throwable            if the property method of the partition key throws an exception.
+     */
+    public Object getPartitionKey(Method method, Object[] args) throws Throwable {
         Object arg = args[partitionKeyIndex];
         if (arg == null) {
             throw new NullPointerException(format("The partitionkey argument of partitioned method '%s' can't be null", method));
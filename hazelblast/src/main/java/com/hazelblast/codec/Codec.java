@@ -0,0 +1,47 @@
+package com.hazelblast.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes objects of a single type. Codecs are registered in a {@link CodecRegistry} and used for the
+ * arguments and results of distributed calls, so they need to be registered on both the client
+ * ({@link com.hazelblast.client.impl.ProxyProviderImpl#getCodecRegistry()}) and the server
+ * ({@link com.hazelblast.server.Slice#getCodecRegistry()}).
+ * <p/>
+ * Implementations should be thread-safe.
+ *
+ * @param <T> the type of the objects this Codec encodes.
+ * @author Peter Veentjer.
+ */
+public interface Codec<T> {
+
+    /**
+     * Returns the type of objects this Codec encodes. Only objects of exactly this class are encoded using this Codec,
+     * subclasses are not.
+     *
+     * @return the type.
+     */
+    Class<T> getType();
+
+    /**
+     * Writes an object.
+     *
+     * @param out      the DataOutput to write to.
+     * @param object   the object to write, never null.
+     * @param registry the CodecRegistry that can be used to write nested objects.
+     * @throws IOException if writing fails.
+     */
+    void write(DataOutput out, T object, CodecRegistry registry) throws IOException;
+
+    /**
+     * Reads an object written using {@link #write(java.io.DataOutput, Object, CodecRegistry)}.
+     *
+     * @param in       the DataInput to read from.
+     * @param registry the CodecRegistry that can be used to read nested objects.
+     * @return the read object.
+     * @throws IOException if reading fails.
+     */
+    T read(DataInput in, CodecRegistry registry) throws IOException;
+}
@@ -0,0 +1,230 @@
+package com.hazelblast.codec;
+
+import com.hazelblast.server.IteratorPage;
+import com.hazelblast.utils.CompactEncoding;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.hazelblast.utils.Arguments.notNull;
+import static java.lang.String.format;
+
+/**
+ * A registry of {@link Codec} instances, looked up by the class of the object to encode.
+ * <p/>
+ * Objects are written using the {@link CompactEncoding}: boxed primitives, Strings, arrays, Lists, Maps etc. are
+ * written using its built in encoding. For other types the registered Codec is used, and only if there is none,
+ * the object falls back to {@link com.hazelcast.nio.DataSerializable} or Java serialization.
+ * <p/>
+ * The Codecs generated for classes annotated with {@link GenerateCodec} don't need to be registered, they are
+ * registered the first time they are needed. The Codec for the {@link IteratorPage} is registered by default.
+ * <p/>
+ * The registry also contains the {@link Compressor} instances that can be used to decompress payloads; the
+ * {@link DeflateCompressor} is registered by default.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class CodecRegistry {
+
+    private final ConcurrentMap<Class, Codec> codecsByType = new ConcurrentHashMap<Class, Codec>();
+    private final ConcurrentMap<String, Codec> codecsByName = new ConcurrentHashMap<String, Codec>();
+    private final ConcurrentMap<Byte, Compressor> compressors = new ConcurrentHashMap<Byte, Compressor>();
+
+    public CodecRegistry() {
+        register(new IteratorPage.IteratorPageCodec());
+        registerCompressor(new DeflateCompressor());
+    }
+
+    /**
+     * Registers a Codec. If there already is a Codec for the same type, it is replaced.
+     *
+     * @param codec the Codec to register.
+     * @return the replaced Codec, or null if there was none.
+     * @throws NullPointerException if codec or its type is null.
+     */
+    public <T> Codec<T> register(Codec<T> codec) {
+        notNull("codec", codec);
+        Class<T> type = notNull("codec.type", codec.getType());
+        codecsByName.put(type.getName(), codec);
+        return codecsByType.put(type, codec);
+    }
+
+    /**
+     * Unregisters the Codec for the given type.
+     *
+     * @param type the type to unregister the Codec for.
+     * @return the unregistered Codec, or null if there was none.
+     * @throws NullPointerException if type is null.
+     */
+    public <T> Codec<T> unregister(Class<T> type) {
+        notNull("type", type);
+        codecsByName.remove(type.getName());
+        return codecsByType.remove(type);
+    }
+
+    /**
+     * Gets the Codec for the given type.
+     *
+     * @param type the type.
+     * @return the found Codec, or null if none is registered.
+     * @throws IllegalStateException if the type is annotated with {@link GenerateCodec}, but the generated Codec can't
+     *                               be loaded.
+     */
+    public <T> Codec<T> getCodec(Class<T> type) {
+        Codec<T> codec = codecsByType.get(type);
+        if (codec == null && type.isAnnotationPresent(GenerateCodec.class)) {
+            codec = registerGeneratedCodec(type);
+        }
+        return codec;
+    }
+
+    /**
+     * Gets the Codec for the type with the given class name.
+     *
+     * @param typeName the name of the type.
+     * @return the found Codec, or null if none is registered.
+     * @throws IllegalStateException if the type is annotated with {@link GenerateCodec}, but the generated Codec can't
+     *                               be loaded.
+     */
+    public Codec getCodec(String typeName) {
+        Codec codec = codecsByName.get(typeName);
+        if (codec == null) {
+            Class type = loadClass(typeName);
+            if (type != null && type.isAnnotationPresent(GenerateCodec.class)) {
+                codec = registerGeneratedCodec(type);
+            }
+        }
+        return codec;
+    }
+
+    /**
+     * Registers a Compressor. If there already is a Compressor with the same id, it is replaced.
+     *
+     * @param compressor the Compressor to register.
+     * @return the replaced Compressor, or null if there was none.
+     * @throws NullPointerException     if compressor is null.
+     * @throws IllegalArgumentException if the id of the compressor is 0.
+     */
+    public Compressor registerCompressor(Compressor compressor) {
+        notNull("compressor", compressor);
+        if (compressor.getId() == 0) {
+            throw new IllegalArgumentException(format("Compressor id 0 is reserved, compressor was [%s]", compressor));
+        }
+        return compressors.put(compressor.getId(), compressor);
+    }
+
+    /**
+     * Gets the Compressor with the given id.
+     *
+     * @param id the id of the Compressor.
+     * @return the found Compressor, or null if none is registered.
+     */
+    public Compressor getCompressor(byte id) {
+        return compressors.get(id);
+    }
+
+    /**
+     * Returns the name of the Codec class generated for a class annotated with {@link GenerateCodec}.
+     *
+     * @param type the annotated class.
+     * @return the name of the generated Codec class.
+     */
+    public static String getGeneratedCodecName(Class type) {
+        String name = type.getName();
+        int packageEnd = name.lastIndexOf('.') + 1;
+        return name.substring(0, packageEnd) + name.substring(packageEnd).replace('$', '_') + "Codec";
+    }
+
+    private <T> Codec<T> registerGeneratedCodec(Class<T> type) {
+        String codecName = getGeneratedCodecName(type);
+
+        Codec<T> codec;
+        try {
+            Class codecClass = Class.forName(codecName, true, type.getClassLoader());
+            codec = (Codec<T>) codecClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(format("Class [%s] is annotated with @GenerateCodec, but the generated Codec [%s] " +
+                    "is not found. Is annotation processing enabled?", type.getName(), codecName), e);
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(format("Failed to create generated Codec [%s]", codecName), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(format("Failed to create generated Codec [%s]", codecName), e);
+        }
+
+        //an explicitly registered Codec wins.
+        Codec<T> found = codecsByType.putIfAbsent(type, codec);
+        if (found != null) {
+            return found;
+        }
+        codecsByName.putIfAbsent(type.getName(), codec);
+        return codec;
+    }
+
+    private static Class loadClass(String typeName) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = CodecRegistry.class.getClassLoader();
+        }
+
+        try {
+            return Class.forName(typeName, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes an object using this CodecRegistry.
+     *
+     * @param out    the DataOutput to write to.
+     * @param object the object to write, can be null.
+     * @throws IOException              if writing fails.
+     * @throws IllegalArgumentException if the object can't be encoded.
+     */
+    public void writeObject(DataOutput out, Object object) throws IOException {
+        CompactEncoding.writeObject(out, object, this);
+    }
+
+    /**
+     * Reads an object written using {@link #writeObject(java.io.DataOutput, Object)}.
+     *
+     * @param in the DataInput to read from.
+     * @return the read object, can be null.
+     * @throws IOException if reading fails, or if the object was written with a Codec that isn't registered.
+     */
+    public Object readObject(DataInput in) throws IOException {
+        return CompactEncoding.readObject(in, this);
+    }
+
+    /**
+     * Writes an object to a byte array using this CodecRegistry.
+     *
+     * @param object the object to write, can be null.
+     * @return the bytes.
+     * @throws IOException if writing fails.
+     */
+    public byte[] toBytes(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeObject(new DataOutputStream(bytes), object);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads an object from a byte array written using {@link #toBytes(Object)}.
+     *
+     * @param bytes the bytes to read from.
+     * @return the read object, can be null.
+     * @throws IOException if reading fails.
+     */
+    public Object fromBytes(byte[] bytes) throws IOException {
+        return readObject(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Override
+    public String toString() {
+        return "CodecRegistry{types=" + codecsByName.keySet() + "}";
+    }
+}
@@ -0,0 +1,17 @@
+package com.hazelblast.codec;
+
+/**
+ * Can be implemented by objects that need the {@link CodecRegistry} to encode themselves, like the
+ * Callable created by a {@link com.hazelblast.client.impl.DistributedMethodInvocationFactory}.
+ *
+ * @author Peter Veentjer.
+ */
+public interface CodecRegistryAware {
+
+    /**
+     * Sets the CodecRegistry.
+     *
+     * @param codecRegistry the CodecRegistry.
+     */
+    void setCodecRegistry(CodecRegistry codecRegistry);
+}
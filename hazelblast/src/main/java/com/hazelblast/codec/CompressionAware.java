@@ -0,0 +1,19 @@
+package com.hazelblast.codec;
+
+/**
+ * Can be implemented by objects that are able to compress themselves, like the Callable created by a
+ * {@link com.hazelblast.client.impl.DistributedMethodInvocationFactory}.
+ *
+ * @author Peter Veentjer.
+ */
+public interface CompressionAware {
+
+    /**
+     * Sets the compression settings.
+     *
+     * @param compressor     the Compressor to use.
+     * @param thresholdBytes the minimum size in bytes of a payload before it is compressed.
+     * @param stats          the CompressionStats to record the compression in, can be null.
+     */
+    void setCompression(Compressor compressor, int thresholdBytes, CompressionStats stats);
+}
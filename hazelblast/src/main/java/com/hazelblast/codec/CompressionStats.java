@@ -0,0 +1,94 @@
+package com.hazelblast.codec;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Statistics about the compression of payloads, e.g. to determine if compression is worth it and what a good threshold
+ * is.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class CompressionStats {
+
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong incompressibleCount = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    /**
+     * Records a payload that was compressed or decompressed.
+     *
+     * @param uncompressedLength the length of the payload uncompressed.
+     * @param compressedLength   the length of the payload compressed.
+     */
+    public void onCompressed(int uncompressedLength, int compressedLength) {
+        compressedCount.incrementAndGet();
+        uncompressedBytes.addAndGet(uncompressedLength);
+        compressedBytes.addAndGet(compressedLength);
+    }
+
+    /**
+     * Records a payload that was above the threshold, but was send uncompressed since compressing didn't make it
+     * smaller.
+     */
+    public void onIncompressible() {
+        incompressibleCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of payloads that were compressed.
+     *
+     * @return the number of compressed payloads.
+     */
+    public long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    /**
+     * Returns the number of payloads that were above the threshold, but didn't get smaller when compressed.
+     *
+     * @return the number of incompressible payloads.
+     */
+    public long getIncompressibleCount() {
+        return incompressibleCount.get();
+    }
+
+    /**
+     * Returns the total number of bytes of the compressed payloads before compression.
+     *
+     * @return the number of uncompressed bytes.
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * Returns the total number of bytes of the compressed payloads after compression.
+     *
+     * @return the number of compressed bytes.
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Returns the compression ratio; the compressed size divided by the uncompressed size. So 0.25 means the payloads
+     * were compressed to a quarter of their size.
+     *
+     * @return the compression ratio, or 1 if nothing was compressed.
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.get();
+        return uncompressed == 0 ? 1 : compressedBytes.get() / (double) uncompressed;
+    }
+
+    @Override
+    public String toString() {
+        return format("CompressionStats{compressedCount=%s, incompressibleCount=%s, uncompressedBytes=%s, compressedBytes=%s, ratio=%.3f}",
+                getCompressedCount(), getIncompressibleCount(), getUncompressedBytes(), getCompressedBytes(), getCompressionRatio());
+    }
+}
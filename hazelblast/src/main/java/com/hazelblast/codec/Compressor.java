@@ -0,0 +1,41 @@
+package com.hazelblast.codec;
+
+import java.io.IOException;
+
+/**
+ * Compresses the encoded arguments and results of distributed calls. A Compressor is identified on the wire by its
+ * id, so the receiving side needs to have a Compressor with the same id registered in its {@link CodecRegistry}.
+ * <p/>
+ * Implementations should be thread-safe.
+ *
+ * @author Peter Veentjer.
+ * @see DeflateCompressor
+ */
+public interface Compressor {
+
+    /**
+     * Returns the id of this Compressor. 0 is reserved for 'not compressed'.
+     *
+     * @return the id.
+     */
+    byte getId();
+
+    /**
+     * Compresses bytes.
+     *
+     * @param bytes the bytes to compress.
+     * @return the compressed bytes.
+     * @throws IOException if compressing fails.
+     */
+    byte[] compress(byte[] bytes) throws IOException;
+
+    /**
+     * Decompresses bytes compressed by {@link #compress(byte[])}.
+     *
+     * @param bytes  the compressed bytes.
+     * @param length the length of the uncompressed bytes.
+     * @return the uncompressed bytes.
+     * @throws IOException if decompressing fails.
+     */
+    byte[] decompress(byte[] bytes, int length) throws IOException;
+}
@@ -0,0 +1,94 @@
+package com.hazelblast.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.lang.String.format;
+
+/**
+ * A {@link Compressor} that uses the DEFLATE algorithm of java.util.zip. It is registered in every
+ * {@link CodecRegistry} by default.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class DeflateCompressor implements Compressor {
+
+    public static final byte ID = 1;
+
+    private final int level;
+
+    /**
+     * Creates a DeflateCompressor that favors speed over compression ratio, since the goal is to reduce the time
+     * spend on the network.
+     */
+    public DeflateCompressor() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Creates a DeflateCompressor.
+     *
+     * @param level the compression level (0-9).
+     * @throws IllegalArgumentException if level is not between 0 and 9.
+     */
+    public DeflateCompressor(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(format("level should be between 0 and 9, level was [%s]", level));
+        }
+        this.level = level;
+    }
+
+    public byte getId() {
+        return ID;
+    }
+
+    public byte[] compress(byte[] bytes) throws IOException {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            //releases the native memory, instead of waiting for the finalizer.
+            deflater.end();
+        }
+    }
+
+    public byte[] decompress(byte[] bytes, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            byte[] result = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int count = inflater.inflate(result, offset, length - offset);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException(format("Compressed data is truncated, expected [%s] bytes but found [%s]", length, offset));
+                }
+                offset += count;
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed data is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeflateCompressor{level=" + level + "}";
+    }
+}
@@ -0,0 +1,30 @@
+package com.hazelblast.codec;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a class for which a {@link Codec} should be generated at compile time by the
+ * {@link com.hazelblast.codec.processor.CodecProcessor}. The generated Codec reads and writes the fields directly or
+ * through the getters, setters and the constructor of the class, so without reflection and without the class
+ * descriptors Java serialization writes.
+ * <p/>
+ * The generated Codec is named after the class with a 'Codec' suffix ('Outer_InnerCodec' for a nested class), placed
+ * in the same package, and is picked up by the {@link CodecRegistry} automatically the first time the annotated class
+ * is encoded or decoded.
+ * <p/>
+ * For every non static and non transient field declared by the class:
+ * <ol>
+ * <li>the value is read from the field if it isn't private, otherwise using its getter.</li>
+ * <li>the value is written using the constructor parameter with the same name, otherwise the field if it isn't private
+ * or final, otherwise the setter. A final Collection or Map field without setter is filled using addAll/putAll on
+ * the value returned by its getter.</li>
+ * </ol>
+ * If a field can't be read or written, the compilation fails.
+ *
+ * @author Peter Veentjer.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {
+}
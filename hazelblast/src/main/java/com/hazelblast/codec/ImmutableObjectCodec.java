@@ -0,0 +1,114 @@
+package com.hazelblast.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.hazelblast.utils.Arguments.notNull;
+import static java.lang.String.format;
+
+/**
+ * A {@link Codec} for simple immutable objects, like:
+ * <pre>
+ * public class CustomerOrderId {
+ *     private final String customerId;
+ *     private final String orderId;
+ *
+ *     public CustomerOrderId(String customerId, String orderId) {...}
+ * }
+ * </pre>
+ * The fields (non static and non transient, declared by the class itself) are written in declaration order without
+ * any class information. The object is read back by passing the field values to the constructor that has the types of
+ * the fields, in the same order, as parameters.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @param <T> the type of the objects this Codec encodes.
+ * @author Peter Veentjer.
+ */
+public final class ImmutableObjectCodec<T> implements Codec<T> {
+
+    private final Class<T> type;
+    private final Field[] fields;
+    private final Constructor<T> constructor;
+
+    /**
+     * Creates an ImmutableObjectCodec.
+     *
+     * @param type the type of the objects to encode.
+     * @throws NullPointerException     if type is null.
+     * @throws IllegalArgumentException if type has no constructor matching its fields.
+     */
+    public ImmutableObjectCodec(Class<T> type) {
+        this.type = notNull("type", type);
+
+        List<Field> fieldList = new ArrayList<Field>();
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                continue;
+            }
+            field.setAccessible(true);
+            fieldList.add(field);
+        }
+        this.fields = fieldList.toArray(new Field[fieldList.size()]);
+
+        Class[] fieldTypes = new Class[fields.length];
+        for (int k = 0; k < fields.length; k++) {
+            fieldTypes[k] = fields[k].getType();
+        }
+
+        try {
+            this.constructor = type.getDeclaredConstructor(fieldTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(format("Class [%s] has no constructor with the types of its fields %s",
+                    type.getName(), Arrays.asList(fieldTypes)));
+        }
+        this.constructor.setAccessible(true);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public void write(DataOutput out, T object, CodecRegistry registry) throws IOException {
+        for (Field field : fields) {
+            Object value;
+            try {
+                value = field.get(object);
+            } catch (IllegalAccessException e) {
+                throw new IOException(format("Failed to read field [%s]", field));
+            }
+            registry.writeObject(out, value);
+        }
+    }
+
+    public T read(DataInput in, CodecRegistry registry) throws IOException {
+        Object[] values = new Object[fields.length];
+        for (int k = 0; k < values.length; k++) {
+            values[k] = registry.readObject(in);
+        }
+
+        try {
+            return constructor.newInstance(values);
+        } catch (InstantiationException e) {
+            throw new IOException(format("Failed to create an instance of [%s]", type.getName()));
+        } catch (IllegalAccessException e) {
+            throw new IOException(format("Failed to create an instance of [%s]", type.getName()));
+        } catch (InvocationTargetException e) {
+            throw new IOException(format("Failed to create an instance of [%s]: %s", type.getName(), e.getTargetException()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableObjectCodec{type=" + type.getName() + "}";
+    }
+}
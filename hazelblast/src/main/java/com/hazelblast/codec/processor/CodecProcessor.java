@@ -0,0 +1,369 @@
+package com.hazelblast.codec.processor;
+
+import com.hazelblast.codec.GenerateCodec;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+import static java.lang.String.format;
+
+/**
+ * An annotation processor that generates a {@link com.hazelblast.codec.Codec} for every class annotated with
+ * {@link GenerateCodec}. See {@link GenerateCodec} for the rules the annotated class needs to follow.
+ * <p/>
+ * The processor is registered in META-INF/services, so it is picked up by javac automatically when hazelblast is on
+ * the classpath.
+ *
+ * @author Peter Veentjer.
+ */
+@SupportedAnnotationTypes("com.hazelblast.codec.GenerateCodec")
+public class CodecProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateCodec can only be placed on a class");
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            CodecModel model = createModel(type);
+            if (model != null) {
+                write(model);
+            }
+        }
+        return true;
+    }
+
+    private CodecModel createModel(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)) {
+            error(type, "@GenerateCodec can't be placed on an abstract or private class");
+            return null;
+        }
+
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            error(type, "@GenerateCodec can't be placed on an inner class, it should be static");
+            return null;
+        } else if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "@GenerateCodec can't be placed on a local or anonymous class");
+            return null;
+        }
+
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> fieldModifiers = field.getModifiers();
+            if (!fieldModifiers.contains(Modifier.STATIC) && !fieldModifiers.contains(Modifier.TRANSIENT)) {
+                fields.add(field);
+            }
+        }
+
+        List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+        ExecutableElement constructor = findConstructor(type, fields);
+        if (constructor == null) {
+            error(type, "@GenerateCodec class has no accessible constructor with parameters named after its fields");
+            return null;
+        }
+
+        Set<String> constructorParams = new HashSet<String>();
+        for (VariableElement param : constructor.getParameters()) {
+            constructorParams.add(param.getSimpleName().toString());
+        }
+
+        CodecModel model = new CodecModel(type, constructor);
+        boolean valid = true;
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            Set<Modifier> fieldModifiers = field.getModifiers();
+            FieldModel fieldModel = new FieldModel(field);
+
+            if (!fieldModifiers.contains(Modifier.PRIVATE)) {
+                fieldModel.getter = "object." + name;
+            } else {
+                ExecutableElement getter = findGetter(methods, field);
+                if (getter != null) {
+                    fieldModel.getter = "object." + getter.getSimpleName() + "()";
+                }
+            }
+
+            if (fieldModel.getter == null) {
+                error(field, "field has no accessible getter");
+                valid = false;
+                continue;
+            }
+
+            if (constructorParams.contains(name)) {
+                fieldModel.setter = null;
+            } else if (!fieldModifiers.contains(Modifier.PRIVATE) && !fieldModifiers.contains(Modifier.FINAL)) {
+                fieldModel.setter = "object." + name + " = %s;";
+            } else {
+                ExecutableElement setter = findSetter(methods, field);
+                if (setter != null) {
+                    fieldModel.setter = "object." + setter.getSimpleName() + "(%s);";
+                } else if (isAssignable(field.asType(), "java.util.Collection")) {
+                    fieldModel.setter = "if (%1$s != null) " + fieldModel.getter + ".addAll(%1$s);";
+                } else if (isAssignable(field.asType(), "java.util.Map")) {
+                    fieldModel.setter = "if (%1$s != null) " + fieldModel.getter + ".putAll(%1$s);";
+                } else {
+                    error(field, "field is not a constructor parameter and has no accessible setter");
+                    valid = false;
+                    continue;
+                }
+            }
+
+            model.fields.add(fieldModel);
+        }
+
+        return valid ? model : null;
+    }
+
+    private ExecutableElement findConstructor(TypeElement type, List<VariableElement> fields) {
+        Map<String, TypeMirror> fieldTypes = new HashMap<String, TypeMirror>();
+        for (VariableElement field : fields) {
+            fieldTypes.put(field.getSimpleName().toString(), field.asType());
+        }
+
+        Types types = processingEnv.getTypeUtils();
+        ExecutableElement best = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+
+            boolean matches = true;
+            for (VariableElement param : constructor.getParameters()) {
+                TypeMirror fieldType = fieldTypes.get(param.getSimpleName().toString());
+                if (fieldType == null || !types.isSameType(types.erasure(fieldType), types.erasure(param.asType()))) {
+                    matches = false;
+                    break;
+                }
+            }
+
+            if (matches && (best == null || constructor.getParameters().size() > best.getParameters().size())) {
+                best = constructor;
+            }
+        }
+        return best;
+    }
+
+    private ExecutableElement findGetter(List<ExecutableElement> methods, VariableElement field) {
+        String capitalized = capitalize(field.getSimpleName().toString());
+        Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement method : methods) {
+            String methodName = method.getSimpleName().toString();
+            boolean nameMatches = methodName.equals("get" + capitalized)
+                    || (field.asType().getKind() == TypeKind.BOOLEAN && methodName.equals("is" + capitalized));
+            if (nameMatches
+                    && method.getParameters().isEmpty()
+                    && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && types.isSameType(types.erasure(method.getReturnType()), types.erasure(field.asType()))) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement findSetter(List<ExecutableElement> methods, VariableElement field) {
+        String setterName = "set" + capitalize(field.getSimpleName().toString());
+        Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().toString().equals(setterName)
+                    && method.getParameters().size() == 1
+                    && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && types.isSameType(types.erasure(method.getParameters().get(0).asType()), types.erasure(field.asType()))) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAssignable(TypeMirror type, String className) {
+        Types types = processingEnv.getTypeUtils();
+        TypeElement target = processingEnv.getElementUtils().getTypeElement(className);
+        return types.isAssignable(types.erasure(type), types.erasure(target.asType()));
+    }
+
+    private void write(CodecModel model) {
+        TypeElement type = model.type;
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String codecName = codecSimpleName(type);
+        String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        PrintWriter out;
+        try {
+            String qualifiedCodecName = packageName.length() == 0 ? codecName : packageName + "." + codecName;
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedCodecName, type);
+            out = new PrintWriter(file.openWriter());
+        } catch (IOException e) {
+            error(type, "failed to create the Codec: " + e.getMessage());
+            return;
+        }
+
+        try {
+            if (packageName.length() > 0) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Codec for {@link " + typeName + "}, generated by the " + CodecProcessor.class.getName() + ".");
+            out.println(" */");
+            out.println("@SuppressWarnings(\"unchecked\")");
+            out.println("public final class " + codecName + " implements com.hazelblast.codec.Codec<" + typeName + "> {");
+            out.println();
+            out.println("    public Class<" + typeName + "> getType() {");
+            out.println("        return " + typeName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    public void write(java.io.DataOutput out, " + typeName + " object, com.hazelblast.codec.CodecRegistry registry) throws java.io.IOException {");
+            for (FieldModel field : model.fields) {
+                out.println("        " + format(writeStatement(field.field.asType()), field.getter));
+            }
+            out.println("    }");
+            out.println();
+            out.println("    public " + typeName + " read(java.io.DataInput in, com.hazelblast.codec.CodecRegistry registry) throws java.io.IOException {");
+            for (FieldModel field : model.fields) {
+                String fieldType = processingEnv.getTypeUtils().erasure(field.field.asType()).toString();
+                out.println("        " + fieldType + " " + field.local() + " = " + readExpression(field.field.asType()) + ";");
+            }
+
+            StringBuilder args = new StringBuilder();
+            for (VariableElement param : model.constructor.getParameters()) {
+                if (args.length() > 0) {
+                    args.append(", ");
+                }
+                args.append("_").append(param.getSimpleName());
+            }
+            out.println("        " + typeName + " object = new " + typeName + "(" + args + ");");
+            for (FieldModel field : model.fields) {
+                if (field.setter != null) {
+                    out.println("        " + format(field.setter, field.local()));
+                }
+            }
+            out.println("        return object;");
+            out.println("    }");
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    private String writeStatement(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "out.writeBoolean(%s);";
+            case BYTE:
+                return "out.writeByte(%s);";
+            case SHORT:
+                return "out.writeShort(%s);";
+            case CHAR:
+                return "out.writeChar(%s);";
+            case INT:
+                return "com.hazelblast.utils.CompactEncoding.writeVarInt(out, %s);";
+            case LONG:
+                return "com.hazelblast.utils.CompactEncoding.writeVarLong(out, %s);";
+            case FLOAT:
+                return "out.writeFloat(%s);";
+            case DOUBLE:
+                return "out.writeDouble(%s);";
+            default:
+                if (isString(type)) {
+                    return "com.hazelblast.utils.CompactEncoding.writeString(out, %s);";
+                }
+                return "registry.writeObject(out, %s);";
+        }
+    }
+
+    private String readExpression(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "in.readBoolean()";
+            case BYTE:
+                return "in.readByte()";
+            case SHORT:
+                return "in.readShort()";
+            case CHAR:
+                return "in.readChar()";
+            case INT:
+                return "com.hazelblast.utils.CompactEncoding.readVarInt(in)";
+            case LONG:
+                return "com.hazelblast.utils.CompactEncoding.readVarLong(in)";
+            case FLOAT:
+                return "in.readFloat()";
+            case DOUBLE:
+                return "in.readDouble()";
+            default:
+                if (isString(type)) {
+                    return "com.hazelblast.utils.CompactEncoding.readString(in)";
+                }
+                return "(" + processingEnv.getTypeUtils().erasure(type) + ") registry.readObject(in)";
+        }
+    }
+
+    private boolean isString(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && type.toString().equals("java.lang.String");
+    }
+
+    private static String codecSimpleName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing.getKind().isClass() || enclosing.getKind().isInterface()) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append("Codec").toString();
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static class CodecModel {
+        private final TypeElement type;
+        private final ExecutableElement constructor;
+        private final List<FieldModel> fields = new ArrayList<FieldModel>();
+
+        CodecModel(TypeElement type, ExecutableElement constructor) {
+            this.type = type;
+            this.constructor = constructor;
+        }
+    }
+
+    private static class FieldModel {
+        private final VariableElement field;
+        private String getter;
+        //a format with the value as argument, or null if the value is passed to the constructor.
+        private String setter;
+
+        FieldModel(VariableElement field) {
+            this.field = field;
+        }
+
+        String local() {
+            return "_" + field.getSimpleName();
+        }
+    }
+}
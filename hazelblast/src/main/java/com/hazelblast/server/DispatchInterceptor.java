@@ -0,0 +1,50 @@
+package com.hazelblast.server;
+
+import java.lang.reflect.Method;
+
+/**
+ * Intercepts the dispatch of calls to the services of a Slice, e.g. to record metrics, to pick up tracing information
+ * or to throttle calls. Both the remote calls and the local calls of a ProxyProvider running in the same JVM are
+ * intercepted.
+ * <p/>
+ * The context returned by {@link #beforeDispatch(Object, Method, Object[], int)} is passed to
+ * {@link #afterDispatch(Object, Method, Object[], int, Object, Throwable, Object)} of the same interceptor for the same
+ * call, so no state needs to be looked up.
+ * <p/>
+ * An exception thrown by beforeDispatch fails the call without executing it, so a call can be rejected. An exception
+ * thrown by afterDispatch is logged and ignored.
+ * <p/>
+ * The methods are called by the thread executing the call. When no interceptors are registered, the calls don't pay
+ * anything for this mechanism.
+ *
+ * @author Peter Veentjer.
+ * @see SliceServer#addDispatchInterceptor(DispatchInterceptor)
+ */
+public interface DispatchInterceptor {
+
+    /**
+     * Called before a service method is executed.
+     *
+     * @param service     the service.
+     * @param method      the method that is going to be executed.
+     * @param args        the arguments of the call, can be null.
+     * @param partitionId the id of the partition of the call, or -1 if the call is not partitioned.
+     * @return the context of the call for this interceptor, can be null.
+     * @throws RuntimeException to fail the call.
+     */
+    Object beforeDispatch(Object service, Method method, Object[] args, int partitionId);
+
+    /**
+     * Called after a service method has been executed, or after a later interceptor rejected the call.
+     *
+     * @param service     the service.
+     * @param method      the method that was executed.
+     * @param args        the arguments of the call, can be null.
+     * @param partitionId the id of the partition of the call, or -1 if the call is not partitioned.
+     * @param result      the result of the call, null if it failed.
+     * @param failure     the failure of the call, null if it completed normally.
+     * @param context     the context returned by beforeDispatch.
+     */
+    void afterDispatch(Object service, Method method, Object[] args, int partitionId, Object result, Throwable failure,
+                       Object context);
+}
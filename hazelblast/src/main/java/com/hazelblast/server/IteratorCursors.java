@@ -0,0 +1,200 @@
+package com.hazelblast.server;
+
+import com.hazelblast.server.exceptions.CursorNotFoundException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * The open cursors of the {@link Iterator} results of a {@link SliceContainer}. An Iterator is only advanced when
+ * the client asks for the next page, so a slow client doesn't make the member buffer elements; the client pulls and
+ * the member never produces more than a page ahead.
+ * <p/>
+ * A cursor is closed when its last page has been produced, when it has been idle for longer than the idle timeout
+ * (the client stopped iterating), or when the SliceContainer stops. If the Iterator implements {@link Closeable},
+ * it is closed as well.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class IteratorCursors {
+
+    public static final int DEFAULT_PAGE_SIZE = 256;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
+
+    private final String memberUuid;
+    private final ConcurrentMap<Long, Cursor> cursors = new ConcurrentHashMap<Long, Cursor>();
+    //a random start, so a cursor id of a previous SliceContainer on the same member is very unlikely to be reused.
+    private final AtomicLong idGenerator = new AtomicLong(new Random().nextLong());
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+    private volatile long idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+
+    IteratorCursors(String memberUuid) {
+        this.memberUuid = memberUuid;
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+
+    void setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException(format("pageSize can't be smaller than 1, pageSize was [%s]", pageSize));
+        }
+        this.pageSize = pageSize;
+    }
+
+    long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    void setIdleTimeoutMs(long idleTimeoutMs) {
+        if (idleTimeoutMs < 1) {
+            throw new IllegalArgumentException(format("idleTimeoutMs can't be smaller than 1, idleTimeoutMs was [%s]", idleTimeoutMs));
+        }
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Opens a cursor for the Iterator and returns its first page. If the first page is the last one, no cursor is
+     * kept.
+     *
+     * @param iterator the Iterator, can be null.
+     * @return the first page.
+     */
+    IteratorPage open(Iterator iterator) {
+        Cursor cursor = new Cursor(idGenerator.incrementAndGet(), iterator);
+        IteratorPage page;
+        try {
+            page = cursor.nextPage();
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+
+        if (!page.isLast()) {
+            cursors.put(cursor.id, cursor);
+        }
+        return page;
+    }
+
+    /**
+     * Returns the next page of a cursor.
+     *
+     * @param cursorId the id of the cursor.
+     * @return the next page.
+     * @throws CursorNotFoundException if the cursor is not found.
+     */
+    IteratorPage next(long cursorId) {
+        Cursor cursor = cursors.get(cursorId);
+        if (cursor == null) {
+            throw new CursorNotFoundException(format("Cursor [%s] is not found on member [%s], it was closed or has been idle for more than [%s] ms",
+                    cursorId, memberUuid, idleTimeoutMs));
+        }
+
+        IteratorPage page;
+        try {
+            page = cursor.nextPage();
+        } catch (RuntimeException e) {
+            close(cursor);
+            throw e;
+        }
+
+        if (page.isLast()) {
+            cursors.remove(cursorId, cursor);
+        }
+        return page;
+    }
+
+    /**
+     * Closes the cursors that have been idle for longer than the idle timeout.
+     */
+    void expire() {
+        long nowMs = System.currentTimeMillis();
+        long idleTimeoutMs = this.idleTimeoutMs;
+        for (Cursor cursor : cursors.values()) {
+            if (nowMs - cursor.lastAccessMs > idleTimeoutMs) {
+                close(cursor);
+            }
+        }
+    }
+
+    /**
+     * Closes all cursors.
+     */
+    void closeAll() {
+        for (Cursor cursor : cursors.values()) {
+            close(cursor);
+        }
+    }
+
+    /**
+     * Returns the number of open cursors.
+     *
+     * @return the number of open cursors.
+     */
+    int size() {
+        return cursors.size();
+    }
+
+    private void close(Cursor cursor) {
+        if (cursors.remove(cursor.id, cursor)) {
+            cursor.close();
+        }
+    }
+
+    private final class Cursor {
+        private final long id;
+        private final Iterator iterator;
+        private volatile long lastAccessMs = System.currentTimeMillis();
+        private boolean closed;
+
+        private Cursor(long id, Iterator iterator) {
+            this.id = id;
+            this.iterator = iterator;
+        }
+
+        synchronized IteratorPage nextPage() {
+            if (closed) {
+                throw new CursorNotFoundException(format("Cursor [%s] on member [%s] has been closed", id, memberUuid));
+            }
+
+            lastAccessMs = System.currentTimeMillis();
+            int pageSize = IteratorCursors.this.pageSize;
+            List<Object> elements = new ArrayList<Object>(Math.min(pageSize, 16));
+            while (iterator != null && elements.size() < pageSize && iterator.hasNext()) {
+                elements.add(iterator.next());
+            }
+
+            boolean last = iterator == null || !iterator.hasNext();
+            if (last) {
+                close();
+            }
+            return new IteratorPage(memberUuid, id, elements, last);
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (iterator instanceof Closeable) {
+                try {
+                    ((Closeable) iterator).close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+}
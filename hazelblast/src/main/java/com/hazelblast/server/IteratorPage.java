@@ -0,0 +1,111 @@
+package com.hazelblast.server;
+
+import com.hazelblast.codec.Codec;
+import com.hazelblast.codec.CodecRegistry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelblast.utils.CompactEncoding.*;
+
+/**
+ * A page of the elements of an {@link java.util.Iterator} returned by a remotely called service method. Instead of
+ * sending all elements at once, the member sends the first page and keeps the Iterator open as a cursor, and the
+ * client fetches the next page when it needs it. See {@link SliceServer#fetchIteratorPage(com.hazelcast.core.HazelcastInstance, String, long)}.
+ *
+ * @author Peter Veentjer.
+ */
+public final class IteratorPage implements Serializable {
+
+    static final long serialVersionUID = 1;
+
+    private final String memberUuid;
+    private final long cursorId;
+    private final List<Object> elements;
+    private final boolean last;
+
+    IteratorPage(String memberUuid, long cursorId, List<Object> elements, boolean last) {
+        this.memberUuid = memberUuid;
+        this.cursorId = cursorId;
+        this.elements = elements;
+        this.last = last;
+    }
+
+    /**
+     * Returns the uuid of the member that has the cursor.
+     *
+     * @return the uuid of the member.
+     */
+    public String getMemberUuid() {
+        return memberUuid;
+    }
+
+    /**
+     * Returns the id of the cursor on the member.
+     *
+     * @return the id of the cursor.
+     */
+    public long getCursorId() {
+        return cursorId;
+    }
+
+    /**
+     * Returns the elements in this page.
+     *
+     * @return the elements.
+     */
+    public List<Object> getElements() {
+        return elements;
+    }
+
+    /**
+     * Checks if this is the last page. If it is, the cursor has been closed on the member.
+     *
+     * @return true if this is the last page, false otherwise.
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public String toString() {
+        return "IteratorPage{cursorId=" + cursorId + ", size=" + elements.size() + ", last=" + last + "}";
+    }
+
+    /**
+     * The {@link Codec} for the IteratorPage; the elements are written using the CodecRegistry. It is registered in
+     * every {@link CodecRegistry} by default.
+     */
+    public static final class IteratorPageCodec implements Codec<IteratorPage> {
+
+        public Class<IteratorPage> getType() {
+            return IteratorPage.class;
+        }
+
+        public void write(DataOutput out, IteratorPage page, CodecRegistry registry) throws IOException {
+            writeString(out, page.memberUuid);
+            writeVarLong(out, page.cursorId);
+            out.writeBoolean(page.last);
+            writeVarInt(out, page.elements.size());
+            for (Object element : page.elements) {
+                writeObject(out, element, registry);
+            }
+        }
+
+        public IteratorPage read(DataInput in, CodecRegistry registry) throws IOException {
+            String memberUuid = readString(in);
+            long cursorId = readVarLong(in);
+            boolean last = in.readBoolean();
+            int size = readVarInt(in);
+            List<Object> elements = new ArrayList<Object>(size);
+            for (int k = 0; k < size; k++) {
+                elements.add(readObject(in, registry));
+            }
+            return new IteratorPage(memberUuid, cursorId, elements, last);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hazelblast.server;
+
+import com.hazelblast.codec.CodecRegistry;
+
+import java.io.*;
+import java.util.List;
+
+import static com.hazelblast.utils.CompactEncoding.readObject;
+import static com.hazelblast.utils.CompactEncoding.writeObject;
+
+/**
+ * Takes the place of an {@link java.util.Iterator} argument of a remotely called service method. The elements of
+ * the Iterator are not send with the call, but pushed by the client in chunks while the service consumes them. See
+ * {@link SliceServer#offerUploadChunk(com.hazelcast.core.HazelcastInstance, String, long, byte[])}.
+ *
+ * @author Peter Veentjer.
+ */
+public final class IteratorUpload implements Serializable {
+
+    static final long serialVersionUID = 1;
+
+    private final long uploadId;
+
+    public IteratorUpload(long uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * Returns the id of the upload.
+     *
+     * @return the id of the upload.
+     */
+    public long getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * Encodes a chunk of the elements of an upload.
+     *
+     * @param elements the elements in the chunk.
+     * @param last     if this is the last chunk.
+     * @param registry the CodecRegistry used to encode the elements, can be null.
+     * @return the encoded chunk.
+     * @throws IOException if encoding fails.
+     */
+    public static byte[] encodeChunk(List<Object> elements, boolean last, CodecRegistry registry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBoolean(last);
+        writeObject(out, elements, registry);
+        return bytes.toByteArray();
+    }
+
+    static boolean isLastChunk(byte[] chunk) {
+        return chunk[0] != 0;
+    }
+
+    static List<Object> decodeChunk(byte[] chunk, CodecRegistry registry) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk, 1, chunk.length - 1));
+        return (List<Object>) readObject(in, registry);
+    }
+
+    @Override
+    public String toString() {
+        return "IteratorUpload{uploadId=" + uploadId + "}";
+    }
+}
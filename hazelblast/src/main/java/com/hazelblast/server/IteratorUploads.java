@@ -0,0 +1,164 @@
+package com.hazelblast.server;
+
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.client.exceptions.RemotingException;
+import com.hazelblast.codec.CodecRegistry;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * The open uploads of the {@link Iterator} arguments of the calls executing in a {@link SliceContainer}.
+ * <p/>
+ * An upload is opened when the call starts executing, so a call that is rejected (e.g. because its partition moved)
+ * never accepts a chunk, and the client can push the chunks to the member that does execute it. Only
+ * {@link #QUEUE_CAPACITY} chunks are queued. Offering a chunk that doesn't fit waits at most {@link #OFFER_TIMEOUT_MS}
+ * for room, so a slow service holds back the client instead of making it resend the chunk over and over; the wait is
+ * bounded since it blocks a thread of the upload executor, which other uploads share. A chunk that still doesn't fit
+ * is rejected and offered again by the client later.
+ * <p/>
+ * The chunks are queued as they are received, and only decoded by the thread executing the call when it consumes
+ * them, so a chunk that is rejected is never decoded. The upload is closed when the call completes.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class IteratorUploads {
+
+    public static final int QUEUE_CAPACITY = 2;
+    public static final long OFFER_TIMEOUT_MS = 100;
+
+    private final ConcurrentMap<Long, Upload> uploads = new ConcurrentHashMap<Long, Upload>();
+
+    /**
+     * Opens an upload.
+     *
+     * @param uploadId      the id of the upload.
+     * @param idleTimeoutMs the maximum time in milliseconds to wait for a chunk.
+     * @param registry      the CodecRegistry used to decode the chunks, can be null.
+     * @return the Iterator over the uploaded elements.
+     */
+    Iterator<Object> open(long uploadId, long idleTimeoutMs, CodecRegistry registry) {
+        Upload upload = new Upload(uploadId, idleTimeoutMs, registry);
+        uploads.put(uploadId, upload);
+        return upload;
+    }
+
+    /**
+     * Offers a chunk of an upload. If the queue of the upload is full, it waits at most {@link #OFFER_TIMEOUT_MS} for
+     * the service to consume a chunk.
+     *
+     * @param uploadId the id of the upload.
+     * @param chunk    the chunk encoded using {@link IteratorUpload#encodeChunk(java.util.List, boolean, CodecRegistry)}.
+     * @return true if the chunk was accepted, false if the upload is not open (e.g. because the call has not started
+     *         yet) or if the service has not consumed the previous chunks in time.
+     * @throws InterruptedException if interrupted while waiting for room.
+     */
+    boolean offer(long uploadId, byte[] chunk) throws InterruptedException {
+        Upload upload = uploads.get(uploadId);
+        return upload != null && upload.queue.offer(chunk, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes an upload. Chunks that have not been consumed are discarded.
+     *
+     * @param upload the Iterator returned by {@link #open(long, long, CodecRegistry)}.
+     */
+    void close(Iterator<Object> upload) {
+        Upload u = (Upload) upload;
+        uploads.remove(u.uploadId, u);
+        u.queue.clear();
+    }
+
+    /**
+     * Closes all uploads.
+     */
+    void closeAll() {
+        for (Upload upload : uploads.values()) {
+            close(upload);
+        }
+    }
+
+    /**
+     * Returns the number of open uploads.
+     *
+     * @return the number of open uploads.
+     */
+    int size() {
+        return uploads.size();
+    }
+
+    /**
+     * The Iterator the service consumes. It is only used by the thread executing the call.
+     */
+    private static final class Upload implements Iterator<Object> {
+        private final long uploadId;
+        private final long idleTimeoutMs;
+        private final CodecRegistry registry;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(QUEUE_CAPACITY);
+        private List<Object> elements;
+        private int index;
+        private boolean last;
+
+        private Upload(long uploadId, long idleTimeoutMs, CodecRegistry registry) {
+            this.uploadId = uploadId;
+            this.idleTimeoutMs = idleTimeoutMs;
+            this.registry = registry;
+        }
+
+        public boolean hasNext() {
+            while (elements == null || index == elements.size()) {
+                if (last) {
+                    return false;
+                }
+
+                byte[] chunk;
+                try {
+                    chunk = queue.poll(idleTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RemotingException(format("Interrupted while waiting for the next chunk of upload [%s]", uploadId), e);
+                }
+
+                if (chunk == null) {
+                    throw new DistributedMethodTimeoutException(
+                            format("No chunk of upload [%s] was received within [%s] ms", uploadId, idleTimeoutMs), null);
+                }
+
+                try {
+                    elements = IteratorUpload.decodeChunk(chunk, registry);
+                } catch (IOException e) {
+                    throw new RemotingException(format("Failed to decode a chunk of upload [%s]", uploadId), e);
+                }
+                index = 0;
+                last = IteratorUpload.isLastChunk(chunk);
+            }
+            return true;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Object element = elements.get(index);
+            elements.set(index, null);
+            index++;
+            return element;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
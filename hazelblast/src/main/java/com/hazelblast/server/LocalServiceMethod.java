@@ -0,0 +1,66 @@
+package com.hazelblast.server;
+
+import com.hazelblast.server.exceptions.PartitionMovedException;
+
+import java.lang.reflect.Method;
+
+import static java.lang.String.format;
+
+/**
+ * A method of a service in a {@link Slice} running in the same JVM, bound once so that it can be called without
+ * the lookups {@link SliceServer#executeMethod(com.hazelcast.core.HazelcastInstance, String, String, String, String[], Object[], int)}
+ * does for every call: the lookup of the SliceServer, of the service and of the method.
+ * <p/>
+ * A LocalServiceMethod becomes unbound when the SliceServer it was bound to is shut down; a new one should then be
+ * obtained using {@link SliceServer#bindLocalMethod(com.hazelcast.core.HazelcastInstance, String, String, String, String[])}.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class LocalServiceMethod {
+
+    private final SliceContainer container;
+    private final Object service;
+    private final Method method;
+
+    LocalServiceMethod(SliceContainer container, Object service, Method method) {
+        this.container = container;
+        this.service = service;
+        this.method = method;
+    }
+
+    /**
+     * Checks if this LocalServiceMethod still is bound to a running SliceServer.
+     *
+     * @return true if bound, false otherwise.
+     */
+    public boolean isBound() {
+        return !container.isStopped();
+    }
+
+    /**
+     * Invokes the method.
+     *
+     * @param args        the arguments of the call.
+     * @param partitionId the id of the partition the call was routed to, or -1 if the call is not partitioned.
+     * @return the result of the call.
+     * @throws com.hazelblast.server.exceptions.PartitionMovedException
+     *                   if the partition is not managed by the SliceServer, or if this LocalServiceMethod is unbound.
+     * @throws Throwable the exception thrown by the method.
+     */
+    public Object invoke(Object[] args, int partitionId) throws Throwable {
+        if (container.isStopped()) {
+            //just like a call to a SliceServer that isn't found, so the call is retried.
+            throw new PartitionMovedException(format("The SliceServer containing method '%s' has been shut down", method));
+        }
+
+        container.checkPartition(partitionId);
+        return container.dispatch(service, method, args, partitionId);
+    }
+
+    @Override
+    public String toString() {
+        return "LocalServiceMethod{method=" + method + "}";
+    }
+}
@@ -0,0 +1,367 @@
+package com.hazelblast.server;
+
+import com.hazelblast.codec.CodecRegistry;
+import com.hazelblast.server.annotations.Invalidates;
+import com.hazelblast.server.annotations.Memoized;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.hazelblast.utils.CompactEncoding.readObject;
+import static com.hazelblast.utils.CompactEncoding.writeObject;
+import static java.lang.String.format;
+
+/**
+ * The results of the {@link Memoized} methods of the services in a {@link SliceContainer}, stored per partition. Only
+ * the partitions managed by the SliceContainer have results, see {@link #addPartition(int)}. The results of a
+ * partition are dropped when the partition is removed, so a member never serves results it computed before the
+ * partition migrated away and back.
+ * <p/>
+ * A memoized call records the generation of its partition before it executes, and only stores its result if the
+ * partition still is managed and no invalidation happened in the meantime.
+ * <p/>
+ * The results are stored encoded, and every call gets its own decoded copy. So a local caller that modifies the
+ * result it got, doesn't modify the results of other calls. A result that can't be encoded is not memoized.
+ * <p/>
+ * The annotations of the services are validated when the services are registered, see {@link #register(Class)}, so a
+ * misconfigured service is rejected before it is called.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+final class PartitionResultCache {
+
+    private final ConcurrentMap<Integer, PartitionResults> partitions = new ConcurrentHashMap<Integer, PartitionResults>();
+    private final ConcurrentMap<Method, MethodInfo> methodInfos = new ConcurrentHashMap<Method, MethodInfo>();
+    private final CodecRegistry codecRegistry;
+
+    /**
+     * Creates a PartitionResultCache.
+     *
+     * @param codecRegistry the CodecRegistry used to encode the results, can be null.
+     */
+    PartitionResultCache(CodecRegistry codecRegistry) {
+        this.codecRegistry = codecRegistry;
+    }
+
+    /**
+     * Registers the class of a service: the {@link Memoized} and {@link Invalidates} annotations of its methods are
+     * validated.
+     *
+     * @param serviceClass the class of the service.
+     * @throws IllegalArgumentException if a method can't be memoized, or if a method invalidates a name that isn't
+     *                                  the name of a memoized method of the service.
+     */
+    void register(Class serviceClass) {
+        Map<Method, MethodInfo> infos = new HashMap<Method, MethodInfo>();
+        Set<String> memoizedNames = new HashSet<String>();
+        for (Method method : serviceClass.getMethods()) {
+            MethodInfo info = new MethodInfo(method);
+            infos.put(method, info);
+            if (info.maxEntries > 0) {
+                memoizedNames.add(method.getName());
+            }
+        }
+
+        for (Map.Entry<Method, MethodInfo> entry : infos.entrySet()) {
+            Set<String> invalidates = entry.getValue().invalidates;
+            if (invalidates == null) {
+                continue;
+            }
+
+            for (String name : invalidates) {
+                if (!memoizedNames.contains(name)) {
+                    throw new IllegalArgumentException(
+                            format("Method '%s' invalidates [%s], but [%s] has no @Memoized method with that name",
+                                    entry.getKey(), name, serviceClass.getName()));
+                }
+            }
+        }
+
+        methodInfos.putAll(infos);
+    }
+
+    /**
+     * Invokes a method of a service, using the memoized result if there is one.
+     *
+     * @param service     the service.
+     * @param method      the method to invoke.
+     * @param args        the arguments of the call.
+     * @param partitionId the id of the partition of the call, or -1 if the call is not partitioned.
+     * @return the result of the call.
+     * @throws IllegalArgumentException if the method is {@link Memoized} but can't be memoized; only possible if the
+     *                                  class of the service was not registered.
+     * @throws Throwable                the exception thrown by the method.
+     */
+    Object invoke(Object service, Method method, Object[] args, int partitionId) throws Throwable {
+        MethodInfo info = getMethodInfo(method);
+        if (partitionId < 0 || (info.maxEntries == 0 && info.invalidates == null)) {
+            return SliceContainer.invoke(service, method, args);
+        }
+
+        if (info.invalidates != null) {
+            invalidate(partitionId, service, info.invalidates);
+            try {
+                return SliceContainer.invoke(service, method, args);
+            } finally {
+                invalidate(partitionId, service, info.invalidates);
+            }
+        }
+
+        PartitionResults results = partitions.get(partitionId);
+        if (results == null) {
+            //the partition has been removed after the call was accepted, so its result can't be memoized.
+            return SliceContainer.invoke(service, method, args);
+        }
+
+        ResultKey key = new ResultKey(service, method, args);
+        byte[] bytes = results.get(key);
+        if (bytes != null) {
+            try {
+                return readObject(new DataInputStream(new ByteArrayInputStream(bytes)), codecRegistry);
+            } catch (IOException e) {
+                //the result is computed again.
+            }
+        }
+
+        long generation = results.getGeneration();
+        Object result = SliceContainer.invoke(service, method, args);
+        bytes = encode(result);
+        if (bytes != null) {
+            results.put(key, bytes, info.maxEntries, generation);
+        }
+        return result;
+    }
+
+    private byte[] encode(Object result) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeObject(new DataOutputStream(out), result, codecRegistry);
+            return out.toByteArray();
+        } catch (IOException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            //e.g. a result that isn't serializable.
+            return null;
+        }
+    }
+
+    /**
+     * Starts memoizing the results of the given partition. Should be called before the partition is managed.
+     *
+     * @param partitionId the id of the partition.
+     */
+    void addPartition(int partitionId) {
+        partitions.putIfAbsent(partitionId, new PartitionResults());
+    }
+
+    /**
+     * Drops the results of the given partition, and stops memoizing its results until it is added again.
+     *
+     * @param partitionId the id of the partition.
+     */
+    void dropPartition(int partitionId) {
+        PartitionResults results = partitions.remove(partitionId);
+        if (results != null) {
+            //a memoized call that still is executing, should not store its result.
+            results.drop();
+        }
+    }
+
+    /**
+     * Drops all results.
+     */
+    void clear() {
+        for (Integer partitionId : partitions.keySet()) {
+            dropPartition(partitionId);
+        }
+    }
+
+    /**
+     * Returns the number of results memoized for the given partition.
+     *
+     * @param partitionId the id of the partition.
+     * @return the number of memoized results.
+     */
+    int size(int partitionId) {
+        PartitionResults results = partitions.get(partitionId);
+        return results == null ? 0 : results.size();
+    }
+
+    private void invalidate(int partitionId, Object service, Set<String> methodNames) {
+        PartitionResults results = partitions.get(partitionId);
+        if (results != null) {
+            results.invalidate(service, methodNames);
+        }
+    }
+
+    private MethodInfo getMethodInfo(Method method) {
+        MethodInfo info = methodInfos.get(method);
+        if (info == null) {
+            //a service that isn't registered, e.g. one that is assigned after the Slice has been created.
+            info = new MethodInfo(method);
+            methodInfos.put(method, info);
+        }
+        return info;
+    }
+
+    private static final class MethodInfo {
+        private final int maxEntries;
+        private final Set<String> invalidates;
+
+        private MethodInfo(Method method) {
+            Memoized memoized = method.getAnnotation(Memoized.class);
+            if (memoized == null) {
+                maxEntries = 0;
+            } else {
+                if (memoized.maxEntries() < 1) {
+                    throw new IllegalArgumentException(
+                            format("@Memoized maxEntries of method '%s' can't be smaller than 1, maxEntries was [%s]",
+                                    method, memoized.maxEntries()));
+                }
+                if (void.class.equals(method.getReturnType()) || Iterator.class.equals(method.getReturnType())
+                        || Arrays.asList(method.getParameterTypes()).contains(Iterator.class)) {
+                    throw new IllegalArgumentException(
+                            format("Method '%s' is annotated with @Memoized, but its result can't be memoized", method));
+                }
+                maxEntries = memoized.maxEntries();
+            }
+
+            Invalidates invalidates = method.getAnnotation(Invalidates.class);
+            if (invalidates == null) {
+                this.invalidates = null;
+            } else {
+                if (memoized != null) {
+                    throw new IllegalArgumentException(
+                            format("Method '%s' is annotated with both @Memoized and @Invalidates", method));
+                }
+                this.invalidates = new HashSet<String>(Arrays.asList(invalidates.value()));
+            }
+        }
+    }
+
+    /**
+     * The memoized results of a single partition. Every method has its own LRU map, so a method with many distinct
+     * arguments can't evict the results of another method.
+     */
+    private static final class PartitionResults {
+        private final Map<ResultKey.MethodKey, LinkedHashMap<ResultKey, byte[]>> resultsByMethod
+                = new HashMap<ResultKey.MethodKey, LinkedHashMap<ResultKey, byte[]>>();
+        private long generation;
+        private boolean dropped;
+
+        synchronized long getGeneration() {
+            return generation;
+        }
+
+        synchronized byte[] get(ResultKey key) {
+            LinkedHashMap<ResultKey, byte[]> results = resultsByMethod.get(key.methodKey);
+            return results == null ? null : results.get(key);
+        }
+
+        synchronized void put(ResultKey key, byte[] result, final int maxEntries, long generation) {
+            if (dropped || generation != this.generation) {
+                return;
+            }
+
+            LinkedHashMap<ResultKey, byte[]> results = resultsByMethod.get(key.methodKey);
+            if (results == null) {
+                results = new LinkedHashMap<ResultKey, byte[]>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<ResultKey, byte[]> eldest) {
+                        return size() > maxEntries;
+                    }
+                };
+                resultsByMethod.put(key.methodKey, results);
+            }
+            results.put(key, result);
+        }
+
+        synchronized void invalidate(Object service, Set<String> methodNames) {
+            generation++;
+            for (Iterator<ResultKey.MethodKey> it = resultsByMethod.keySet().iterator(); it.hasNext(); ) {
+                ResultKey.MethodKey methodKey = it.next();
+                if (methodKey.service == service && methodNames.contains(methodKey.method.getName())) {
+                    it.remove();
+                }
+            }
+        }
+
+        synchronized void drop() {
+            dropped = true;
+            generation++;
+            resultsByMethod.clear();
+        }
+
+        synchronized int size() {
+            int size = 0;
+            for (Map<ResultKey, byte[]> results : resultsByMethod.values()) {
+                size += results.size();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * The service, method and arguments of a call. The service is compared by identity, the arguments by value.
+     */
+    private static final class ResultKey {
+        private final MethodKey methodKey;
+        private final Object[] args;
+        private final int hashCode;
+
+        private ResultKey(Object service, Method method, Object[] args) {
+            this.methodKey = new MethodKey(service, method);
+            this.args = args == null ? new Object[0] : args.clone();
+            this.hashCode = 31 * methodKey.hashCode() + Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResultKey)) {
+                return false;
+            }
+            ResultKey that = (ResultKey) o;
+            return hashCode == that.hashCode && methodKey.equals(that.methodKey) && Arrays.deepEquals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        private static final class MethodKey {
+            private final Object service;
+            private final Method method;
+
+            private MethodKey(Object service, Method method) {
+                this.service = service;
+                this.method = method;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) {
+                    return true;
+                }
+                if (!(o instanceof MethodKey)) {
+                    return false;
+                }
+                MethodKey that = (MethodKey) o;
+                return service == that.service && method.equals(that.method);
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * System.identityHashCode(service) + method.hashCode();
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.hazelblast.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.String.format;
+
+/**
+ * Statistics about the partitioned calls executed by a {@link SliceServer}: the number of calls and their total
+ * execution time per partition. They make it possible to find the partitions that overload a member, e.g. because
+ * they contain a very large customer.
+ * <p/>
+ * The statistics are kept in arrays indexed by partition id, so recording a call doesn't allocate.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class PartitionStats implements PartitionStatsMBean {
+
+    public static final int DEFAULT_HOT_PARTITION_COUNT = 10;
+
+    private final AtomicLongArray callCounts;
+    private final AtomicLongArray totalTimeNs;
+    //the call counts at the time of the last summary, only accessed by the thread creating the summaries.
+    private final long[] summaryCallCounts;
+
+    /**
+     * Creates a PartitionStats.
+     *
+     * @param partitionCount the number of partitions.
+     * @throws IllegalArgumentException if partitionCount is smaller than 1.
+     */
+    public PartitionStats(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException(
+                    format("partitionCount can't be smaller than 1, partitionCount was [%s]", partitionCount));
+        }
+        this.callCounts = new AtomicLongArray(partitionCount);
+        this.totalTimeNs = new AtomicLongArray(partitionCount);
+        this.summaryCallCounts = new long[partitionCount];
+    }
+
+    /**
+     * Records a call.
+     *
+     * @param partitionId the id of the partition of the call. Calls that are not partitioned are ignored.
+     * @param durationNs  the execution time of the call in nanoseconds.
+     */
+    public void onCall(int partitionId, long durationNs) {
+        if (partitionId < 0 || partitionId >= callCounts.length()) {
+            return;
+        }
+
+        callCounts.incrementAndGet(partitionId);
+        totalTimeNs.addAndGet(partitionId, durationNs);
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return the number of partitions.
+     */
+    public int getPartitionCount() {
+        return callCounts.length();
+    }
+
+    /**
+     * Returns the number of calls executed for a partition.
+     *
+     * @param partitionId the id of the partition.
+     * @return the number of calls.
+     */
+    public long getCallCount(int partitionId) {
+        return callCounts.get(partitionId);
+    }
+
+    /**
+     * Returns the total execution time of the calls for a partition.
+     *
+     * @param partitionId the id of the partition.
+     * @return the total execution time in nanoseconds.
+     */
+    public long getTotalTimeNs(int partitionId) {
+        return totalTimeNs.get(partitionId);
+    }
+
+    public long getTotalCallCount() {
+        long total = 0;
+        for (int k = 0; k < callCounts.length(); k++) {
+            total += callCounts.get(k);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the ids of the partitions with the most calls, hottest first. Partitions without calls are not
+     * returned.
+     *
+     * @param count the maximum number of partitions to return.
+     * @return the ids of the hottest partitions.
+     */
+    public List<Integer> getHotPartitionIds(int count) {
+        final long[] counts = new long[callCounts.length()];
+        for (int k = 0; k < counts.length; k++) {
+            counts[k] = callCounts.get(k);
+        }
+        return getHottest(counts, count);
+    }
+
+    public String[] getHotPartitions() {
+        List<Integer> partitionIds = getHotPartitionIds(DEFAULT_HOT_PARTITION_COUNT);
+        String[] result = new String[partitionIds.size()];
+        for (int k = 0; k < result.length; k++) {
+            int partitionId = partitionIds.get(k);
+            result[k] = describe(partitionId, callCounts.get(partitionId), totalTimeNs.get(partitionId));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a summary of the hottest partitions since the previous summary. Should only be called by a single
+     * thread.
+     *
+     * @param count the maximum number of partitions in the summary.
+     * @return the summary, or null if no calls were executed since the previous summary.
+     */
+    String summarizeInterval(int count) {
+        long[] intervalCounts = new long[callCounts.length()];
+        long total = 0;
+        for (int k = 0; k < intervalCounts.length; k++) {
+            long callCount = callCounts.get(k);
+            //after a reset the count can be lower than the count of the previous summary.
+            intervalCounts[k] = Math.max(0, callCount - summaryCallCounts[k]);
+            summaryCallCounts[k] = callCount;
+            total += intervalCounts[k];
+        }
+
+        if (total == 0) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(format("%s partitioned calls, hottest partitions:", total));
+        for (int partitionId : getHottest(intervalCounts, count)) {
+            sb.append(format(" [partition=%s calls=%s share=%.1f%%]",
+                    partitionId, intervalCounts[partitionId], 100d * intervalCounts[partitionId] / total));
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        for (int k = 0; k < callCounts.length(); k++) {
+            callCounts.set(k, 0);
+            totalTimeNs.set(k, 0);
+        }
+    }
+
+    private static List<Integer> getHottest(final long[] counts, int count) {
+        List<Integer> partitionIds = new ArrayList<Integer>();
+        for (int k = 0; k < counts.length; k++) {
+            if (counts[k] > 0) {
+                partitionIds.add(k);
+            }
+        }
+
+        Collections.sort(partitionIds, new Comparator<Integer>() {
+            public int compare(Integer p1, Integer p2) {
+                long c1 = counts[p1];
+                long c2 = counts[p2];
+                return c1 > c2 ? -1 : (c1 == c2 ? 0 : 1);
+            }
+        });
+        return partitionIds.size() > count ? partitionIds.subList(0, count) : partitionIds;
+    }
+
+    private static String describe(int partitionId, long callCount, long totalTimeNs) {
+        double totalMs = totalTimeNs / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        return format("partition=%s calls=%s totalMs=%.1f avgMs=%.3f",
+                partitionId, callCount, totalMs, callCount == 0 ? 0 : totalMs / callCount);
+    }
+
+    @Override
+    public String toString() {
+        return format("PartitionStats{totalCallCount=%s}", getTotalCallCount());
+    }
+}
@@ -0,0 +1,29 @@
+package com.hazelblast.server;
+
+/**
+ * The JMX management interface of the {@link PartitionStats} of a {@link SliceServer}.
+ *
+ * @author Peter Veentjer.
+ */
+public interface PartitionStatsMBean {
+
+    /**
+     * Returns the total number of partitioned calls executed.
+     *
+     * @return the total call count.
+     */
+    long getTotalCallCount();
+
+    /**
+     * Returns the partitions with the most calls, hottest first, formatted as
+     * 'partition=[id] calls=[count] totalMs=[ms] avgMs=[ms]'.
+     *
+     * @return the hottest partitions.
+     */
+    String[] getHotPartitions();
+
+    /**
+     * Resets all statistics.
+     */
+    void reset();
+}
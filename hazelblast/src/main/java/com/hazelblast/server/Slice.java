@@ -1,5 +1,6 @@
 package com.hazelblast.server;
 
+import com.hazelblast.codec.CodecRegistry;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.partition.Partition;
 
@@ -49,4 +50,12 @@ public interface Slice extends SliceLifecycleListener, SlicePartitionListener {
      *                          depends on framework being used.
      */
     Object getService(String serviceName);
+
+    /**
+     * Returns the {@link CodecRegistry} used to decode the arguments and encode the results of calls to this Slice.
+     * Value will be constant and never be null.
+     *
+     * @return the CodecRegistry.
+     */
+    CodecRegistry getCodecRegistry();
 }
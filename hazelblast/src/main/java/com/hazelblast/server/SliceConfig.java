@@ -1,11 +1,19 @@
 package com.hazelblast.server;
 
+import com.hazelblast.codec.CodecRegistry;
+
 import static com.hazelblast.utils.Arguments.notNull;
 
 public class SliceConfig {
 
     public final String name;
 
+    /**
+     * The {@link com.hazelblast.codec.Codec} instances used to decode the arguments and encode the results of calls
+     * to the Slice.
+     */
+    public final CodecRegistry codecRegistry = new CodecRegistry();
+
     public SliceConfig() {
         this(Slice.DEFAULT_NAME);
     }
@@ -1,7 +1,11 @@
 package com.hazelblast.server;
 
+import com.hazelblast.codec.CodecRegistry;
 import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.server.pojoslice.PojoSlice;
 import com.hazelblast.server.pojoslice.PojoUtils;
+import com.hazelblast.utils.MethodStats;
+import com.hazelblast.utils.MethodStatsRegistry;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ILock;
 import com.hazelcast.core.Member;
@@ -9,14 +13,19 @@ import com.hazelcast.logging.ILogger;
 import com.hazelcast.partition.Partition;
 import com.hazelcast.partition.PartitionService;
 
+import javax.management.ObjectName;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import static com.hazelblast.utils.Arguments.notNull;
@@ -30,6 +39,8 @@ import static java.lang.String.format;
  */
 final class SliceContainer {
 
+    private static final DispatchInterceptor[] NO_INTERCEPTORS = new DispatchInterceptor[0];
+
     private final ILogger logger;
 
     private final Slice slice;
@@ -39,17 +50,37 @@ final class SliceContainer {
     private final Member self;
     private final Map<Integer, ILock> partitionLockMap = new HashMap<Integer, ILock>();
     private final List<Partition> partitions = new ArrayList<Partition>();
+    private final IteratorCursors cursors;
+    private final IteratorUploads uploads = new IteratorUploads();
+    private final PartitionResultCache resultCache;
+    private final PartitionStats partitionStats;
+    private final MethodStatsRegistry methodStats;
+    private volatile DispatchInterceptor[] interceptors = NO_INTERCEPTORS;
+    private volatile boolean stopped;
 
     /**
      * Creates a new SliceContainer with the given Slice.
      *
      * @param slice the Slice contained in this SliceContainer.
-     * @throws NullPointerException if slice is null
+     * @throws NullPointerException     if slice is null
+     * @throws IllegalArgumentException if a service of the Slice has an invalid
+     *                                  {@link com.hazelblast.server.annotations.Memoized} or
+     *                                  {@link com.hazelblast.server.annotations.Invalidates} annotation.
      */
     SliceContainer(Slice slice) {
         this.slice = notNull("slice", slice);
+        this.resultCache = new PartitionResultCache(slice.getCodecRegistry());
+        if (slice instanceof PojoSlice) {
+            //the services are validated now, instead of failing the first call to a misconfigured method.
+            for (Object service : ((PojoSlice) slice).getServices()) {
+                resultCache.register(service.getClass());
+            }
+        }
+
         HazelcastInstance hazelcastInstance = slice.getHazelcastInstance();
         this.logger = hazelcastInstance.getLoggingService().getLogger(SliceContainer.class.getName());
+        this.methodStats = new MethodStatsRegistry(format("com.hazelblast:type=ServerMethodStats,slice=%s,instance=%s",
+                ObjectName.quote(slice.getName()), ObjectName.quote(hazelcastInstance.getName())), logger);
 
         if (logger.isLoggable(Level.INFO)) {
             logger.log(Level.INFO, format("Created SliceContainer containing Slice [%s]", slice));
@@ -60,13 +91,18 @@ final class SliceContainer {
             throw new IllegalStateException(format("Can't create a SliceContainer using lite member [%s]", self));
         }
 
+        cursors = new IteratorCursors(self.getUuid());
+
         partitionService = hazelcastInstance.getPartitionService();
+        int maxPartitionId = 0;
         for (Partition partition : partitionService.getPartitions()) {
             int partitionId = partition.getPartitionId();
             ILock lock = hazelcastInstance.getLock("PartitionLock-" + partitionId);
             partitionLockMap.put(partitionId, lock);
             partitions.add(partition);
+            maxPartitionId = Math.max(maxPartitionId, partitionId);
         }
+        partitionStats = new PartitionStats(maxPartitionId + 1);
     }
 
     /**
@@ -107,9 +143,15 @@ final class SliceContainer {
             logger.log(Level.FINEST, format("[%s] Slice.onStop() begin", slice.getName()));
         }
 
+        stopped = true;
+
         try {
             slice.onStop();
 
+            cursors.closeAll();
+            uploads.closeAll();
+            resultCache.clear();
+
             //we need to release all the locks we own.
             for (ILock lock : partitionLockMap.values()) {
                 lock.unlock();
@@ -144,6 +186,8 @@ final class SliceContainer {
 
         boolean changeDetected = false;
 
+        cursors.expire();
+
         for (Partition partition : partitions) {
             int partitionId = partition.getPartitionId();
             if (self.equals(partition.getOwner())) {
@@ -174,6 +218,7 @@ final class SliceContainer {
     private void removePartition(Partition partition) {
         //removing the partition from the managedPartitions, prevents new calls from being accepted.
         managedPartitions.remove(partition.getPartitionId());
+        resultCache.dropPartition(partition.getPartitionId());
 
         long startMs = System.currentTimeMillis();
         if (logger.isLoggable(Level.FINEST)) {
@@ -228,6 +273,7 @@ final class SliceContainer {
             }
 
             //by adding the partition to the managed partitions, external calls are allowed to be executed again.
+            resultCache.addPartition(partition.getPartitionId());
             managedPartitions.put(partition.getPartitionId(), partition);
         }
         return changeDetected;
@@ -239,10 +285,244 @@ final class SliceContainer {
 
         //todo: logging of method under finest
 
-        //The first thing that needs to be checked, is if the partition that was expected to be here when the call
-        //was send to this machine, is still there. If it isn't, some kind of exception should be thrown, this exception
-        //should be caught by the proxy and the method call should be retried, now hoping that
+        checkPartition(partitionId);
+
+        Object service = slice.getService(serviceName);
+        Method method = findMethod(service, methodName, argTypes);
+
+        List<Iterator<Object>> openedUploads = openUploads(args);
+        Object result;
+        try {
+            result = dispatch(service, method, args, partitionId);
+        } finally {
+            if (openedUploads != null) {
+                for (Iterator<Object> upload : openedUploads) {
+                    uploads.close(upload);
+                }
+            }
+        }
+
+        if (Iterator.class.equals(method.getReturnType())) {
+            //the result is send back page by page, so the elements don't need to be materialized all at once.
+            return cursors.open((Iterator) result);
+        }
+
+        return result;
+    }
+
+    private List<Iterator<Object>> openUploads(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+
+        List<Iterator<Object>> openedUploads = null;
+        for (int k = 0; k < args.length; k++) {
+            if (args[k] instanceof IteratorUpload) {
+                //the upload is only opened now, so the client only pushes chunks once the call is really executed.
+                Iterator<Object> upload = uploads.open(((IteratorUpload) args[k]).getUploadId(), cursors.getIdleTimeoutMs(),
+                        slice.getCodecRegistry());
+                args[k] = upload;
+                if (openedUploads == null) {
+                    openedUploads = new ArrayList<Iterator<Object>>(1);
+                }
+                openedUploads.add(upload);
+            }
+        }
+        return openedUploads;
+    }
+
+    /**
+     * Offers a chunk of an Iterator argument of a call executing in this SliceContainer.
+     *
+     * @param uploadId the id of the upload, see {@link IteratorUpload#getUploadId()}.
+     * @param chunk    the chunk encoded using {@link IteratorUpload#encodeChunk(java.util.List, boolean, CodecRegistry)}.
+     * @return true if the chunk was accepted, false if the call has not started executing (yet) or if the service has
+     *         not consumed the previous chunks in time.
+     * @throws InterruptedException if interrupted while waiting for the service to consume a chunk.
+     */
+    boolean offerUploadChunk(long uploadId, byte[] chunk) throws InterruptedException {
+        return uploads.offer(uploadId, chunk);
+    }
+
+    /**
+     * Returns the next page of an Iterator returned by a call to {@link #executeMethod(String, String, String[], Object[], int)}.
+     *
+     * @param cursorId the id of the cursor of the Iterator.
+     * @return the next page.
+     * @throws com.hazelblast.server.exceptions.CursorNotFoundException
+     *          if the cursor is not found.
+     */
+    IteratorPage fetchIteratorPage(long cursorId) {
+        return cursors.next(cursorId);
+    }
 
+    /**
+     * Dispatches a call to a method of a service: the call is intercepted by the registered
+     * {@link DispatchInterceptor}s, recorded in the {@link PartitionStats} and the {@link MethodStats} of the method,
+     * and uses the memoized result if the method is {@link com.hazelblast.server.annotations.Memoized}.
+     *
+     * @param service     the service.
+     * @param method      the method.
+     * @param args        the arguments of the call.
+     * @param partitionId the id of the partition of the call, or -1 if the call is not partitioned.
+     * @return the result of the call.
+     * @throws Throwable the exception thrown by the method.
+     */
+    Object dispatch(Object service, Method method, Object[] args, int partitionId) throws Throwable {
+        DispatchInterceptor[] interceptors = this.interceptors;
+        if (interceptors.length != 0) {
+            return invokeIntercepted(interceptors, service, method, args, partitionId);
+        }
+        return invokeMeasured(service, method, args, partitionId);
+    }
+
+    private Object invokeIntercepted(DispatchInterceptor[] interceptors, Object service, Method method, Object[] args,
+                                     int partitionId) throws Throwable {
+        Object[] contexts = new Object[interceptors.length];
+        int started = 0;
+        Object result = null;
+        Throwable failure = null;
+        try {
+            for (; started < interceptors.length; started++) {
+                contexts[started] = interceptors[started].beforeDispatch(service, method, args, partitionId);
+            }
+            result = invokeMeasured(service, method, args, partitionId);
+            return result;
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            //only the interceptors that saw the start of the call, see its end.
+            for (int k = started - 1; k >= 0; k--) {
+                try {
+                    interceptors[k].afterDispatch(service, method, args, partitionId, result, failure, contexts[k]);
+                } catch (Throwable e) {
+                    logger.log(Level.WARNING, format("[%s] DispatchInterceptor [%s] failed after method '%s'",
+                            slice.getName(), interceptors[k], method), e);
+                }
+            }
+        }
+    }
+
+    private Object invokeMeasured(Object service, Method method, Object[] args, int partitionId) throws Throwable {
+        MethodStats stats = methodStats.get(method);
+        long startNs = System.nanoTime();
+        try {
+            return resultCache.invoke(service, method, args, partitionId);
+        } catch (Throwable e) {
+            stats.onFailure(false);
+            throw e;
+        } finally {
+            long durationNs = System.nanoTime() - startNs;
+            stats.onCall(durationNs);
+            partitionStats.onCall(partitionId, durationNs);
+        }
+    }
+
+    /**
+     * Adds a DispatchInterceptor. The interceptors are called in the order they were added; afterDispatch is called in
+     * the reverse order.
+     *
+     * @param interceptor the DispatchInterceptor to add.
+     * @throws NullPointerException if interceptor is null.
+     */
+    synchronized void addDispatchInterceptor(DispatchInterceptor interceptor) {
+        notNull("interceptor", interceptor);
+
+        DispatchInterceptor[] interceptors = Arrays.copyOf(this.interceptors, this.interceptors.length + 1);
+        interceptors[interceptors.length - 1] = interceptor;
+        this.interceptors = interceptors;
+    }
+
+    /**
+     * Removes a DispatchInterceptor.
+     *
+     * @param interceptor the DispatchInterceptor to remove.
+     * @return true if the interceptor was removed, false if it was not registered.
+     */
+    synchronized boolean removeDispatchInterceptor(DispatchInterceptor interceptor) {
+        List<DispatchInterceptor> interceptors = new ArrayList<DispatchInterceptor>(Arrays.asList(this.interceptors));
+        if (!interceptors.remove(interceptor)) {
+            return false;
+        }
+
+        this.interceptors = interceptors.isEmpty()
+                ? NO_INTERCEPTORS
+                : interceptors.toArray(new DispatchInterceptor[interceptors.size()]);
+        return true;
+    }
+
+    /**
+     * Returns the statistics of the service methods executed by this SliceContainer.
+     *
+     * @return the MethodStatsRegistry.
+     */
+    MethodStatsRegistry getMethodStats() {
+        return methodStats;
+    }
+
+    /**
+     * Returns the statistics of the partitioned calls executed by this SliceContainer.
+     *
+     * @return the PartitionStats.
+     */
+    PartitionStats getPartitionStats() {
+        return partitionStats;
+    }
+
+    /**
+     * Returns the IteratorCursors containing the open cursors of the Iterator results.
+     *
+     * @return the IteratorCursors.
+     */
+    IteratorCursors getCursors() {
+        return cursors;
+    }
+
+    /**
+     * Binds to a method of a service in this SliceContainer, so that it can be called repeatedly without looking up
+     * the service and the method.
+     *
+     * @param serviceName the name of the service.
+     * @param methodName  the name of the method.
+     * @param argTypes    the names of the argument types of the method.
+     * @return the bound LocalServiceMethod.
+     * @throws NullPointerException if serviceName or methodName is null.
+     */
+    LocalServiceMethod bind(String serviceName, String methodName, String[] argTypes) {
+        notNull("serviceName", serviceName);
+        notNull("methodName", methodName);
+
+        Object service = slice.getService(serviceName);
+        Method method = findMethod(service, methodName, argTypes);
+        return new LocalServiceMethod(this, service, method);
+    }
+
+    /**
+     * Returns the CodecRegistry of the contained Slice.
+     *
+     * @return the CodecRegistry.
+     */
+    CodecRegistry getCodecRegistry() {
+        return slice.getCodecRegistry();
+    }
+
+    /**
+     * Checks if this SliceContainer has been stopped. A stopped SliceContainer is not started again.
+     *
+     * @return true if stopped, false otherwise.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Checks if the partition that was expected to be here when the call was send to this machine, is still there.
+     *
+     * @param partitionId the id of the partition, or -1 if the call is not partitioned.
+     * @throws PartitionMovedException if the partition is not managed by this SliceContainer.
+     */
+    void checkPartition(int partitionId) {
         if (partitionId >= 0) {
             if (!managedPartitions.containsKey(partitionId)) {
                 //if the partition is not managed by this SliceContainer, we throw an exception that
@@ -250,28 +530,38 @@ final class SliceContainer {
                 throw new PartitionMovedException(format("Partition [%s] is not found on member [%s]", partitionId, self));
             }
         }
+    }
 
-        Object service = slice.getService(serviceName);
-
+    private static Method findMethod(Object service, String methodName, String[] argTypes) {
         Class serviceClass = service.getClass();
         Method[] methods = serviceClass.getMethods();
-        Method foundMethod = null;
         for (Method method : methods) {
             if (PojoUtils.matches(method, methodName, argTypes)) {
-                foundMethod = method;
-                break;
+                return method;
             }
         }
 
-        if (foundMethod == null) {
-            //todo; better exception
-            throw new IllegalStateException();
-        }
+        //todo; better exception
+        throw new IllegalStateException();
+    }
 
+    static Object invoke(Object service, Method method, Object[] args) throws Throwable {
+        Object result;
         try {
-            return foundMethod.invoke(service, args);
+            result = method.invoke(service, args);
         } catch (InvocationTargetException e) {
             throw e.getTargetException();
         }
+
+        if (result instanceof Future && Future.class.equals(method.getReturnType())) {
+            //the client side returns its own Future for methods returning a Future, so only the value is send back.
+            try {
+                return ((Future) result).get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+
+        return result;
     }
 }
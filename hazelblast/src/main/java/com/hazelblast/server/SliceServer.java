@@ -1,10 +1,15 @@
 package com.hazelblast.server;
 
+import com.hazelblast.codec.CodecRegistry;
 import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.utils.MethodStatsRegistry;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.logging.ILogger;
 import org.apache.commons.cli.*;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -31,6 +36,8 @@ import static java.lang.String.format;
 public final class SliceServer {
 
     public static final int DEFAULT_SCAN_DELAY_MS = 1000;
+    public static final long DEFAULT_STATS_LOG_INTERVAL_MS = 60000;
+    public static final int STATS_LOG_PARTITION_COUNT = 5;
 
     private static final ConcurrentMap<Key, SliceServer> serverMap = new ConcurrentHashMap<Key, SliceServer>();
 
@@ -178,6 +185,98 @@ public final class SliceServer {
         return container.executeMethod(serviceName, methodName, argTypes, args, partitionId);
     }
 
+    /**
+     * Checks if the partition is managed by the Slice with the given sliceName on this member. This is cheap, so it
+     * can be done before the arguments of a call are deserialized.
+     *
+     * @param hazelcastInstance the HazelcastInstance of the Slice.
+     * @param sliceName         the name of the Slice.
+     * @param partitionId       the id of the partition, or -1 if the call is not partitioned.
+     * @throws NullPointerException    if hazelcastInstance or sliceName is null.
+     * @throws PartitionMovedException if no Slice with the given sliceName is found, or if the partition is not managed
+     *                                 by it.
+     */
+    public static void checkPartition(HazelcastInstance hazelcastInstance, String sliceName, int partitionId) {
+        getContainer(hazelcastInstance, sliceName).checkPartition(partitionId);
+    }
+
+    /**
+     * Fetches the next page of an {@link java.util.Iterator} returned by a service method of the Slice with the given
+     * sliceName.
+     *
+     * @param hazelcastInstance the HazelcastInstance of the Slice.
+     * @param sliceName         the name of the Slice.
+     * @param cursorId          the id of the cursor, see {@link IteratorPage#getCursorId()}.
+     * @return the next page.
+     * @throws NullPointerException    if hazelcastInstance or sliceName is null.
+     * @throws PartitionMovedException if no Slice with the given sliceName is found.
+     * @throws com.hazelblast.server.exceptions.CursorNotFoundException
+     *                                 if the cursor is not found.
+     */
+    public static IteratorPage fetchIteratorPage(HazelcastInstance hazelcastInstance, String sliceName, long cursorId) {
+        return getContainer(hazelcastInstance, sliceName).fetchIteratorPage(cursorId);
+    }
+
+    /**
+     * Offers a chunk of an {@link java.util.Iterator} argument of a call executing in the Slice with the given
+     * sliceName. This waits a bounded time for the service to consume the previous chunks; the chunk should be
+     * offered again later if it is not accepted.
+     *
+     * @param hazelcastInstance the HazelcastInstance of the Slice.
+     * @param sliceName         the name of the Slice.
+     * @param uploadId          the id of the upload, see {@link IteratorUpload#getUploadId()}.
+     * @param chunk             the chunk encoded using {@link IteratorUpload#encodeChunk(java.util.List, boolean, CodecRegistry)}.
+     * @return true if the chunk was accepted, false if the call has not started executing (yet) or if the service has
+     *         not consumed the previous chunks in time.
+     * @throws NullPointerException    if hazelcastInstance or sliceName is null.
+     * @throws PartitionMovedException if no Slice with the given sliceName is found.
+     * @throws InterruptedException    if interrupted while waiting for the service to consume a chunk.
+     */
+    public static boolean offerUploadChunk(HazelcastInstance hazelcastInstance, String sliceName, long uploadId, byte[] chunk)
+            throws InterruptedException {
+        return getContainer(hazelcastInstance, sliceName).offerUploadChunk(uploadId, chunk);
+    }
+
+    /**
+     * Gets the {@link CodecRegistry} of the Slice with the given sliceName.
+     *
+     * @param hazelcastInstance the HazelcastInstance of the Slice.
+     * @param sliceName         the name of the Slice.
+     * @return the CodecRegistry, can be null if the Slice doesn't provide one.
+     * @throws NullPointerException    if hazelcastInstance or sliceName is null.
+     * @throws PartitionMovedException if no Slice with the given sliceName is found.
+     */
+    public static CodecRegistry getCodecRegistry(HazelcastInstance hazelcastInstance, String sliceName) {
+        return getContainer(hazelcastInstance, sliceName).getCodecRegistry();
+    }
+
+    /**
+     * Binds to a method of a service of a Slice that runs in this JVM, so that it can be called repeatedly without
+     * looking up the SliceServer, the service and the method for every call. A call through the bound method still
+     * checks the partition, records the statistics of the method and invokes it using reflection.
+     *
+     * @param hazelcastInstance the HazelcastInstance of the Slice.
+     * @param sliceName         the name of the Slice.
+     * @param serviceName       the name of the service.
+     * @param methodName        the name of the method.
+     * @param argTypes          the names of the argument types of the method.
+     * @return the bound LocalServiceMethod, or null if no Slice with the given name is running in this JVM for the
+     *         given HazelcastInstance.
+     * @throws NullPointerException if hazelcastInstance, sliceName, serviceName or methodName is null.
+     */
+    public static LocalServiceMethod bindLocalMethod(HazelcastInstance hazelcastInstance, String sliceName,
+                                                     String serviceName, String methodName, String[] argTypes) {
+        notNull("hazelcastInstance", hazelcastInstance);
+        notNull("sliceName", sliceName);
+
+        SliceServer server = serverMap.get(new Key(hazelcastInstance, sliceName));
+        if (server == null) {
+            return null;
+        }
+
+        return server.container.bind(serviceName, methodName, argTypes);
+    }
+
     protected enum Status {Unstarted, Running, Terminating, Terminated}
 
 
@@ -187,6 +286,10 @@ public final class SliceServer {
     private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
     private final Lock stateLock = new ReentrantLock();
     private final long scanDelayMs;
+    private volatile long statsLogIntervalMs = DEFAULT_STATS_LOG_INTERVAL_MS;
+    //only accessed by the ScanTask.
+    private long lastStatsLogMs = System.currentTimeMillis();
+    private volatile ObjectName statsObjectName;
     private volatile Status status = Status.Unstarted;
 
     /**
@@ -249,6 +352,123 @@ public final class SliceServer {
         return slice;
     }
 
+    /**
+     * Returns the maximum number of elements of an {@link java.util.Iterator} result that are send in a single page.
+     *
+     * @return the page size.
+     */
+    public int getIteratorPageSize() {
+        return container.getCursors().getPageSize();
+    }
+
+    /**
+     * Sets the maximum number of elements of an {@link java.util.Iterator} result that are send in a single page.
+     * <p/>
+     * A volatile field is used to store the page size.
+     *
+     * @param pageSize the page size.
+     * @throws IllegalArgumentException if pageSize smaller than 1.
+     */
+    public void setIteratorPageSize(int pageSize) {
+        container.getCursors().setPageSize(pageSize);
+    }
+
+    /**
+     * Returns the time in milliseconds after which the cursor of an {@link java.util.Iterator} result is closed when
+     * the client doesn't fetch the next page.
+     *
+     * @return the idle timeout in milliseconds.
+     */
+    public long getIteratorIdleTimeoutMs() {
+        return container.getCursors().getIdleTimeoutMs();
+    }
+
+    /**
+     * Sets the time in milliseconds after which the cursor of an {@link java.util.Iterator} result is closed when the
+     * client doesn't fetch the next page. Idle cursors are closed while scanning for partition changes, so they can
+     * stay open for up to the scan delay longer.
+     * <p/>
+     * A volatile field is used to store the idle timeout.
+     *
+     * @param idleTimeoutMs the idle timeout in milliseconds.
+     * @throws IllegalArgumentException if idleTimeoutMs smaller than 1.
+     */
+    public void setIteratorIdleTimeoutMs(long idleTimeoutMs) {
+        container.getCursors().setIdleTimeoutMs(idleTimeoutMs);
+    }
+
+    /**
+     * Returns the statistics about the partitioned calls executed by this SliceServer. They are also available through
+     * JMX while the SliceServer is running, under the ObjectName
+     * 'com.hazelblast:type=PartitionStats,slice=[sliceName],instance=[hazelcastInstanceName]'.
+     *
+     * @return the PartitionStats.
+     */
+    public PartitionStats getPartitionStats() {
+        return container.getPartitionStats();
+    }
+
+    /**
+     * Returns the latency histograms and failure counts of the service methods executed by this SliceServer. They are
+     * also available through JMX while the SliceServer is running, under the ObjectName
+     * 'com.hazelblast:type=ServerMethodStats,slice=[sliceName],instance=[hazelcastInstanceName],service=[class],method=[method]'.
+     *
+     * @return the MethodStatsRegistry.
+     */
+    public MethodStatsRegistry getMethodStats() {
+        return container.getMethodStats();
+    }
+
+    /**
+     * Adds a DispatchInterceptor that intercepts the calls to the services of the Slice. The interceptors are called
+     * in the order they were added; afterDispatch is called in the reverse order.
+     * <p/>
+     * The interceptors are stored in a copy on write array, so adding and removing is expensive, but calling them is
+     * cheap. When there are no interceptors, calls don't pay anything for them.
+     *
+     * @param interceptor the DispatchInterceptor to add.
+     * @throws NullPointerException if interceptor is null.
+     */
+    public void addDispatchInterceptor(DispatchInterceptor interceptor) {
+        container.addDispatchInterceptor(interceptor);
+    }
+
+    /**
+     * Removes a DispatchInterceptor. Calls that already started still call it.
+     *
+     * @param interceptor the DispatchInterceptor to remove.
+     * @return true if the interceptor was removed, false if it was not registered.
+     */
+    public boolean removeDispatchInterceptor(DispatchInterceptor interceptor) {
+        return container.removeDispatchInterceptor(interceptor);
+    }
+
+    /**
+     * Returns the interval in milliseconds between logging a summary of the hottest partitions.
+     *
+     * @return the stats log interval in milliseconds, 0 if the summary is not logged.
+     */
+    public long getStatsLogIntervalMs() {
+        return statsLogIntervalMs;
+    }
+
+    /**
+     * Sets the interval in milliseconds between logging a summary of the hottest partitions in that interval. The
+     * summary is logged while scanning for partition changes, so the actual interval is rounded up to the scan delay.
+     * <p/>
+     * A volatile field is used to store the stats log interval.
+     *
+     * @param statsLogIntervalMs the stats log interval in milliseconds, 0 to disable logging the summary.
+     * @throws IllegalArgumentException if statsLogIntervalMs smaller than 0.
+     */
+    public void setStatsLogIntervalMs(long statsLogIntervalMs) {
+        if (statsLogIntervalMs < 0) {
+            throw new IllegalArgumentException(
+                    format("statsLogIntervalMs can't be smaller than 0, statsLogIntervalMs was [%s]", statsLogIntervalMs));
+        }
+        this.statsLogIntervalMs = statsLogIntervalMs;
+    }
+
     /**
      * Starts the SliceServer.
      * <p/>
@@ -280,6 +500,8 @@ public final class SliceServer {
                     }
 
                     scheduler.scheduleAtFixedRate(new ScanTask(), 0, scanDelayMs, TimeUnit.MILLISECONDS);
+                    registerStatsMBean();
+                    container.getMethodStats().setJmxEnabled(true);
                     if (logger.isLoggable(Level.FINE)) {
                         logger.log(Level.FINE, format("[%s] Started", slice.getName()));
                     }
@@ -420,9 +642,59 @@ public final class SliceServer {
         return scheduler.awaitTermination(timeout, unit);
     }
 
+    private void registerStatsMBean() {
+        HazelcastInstance hazelcastInstance = slice.getHazelcastInstance();
+        try {
+            ObjectName objectName = new ObjectName(format("com.hazelblast:type=PartitionStats,slice=%s,instance=%s",
+                    ObjectName.quote(slice.getName()), ObjectName.quote(hazelcastInstance.getName())));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(container.getPartitionStats(), objectName);
+            statsObjectName = objectName;
+        } catch (Exception e) {
+            //the stats are not important enough to fail the start of the SliceServer.
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, format("[%s] Failed to register the PartitionStats MBean", slice.getName()), e);
+            }
+        }
+    }
+
+    private void unregisterStatsMBean() {
+        ObjectName objectName = statsObjectName;
+        if (objectName == null) {
+            return;
+        }
+
+        statsObjectName = null;
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, format("[%s] Failed to unregister the PartitionStats MBean", slice.getName()), e);
+            }
+        }
+    }
+
+    private void logStats() {
+        long intervalMs = statsLogIntervalMs;
+        long nowMs = System.currentTimeMillis();
+        if (intervalMs == 0 || nowMs - lastStatsLogMs < intervalMs) {
+            return;
+        }
+
+        lastStatsLogMs = nowMs;
+        String summary = container.getPartitionStats().summarizeInterval(STATS_LOG_PARTITION_COUNT);
+        if (summary != null && logger.isLoggable(Level.INFO)) {
+            logger.log(Level.INFO, format("[%s] Last %s ms: %s", slice.getName(), intervalMs, summary));
+        }
+    }
+
     private class ScanTask implements Runnable {
         public void run() {
             if (status == Status.Terminating) {
+                unregisterStatsMBean();
+                container.getMethodStats().setJmxEnabled(false);
                 container.stop();
                 status = Status.Terminated;
                 scheduler.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
@@ -432,6 +704,12 @@ public final class SliceServer {
                 } catch (Throwable e) {
                     logger.log(Level.SEVERE, "Failed to run SliceContainer.scanForPartitionChanges()", e);
                 }
+
+                try {
+                    logStats();
+                } catch (Throwable e) {
+                    logger.log(Level.SEVERE, "Failed to log the PartitionStats", e);
+                }
             }
         }
     }
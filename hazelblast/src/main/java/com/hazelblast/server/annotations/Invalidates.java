@@ -0,0 +1,28 @@
+package com.hazelblast.server.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that can be placed on a write method of a service implementation, to drop the results of the
+ * {@link Memoized} methods it changes. When the method is called, the memoized results of the listed methods of the
+ * same service in the partition of the call are dropped; regardless of their arguments.
+ * <p/>
+ * The results are dropped before and after the method executes, so a memoized call executing concurrently with the
+ * write doesn't memoize a stale result.
+ *
+ * @author Peter Veentjer.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Invalidates {
+
+    /**
+     * The names of the {@link Memoized} methods whose results are dropped. All overloads of a name are dropped.
+     *
+     * @return the names of the invalidated methods.
+     */
+    String[] value();
+}
@@ -0,0 +1,34 @@
+package com.hazelblast.server.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that can be placed on a method of a service implementation, to memoize its results on the member
+ * that owns the partition. This saves recomputing expensive derived views.
+ * <p/>
+ * The results are stored per partition and keyed by the arguments, so the arguments need to have a proper equals and
+ * hashcode. Only partitioned calls are memoized. The results of a partition are dropped when the partition is
+ * removed from the member, so after a migration the new owner computes them again. Within a partition, the results
+ * are dropped when a method that {@link Invalidates} this method is called.
+ * <p/>
+ * The result is memoized in encoded form and every caller gets its own copy, so a local caller can't modify the
+ * result other callers get. A result that can't be encoded is not memoized, and neither are exceptions. The method
+ * can't be void, return an {@link java.util.Iterator} or have an Iterator argument.
+ *
+ * @author Peter Veentjer.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Memoized {
+
+    /**
+     * The maximum number of results memoized for the method per partition. If more results are memoized, the least
+     * recently used result is dropped.
+     *
+     * @return the maximum number of memoized results per partition.
+     */
+    int maxEntries() default 100;
+}
@@ -0,0 +1,19 @@
+package com.hazelblast.server.exceptions;
+
+import com.hazelblast.client.exceptions.RemotingException;
+
+/**
+ * A {@link RemotingException} thrown when the next page of a streamed {@link java.util.Iterator} result is requested,
+ * but the member doesn't have the cursor (anymore); e.g. because it was idle for too long or because the Slice was
+ * restarted.
+ *
+ * @author Peter Veentjer.
+ */
+public class CursorNotFoundException extends RemotingException {
+
+    static final long serialVersionUID = 1;
+
+    public CursorNotFoundException(String message) {
+        super(message);
+    }
+}
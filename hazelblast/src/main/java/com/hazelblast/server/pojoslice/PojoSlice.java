@@ -1,5 +1,6 @@
 package com.hazelblast.server.pojoslice;
 
+import com.hazelblast.codec.CodecRegistry;
 import com.hazelblast.server.Slice;
 import com.hazelblast.server.SliceConfig;
 import com.hazelblast.server.SliceLifecycleListener;
@@ -10,6 +11,9 @@ import com.hazelcast.core.HazelcastInstanceAware;
 import com.hazelcast.partition.Partition;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static com.hazelblast.server.pojoslice.PojoUtils.getServiceFields;
@@ -77,6 +81,30 @@ public final class PojoSlice implements Slice {
         return hazelcastInstance;
     }
 
+    public CodecRegistry getCodecRegistry() {
+        return sliceConfig.codecRegistry;
+    }
+
+    /**
+     * Returns the services exposed by this PojoSlice. A field that doesn't contain a service (yet) is skipped.
+     *
+     * @return the exposed services.
+     */
+    public Collection<Object> getServices() {
+        List<Object> result = new ArrayList<Object>(services.size());
+        for (Map.Entry<String, Field> entry : services.entrySet()) {
+            try {
+                Object service = entry.getValue().get(target);
+                if (service != null) {
+                    result.add(service);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(format("Inaccessible field [%s]", entry.getKey()), e);
+            }
+        }
+        return result;
+    }
+
     public Object getService(String serviceName) {
         notNull("serviceName", serviceName);
 
@@ -57,7 +57,7 @@ public final class PojoUtils {
 
         for (int argIndex = 0; argIndex < parameterTypes.length; argIndex++) {
             String argType = argTypes[argIndex];
-            String paramType = parameterTypes[argIndex].getCanonicalName();
+            String paramType = parameterTypes[argIndex].getName();
             if (!argType.equals(paramType)) {
                 return false;
             }
@@ -0,0 +1,152 @@
+package com.hazelblast.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * A pool of direct {@link ByteBuffer} instances. Allocating a direct ByteBuffer is expensive and the memory is only
+ * released after a garbage collection, so buffers that are needed for a short period of time are better reused.
+ * <p/>
+ * Buffers are pooled per size class (a power of 2 between {@link #MIN_POOLED_CAPACITY} and the max pooled capacity).
+ * Buffers larger than the max pooled capacity are allocated on every acquire and are not pooled.
+ * <p/>
+ * A buffer that is not released is not leaked, it is just garbage collected like any other buffer.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class ByteBufferPool {
+
+    public static final int MIN_POOLED_CAPACITY = 4 * 1024;
+    public static final int DEFAULT_MAX_POOLED_CAPACITY = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_BUFFERS_PER_SIZE = 16;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_POOLED_CAPACITY);
+
+    private final int maxPooledCapacity;
+    private final int maxBuffersPerSize;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] pools;
+    private final AtomicInteger[] poolSizes;
+
+    /**
+     * Creates a ByteBufferPool with the default settings.
+     */
+    public ByteBufferPool() {
+        this(DEFAULT_MAX_POOLED_CAPACITY, DEFAULT_MAX_BUFFERS_PER_SIZE);
+    }
+
+    /**
+     * Creates a ByteBufferPool.
+     *
+     * @param maxPooledCapacity the capacity of the largest buffer that is pooled; rounded up to a power of 2.
+     * @param maxBuffersPerSize the maximum number of buffers pooled per size class.
+     * @throws IllegalArgumentException if maxPooledCapacity smaller than MIN_POOLED_CAPACITY, or maxBuffersPerSize
+     *                                  smaller than 0.
+     */
+    public ByteBufferPool(int maxPooledCapacity, int maxBuffersPerSize) {
+        if (maxPooledCapacity < MIN_POOLED_CAPACITY || maxPooledCapacity > 1 << 30) {
+            throw new IllegalArgumentException(format("maxPooledCapacity should be between %s and 2^30, maxPooledCapacity was [%s]",
+                    MIN_POOLED_CAPACITY, maxPooledCapacity));
+        }
+
+        if (maxBuffersPerSize < 0) {
+            throw new IllegalArgumentException(format("maxBuffersPerSize can't be smaller than 0, maxBuffersPerSize was [%s]", maxBuffersPerSize));
+        }
+
+        this.maxPooledCapacity = roundUp(maxPooledCapacity);
+        this.maxBuffersPerSize = maxBuffersPerSize;
+
+        int sizeClasses = sizeClass(this.maxPooledCapacity) + 1;
+        this.pools = new ConcurrentLinkedQueue[sizeClasses];
+        this.poolSizes = new AtomicInteger[sizeClasses];
+        for (int k = 0; k < sizeClasses; k++) {
+            pools[k] = new ConcurrentLinkedQueue<ByteBuffer>();
+            poolSizes[k] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Acquires a direct ByteBuffer with a position of 0 and a limit of size. The capacity can be larger than size.
+     *
+     * @param size the required size.
+     * @return the acquired ByteBuffer.
+     * @throws IllegalArgumentException if size is smaller than 0.
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException(format("size can't be smaller than 0, size was [%s]", size));
+        }
+
+        if (size > maxPooledCapacity) {
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        int capacity = Math.max(MIN_POOLED_CAPACITY, roundUp(size));
+        int sizeClass = sizeClass(capacity);
+        ByteBuffer buffer = pools[sizeClass].poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+        } else {
+            poolSizes[sizeClass].decrementAndGet();
+        }
+
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Releases a ByteBuffer acquired using {@link #acquire(int)}, so it can be reused. The buffer should not be used
+     * after it has been released.
+     *
+     * @param buffer the ByteBuffer to release, can be null.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+
+        int capacity = buffer.capacity();
+        if (capacity < MIN_POOLED_CAPACITY || capacity > maxPooledCapacity || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+
+        int sizeClass = sizeClass(capacity);
+        if (poolSizes[sizeClass].incrementAndGet() > maxBuffersPerSize) {
+            poolSizes[sizeClass].decrementAndGet();
+            return;
+        }
+        pools[sizeClass].offer(buffer);
+    }
+
+    /**
+     * Returns the number of buffers currently in the pool.
+     *
+     * @return the number of pooled buffers.
+     */
+    public int getPooledCount() {
+        int count = 0;
+        for (AtomicInteger poolSize : poolSizes) {
+            count += poolSize.get();
+        }
+        return count;
+    }
+
+    private static int roundUp(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static int sizeClass(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT;
+    }
+
+    @Override
+    public String toString() {
+        return format("ByteBufferPool{maxPooledCapacity=%s, maxBuffersPerSize=%s, pooled=%s}",
+                maxPooledCapacity, maxBuffersPerSize, getPooledCount());
+    }
+}
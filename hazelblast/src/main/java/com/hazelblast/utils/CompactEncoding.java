@@ -0,0 +1,584 @@
+package com.hazelblast.utils;
+
+import com.hazelblast.codec.Codec;
+import com.hazelblast.codec.CodecRegistry;
+import com.hazelcast.nio.DataSerializable;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import static java.lang.String.format;
+
+/**
+ * A compact binary encoding for the objects that typically travel as arguments and results of distributed calls.
+ * <p/>
+ * Each object is written as a single type tag followed by a hand written encoding of its value:
+ * <ol>
+ * <li>boxed primitives and Strings without any class information; ints, longs and lengths as variable length
+ * numbers.</li>
+ * <li>byte arrays and the remaining bytes of a {@link ByteBuffer} as a length prefixed raw region; a ByteBuffer is
+ * read back as a heap ByteBuffer.</li>
+ * <li>other primitive arrays, Object arrays (with their component type), enums, and ArrayList, LinkedList, HashSet,
+ * LinkedHashSet, HashMap and LinkedHashMap element by element. Only these exact classes are encoded this way; other
+ * collections, like a ConcurrentHashMap or the List returned by {@link Arrays#asList(Object[])}, fall back to Java
+ * serialization so they are read back with their own class.</li>
+ * <li>objects with a {@link Codec} in the {@link CodecRegistry} using that Codec.</li>
+ * <li>{@link DataSerializable} objects using their own writeData/readData.</li>
+ * </ol>
+ * Everything else falls back to Java serialization.
+ *
+ * @author Peter Veentjer.
+ */
+public final class CompactEncoding {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN_TRUE = 1;
+    private static final byte BOOLEAN_FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTE_ARRAY = 11;
+    private static final byte INT_ARRAY = 12;
+    private static final byte LONG_ARRAY = 13;
+    private static final byte DOUBLE_ARRAY = 14;
+    private static final byte OBJECT_ARRAY = 15;
+    private static final byte ARRAY_LIST = 16;
+    private static final byte LINKED_LIST = 17;
+    private static final byte HASH_SET = 18;
+    private static final byte LINKED_HASH_SET = 19;
+    private static final byte HASH_MAP = 20;
+    private static final byte LINKED_HASH_MAP = 21;
+    private static final byte ENUM = 22;
+    private static final byte DATA_SERIALIZABLE = 23;
+    private static final byte SERIALIZABLE = 24;
+    private static final byte CODEC = 25;
+    private static final byte BYTE_BUFFER = 26;
+
+    //direct buffers are copied in chunks, so they never need to be copied as a whole into a byte array.
+    private static final int COPY_CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * Writes an object.
+     *
+     * @param out    the DataOutput to write to.
+     * @param object the object to write, can be null.
+     * @throws IOException              if writing fails.
+     * @throws IllegalArgumentException if the object can't be encoded.
+     */
+    public static void writeObject(DataOutput out, Object object) throws IOException {
+        writeObject(out, object, null);
+    }
+
+    /**
+     * Writes an object, using the Codecs in the given CodecRegistry for the types that have no built in encoding.
+     *
+     * @param out      the DataOutput to write to.
+     * @param object   the object to write, can be null.
+     * @param registry the CodecRegistry, can be null.
+     * @throws IOException              if writing fails.
+     * @throws IllegalArgumentException if the object can't be encoded.
+     */
+    public static void writeObject(DataOutput out, Object object, CodecRegistry registry) throws IOException {
+        if (object == null) {
+            out.writeByte(NULL);
+            return;
+        }
+
+        Class type = object.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            writeString(out, (String) object);
+        } else if (type == Integer.class) {
+            out.writeByte(INT);
+            writeVarInt(out, (Integer) object);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            writeVarLong(out, (Long) object);
+        } else if (type == Boolean.class) {
+            out.writeByte((Boolean) object ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) object);
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) object);
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) object);
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) object);
+        } else if (type == Character.class) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) object);
+        } else if (type == byte[].class) {
+            byte[] array = (byte[]) object;
+            out.writeByte(BYTE_ARRAY);
+            writeVarInt(out, array.length);
+            out.write(array);
+        } else if (type == int[].class) {
+            int[] array = (int[]) object;
+            out.writeByte(INT_ARRAY);
+            writeVarInt(out, array.length);
+            for (int value : array) {
+                writeVarInt(out, value);
+            }
+        } else if (type == long[].class) {
+            long[] array = (long[]) object;
+            out.writeByte(LONG_ARRAY);
+            writeVarInt(out, array.length);
+            for (long value : array) {
+                writeVarLong(out, value);
+            }
+        } else if (type == double[].class) {
+            double[] array = (double[]) object;
+            out.writeByte(DOUBLE_ARRAY);
+            writeVarInt(out, array.length);
+            for (double value : array) {
+                out.writeDouble(value);
+            }
+        } else if (object instanceof Object[]) {
+            Object[] array = (Object[]) object;
+            out.writeByte(OBJECT_ARRAY);
+            writeString(out, type.getComponentType().getName());
+            writeVarInt(out, array.length);
+            for (Object item : array) {
+                writeObject(out, item, registry);
+            }
+        } else if (type == ArrayList.class) {
+            out.writeByte(ARRAY_LIST);
+            writeCollection(out, (Collection) object, registry);
+        } else if (type == LinkedList.class) {
+            out.writeByte(LINKED_LIST);
+            writeCollection(out, (Collection) object, registry);
+        } else if (type == HashSet.class) {
+            out.writeByte(HASH_SET);
+            writeCollection(out, (Collection) object, registry);
+        } else if (type == LinkedHashSet.class) {
+            out.writeByte(LINKED_HASH_SET);
+            writeCollection(out, (Collection) object, registry);
+        } else if (type == HashMap.class) {
+            out.writeByte(HASH_MAP);
+            writeMap(out, (Map) object, registry);
+        } else if (type == LinkedHashMap.class) {
+            out.writeByte(LINKED_HASH_MAP);
+            writeMap(out, (Map) object, registry);
+        } else if (object instanceof ByteBuffer) {
+            out.writeByte(BYTE_BUFFER);
+            writeByteBuffer(out, (ByteBuffer) object);
+        } else if (registry != null && registry.getCodec(type) != null) {
+            Codec codec = registry.getCodec(type);
+            out.writeByte(CODEC);
+            writeString(out, type.getName());
+            codec.write(out, object, registry);
+        } else if (object instanceof Enum) {
+            out.writeByte(ENUM);
+            writeString(out, ((Enum) object).getDeclaringClass().getName());
+            writeString(out, ((Enum) object).name());
+        } else if (object instanceof DataSerializable) {
+            out.writeByte(DATA_SERIALIZABLE);
+            writeString(out, type.getName());
+            ((DataSerializable) object).writeData(out);
+        } else if (object instanceof Serializable) {
+            out.writeByte(SERIALIZABLE);
+            byte[] bytes = javaSerialize(object);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        } else {
+            throw new IllegalArgumentException(format("Can't encode object of class [%s], it is not Serializable", type.getName()));
+        }
+    }
+
+    /**
+     * Reads an object written using {@link #writeObject(java.io.DataOutput, Object)}.
+     *
+     * @param in the DataInput to read from.
+     * @return the read object, can be null.
+     * @throws IOException if reading fails.
+     */
+    public static Object readObject(DataInput in) throws IOException {
+        return readObject(in, null);
+    }
+
+    /**
+     * Reads an object written using {@link #writeObject(java.io.DataOutput, Object, CodecRegistry)}.
+     *
+     * @param in       the DataInput to read from.
+     * @param registry the CodecRegistry, can be null.
+     * @return the read object, can be null.
+     * @throws IOException if reading fails, or if the object was written with a Codec that isn't registered.
+     */
+    public static Object readObject(DataInput in, CodecRegistry registry) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case BOOLEAN_TRUE:
+                return Boolean.TRUE;
+            case BOOLEAN_FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case CHAR:
+                return in.readChar();
+            case INT:
+                return readVarInt(in);
+            case LONG:
+                return readVarLong(in);
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case STRING:
+                return readString(in);
+            case BYTE_ARRAY: {
+                byte[] array = new byte[readVarInt(in)];
+                in.readFully(array);
+                return array;
+            }
+            case BYTE_BUFFER:
+                return readByteBuffer(in, null);
+            case INT_ARRAY: {
+                int[] array = new int[readVarInt(in)];
+                for (int k = 0; k < array.length; k++) {
+                    array[k] = readVarInt(in);
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] array = new long[readVarInt(in)];
+                for (int k = 0; k < array.length; k++) {
+                    array[k] = readVarLong(in);
+                }
+                return array;
+            }
+            case DOUBLE_ARRAY: {
+                double[] array = new double[readVarInt(in)];
+                for (int k = 0; k < array.length; k++) {
+                    array[k] = in.readDouble();
+                }
+                return array;
+            }
+            case OBJECT_ARRAY: {
+                Class componentType = loadClass(readString(in));
+                Object[] array = (Object[]) Array.newInstance(componentType, readVarInt(in));
+                for (int k = 0; k < array.length; k++) {
+                    array[k] = readObject(in, registry);
+                }
+                return array;
+            }
+            case ARRAY_LIST: {
+                int size = readVarInt(in);
+                return readCollection(in, new ArrayList<Object>(size), size, registry);
+            }
+            case LINKED_LIST:
+                return readCollection(in, new LinkedList<Object>(), readVarInt(in), registry);
+            case HASH_SET: {
+                int size = readVarInt(in);
+                return readCollection(in, new HashSet<Object>(capacity(size)), size, registry);
+            }
+            case LINKED_HASH_SET: {
+                int size = readVarInt(in);
+                return readCollection(in, new LinkedHashSet<Object>(capacity(size)), size, registry);
+            }
+            case HASH_MAP: {
+                int size = readVarInt(in);
+                return readMap(in, new HashMap<Object, Object>(capacity(size)), size, registry);
+            }
+            case LINKED_HASH_MAP: {
+                int size = readVarInt(in);
+                return readMap(in, new LinkedHashMap<Object, Object>(capacity(size)), size, registry);
+            }
+            case ENUM: {
+                Class enumClass = loadClass(readString(in));
+                return Enum.valueOf(enumClass, readString(in));
+            }
+            case DATA_SERIALIZABLE: {
+                Class type = loadClass(readString(in));
+                DataSerializable object;
+                try {
+                    object = (DataSerializable) type.newInstance();
+                } catch (InstantiationException e) {
+                    throw new IOException(format("Failed to create an instance of DataSerializable class [%s]", type.getName()));
+                } catch (IllegalAccessException e) {
+                    throw new IOException(format("Failed to create an instance of DataSerializable class [%s]", type.getName()));
+                }
+                object.readData(in);
+                return object;
+            }
+            case CODEC: {
+                String typeName = readString(in);
+                Codec codec = registry == null ? null : registry.getCodec(typeName);
+                if (codec == null) {
+                    throw new IOException(format("No Codec registered for class [%s]", typeName));
+                }
+                return codec.read(in, registry);
+            }
+            case SERIALIZABLE: {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                return javaDeserialize(bytes);
+            }
+            default:
+                throw new IOException(format("Unrecognized type tag [%s]", tag));
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a ByteBuffer as a length prefixed raw region. The bytes of a heap buffer are
+     * written straight from its backing array and the bytes of a direct buffer in small chunks, so the buffer is never
+     * copied as a whole. The position of the buffer is not changed.
+     *
+     * @param out    the DataOutput to write to.
+     * @param buffer the ByteBuffer to write.
+     * @throws IOException if writing fails.
+     */
+    public static void writeByteBuffer(DataOutput out, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        writeVarInt(out, length);
+
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            return;
+        }
+
+        ByteBuffer source = buffer.duplicate();
+        byte[] chunk = new byte[Math.min(length, COPY_CHUNK_SIZE)];
+        while (source.hasRemaining()) {
+            int chunkLength = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, chunkLength);
+            out.write(chunk, 0, chunkLength);
+        }
+    }
+
+    /**
+     * Reads a ByteBuffer written using {@link #writeByteBuffer(java.io.DataOutput, java.nio.ByteBuffer)}.
+     * <p/>
+     * If a ByteBufferPool is passed, the bytes are read into a direct buffer acquired from that pool, and the caller
+     * is responsible for releasing it. Otherwise the bytes are read into a new heap buffer.
+     *
+     * @param in   the DataInput to read from.
+     * @param pool the ByteBufferPool to acquire a direct buffer from, can be null.
+     * @return the read ByteBuffer with the position at 0 and the limit at the number of read bytes.
+     * @throws IOException if reading fails.
+     */
+    public static ByteBuffer readByteBuffer(DataInput in, ByteBufferPool pool) throws IOException {
+        int length = readVarInt(in);
+        if (pool == null) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+
+        ByteBuffer buffer = pool.acquire(length);
+        byte[] chunk = new byte[Math.min(length, COPY_CHUNK_SIZE)];
+        while (buffer.hasRemaining()) {
+            int chunkLength = Math.min(chunk.length, buffer.remaining());
+            in.readFully(chunk, 0, chunkLength);
+            buffer.put(chunk, 0, chunkLength);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes a String as a length prefixed UTF-8 byte sequence. Unlike {@link DataOutput#writeUTF(String)} the
+     * length of the String is not limited to 64K.
+     *
+     * @param out    the DataOutput to write to.
+     * @param string the String to write, can be null.
+     * @throws IOException if writing fails.
+     */
+    public static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            writeVarInt(out, -1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(UTF8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a String written using {@link #writeString(java.io.DataOutput, String)}.
+     *
+     * @param in the DataInput to read from.
+     * @return the read String, can be null.
+     * @throws IOException if reading fails.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == -1) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Writes an int using 1 to 5 bytes; small positive and negative values use the fewest bytes.
+     *
+     * @param out   the DataOutput to write to.
+     * @param value the value to write.
+     * @throws IOException if writing fails.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        //zigzag encoding, so that small negative numbers (like partitionId -1) are small as well.
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    /**
+     * Reads an int written using {@link #writeVarInt(java.io.DataOutput, int)}.
+     *
+     * @param in the DataInput to read from.
+     * @return the read int.
+     * @throws IOException if reading fails.
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable length int");
+    }
+
+    /**
+     * Writes a long using 1 to 10 bytes; small positive and negative values use the fewest bytes.
+     *
+     * @param out   the DataOutput to write to.
+     * @param value the value to write.
+     * @throws IOException if writing fails.
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    /**
+     * Reads a long written using {@link #writeVarLong(java.io.DataOutput, long)}.
+     *
+     * @param in the DataInput to read from.
+     * @return the read long.
+     * @throws IOException if reading fails.
+     */
+    public static long readVarLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable length long");
+    }
+
+    private static void writeCollection(DataOutput out, Collection collection, CodecRegistry registry) throws IOException {
+        writeVarInt(out, collection.size());
+        for (Object item : collection) {
+            writeObject(out, item, registry);
+        }
+    }
+
+    private static Collection<Object> readCollection(DataInput in, Collection<Object> collection, int size,
+                                                     CodecRegistry registry) throws IOException {
+        for (int k = 0; k < size; k++) {
+            collection.add(readObject(in, registry));
+        }
+        return collection;
+    }
+
+    private static void writeMap(DataOutput out, Map<Object, Object> map, CodecRegistry registry) throws IOException {
+        writeVarInt(out, map.size());
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+            writeObject(out, entry.getKey(), registry);
+            writeObject(out, entry.getValue(), registry);
+        }
+    }
+
+    private static Map<Object, Object> readMap(DataInput in, Map<Object, Object> map, int size,
+                                               CodecRegistry registry) throws IOException {
+        for (int k = 0; k < size; k++) {
+            map.put(readObject(in, registry), readObject(in, registry));
+        }
+        return map;
+    }
+
+    private static int capacity(int size) {
+        return Math.max(16, (int) (size / 0.75f) + 1);
+    }
+
+    private static Class loadClass(String className) throws IOException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = CompactEncoding.class.getClassLoader();
+        }
+
+        try {
+            return Class.forName(className, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(format("Failed to load class [%s]", className));
+        }
+    }
+
+    private static byte[] javaSerialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] bytes) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                if (classLoader != null) {
+                    try {
+                        return Class.forName(desc.getName(), false, classLoader);
+                    } catch (ClassNotFoundException ignore) {
+                        //fall back on the default mechanism.
+                    }
+                }
+                return super.resolveClass(desc);
+            }
+        };
+
+        try {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(format("Failed to deserialize object, class not found: %s", e.getMessage()));
+        } finally {
+            in.close();
+        }
+    }
+}
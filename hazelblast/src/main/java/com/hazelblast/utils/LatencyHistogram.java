@@ -0,0 +1,154 @@
+package com.hazelblast.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.String.format;
+
+/**
+ * A histogram of latencies in nanoseconds.
+ * <p/>
+ * The values are counted in log-linear buckets: every power of 2 is split into {@link #SUB_BUCKET_COUNT} equally sized
+ * buckets, so a percentile is reported with a relative error of at most 1/{@link #SUB_BUCKET_COUNT} (about 6%) over
+ * the full range of a long, while the histogram has a fixed size. Recording a value is a few bit operations and an
+ * atomic increment; it doesn't lock and doesn't allocate, so it can be done for every call.
+ * <p/>
+ * The snapshots are not atomic: a value recorded while reading a percentile may or may not be included.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class LatencyHistogram {
+
+    public static final int SUB_BUCKET_BITS = 4;
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNs = new AtomicLong();
+    private final AtomicLong maxNs = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param latencyNs the latency in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long latencyNs) {
+        long value = Math.max(0, latencyNs);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        totalNs.addAndGet(value);
+
+        long max = maxNs.get();
+        while (value > max) {
+            if (maxNs.compareAndSet(max, value)) {
+                break;
+            }
+            max = maxNs.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return the highest latency in nanoseconds, 0 if nothing was recorded.
+     */
+    public long getMaxNs() {
+        return maxNs.get();
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     *
+     * @return the mean latency in nanoseconds, 0 if nothing was recorded.
+     */
+    public long getMeanNs() {
+        long c = count.get();
+        return c == 0 ? 0 : totalNs.get() / c;
+    }
+
+    /**
+     * Returns the latency at the given percentile: the highest value of the bucket that contains the percentile,
+     * capped by the highest recorded latency.
+     *
+     * @param percentile the percentile, e.g. 99.9.
+     * @return the latency in nanoseconds, 0 if nothing was recorded.
+     * @throws IllegalArgumentException if percentile is not between 0 and 100.
+     */
+    public long getPercentileNs(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(
+                    format("percentile should be between 0 and 100, percentile was [%s]", percentile));
+        }
+
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            counts[k] = buckets.get(k);
+            total += counts[k];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            seen += counts[k];
+            if (seen >= rank) {
+                return Math.min(bucketHighestValue(k), maxNs.get());
+            }
+        }
+        return maxNs.get();
+    }
+
+    /**
+     * Resets this histogram.
+     */
+    public void reset() {
+        for (int k = 0; k < BUCKET_COUNT; k++) {
+            buckets.set(k, 0);
+        }
+        count.set(0);
+        totalNs.set(0);
+        maxNs.set(0);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        //the value is shifted so that it keeps SUB_BUCKET_BITS + 1 significant bits; the highest bit is always set.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long bucketHighestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowest = (long) (index - shift * SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return format("LatencyHistogram{count=%s, meanNs=%s, maxNs=%s}", getCount(), getMeanNs(), getMaxNs());
+    }
+}
@@ -0,0 +1,111 @@
+package com.hazelblast.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * The statistics of the calls to a single method: the latency histogram and the number of failures, retries and
+ * timeouts. Recording a call is cheap enough to do for every call.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ * @see MethodStatsRegistry
+ */
+public final class MethodStats implements MethodStatsMBean {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * Records a completed call.
+     *
+     * @param latencyNs the latency of the call in nanoseconds.
+     */
+    public void onCall(long latencyNs) {
+        histogram.record(latencyNs);
+    }
+
+    /**
+     * Records that a call completed with an exception. The call itself should also be recorded using
+     * {@link #onCall(long)}.
+     *
+     * @param timeout true if the call failed because it timed out.
+     */
+    public void onFailure(boolean timeout) {
+        failureCount.incrementAndGet();
+        if (timeout) {
+            timeoutCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records that a call is retried.
+     */
+    public void onRetry() {
+        retryCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the latency histogram.
+     *
+     * @return the latency histogram.
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getCallCount() {
+        return histogram.getCount();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getMeanMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getMeanNs());
+    }
+
+    public long getP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getPercentileNs(50));
+    }
+
+    public long getP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getPercentileNs(99));
+    }
+
+    public long getP999Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getPercentileNs(99.9));
+    }
+
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.getMaxNs());
+    }
+
+    public void reset() {
+        histogram.reset();
+        failureCount.set(0);
+        retryCount.set(0);
+        timeoutCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return format("MethodStats{callCount=%s, failureCount=%s, retryCount=%s, timeoutCount=%s, p50Micros=%s, " +
+                "p99Micros=%s, p999Micros=%s, maxMicros=%s}", getCallCount(), getFailureCount(), getRetryCount(),
+                getTimeoutCount(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
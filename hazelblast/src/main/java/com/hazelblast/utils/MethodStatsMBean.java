@@ -0,0 +1,52 @@
+package com.hazelblast.utils;
+
+/**
+ * The JMX management interface of {@link MethodStats}.
+ *
+ * @author Peter Veentjer.
+ */
+public interface MethodStatsMBean {
+
+    /**
+     * Returns the number of completed calls.
+     *
+     * @return the call count.
+     */
+    long getCallCount();
+
+    /**
+     * Returns the number of calls that completed with an exception, including the timeouts.
+     *
+     * @return the failure count.
+     */
+    long getFailureCount();
+
+    /**
+     * Returns the number of retries. Calls are only retried by the client.
+     *
+     * @return the retry count.
+     */
+    long getRetryCount();
+
+    /**
+     * Returns the number of calls that timed out. Calls only time out on the client.
+     *
+     * @return the timeout count.
+     */
+    long getTimeoutCount();
+
+    long getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+    /**
+     * Resets the statistics.
+     */
+    void reset();
+}
@@ -0,0 +1,161 @@
+package com.hazelblast.utils;
+
+import com.hazelcast.logging.ILogger;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+import static com.hazelblast.utils.Arguments.notNull;
+import static java.lang.String.format;
+
+/**
+ * Contains the {@link MethodStats} per method, and publishes them as MBeans in the platform MBeanServer while JMX is
+ * enabled. The ObjectName of the MBean of a method is the objectNamePrefix followed by
+ * ',service=[declaring class],method=[name(argument types)]'.
+ * <p/>
+ * A failure to register or unregister an MBean is logged, but doesn't propagate; statistics should never cause a call
+ * to fail.
+ * <p/>
+ * This class is thread-safe.
+ *
+ * @author Peter Veentjer.
+ */
+public final class MethodStatsRegistry {
+
+    private final ConcurrentMap<Method, MethodStats> statsMap = new ConcurrentHashMap<Method, MethodStats>();
+    private final String objectNamePrefix;
+    private final ILogger logger;
+    private volatile boolean jmxEnabled;
+
+    /**
+     * Creates a MethodStatsRegistry.
+     *
+     * @param objectNamePrefix the prefix of the ObjectNames, e.g. 'com.hazelblast:type=ServerMethodStats,slice=foo'.
+     * @param logger           the ILogger used to log the failures to register or unregister an MBean.
+     * @throws NullPointerException if objectNamePrefix or logger is null.
+     */
+    public MethodStatsRegistry(String objectNamePrefix, ILogger logger) {
+        this.objectNamePrefix = notNull("objectNamePrefix", objectNamePrefix);
+        this.logger = notNull("logger", logger);
+    }
+
+    /**
+     * Gets the MethodStats of a method. If none exist, they are created and registered as MBean if JMX is enabled.
+     *
+     * @param method the method.
+     * @return the MethodStats.
+     * @throws NullPointerException if method is null.
+     */
+    public MethodStats get(Method method) {
+        notNull("method", method);
+
+        MethodStats stats = statsMap.get(method);
+        if (stats != null) {
+            return stats;
+        }
+
+        synchronized (this) {
+            stats = statsMap.get(method);
+            if (stats == null) {
+                stats = new MethodStats();
+                statsMap.put(method, stats);
+                if (jmxEnabled) {
+                    register(method, stats);
+                }
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Returns the MethodStats of all methods.
+     *
+     * @return an unmodifiable view of the MethodStats per method.
+     */
+    public Map<Method, MethodStats> getAll() {
+        return Collections.unmodifiableMap(statsMap);
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * Enables or disables publishing the MethodStats as MBeans. Enabling registers the MBeans of all methods,
+     * disabling unregisters them.
+     *
+     * @param jmxEnabled true to publish the MethodStats as MBeans.
+     */
+    public synchronized void setJmxEnabled(boolean jmxEnabled) {
+        if (this.jmxEnabled == jmxEnabled) {
+            return;
+        }
+
+        this.jmxEnabled = jmxEnabled;
+        for (Map.Entry<Method, MethodStats> entry : statsMap.entrySet()) {
+            if (jmxEnabled) {
+                register(entry.getKey(), entry.getValue());
+            } else {
+                unregister(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Returns the ObjectName the MethodStats of a method are registered under.
+     *
+     * @param method the method.
+     * @return the ObjectName.
+     * @throws MalformedObjectNameException if the objectNamePrefix is not valid.
+     */
+    public ObjectName getObjectName(Method method) throws MalformedObjectNameException {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        Class[] parameterTypes = method.getParameterTypes();
+        for (int k = 0; k < parameterTypes.length; k++) {
+            if (k > 0) {
+                sb.append(',');
+            }
+            sb.append(parameterTypes[k].getSimpleName());
+        }
+        sb.append(')');
+
+        return new ObjectName(format("%s,service=%s,method=%s", objectNamePrefix,
+                ObjectName.quote(method.getDeclaringClass().getName()), ObjectName.quote(sb.toString())));
+    }
+
+    private void register(Method method, MethodStats stats) {
+        try {
+            ObjectName objectName = getObjectName(method);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(stats, objectName);
+            }
+        } catch (Exception e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, format("Failed to register the MethodStats MBean of method '%s'", method), e);
+            }
+        }
+    }
+
+    private void unregister(Method method) {
+        try {
+            ObjectName objectName = getObjectName(method);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            if (logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, format("Failed to unregister the MethodStats MBean of method '%s'", method), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.hazelblast.client.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_whenInitialLimitLargerThanMax() {
+        new AdaptiveConcurrencyLimiter(10, 1, 5, 0.9, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_whenBadBackoffRatio() {
+        new AdaptiveConcurrencyLimiter(10, 1, 100, 1.0, 2);
+    }
+
+    @Test
+    public void acquire_whenLimitReached_thenFailFast() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, 2);
+
+        assertTrue(limiter.acquire(0));
+        assertTrue(limiter.acquire(0));
+        assertFalse(limiter.acquire(0));
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void acquire_whenLimitReached_thenWaitForRelease() throws InterruptedException {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 0.5, 2);
+        assertTrue(limiter.acquire(0));
+
+        new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                }
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+            }
+        }.start();
+
+        assertTrue(limiter.acquire(TimeUnit.SECONDS.toNanos(10)));
+    }
+
+    @Test
+    public void release_whenDropped_thenLimitDecreases() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5, 2);
+
+        limiter.acquire(0);
+        limiter.release(0, true);
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void release_whenDroppedOften_thenLimitNeverBelowMinimum() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 3, 100, 0.5, 2);
+
+        for (int k = 0; k < 10; k++) {
+            limiter.acquire(0);
+            limiter.release(0, true);
+        }
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void release_whenSlowResponse_thenLimitDecreases() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5, 2);
+
+        limiter.acquire(0);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        int limitAfterFastResponse = limiter.getLimit();
+
+        limiter.acquire(0);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+
+        assertEquals(limitAfterFastResponse / 2, limiter.getLimit());
+    }
+
+    @Test
+    public void release_whenFastResponsesUnderLoad_thenLimitIncreases() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 100, 0.5, 2);
+
+        for (int k = 0; k < 100; k++) {
+            limiter.acquire(0);
+            limiter.acquire(0);
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    public void release_whenFastResponsesWithoutLoad_thenLimitUnchanged() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5, 2);
+
+        for (int k = 0; k < 100; k++) {
+            limiter.acquire(0);
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+}
@@ -0,0 +1,79 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchInvocationTest {
+
+    @Test
+    public void whenCallFails_thenOtherCallsExecuted() {
+        AtomicInteger executed = new AtomicInteger();
+        BatchInvocation batch = new BatchInvocation(new Callable[]{
+                new CountingCall(executed), new FailingCall(new IllegalStateException()), new CountingCall(executed)});
+
+        BatchInvocation.BatchResult result = batch.call();
+
+        assertEquals(2, executed.get());
+        assertFalse(result.isFailed(0));
+        assertTrue(result.isFailed(1));
+        assertTrue(result.getValue(1) instanceof IllegalStateException);
+        assertFalse(result.isFailed(2));
+    }
+
+    @Test
+    public void whenUnorderedAndPartitionMoved_thenOtherCallsExecuted() {
+        AtomicInteger executed = new AtomicInteger();
+        BatchInvocation batch = new BatchInvocation(new Callable[]{
+                new FailingCall(new PartitionMovedException("moved")), new CountingCall(executed)});
+
+        BatchInvocation.BatchResult result = batch.call();
+
+        assertEquals(1, executed.get());
+        assertFalse(result.isFailed(1));
+    }
+
+    @Test
+    public void whenOrderedAndPartitionMoved_thenLaterCallsNotExecuted() {
+        AtomicInteger executed = new AtomicInteger();
+        BatchInvocation batch = new BatchInvocation(new Callable[]{
+                new CountingCall(executed), new FailingCall(new PartitionMovedException("moved")), new CountingCall(executed)},
+                true);
+
+        BatchInvocation.BatchResult result = batch.call();
+
+        assertEquals(1, executed.get());
+        assertFalse(result.isFailed(0));
+        assertTrue(result.isFailed(1));
+        assertTrue(result.isFailed(2));
+        assertTrue(result.getValue(2) instanceof PartitionMovedException);
+    }
+
+    static class CountingCall implements Callable {
+        private final AtomicInteger executed;
+
+        CountingCall(AtomicInteger executed) {
+            this.executed = executed;
+        }
+
+        public Object call() {
+            return executed.incrementAndGet();
+        }
+    }
+
+    static class FailingCall implements Callable {
+        private final RuntimeException exception;
+
+        FailingCall(RuntimeException exception) {
+            this.exception = exception;
+        }
+
+        public Object call() {
+            throw exception;
+        }
+    }
+}
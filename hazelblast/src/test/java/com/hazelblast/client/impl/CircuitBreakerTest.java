@@ -0,0 +1,118 @@
+package com.hazelblast.client.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_whenMinimumCallsLargerThanWindow() {
+        new CircuitBreaker(10, 11, 50, 1000, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_whenBadFailureRateThreshold() {
+        new CircuitBreaker(10, 5, 101, 1000, 1);
+    }
+
+    @Test
+    public void whenNew_thenClosed() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void whenFailuresBelowMinimumCalls_thenStaysClosed() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 5, 50, 1000, 1);
+
+        fail(breaker, 4);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void whenFailureRateReached_thenOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, 60000, 1);
+
+        succeed(breaker, 2);
+        fail(breaker, 2);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void whenFailuresSlideOutOfWindow_thenTheyAreForgotten() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 75, 60000, 1);
+
+        fail(breaker, 2);
+        succeed(breaker, 4);
+        fail(breaker, 2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void whenOpenDurationPassed_thenHalfOpenWithLimitedTrialCalls() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 50, 100, 2);
+        fail(breaker, 2);
+
+        Thread.sleep(200);
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void whenTrialCallsSucceed_thenClosed() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 50, 100, 2);
+        fail(breaker, 2);
+        Thread.sleep(200);
+
+        succeed(breaker, 2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void whenTrialCallFails_thenOpenAgain() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 50, 100, 2);
+        fail(breaker, 2);
+        Thread.sleep(200);
+
+        succeed(breaker, 1);
+        fail(breaker, 1);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void whenTrialCallCancelled_thenPermissionReturned() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 50, 100, 1);
+        fail(breaker, 2);
+        Thread.sleep(200);
+
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onCancelled();
+
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    private static void fail(CircuitBreaker breaker, int count) {
+        for (int k = 0; k < count; k++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onFailure();
+        }
+    }
+
+    private static void succeed(CircuitBreaker breaker, int count) {
+        for (int k = 0; k < count; k++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.onSuccess();
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.Compressed;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.LoadBalanced;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.codec.CodecRegistry;
+import com.hazelblast.codec.ImmutableObjectCodec;
+import com.hazelblast.server.SliceConfig;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DataSerializableDistributedMethodInvocationFactoryTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        SliceConfig sliceConfig = new SliceConfig();
+        sliceConfig.codecRegistry.register(new ImmutableObjectCodec<OrderId>(OrderId.class));
+        server = new SliceServer(new PojoSlice(new Pojo(hazelcastInstance), sliceConfig), 100).start();
+
+        proxyProvider = new ProxyProviderImpl(hazelcastInstance);
+        proxyProvider.getCodecRegistry().register(new ImmutableObjectCodec<OrderId>(OrderId.class));
+        proxyProvider.setLocalCallOptimizationEnabled(false);
+        proxyProvider.setDistributedMethodInvocationFactory(DataSerializableDistributedMethodInvocationFactory.INSTANCE);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation invocation =
+                (DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation)
+                        DataSerializableDistributedMethodInvocationFactory.INSTANCE.create(
+                                "slice", "service", "method", new Object[]{"a", 1}, new String[]{"java.lang.String", "int"}, -1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        invocation.writeData(new DataOutputStream(bytes));
+
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation found =
+                new DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation();
+        found.readData(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(-1, found.getPartitionId());
+
+        ByteArrayOutputStream foundBytes = new ByteArrayOutputStream();
+        found.writeData(new DataOutputStream(foundBytes));
+        assertArrayEquals(bytes.toByteArray(), foundBytes.toByteArray());
+    }
+
+    @Test
+    public void writeAndRead_whenRawArguments() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3);
+        buffer.put(new byte[]{4, 5, 6}).flip();
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation invocation =
+                (DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation)
+                        DataSerializableDistributedMethodInvocationFactory.INSTANCE.create(
+                                "slice", "service", "method", new Object[]{new byte[]{1, 2, 3}, "a", buffer},
+                                new String[]{"[B", "java.lang.String", "java.nio.ByteBuffer"}, -1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        invocation.writeData(new DataOutputStream(bytes));
+        assertEquals(0, buffer.position());
+
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation found =
+                new DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation();
+        found.readData(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        ByteArrayOutputStream foundBytes = new ByteArrayOutputStream();
+        found.writeData(new DataOutputStream(foundBytes));
+        assertArrayEquals(bytes.toByteArray(), foundBytes.toByteArray());
+    }
+
+    @Test(expected = PartitionMovedException.class)
+    public void whenPartitionNotManaged_thenRejectedBeforeArgumentsAreDecoded() throws Exception {
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation invocation = received(
+                new Object[]{"foo", new UnknownOrderId()}, 100000, Long.MAX_VALUE);
+
+        //the member has no Codec for UnknownOrderId, so decoding the arguments would fail with an IOException.
+        invocation.call();
+    }
+
+    @Test(expected = DistributedMethodTimeoutException.class)
+    public void whenExpiredBeforeExecution_thenRejected() throws Exception {
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation invocation = received(
+                new Object[]{"foo", 1, null}, -1, TimeUnit.MILLISECONDS.toNanos(1));
+
+        Thread.sleep(20);
+        invocation.call();
+    }
+
+    @Test
+    public void whenTimingRequested_thenServerTimingsSendBackWithResult() throws Exception {
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult result =
+                executeAndTransfer("partitioned", new Object[]{"foo", 1, null},
+                        new String[]{"java.lang.String", "int", "java.util.List"}, true);
+
+        assertEquals("foo-1-null", result.getValue(null, null));
+        ServerTimings timings = result.getServerTimings();
+        assertNotNull(timings);
+        assertTrue(timings.getExecutionNs() > 0);
+        assertTrue(timings.getDeserializationNs() > 0);
+        assertTrue(timings.getTotalNs() >= timings.getExecutionNs() + timings.getSerializationNs());
+    }
+
+    @Test
+    public void whenTimingRequestedForRawResult_thenServerTimingsSendBackWithResult() throws Exception {
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult result =
+                executeAndTransfer("reverse", new Object[]{"foo", new byte[]{1, 2, 3}},
+                        new String[]{"java.lang.String", "[B"}, true);
+
+        assertArrayEquals(new byte[]{3, 2, 1}, (byte[]) result.getValue(null, null));
+        assertNotNull(result.getServerTimings());
+    }
+
+    @Test
+    public void whenTimingNotRequested_thenNoServerTimings() throws Exception {
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult result =
+                executeAndTransfer("partitioned", new Object[]{"foo", 1, null},
+                        new String[]{"java.lang.String", "int", "java.util.List"}, false);
+
+        assertEquals("foo-1-null", result.getValue(null, null));
+        assertNull(result.getServerTimings());
+    }
+
+    @Test
+    public void whenSliceOfByteBufferArgumentReturned_thenBufferReleasedAfterResultWritten() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3);
+        buffer.put(new byte[]{1, 2, 3}).flip();
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation invocation =
+                (DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation)
+                        DataSerializableDistributedMethodInvocationFactory.INSTANCE.create(
+                                "default", "TestService", "sliceBuffer", new Object[]{"foo", buffer},
+                                new String[]{"java.lang.String", "java.nio.ByteBuffer"}, -1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        invocation.writeData(new DataOutputStream(bytes));
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation found =
+                new DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation();
+        found.readData(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        found.setHazelcastInstance(hazelcastInstance);
+        int pooledCount = DataSerializableDistributedMethodInvocationFactory.RECEIVE_BUFFER_POOL.getPooledCount();
+
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult methodResult =
+                (DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult) found.call();
+
+        //the result is a slice of the argument, so the buffer can't be reused before the result is written.
+        assertEquals(pooledCount, DataSerializableDistributedMethodInvocationFactory.RECEIVE_BUFFER_POOL.getPooledCount());
+
+        ByteArrayOutputStream resultBytes = new ByteArrayOutputStream();
+        methodResult.writeData(new DataOutputStream(resultBytes));
+        assertEquals(pooledCount + 1, DataSerializableDistributedMethodInvocationFactory.RECEIVE_BUFFER_POOL.getPooledCount());
+
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult result =
+                new DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult();
+        result.readData(new DataInputStream(new ByteArrayInputStream(resultBytes.toByteArray())));
+        assertEquals(ByteBuffer.wrap(new byte[]{2, 3}), result.getValue(null, null));
+    }
+
+    private DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult executeAndTransfer(
+            String methodName, Object[] args, String[] argTypes, boolean timingRequested) throws Exception {
+
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation invocation =
+                (DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation)
+                        DataSerializableDistributedMethodInvocationFactory.INSTANCE.create(
+                                "default", "TestService", methodName, args, argTypes, -1);
+        invocation.setTimingRequested(timingRequested);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        invocation.writeData(new DataOutputStream(bytes));
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation found =
+                new DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation();
+        found.readData(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        found.setHazelcastInstance(hazelcastInstance);
+
+        ByteArrayOutputStream resultBytes = new ByteArrayOutputStream();
+        ((DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult) found.call())
+                .writeData(new DataOutputStream(resultBytes));
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult result =
+                new DataSerializableDistributedMethodInvocationFactory.DistributedMethodResult();
+        result.readData(new DataInputStream(new ByteArrayInputStream(resultBytes.toByteArray())));
+        return result;
+    }
+
+    @Test
+    public void whenTimingBreakdownEnabled_thenCallsComplete() {
+        proxyProvider.setTimingBreakdownEnabled(true);
+        proxyProvider.setSlowCallThresholdMs(0);
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals("foo-1-[a]", service.partitioned("foo", 1, Arrays.asList("a")));
+        assertArrayEquals(new byte[]{2, 1}, service.reverse("foo", new byte[]{1, 2}));
+    }
+
+    private DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation received(
+            Object[] args, int partitionId, long remainingNs) throws IOException {
+
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation invocation =
+                (DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation)
+                        DataSerializableDistributedMethodInvocationFactory.INSTANCE.create(
+                                "default", "TestService", "partitioned", args,
+                                new String[]{"java.lang.String", "int", "java.util.List"}, partitionId);
+        CodecRegistry registry = new CodecRegistry();
+        registry.register(new ImmutableObjectCodec<UnknownOrderId>(UnknownOrderId.class));
+        invocation.setCodecRegistry(registry);
+        invocation.setRemainingNs(remainingNs);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        invocation.writeData(new DataOutputStream(bytes));
+
+        DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation found =
+                new DataSerializableDistributedMethodInvocationFactory.DistributedMethodInvocation();
+        found.readData(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        found.setHazelcastInstance(hazelcastInstance);
+        return found;
+    }
+
+    @Test
+    public void partitionedCall() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals("foo-1-[a, b]", service.partitioned("foo", 1, Arrays.asList("a", "b")));
+        assertEquals("foo-2-null", service.partitioned("foo", 2, null));
+    }
+
+    @Test
+    public void callWithoutArguments() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals("noargs", service.noArgs());
+    }
+
+    @Test
+    public void whenCodecRegistered_thenArgumentAndResultUseCodec() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        OrderId found = service.next("foo", new OrderId("foo", 1));
+
+        assertEquals("foo", found.customerId);
+        assertEquals(2, found.sequence);
+    }
+
+    @Test
+    public void whenCompressionEnabled_thenLargeArgumentsAndResultAreCompressed() {
+        proxyProvider.setCompressionEnabled(true);
+        proxyProvider.setCompressionThresholdBytes(1024);
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        List<String> list = largeList();
+        assertEquals(list, service.echo("foo", list));
+
+        //a retried call compresses its arguments again.
+        assertTrue(proxyProvider.getCompressionStats().getCompressedCount() >= 2);
+        assertTrue(proxyProvider.getCompressionStats().getCompressionRatio() < 0.5);
+    }
+
+    @Test
+    public void whenCompressionEnabled_thenSmallArgumentsAndResultAreNotCompressed() {
+        proxyProvider.setCompressionEnabled(true);
+        proxyProvider.setCompressionThresholdBytes(1024);
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals(Arrays.asList("a"), service.echo("foo", Arrays.asList("a")));
+
+        assertEquals(0, proxyProvider.getCompressionStats().getCompressedCount());
+    }
+
+    @Test
+    public void whenCompressionDisabled_thenLargeArgumentsAreNotCompressed() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        List<String> list = largeList();
+        assertEquals(list, service.echo("foo", list));
+
+        assertEquals(0, proxyProvider.getCompressionStats().getCompressedCount());
+    }
+
+    @Test
+    public void whenMethodCompressed_thenCompressedWhileCompressionDisabled() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        List<String> list = largeList();
+        assertEquals(list, service.echoCompressed("foo", list));
+
+        //a retried call compresses its arguments again.
+        assertTrue(proxyProvider.getCompressionStats().getCompressedCount() >= 2);
+    }
+
+    @Test
+    public void whenByteArrayArgument_thenSendRaw() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        byte[] bytes = new byte[100000];
+        bytes[0] = 1;
+        byte[] found = service.reverse("foo", bytes);
+
+        assertEquals(bytes.length, found.length);
+        assertEquals(1, found[found.length - 1]);
+    }
+
+    @Test
+    public void whenByteBufferArgument_thenReceivedInPooledDirectBuffer() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertTrue(service.isDirect("foo", ByteBuffer.wrap(new byte[]{1, 2, 3})));
+    }
+
+    @Test
+    public void whenByteBufferReturned_thenReceivedAsHeapBuffer() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0, 1, 2, 3});
+        buffer.position(1);
+        ByteBuffer found = service.echoBuffer("foo", buffer);
+
+        assertEquals(1, buffer.position());
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), found);
+    }
+
+    private static List<String> largeList() {
+        List<String> list = new ArrayList<String>();
+        for (int k = 0; k < 1000; k++) {
+            list.add("article-" + (k % 10));
+        }
+        return list;
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+        @Exposed
+        public TestService testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned
+        String partitioned(@PartitionKey String key, int value, List<String> list);
+
+        @LoadBalanced
+        String noArgs();
+
+        @Partitioned
+        OrderId next(@PartitionKey String customerId, OrderId orderId);
+
+        @Partitioned
+        List<String> echo(@PartitionKey String key, List<String> list);
+
+        @Partitioned
+        @Compressed(thresholdBytes = 100)
+        List<String> echoCompressed(@PartitionKey String key, List<String> list);
+
+        @Partitioned
+        byte[] reverse(@PartitionKey String key, byte[] bytes);
+
+        @Partitioned
+        boolean isDirect(@PartitionKey String key, ByteBuffer buffer);
+
+        @Partitioned
+        ByteBuffer echoBuffer(@PartitionKey String key, ByteBuffer buffer);
+
+        @Partitioned
+        ByteBuffer sliceBuffer(@PartitionKey String key, ByteBuffer buffer);
+    }
+
+    static final class UnknownOrderId {
+    }
+
+    //deliberately not Serializable, so it can only be send using its Codec.
+    static final class OrderId {
+        private final String customerId;
+        private final int sequence;
+
+        OrderId(String customerId, int sequence) {
+            this.customerId = customerId;
+            this.sequence = sequence;
+        }
+    }
+
+    static public class TestServiceImpl implements TestService {
+        public String partitioned(String key, int value, List<String> list) {
+            return key + "-" + value + "-" + list;
+        }
+
+        public String noArgs() {
+            return "noargs";
+        }
+
+        public OrderId next(String customerId, OrderId orderId) {
+            return new OrderId(orderId.customerId, orderId.sequence + 1);
+        }
+
+        public List<String> echo(String key, List<String> list) {
+            return list;
+        }
+
+        public List<String> echoCompressed(String key, List<String> list) {
+            return list;
+        }
+
+        public byte[] reverse(String key, byte[] bytes) {
+            byte[] result = new byte[bytes.length];
+            for (int k = 0; k < bytes.length; k++) {
+                result[k] = bytes[bytes.length - 1 - k];
+            }
+            return result;
+        }
+
+        public boolean isDirect(String key, ByteBuffer buffer) {
+            return buffer.isDirect() && buffer.remaining() == 3;
+        }
+
+        public ByteBuffer echoBuffer(String key, ByteBuffer buffer) {
+            return buffer;
+        }
+
+        public ByteBuffer sliceBuffer(String key, ByteBuffer buffer) {
+            buffer.get();
+            return buffer.slice();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.hazelblast.client.impl;
+
+import com.hazelcast.core.ExecutionCallback;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InvocationFutureTest {
+
+    @Test
+    public void whenCompleted_thenResultReturned() throws Exception {
+        InvocationFuture<String> future = new InvocationFuture<String>();
+
+        assertTrue(future.complete("foo"));
+
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertEquals("foo", future.get());
+        assertEquals("foo", future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenCompletedExceptionally_thenExecutionException() throws Exception {
+        InvocationFuture<String> future = new InvocationFuture<String>();
+        RuntimeException failure = new RuntimeException();
+
+        assertTrue(future.completeExceptionally(failure));
+
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException expected) {
+            assertSame(failure, expected.getCause());
+        }
+    }
+
+    @Test
+    public void whenAlreadyCompleted_thenSecondCompleteIgnored() throws Exception {
+        InvocationFuture<String> future = new InvocationFuture<String>();
+        future.complete("foo");
+
+        assertFalse(future.complete("bar"));
+        assertFalse(future.completeExceptionally(new RuntimeException()));
+        assertFalse(future.cancel(true));
+        assertEquals("foo", future.get());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void whenCancelled_thenCancellationException() throws Exception {
+        InvocationFuture<String> future = new InvocationFuture<String>();
+
+        assertTrue(future.cancel(false));
+
+        assertTrue(future.isCancelled());
+        future.get();
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void whenNotCompletedInTime_thenTimeoutException() throws Exception {
+        new InvocationFuture<String>().get(10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void whenCompletedByOtherThread_thenWaitingThreadWakesUp() throws Exception {
+        final InvocationFuture<String> future = new InvocationFuture<String>();
+
+        new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignore) {
+                }
+                future.complete("foo");
+            }
+        }.start();
+
+        assertEquals("foo", future.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callbacks() {
+        InvocationFuture<String> future = new InvocationFuture<String>();
+        final AtomicInteger called = new AtomicInteger();
+        ExecutionCallback<String> callback = new ExecutionCallback<String>() {
+            public void done(Future<String> future) {
+                assertTrue(future.isDone());
+                called.incrementAndGet();
+            }
+        };
+
+        future.addCallback(callback);
+        assertEquals(0, called.get());
+
+        future.complete("foo");
+        assertEquals(1, called.get());
+
+        //a callback added to a completed future is executed immediately.
+        future.addCallback(callback);
+        assertEquals(2, called.get());
+    }
+
+    @Test
+    public void whenCallbackThrows_thenOtherCallbacksStillNotified() {
+        InvocationFuture<String> future = new InvocationFuture<String>();
+        final AtomicInteger called = new AtomicInteger();
+        future.addCallback(new ExecutionCallback<String>() {
+            public void done(Future<String> future) {
+                throw new RuntimeException();
+            }
+        });
+        future.addCallback(new ExecutionCallback<String>() {
+            public void done(Future<String> future) {
+                called.incrementAndGet();
+            }
+        });
+
+        assertTrue(future.complete("foo"));
+        assertEquals(1, called.get());
+    }
+}
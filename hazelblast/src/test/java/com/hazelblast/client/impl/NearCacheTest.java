@@ -0,0 +1,158 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.client.annotations.NearCached;
+import com.hazelblast.codec.CodecRegistry;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NearCacheTest {
+
+    private static NearCache newNearCache(String methodName) throws Exception {
+        Method method = Service.class.getMethod(methodName, String.class);
+        return new NearCache(method, method.getAnnotation(NearCached.class), new CodecRegistry());
+    }
+
+    private static NearCache.CacheKey key(String arg) {
+        return new NearCache.CacheKey(new Object[]{arg});
+    }
+
+    @Test
+    public void whenPut_thenFound() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        nearCache.put(key("a"), "value", "a", 1, nearCache.getGeneration());
+
+        assertEquals("value", nearCache.getValue(nearCache.get(key("a"))));
+        assertNull(nearCache.get(key("b")));
+    }
+
+    @Test
+    public void whenFull_thenLeastRecentlyUsedEvicted() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        nearCache.put(key("a"), "a", "a", 1, nearCache.getGeneration());
+        nearCache.put(key("b"), "b", "b", 1, nearCache.getGeneration());
+        nearCache.get(key("a"));
+        nearCache.put(key("c"), "c", "c", 1, nearCache.getGeneration());
+
+        assertEquals(2, nearCache.size());
+        assertNotNull(nearCache.get(key("a")));
+        assertNull(nearCache.get(key("b")));
+        assertNotNull(nearCache.get(key("c")));
+    }
+
+    @Test
+    public void whenExpired_thenNotFound() throws Exception {
+        NearCache nearCache = newNearCache("expiring");
+
+        nearCache.put(key("a"), "a", "a", 1, nearCache.getGeneration());
+        Thread.sleep(50);
+
+        assertNull(nearCache.get(key("a")));
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    public void whenInvalidateKey_thenOnlyEntriesOfKeyRemoved() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        nearCache.put(key("a"), "a", "a", 1, nearCache.getGeneration());
+        nearCache.put(key("b"), "b", "b", 1, nearCache.getGeneration());
+        nearCache.invalidateKey("a", 1);
+
+        assertNull(nearCache.get(key("a")));
+        assertNotNull(nearCache.get(key("b")));
+    }
+
+    @Test
+    public void whenInvalidatePartition_thenOnlyEntriesOfPartitionRemoved() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        nearCache.put(key("a"), "a", "a", 1, nearCache.getGeneration());
+        nearCache.put(key("b"), "b", "b", 2, nearCache.getGeneration());
+        nearCache.invalidatePartition(1);
+
+        assertNull(nearCache.get(key("a")));
+        assertNotNull(nearCache.get(key("b")));
+    }
+
+    @Test
+    public void whenInvalidatedWhileInFlight_thenResultNotCached() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        long generation = nearCache.getGeneration();
+        nearCache.invalidateKey("a", 1);
+        nearCache.put(key("a"), "stale", "a", 1, generation);
+
+        assertNull(nearCache.get(key("a")));
+    }
+
+    @Test
+    public void whenOtherPartitionInvalidatedWhileInFlight_thenResultCached() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        long generation = nearCache.getGeneration();
+        nearCache.invalidateKey("b", 2);
+        nearCache.invalidatePartition(3);
+        nearCache.put(key("a"), "a", "a", 1, generation);
+
+        assertEquals("a", nearCache.getValue(nearCache.get(key("a"))));
+    }
+
+    @Test
+    public void whenClearedWhileInFlight_thenResultNotCached() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        long generation = nearCache.getGeneration();
+        nearCache.clear();
+        nearCache.put(key("a"), "stale", "a", 1, generation);
+
+        assertNull(nearCache.get(key("a")));
+    }
+
+    @Test
+    public void whenHit_thenEveryCallerGetsOwnCopy() throws Exception {
+        NearCache nearCache = newNearCache("get");
+        List<String> value = new ArrayList<String>(Arrays.asList("a", "b"));
+
+        nearCache.put(key("a"), value, "a", 1, nearCache.getGeneration());
+        value.add("modified by caller");
+        List<String> first = (List<String>) nearCache.getValue(nearCache.get(key("a")));
+        first.clear();
+        List<String> second = (List<String>) nearCache.getValue(nearCache.get(key("a")));
+
+        assertNotSame(first, second);
+        assertEquals(Arrays.asList("a", "b"), second);
+    }
+
+    @Test
+    public void whenValueCantBeEncoded_thenNotCached() throws Exception {
+        NearCache nearCache = newNearCache("get");
+
+        nearCache.put(key("a"), new Object(), "a", 1, nearCache.getGeneration());
+
+        assertNull(nearCache.get(key("a")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxEntriesZero_thenIllegalArgumentException() throws Exception {
+        newNearCache("invalid");
+    }
+
+    interface Service {
+        @NearCached(maxEntries = 2)
+        String get(String key);
+
+        @NearCached(ttlMs = 10)
+        String expiring(String key);
+
+        @NearCached(maxEntries = 0)
+        String invalid(String key);
+    }
+}
@@ -0,0 +1,172 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_AsyncIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        PojoSlice slice = new PojoSlice(pojo);
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+        proxyProvider.setLocalCallOptimizationEnabled(false);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public TestService testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    static class MyRuntimeException extends RuntimeException {
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned
+        Future<String> echo(@PartitionKey String arg);
+
+        @Partitioned
+        Future<String> fail(@PartitionKey String arg);
+
+        @Partitioned(timeoutMs = 500)
+        Future<String> sleep(@PartitionKey String arg, long sleepMs);
+    }
+
+    static public class TestServiceImpl implements TestService {
+        public Future<String> echo(String arg) {
+            return completed(arg);
+        }
+
+        public Future<String> fail(String arg) {
+            FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+                public String call() throws Exception {
+                    throw new MyRuntimeException();
+                }
+            });
+            task.run();
+            return task;
+        }
+
+        public Future<String> sleep(String arg, long sleepMs) {
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return completed(arg);
+        }
+
+        private static Future<String> completed(final String value) {
+            FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+                public String call() {
+                    return value;
+                }
+            });
+            task.run();
+            return task;
+        }
+    }
+
+    // ==================================== tests =================================================
+
+    @Test
+    public void whenManyCallsInFlight_thenAllComplete() throws Exception {
+        TestService proxy = proxyProvider.getProxy(TestService.class);
+
+        List<Future<String>> futures = new LinkedList<Future<String>>();
+        for (int k = 0; k < 1000; k++) {
+            futures.add(proxy.echo("" + k));
+        }
+
+        int k = 0;
+        for (Future<String> future : futures) {
+            assertEquals("" + k, future.get(30, TimeUnit.SECONDS));
+            k++;
+        }
+    }
+
+    @Test
+    public void whenServiceFails_thenExecutionException() throws Exception {
+        TestService proxy = proxyProvider.getProxy(TestService.class);
+
+        Future<String> future = proxy.fail("foo");
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof MyRuntimeException);
+        }
+    }
+
+    @Test
+    public void whenTimeout_thenFutureCompletesWithTimeoutException() throws Exception {
+        TestService proxy = proxyProvider.getProxy(TestService.class);
+
+        long startMs = System.currentTimeMillis();
+        Future<String> future = proxy.sleep("foo", 5000);
+        assertTrue(System.currentTimeMillis() - startMs < 500);
+
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof DistributedMethodTimeoutException);
+        }
+    }
+}
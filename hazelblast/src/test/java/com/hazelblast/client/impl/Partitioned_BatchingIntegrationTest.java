@@ -0,0 +1,205 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_BatchingIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        PojoSlice slice = new PojoSlice(new Pojo(hazelcastInstance));
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+        proxyProvider.setLocalCallOptimizationEnabled(false);
+        proxyProvider.setBatchingEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxBatchSizeZero_thenIllegalArgumentException() {
+        proxyProvider.setMaxBatchSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenBatchWindowNegative_thenIllegalArgumentException() {
+        proxyProvider.setBatchWindowMicros(-1);
+    }
+
+    @Test
+    public void whenSingleCall() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals("foo-echo", service.echo("foo"));
+    }
+
+    @Test
+    public void whenConcurrentCalls_thenAllResultsCorrect() throws Exception {
+        proxyProvider.setBatchWindowMicros(2000);
+        proxyProvider.setMaxBatchSize(8);
+        final TestService service = proxyProvider.getProxy(TestService.class);
+
+        ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int k = 0; k < 500; k++) {
+                final String key = "" + k;
+                futures.add(threads.submit(new Callable<String>() {
+                    public String call() {
+                        return service.echo(key);
+                    }
+                }));
+            }
+
+            for (int k = 0; k < futures.size(); k++) {
+                assertEquals(k + "-echo", futures.get(k).get());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenCallInBatchFails_thenOtherCallsSucceed() throws Exception {
+        proxyProvider.setBatchWindowMicros(50000);
+        final TestService service = proxyProvider.getProxy(TestService.class);
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> failure = threads.submit(new Callable<String>() {
+                public String call() {
+                    try {
+                        service.fail("foo");
+                        return "no exception";
+                    } catch (MyRuntimeException e) {
+                        return "exception";
+                    }
+                }
+            });
+            Future<String> success = threads.submit(new Callable<String>() {
+                public String call() {
+                    return service.echo("foo");
+                }
+            });
+
+            assertEquals("exception", failure.get());
+            assertEquals("foo-echo", success.get());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenCallbackExecutorRejects_thenCallStillCompletes() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+        //makes sure the partition is managed by the server, since a call can't be retried anymore after the shutdown.
+        assertEquals("foo-echo", service.echo("foo"));
+        proxyProvider.callbackExecutor.shutdown();
+
+        assertEquals("foo-echo", service.echo("foo"));
+        assertEquals("foo-echo", service.echo("foo"));
+    }
+
+    @Test
+    public void whenDataSerializable_thenAllResultsCorrect() throws Exception {
+        proxyProvider.setDistributedMethodInvocationFactory(DataSerializableDistributedMethodInvocationFactory.INSTANCE);
+        proxyProvider.setBatchWindowMicros(2000);
+        final TestService service = proxyProvider.getProxy(TestService.class);
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int k = 0; k < 100; k++) {
+                final String key = "" + k;
+                futures.add(threads.submit(new Callable<String>() {
+                    public String call() {
+                        return service.echo(key);
+                    }
+                }));
+            }
+
+            for (int k = 0; k < futures.size(); k++) {
+                assertEquals(k + "-echo", futures.get(k).get());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public TestService testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    static class MyRuntimeException extends RuntimeException {
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned
+        String echo(@PartitionKey String key);
+
+        @Partitioned
+        void fail(@PartitionKey String key);
+    }
+
+    static public class TestServiceImpl implements TestService {
+        public String echo(String key) {
+            return key + "-echo";
+        }
+
+        public void fail(String key) {
+            throw new MyRuntimeException();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.client.router.Target;
+import com.hazelblast.server.DispatchInterceptor;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_InterceptorIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private RecordingInterceptor interceptor;
+    private CustomerServiceImpl customerService;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        customerService = (CustomerServiceImpl) pojo.customerService;
+        server = new SliceServer(new PojoSlice(pojo), 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+        //the first call waits for the partition to be managed by the SliceServer, so it can be retried.
+        proxyProvider.getProxy(CustomerService.class).get("peter");
+        customerService.calls.set(0);
+
+        interceptor = new RecordingInterceptor();
+        proxyProvider.addInvocationInterceptor(interceptor);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test
+    public void whenCall_thenIntercepted() {
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        assertEquals("peter-1", service.get("peter"));
+
+        interceptor.awaitCompletion();
+        assertEquals(3, interceptor.events.size());
+        assertEquals("beforeRouting get", interceptor.events.get(0));
+        assertTrue(interceptor.events.get(1).startsWith("afterRouting get context-1 partition="));
+        assertEquals("onCompletion get peter-1 null context-1", interceptor.events.get(2));
+    }
+
+    @Test
+    public void whenAttemptFailsWithRetryableException_thenRetryIntercepted() {
+        interceptor.failRoutingCount.set(1);
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        assertEquals("peter-1", service.get("peter"));
+
+        interceptor.awaitCompletion();
+        assertTrue(interceptor.events.contains("onRetry get 1 context-1"));
+        assertEquals("onCompletion get peter-1 null context-1", interceptor.events.get(interceptor.events.size() - 1));
+    }
+
+    @Test
+    public void whenBeforeRoutingThrows_thenCallFailsWithoutExecuting() {
+        RecordingInterceptor second = new RecordingInterceptor();
+        second.rejectCalls = true;
+        proxyProvider.addInvocationInterceptor(second);
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        try {
+            service.get("peter");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertEquals(0, customerService.calls.get());
+        //the first interceptor saw the start of the call, so it sees its failure.
+        assertEquals("onCompletion get null IllegalStateException context-1",
+                interceptor.events.get(interceptor.events.size() - 1));
+        assertTrue(second.events.isEmpty());
+    }
+
+    @Test
+    public void whenInterceptorRemoved_thenNotCalled() {
+        assertTrue(proxyProvider.removeInvocationInterceptor(interceptor));
+        assertFalse(proxyProvider.removeInvocationInterceptor(interceptor));
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        service.get("peter");
+
+        assertTrue(interceptor.events.isEmpty());
+        assertTrue(proxyProvider.getInvocationInterceptors().isEmpty());
+    }
+
+    @Test
+    public void whenDispatchInterceptor_thenServerSideCallsIntercepted() {
+        final List<String> events = new CopyOnWriteArrayList<String>();
+        server.addDispatchInterceptor(new DispatchInterceptor() {
+            public Object beforeDispatch(Object service, Method method, Object[] args, int partitionId) {
+                events.add("before " + method.getName() + " " + args[0]);
+                return "context";
+            }
+
+            public void afterDispatch(Object service, Method method, Object[] args, int partitionId, Object result,
+                                      Throwable failure, Object context) {
+                events.add("after " + method.getName() + " " + result + " " + context);
+            }
+        });
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        service.get("peter");
+
+        assertEquals(2, events.size());
+        assertEquals("before get peter", events.get(0));
+        assertEquals("after get peter-1 context", events.get(1));
+    }
+
+    @Test
+    public void whenDispatchInterceptorRejects_thenServiceNotCalled() {
+        server.addDispatchInterceptor(new DispatchInterceptor() {
+            public Object beforeDispatch(Object service, Method method, Object[] args, int partitionId) {
+                throw new IllegalStateException("throttled");
+            }
+
+            public void afterDispatch(Object service, Method method, Object[] args, int partitionId, Object result,
+                                      Throwable failure, Object context) {
+                fail();
+            }
+        });
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        try {
+            service.get("peter");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("throttled", expected.getMessage());
+        }
+
+        assertEquals(0, customerService.calls.get());
+    }
+
+    static class RecordingInterceptor implements InvocationInterceptor {
+        final List<String> events = new CopyOnWriteArrayList<String>();
+        final AtomicInteger contextId = new AtomicInteger();
+        final AtomicInteger failRoutingCount = new AtomicInteger();
+        volatile boolean rejectCalls;
+
+        public Object beforeRouting(Method method, Object[] args) {
+            if (rejectCalls) {
+                throw new IllegalStateException();
+            }
+            events.add("beforeRouting " + method.getName());
+            return "context-" + contextId.incrementAndGet();
+        }
+
+        public void afterRouting(Method method, Object[] args, Target target, Object context) {
+            events.add("afterRouting " + method.getName() + " " + context + " partition=" + target.getPartitionId());
+            if (failRoutingCount.getAndDecrement() > 0) {
+                throw new PartitionMovedException("moved");
+            }
+        }
+
+        public void onRetry(Method method, Object[] args, Throwable cause, int retryCount, Object context) {
+            events.add("onRetry " + method.getName() + " " + retryCount + " " + context);
+        }
+
+        public void onCompletion(Method method, Object[] args, Object result, Throwable failure, long durationNs,
+                                 Object context) {
+            String failureName = failure == null ? "null" : failure.getClass().getSimpleName();
+            events.add("onCompletion " + method.getName() + " " + result + " " + failureName + " " + context);
+        }
+
+        //onCompletion can be called by a callback thread just after the caller has been woken up.
+        void awaitCompletion() {
+            long deadlineMs = System.currentTimeMillis() + 10000;
+            while (events.isEmpty() || !events.get(events.size() - 1).startsWith("onCompletion")) {
+                if (System.currentTimeMillis() > deadlineMs) {
+                    fail("onCompletion was not called, events " + events);
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public CustomerService customerService = new CustomerServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface CustomerService {
+        @Partitioned
+        String get(@PartitionKey String name);
+    }
+
+    static public class CustomerServiceImpl implements CustomerService {
+        final AtomicInteger calls = new AtomicInteger();
+
+        public String get(String name) {
+            return name + "-" + calls.incrementAndGet();
+        }
+    }
+}
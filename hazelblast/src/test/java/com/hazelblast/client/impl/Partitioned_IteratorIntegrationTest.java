@@ -0,0 +1,169 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.exceptions.CursorNotFoundException;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_IteratorIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private TestServiceImpl testService;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        testService = (TestServiceImpl) pojo.testService;
+        PojoSlice slice = new PojoSlice(pojo);
+        server = new SliceServer(slice, 100).start();
+        server.setIteratorPageSize(100);
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+        proxyProvider.setLocalCallOptimizationEnabled(false);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test
+    public void whenIteratorReturned_thenElementsFetchedInPages() throws InterruptedException {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        Iterator<Integer> it = service.range("foo", 1000);
+        Thread.sleep(100);
+
+        //the first page and the prefetched second page.
+        assertEquals(200, testService.produced.get());
+
+        for (int k = 0; k < 1000; k++) {
+            assertTrue(it.hasNext());
+            assertEquals(Integer.valueOf(k), it.next());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void whenDataSerializable_thenElementsFetchedInPages() {
+        proxyProvider.setDistributedMethodInvocationFactory(DataSerializableDistributedMethodInvocationFactory.INSTANCE);
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        Iterator<Integer> it = service.range("foo", 250);
+
+        int count = 0;
+        while (it.hasNext()) {
+            assertEquals(Integer.valueOf(count), it.next());
+            count++;
+        }
+        assertEquals(250, count);
+    }
+
+    @Test
+    public void whenEmpty() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        Iterator<Integer> it = service.range("foo", 0);
+
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void whenNull() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        Iterator<Integer> it = service.range("foo", -1);
+
+        assertFalse(it.hasNext());
+    }
+
+    @Test(expected = CursorNotFoundException.class)
+    public void whenCursorIdle_thenClosed() throws InterruptedException {
+        server.setIteratorIdleTimeoutMs(1);
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        Iterator<Integer> it = service.range("foo", 1000);
+        Thread.sleep(500);
+
+        while (it.hasNext()) {
+            it.next();
+        }
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public TestService testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned
+        Iterator<Integer> range(@PartitionKey String key, int count);
+    }
+
+    static public class TestServiceImpl implements TestService {
+        final AtomicInteger produced = new AtomicInteger();
+
+        public Iterator<Integer> range(String key, final int count) {
+            if (count < 0) {
+                return null;
+            }
+
+            return new Iterator<Integer>() {
+                private int next;
+
+                public boolean hasNext() {
+                    return next < count;
+                }
+
+                public Integer next() {
+                    produced.incrementAndGet();
+                    return next++;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
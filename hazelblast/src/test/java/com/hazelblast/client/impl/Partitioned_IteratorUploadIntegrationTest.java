@@ -0,0 +1,181 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_IteratorUploadIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private TestServiceImpl testService;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        testService = (TestServiceImpl) pojo.testService;
+        PojoSlice slice = new PojoSlice(pojo);
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+        proxyProvider.setLocalCallOptimizationEnabled(false);
+        proxyProvider.setUploadChunkSize(10);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenUploadChunkSizeTooSmall_thenIllegalArgumentException() {
+        proxyProvider.setUploadChunkSize(0);
+    }
+
+    @Test
+    public void whenIteratorArgument_thenElementsPushedInChunks() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+        CountingIterator values = new CountingIterator(1000);
+        testService.source = values;
+
+        assertEquals(1000 * 999 / 2, service.sum("foo", values));
+
+        //the client doesn't read further ahead than the chunks the member has room for.
+        assertTrue("maxAhead was " + testService.maxAhead, testService.maxAhead <= 60);
+    }
+
+    @Test
+    public void whenDataSerializable_thenElementsPushedInChunks() {
+        proxyProvider.setDistributedMethodInvocationFactory(DataSerializableDistributedMethodInvocationFactory.INSTANCE);
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals(100 * 99 / 2, service.sum("foo", new CountingIterator(100)));
+    }
+
+    @Test
+    public void whenEmpty() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals(0, service.sum("foo", new CountingIterator(0)));
+    }
+
+    @Test
+    public void whenNull() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        assertEquals(-1, service.sum("foo", null));
+    }
+
+    @Test
+    public void whenServiceStopsConsuming_thenCallCompletes() {
+        TestService service = proxyProvider.getProxy(TestService.class);
+        CountingIterator values = new CountingIterator(100000);
+
+        assertEquals(0 + 1 + 2 + 3 + 4, service.sumFirst5("foo", values));
+        assertTrue(values.produced.get() < 100000);
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public TestService testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned
+        int sum(@PartitionKey String key, Iterator<Integer> values);
+
+        @Partitioned
+        int sumFirst5(@PartitionKey String key, Iterator<Integer> values);
+    }
+
+    static class CountingIterator implements Iterator<Integer> {
+        private final int count;
+        final AtomicInteger produced = new AtomicInteger();
+
+        CountingIterator(int count) {
+            this.count = count;
+        }
+
+        public boolean hasNext() {
+            return produced.get() < count;
+        }
+
+        public Integer next() {
+            return produced.getAndIncrement();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    static public class TestServiceImpl implements TestService {
+        //the client and the member run in the same JVM, so the member can see how far the client has read ahead.
+        volatile CountingIterator source;
+        volatile int maxAhead;
+
+        public int sum(String key, Iterator<Integer> values) {
+            if (values == null) {
+                return -1;
+            }
+
+            int sum = 0;
+            int consumed = 0;
+            while (values.hasNext()) {
+                sum += values.next();
+                consumed++;
+                if (source != null) {
+                    maxAhead = Math.max(maxAhead, source.produced.get() - consumed);
+                }
+            }
+            return sum;
+        }
+
+        public int sumFirst5(String key, Iterator<Integer> values) {
+            int sum = 0;
+            for (int k = 0; k < 5 && values.hasNext(); k++) {
+                sum += values.next();
+            }
+            return sum;
+        }
+    }
+}
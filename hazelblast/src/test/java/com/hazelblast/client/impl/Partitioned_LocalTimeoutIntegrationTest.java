@@ -0,0 +1,182 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that local calls (there is only a single member, so all calls are local) obey the timeout.
+ */
+public class Partitioned_LocalTimeoutIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private Pojo pojo;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        pojo = new Pojo(hazelcastInstance);
+        PojoSlice slice = new PojoSlice(pojo);
+
+        server = new SliceServer(slice, 100);
+        server.start();
+
+        Thread.sleep(1000);
+
+        proxyProvider = new ProxyProviderImpl(hazelcastInstance);
+        proxyProvider.setLocalCallOptimizationEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test
+    public void whenCallDoesntTimeout_thenExecutedByCaller() {
+        TestService testService = proxyProvider.getProxy(TestService.class);
+        testService.oneSecondTimeoutAndInterruptible("somepartition", 100);
+
+        assertSame(Thread.currentThread(), pojo.testService.thread.get());
+        assertFalse(pojo.testService.interrupted.get());
+    }
+
+    @Test
+    public void whenTimeoutAndInterruptible() throws InterruptedException {
+        TestService testService = proxyProvider.getProxy(TestService.class);
+
+        long startMs = System.currentTimeMillis();
+        try {
+            testService.oneSecondTimeoutAndInterruptible("somepartition", 10000);
+            fail();
+        } catch (DistributedMethodTimeoutException expected) {
+        }
+        assertTrue(System.currentTimeMillis() - startMs < 5000);
+        assertTrue(pojo.testService.interrupted.get());
+        //the interrupt is cleared again, so it doesn't leak out of the call.
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void whenTimeoutNotInterruptible() throws InterruptedException {
+        TestService testService = proxyProvider.getProxy(TestService.class);
+
+        try {
+            testService.oneSecondTimeoutNotInterruptible("somepartition", 3000);
+            fail();
+        } catch (DistributedMethodTimeoutException expected) {
+        }
+
+        Thread.sleep(3000);
+
+        assertFalse(pojo.testService.interrupted.get());
+    }
+
+    @Test
+    public void whenLocalExecutorSaturated_thenCallStillExecutedByCaller() {
+        TestService testService = proxyProvider.getProxy(TestService.class);
+        //a shut down executor rejects every task, just like a saturated one.
+        proxyProvider.localExecutor.shutdown();
+
+        testService.oneSecondTimeoutAndInterruptible("somepartition", 0);
+
+        assertSame(Thread.currentThread(), pojo.testService.thread.get());
+    }
+
+    @Test
+    public void whenPartitionMoved_thenCallRetried() {
+        TestService testService = proxyProvider.getProxy(TestService.class);
+
+        int result = testService.movedOnce("somepartition");
+
+        assertEquals(2, result);
+        assertEquals(1, proxyProvider.getRetryBudget().getRetryCount());
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+        @Exposed
+        public TestServiceImpl testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned(timeoutMs = 1000, interruptOnTimeout = true)
+        void oneSecondTimeoutAndInterruptible(@PartitionKey String p, int sleepMs);
+
+        @Partitioned(timeoutMs = 1000, interruptOnTimeout = false)
+        void oneSecondTimeoutNotInterruptible(@PartitionKey String p, int sleepMs);
+
+        @Partitioned(timeoutMs = 5000)
+        int movedOnce(@PartitionKey String p);
+    }
+
+    public static class TestServiceImpl implements TestService {
+        public final AtomicBoolean interrupted = new AtomicBoolean(false);
+        public final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        public final AtomicInteger calls = new AtomicInteger();
+
+        public void oneSecondTimeoutAndInterruptible(String p, int sleepMs) {
+            sleep(sleepMs);
+        }
+
+        public void oneSecondTimeoutNotInterruptible(String p, int sleepMs) {
+            sleep(sleepMs);
+        }
+
+        public int movedOnce(String p) {
+            if (calls.incrementAndGet() == 1) {
+                throw new PartitionMovedException("moved");
+            }
+            return calls.get();
+        }
+
+        private void sleep(int sleepMs) {
+            thread.set(Thread.currentThread());
+            Thread.interrupted();
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelblast.utils.MethodStats;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_MethodStatsIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        PojoSlice slice = new PojoSlice(new Pojo(hazelcastInstance));
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test
+    public void whenCalls_thenMethodStatsRecorded() throws Exception {
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        service.get("peter");
+        service.rename("peter");
+
+        Method get = CustomerService.class.getMethod("get", String.class);
+        MethodStats clientStats = proxyProvider.getMethodStats().get(get);
+        awaitCallCount(clientStats, 1);
+        assertEquals(0, clientStats.getFailureCount());
+        Method serverGet = CustomerServiceImpl.class.getMethod("get", String.class);
+        assertEquals(1, server.getMethodStats().get(serverGet).getCallCount());
+    }
+
+    @Test
+    public void whenCallFails_thenFailureRecorded() throws Exception {
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        try {
+            service.fail("peter");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        Method failMethod = CustomerService.class.getMethod("fail", String.class);
+        MethodStats clientStats = proxyProvider.getMethodStats().get(failMethod);
+        awaitCallCount(clientStats, 1);
+        assertEquals(1, clientStats.getFailureCount());
+        Method serverFail = CustomerServiceImpl.class.getMethod("fail", String.class);
+        assertEquals(1, server.getMethodStats().get(serverFail).getFailureCount());
+    }
+
+    /**
+     * The stats of a call are recorded when the call completes, which can be just after the calling thread has been
+     * notified.
+     */
+    private static void awaitCallCount(MethodStats stats, long expected) {
+        long deadlineMs = System.currentTimeMillis() + 10000;
+        while (stats.getCallCount() < expected) {
+            if (System.currentTimeMillis() > deadlineMs) {
+                fail("call count was " + stats.getCallCount() + ", expected " + expected);
+            }
+            Thread.yield();
+        }
+        assertEquals(expected, stats.getCallCount());
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public CustomerService customerService = new CustomerServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface CustomerService {
+        @Partitioned
+        String get(@PartitionKey String name);
+
+        @Partitioned
+        void rename(@PartitionKey String name);
+
+        @Partitioned
+        void fail(@PartitionKey String name);
+    }
+
+    static public class CustomerServiceImpl implements CustomerService {
+        volatile int version;
+
+        public String get(String name) {
+            return name + "-" + version;
+        }
+
+        public void rename(String name) {
+            version++;
+        }
+
+        public void fail(String name) {
+            throw new IllegalStateException();
+        }
+    }
+}
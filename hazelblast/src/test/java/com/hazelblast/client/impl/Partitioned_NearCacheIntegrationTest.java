@@ -0,0 +1,188 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.*;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_NearCacheIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private CustomerServiceImpl customerService;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        customerService = (CustomerServiceImpl) pojo.customerService;
+        PojoSlice slice = new PojoSlice(pojo);
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenNearCachedVoid_thenIllegalArgumentException() {
+        proxyProvider.getProxy(VoidService.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenTtlZero_thenIllegalArgumentException() {
+        proxyProvider.getProxy(ZeroTtlService.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenOneWayWrite_thenIllegalArgumentException() {
+        proxyProvider.getProxy(OneWayWriteService.class);
+    }
+
+    @Test
+    public void whenCalledTwice_thenSecondCallCached() {
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        assertEquals("peter-0", service.get("peter"));
+        assertEquals("peter-0", service.get("peter"));
+
+        assertEquals(1, customerService.reads.get());
+    }
+
+    @Test
+    public void whenDifferentArguments_thenCachedSeparately() {
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        service.get("peter");
+        service.get("john");
+        service.get("peter");
+
+        assertEquals(2, customerService.reads.get());
+    }
+
+    @Test
+    public void whenWriteOnSameKey_thenInvalidated() {
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        assertEquals("peter-0", service.get("peter"));
+        service.get("john");
+        service.rename("peter");
+
+        assertEquals("peter-1", service.get("peter"));
+        service.get("john");
+        assertEquals(3, customerService.reads.get());
+    }
+
+    @Test
+    public void whenExpired_thenReadAgain() throws InterruptedException {
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        service.getShortLived("peter");
+        Thread.sleep(100);
+        service.getShortLived("peter");
+
+        assertEquals(2, customerService.reads.get());
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public CustomerService customerService = new CustomerServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface CustomerService {
+        @Partitioned
+        @NearCached
+        String get(@PartitionKey String name);
+
+        @Partitioned
+        @NearCached(ttlMs = 10)
+        String getShortLived(@PartitionKey String name);
+
+        @Partitioned
+        void rename(@PartitionKey String name);
+    }
+
+    @DistributedService
+    interface VoidService {
+        @Partitioned
+        @NearCached
+        void get(@PartitionKey String name);
+    }
+
+    @DistributedService
+    interface ZeroTtlService {
+        @Partitioned
+        @NearCached(ttlMs = 0)
+        String get(@PartitionKey String name);
+    }
+
+    @DistributedService
+    interface OneWayWriteService {
+        @Partitioned
+        @NearCached
+        String get(@PartitionKey String name);
+
+        @Partitioned
+        @OneWay
+        void rename(@PartitionKey String name);
+    }
+
+    static public class CustomerServiceImpl implements CustomerService {
+        final AtomicInteger reads = new AtomicInteger();
+        final ConcurrentMap<String, Integer> versions = new ConcurrentHashMap<String, Integer>();
+
+        public String get(String name) {
+            reads.incrementAndGet();
+            Integer version = versions.get(name);
+            return name + "-" + (version == null ? 0 : version);
+        }
+
+        public String getShortLived(String name) {
+            return get(name);
+        }
+
+        public void rename(String name) {
+            Integer version = versions.get(name);
+            versions.put(name, version == null ? 1 : version + 1);
+        }
+    }
+}
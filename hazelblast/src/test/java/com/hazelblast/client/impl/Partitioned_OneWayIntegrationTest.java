@@ -0,0 +1,188 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.DistributedService;
+import com.hazelblast.client.annotations.OneWay;
+import com.hazelblast.client.annotations.PartitionKey;
+import com.hazelblast.client.annotations.Partitioned;
+import com.hazelblast.client.exceptions.RemotingException;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_OneWayIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private TestServiceImpl testService;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        testService = (TestServiceImpl) pojo.testService;
+        PojoSlice slice = new PojoSlice(pojo);
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+        proxyProvider.setLocalCallOptimizationEnabled(false);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenOneWayNotVoid_thenIllegalArgumentException() {
+        proxyProvider.getProxy(NonVoidService.class);
+    }
+
+    @Test
+    public void whenOneWay_thenReturnsBeforeExecuted() throws InterruptedException {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        long startMs = System.currentTimeMillis();
+        service.slow("foo");
+
+        assertTrue(System.currentTimeMillis() - startMs < 1000);
+        assertTrue(testService.executed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenLocalOneWay_thenReturnsBeforeExecuted() throws InterruptedException {
+        proxyProvider.setLocalCallOptimizationEnabled(true);
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        long startMs = System.currentTimeMillis();
+        service.slow("foo");
+
+        assertTrue(System.currentTimeMillis() - startMs < 1000);
+        assertTrue(testService.executed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenLocalExecutorSaturated_thenListenerNotifiedAndNotExecutedByCaller() throws InterruptedException {
+        proxyProvider.setLocalCallOptimizationEnabled(true);
+        final CountDownLatch failed = new CountDownLatch(1);
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        proxyProvider.setOneWayFailureListener(new OneWayFailureListener() {
+            public void onFailure(Method m, Object[] args, Throwable c) {
+                cause.set(c);
+                failed.countDown();
+            }
+        });
+        TestService service = proxyProvider.getProxy(TestService.class);
+        //a shut down executor rejects every task, just like a saturated one.
+        proxyProvider.localExecutor.shutdown();
+
+        long startMs = System.currentTimeMillis();
+        service.slow("foo");
+
+        assertTrue(System.currentTimeMillis() - startMs < 1000);
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        assertTrue(cause.get() instanceof RemotingException);
+        assertNull(testService.thread.get());
+    }
+
+    @Test
+    public void whenOneWayFails_thenListenerNotified() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        final AtomicReference<Method> method = new AtomicReference<Method>();
+        proxyProvider.setOneWayFailureListener(new OneWayFailureListener() {
+            public void onFailure(Method m, Object[] args, Throwable c) {
+                method.set(m);
+                cause.set(c);
+                failed.countDown();
+            }
+        });
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        service.fail("foo");
+
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        assertEquals("fail", method.get().getName());
+        assertTrue(cause.get() instanceof MyRuntimeException);
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public TestService testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    static class MyRuntimeException extends RuntimeException {
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned
+        @OneWay
+        void slow(@PartitionKey String key);
+
+        @Partitioned
+        @OneWay
+        void fail(@PartitionKey String key);
+    }
+
+    @DistributedService
+    interface NonVoidService {
+        @Partitioned
+        @OneWay
+        String notVoid(@PartitionKey String key);
+    }
+
+    static public class TestServiceImpl implements TestService {
+        final CountDownLatch executed = new CountDownLatch(1);
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+
+        public void slow(String key) {
+            thread.set(Thread.currentThread());
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.countDown();
+        }
+
+        public void fail(String key) {
+            throw new MyRuntimeException();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.*;
+import com.hazelblast.client.exceptions.PipelineBrokenException;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_PipelinedIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private TestServiceImpl testService;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        testService = (TestServiceImpl) pojo.testService;
+        PojoSlice slice = new PojoSlice(pojo);
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenPipelinedNotAsync_thenIllegalArgumentException() {
+        proxyProvider.getProxy(SyncService.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenPipelinedLoadBalanced_thenIllegalArgumentException() {
+        proxyProvider.getProxy(LoadBalancedService.class);
+    }
+
+    @Test
+    public void whenManyCalls_thenExecutedInIssueOrder() throws Exception {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int k = 0; k < 200; k++) {
+            futures.add(service.append("foo", k));
+        }
+
+        for (int k = 0; k < futures.size(); k++) {
+            assertEquals(Integer.valueOf(k), futures.get(k).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(200, testService.getValues("foo").size());
+        for (int k = 0; k < 200; k++) {
+            assertEquals(Integer.valueOf(k), testService.getValues("foo").get(k));
+        }
+    }
+
+    @Test
+    public void whenOneWayCalls_thenExecutedInIssueOrder() throws Exception {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        for (int k = 0; k < 100; k++) {
+            service.appendOneWay("bar", k);
+        }
+        Future<Integer> last = service.append("bar", 100);
+
+        assertEquals(Integer.valueOf(100), last.get(10, TimeUnit.SECONDS));
+        for (int k = 0; k <= 100; k++) {
+            assertEquals(Integer.valueOf(k), testService.getValues("bar").get(k));
+        }
+    }
+
+    @Test
+    public void whenCallFails_thenLaterCallsExecuted() throws Exception {
+        TestService service = proxyProvider.getProxy(TestService.class);
+
+        Future<Integer> first = service.append("foo", 1);
+        Future<Integer> failure = service.fail("foo");
+        Future<Integer> last = service.append("foo", 2);
+
+        assertEquals(Integer.valueOf(1), first.get(10, TimeUnit.SECONDS));
+        try {
+            failure.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MyRuntimeException);
+        }
+        assertEquals(Integer.valueOf(2), last.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void whenCallbackExecutorRejects_thenPipelineBroken() throws Exception {
+        PartitionPipeline pipeline = new PartitionPipeline(proxyProvider, 1);
+        proxyProvider.callbackExecutor.shutdown();
+
+        InvocationFuture<Object> broken = new InvocationFuture<Object>();
+        pipeline.add(new EchoCallable(), broken);
+        try {
+            broken.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof PipelineBrokenException);
+        }
+
+        //the pipeline is not left in flight, so the next call is send.
+        InvocationFuture<Object> next = new InvocationFuture<Object>();
+        pipeline.add(new EchoCallable(), next);
+        try {
+            next.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof PipelineBrokenException);
+        }
+    }
+
+    static class EchoCallable implements Callable, Serializable {
+        public Object call() {
+            return "echo";
+        }
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public TestService testService = new TestServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    static class MyRuntimeException extends RuntimeException {
+    }
+
+    @DistributedService
+    interface TestService {
+        @Partitioned
+        @Pipelined
+        Future<Integer> append(@PartitionKey String key, int value);
+
+        @Partitioned
+        @Pipelined
+        @OneWay
+        void appendOneWay(@PartitionKey String key, int value);
+
+        @Partitioned
+        @Pipelined
+        Future<Integer> fail(@PartitionKey String key);
+    }
+
+    @DistributedService
+    interface SyncService {
+        @Partitioned
+        @Pipelined
+        int append(@PartitionKey String key, int value);
+    }
+
+    @DistributedService
+    interface LoadBalancedService {
+        @LoadBalanced
+        @Pipelined
+        Future<Integer> append(String key, int value);
+    }
+
+    static public class TestServiceImpl implements TestService {
+        private final List<Integer> values = new ArrayList<Integer>();
+
+        synchronized List<Integer> getValues(String key) {
+            return new ArrayList<Integer>(values);
+        }
+
+        public Future<Integer> append(String key, int value) {
+            synchronized (this) {
+                values.add(value);
+            }
+            return completed(value);
+        }
+
+        public void appendOneWay(String key, int value) {
+            synchronized (this) {
+                values.add(value);
+            }
+        }
+
+        public Future<Integer> fail(String key) {
+            throw new MyRuntimeException();
+        }
+
+        private static Future<Integer> completed(int value) {
+            InvocationFuture<Integer> future = new InvocationFuture<Integer>();
+            future.complete(value);
+            return future;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.hazelblast.client.impl;
+
+import com.hazelblast.TestUtils;
+import com.hazelblast.client.annotations.*;
+import com.hazelblast.client.exceptions.DistributedMethodTimeoutException;
+import com.hazelblast.client.exceptions.RemotingException;
+import com.hazelblast.server.SliceServer;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class Partitioned_SingleFlightIntegrationTest {
+
+    private static HazelcastInstance hazelcastInstance;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Hazelcast.shutdownAll();
+
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        Hazelcast.shutdownAll();
+    }
+
+    private ProxyProviderImpl proxyProvider;
+    private SliceServer server;
+    private CustomerServiceImpl customerService;
+    private ExecutorService threads;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        Pojo pojo = new Pojo(hazelcastInstance);
+        customerService = (CustomerServiceImpl) pojo.customerService;
+        PojoSlice slice = new PojoSlice(pojo);
+        server = new SliceServer(slice, 100).start();
+
+        proxyProvider = new ProxyProviderImpl("default", hazelcastInstance);
+        threads = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        threads.shutdownNow();
+        TestUtils.shutdownAll(server);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenSingleFlightVoid_thenIllegalArgumentException() {
+        proxyProvider.getProxy(VoidService.class);
+    }
+
+    @Test
+    public void whenConcurrentIdenticalCalls_thenShared() throws Exception {
+        final CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        Future<String> first = threads.submit(new Callable<String>() {
+            public String call() {
+                return service.get("peter");
+            }
+        });
+        assertTrue(customerService.executing.await(10, TimeUnit.SECONDS));
+
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int k = 0; k < 10; k++) {
+            futures.add(threads.submit(new Callable<String>() {
+                public String call() {
+                    return service.get("peter");
+                }
+            }));
+        }
+        Thread.sleep(200);
+        customerService.proceed.countDown();
+
+        assertEquals("peter-0", first.get(10, TimeUnit.SECONDS));
+        for (Future<String> future : futures) {
+            assertEquals("peter-0", future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, customerService.reads.get());
+    }
+
+    @Test
+    public void whenShared_thenEveryCallerGetsItsOwnCopy() throws Exception {
+        final CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        Future<String> first = threads.submit(new Callable<String>() {
+            public String call() {
+                return service.get("peter");
+            }
+        });
+        assertTrue(customerService.executing.await(10, TimeUnit.SECONDS));
+
+        Callable<String> get = new Callable<String>() {
+            public String call() {
+                return service.get("peter");
+            }
+        };
+        Future<String> second = threads.submit(get);
+        Future<String> third = threads.submit(get);
+        Thread.sleep(200);
+        customerService.proceed.countDown();
+
+        String firstResult = first.get(10, TimeUnit.SECONDS);
+        String secondResult = second.get(10, TimeUnit.SECONDS);
+        String thirdResult = third.get(10, TimeUnit.SECONDS);
+        assertEquals(firstResult, secondResult);
+        assertEquals(firstResult, thirdResult);
+        assertNotSame(firstResult, secondResult);
+        assertNotSame(secondResult, thirdResult);
+        assertEquals(1, customerService.reads.get());
+    }
+
+    @Test
+    public void whenSharedCallDoesntComplete_thenJoinerTimesOut() throws Exception {
+        final CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        threads.submit(new Callable<String>() {
+            public String call() {
+                return service.slowGet("peter");
+            }
+        });
+        assertTrue(customerService.executing.await(10, TimeUnit.SECONDS));
+
+        long startMs = System.currentTimeMillis();
+        try {
+            service.slowGet("peter");
+            fail();
+        } catch (DistributedMethodTimeoutException expected) {
+        }
+        assertTrue(System.currentTimeMillis() - startMs < 5000);
+    }
+
+    @Test
+    public void whenJoinerInterrupted_thenRemotingException() throws Exception {
+        final CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        threads.submit(new Callable<String>() {
+            public String call() {
+                return service.get("peter");
+            }
+        });
+        assertTrue(customerService.executing.await(10, TimeUnit.SECONDS));
+
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        Thread joiner = new Thread() {
+            public void run() {
+                try {
+                    service.get("peter");
+                } catch (Throwable e) {
+                    thrown.set(e);
+                }
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        };
+        joiner.start();
+        Thread.sleep(200);
+        joiner.interrupt();
+        joiner.join(10000);
+        customerService.proceed.countDown();
+
+        assertTrue(thrown.get() instanceof RemotingException);
+        assertTrue(interrupted.get());
+    }
+
+    @Test
+    public void whenSequentialCalls_thenNotShared() {
+        customerService.proceed.countDown();
+        CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        service.get("peter");
+        service.get("peter");
+
+        assertEquals(2, customerService.reads.get());
+    }
+
+    @Test
+    public void whenWriteDuringFlight_thenLaterCallNotShared() throws Exception {
+        final CustomerService service = proxyProvider.getProxy(CustomerService.class);
+
+        Future<String> first = threads.submit(new Callable<String>() {
+            public String call() {
+                return service.get("peter");
+            }
+        });
+        assertTrue(customerService.executing.await(10, TimeUnit.SECONDS));
+
+        service.rename("peter");
+        Future<String> second = threads.submit(new Callable<String>() {
+            public String call() {
+                return service.get("peter");
+            }
+        });
+        Thread.sleep(200);
+        customerService.proceed.countDown();
+
+        first.get(10, TimeUnit.SECONDS);
+        assertEquals("peter-1", second.get(10, TimeUnit.SECONDS));
+        assertEquals(2, customerService.reads.get());
+    }
+
+    static public class Pojo implements HazelcastInstanceProvider {
+
+        @Exposed
+        public CustomerService customerService = new CustomerServiceImpl();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    @DistributedService
+    interface CustomerService {
+        @Partitioned
+        @SingleFlight
+        String get(@PartitionKey String name);
+
+        @Partitioned(timeoutMs = 500)
+        @SingleFlight
+        String slowGet(@PartitionKey String name);
+
+        @Partitioned
+        void rename(@PartitionKey String name);
+    }
+
+    @DistributedService
+    interface VoidService {
+        @Partitioned
+        @SingleFlight
+        void get(@PartitionKey String name);
+    }
+
+    static public class CustomerServiceImpl implements CustomerService {
+        final AtomicInteger reads = new AtomicInteger();
+        final CountDownLatch executing = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        volatile int version;
+
+        public String get(String name) {
+            reads.incrementAndGet();
+            int version = this.version;
+            executing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return name + "-" + version;
+        }
+
+        public String slowGet(String name) {
+            return get(name);
+        }
+
+        public void rename(String name) {
+            version++;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.hazelblast.client.impl;
 
 import com.hazelblast.client.annotations.DistributedService;
 import com.hazelblast.client.annotations.LoadBalanced;
+import com.hazelblast.client.annotations.PartitionKey;
 import com.hazelblast.client.annotations.Partitioned;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
@@ -10,6 +11,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -112,6 +114,52 @@ public class ProxyProviderImplTest {
     interface DummyRemoteService {
     }
 
+    @DistributedService
+    interface PartitionedService {
+        @Partitioned
+        void method(@PartitionKey String name);
+    }
+
+    @Test
+    public void shutdown_thenTerminated() throws InterruptedException {
+        ProxyProviderImpl proxyProvider = new ProxyProviderImpl();
+        proxyProvider.setHotKeyLogIntervalMs(1000);
+
+        proxyProvider.shutdown();
+
+        assertTrue(proxyProvider.isShutdown());
+        assertTrue(proxyProvider.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, proxyProvider.getHotKeyLogIntervalMs());
+    }
+
+    @Test
+    public void shutdown_whenShutdown_thenIgnored() throws InterruptedException {
+        ProxyProviderImpl proxyProvider = new ProxyProviderImpl();
+        proxyProvider.shutdown();
+
+        proxyProvider.shutdown();
+
+        assertTrue(proxyProvider.isShutdown());
+        assertTrue(proxyProvider.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getProxy_whenShutdown() {
+        ProxyProviderImpl proxyProvider = new ProxyProviderImpl();
+        proxyProvider.shutdown();
+
+        proxyProvider.getProxy(DummyRemoteService.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void call_whenShutdown() {
+        ProxyProviderImpl proxyProvider = new ProxyProviderImpl();
+        PartitionedService service = proxyProvider.getProxy(PartitionedService.class);
+        proxyProvider.shutdown();
+
+        service.method("foo");
+    }
+
     @Test
     public void test_toString() {
         ProxyProviderImpl proxyProvider = new ProxyProviderImpl();
@@ -0,0 +1,71 @@
+package com.hazelblast.client.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetryBudgetTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_whenNegativeRatio() {
+        new RetryBudget(-1, 0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_whenZeroWindow() {
+        new RetryBudget(10, 0, 0);
+    }
+
+    @Test
+    public void whenNoFirstAttempts_thenOnlyMinimumRetriesAllowed() {
+        RetryBudget budget = new RetryBudget(10, 1, 2);
+
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        assertEquals(2, budget.getRetryCount());
+        assertEquals(1, budget.getDeniedRetryCount());
+    }
+
+    @Test
+    public void whenFirstAttempts_thenRetriesAllowedAsPercentage() {
+        RetryBudget budget = new RetryBudget(10, 0, 10);
+
+        for (int k = 0; k < 100; k++) {
+            budget.onFirstAttempt();
+        }
+
+        for (int k = 0; k < 10; k++) {
+            assertTrue(budget.tryAcquireRetry());
+        }
+        assertFalse(budget.tryAcquireRetry());
+        assertEquals(100, budget.getFirstAttemptCount());
+    }
+
+    @Test
+    public void whenRetriesNotAcquired_thenTheyStillConsumeBudget() {
+        RetryBudget budget = new RetryBudget(0, 1, 1);
+
+        budget.onRetry();
+
+        assertFalse(budget.tryAcquireRetry());
+        assertEquals(1, budget.getRetryCount());
+    }
+
+    @Test
+    public void retriesPerCallDistribution() {
+        RetryBudget budget = new RetryBudget();
+
+        budget.onCallCompleted(0);
+        budget.onCallCompleted(0);
+        budget.onCallCompleted(3);
+        budget.onCallCompleted(1000);
+
+        long[] distribution = budget.getRetriesPerCallDistribution();
+        assertEquals(RetryBudget.DISTRIBUTION_SIZE, distribution.length);
+        assertEquals(2, distribution[0]);
+        assertEquals(1, distribution[3]);
+        assertEquals(1, distribution[RetryBudget.DISTRIBUTION_SIZE - 1]);
+    }
+}
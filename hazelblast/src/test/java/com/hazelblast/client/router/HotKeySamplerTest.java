@@ -0,0 +1,71 @@
+package com.hazelblast.client.router;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HotKeySamplerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenSampleIntervalZero_thenIllegalArgumentException() {
+        new HotKeySampler().setSampleInterval(0);
+    }
+
+    @Test
+    public void whenEveryCallSampled_thenExactCounts() {
+        HotKeySampler sampler = new HotKeySampler(10);
+        sampler.setSampleInterval(1);
+
+        for (int k = 0; k < 5; k++) {
+            sampler.onCall("hot");
+        }
+        sampler.onCall("cold");
+
+        List<HotKeySampler.HotKey> topKeys = sampler.getTopKeys(1);
+        assertEquals(1, topKeys.size());
+        assertEquals("hot", topKeys.get(0).getKey());
+        assertEquals(5, topKeys.get(0).getCount());
+        assertEquals(0, topKeys.get(0).getError());
+    }
+
+    @Test
+    public void whenSampled_thenCountsScaledBySampleInterval() {
+        HotKeySampler sampler = new HotKeySampler(10);
+        sampler.setSampleInterval(4);
+
+        for (int k = 0; k < 40; k++) {
+            sampler.onCall("hot");
+        }
+
+        assertEquals(40, sampler.getTopKeys(1).get(0).getCount());
+    }
+
+    @Test
+    public void whenMoreKeysThanCapacity_thenHotKeyStillFound() {
+        HotKeySampler sampler = new HotKeySampler(4);
+        sampler.setSampleInterval(1);
+
+        for (int k = 0; k < 1000; k++) {
+            sampler.onCall("hot");
+            sampler.onCall("cold-" + k);
+        }
+
+        List<HotKeySampler.HotKey> topKeys = sampler.getTopKeys(4);
+        assertEquals(4, topKeys.size());
+        assertEquals("hot", topKeys.get(0).getKey());
+        assertTrue(topKeys.get(0).getCount() >= 1000);
+    }
+
+    @Test
+    public void whenReset_thenCleared() {
+        HotKeySampler sampler = new HotKeySampler();
+        sampler.setSampleInterval(1);
+        sampler.onCall("key");
+
+        sampler.reset();
+
+        assertEquals(0, sampler.getHotKeys().length);
+    }
+}
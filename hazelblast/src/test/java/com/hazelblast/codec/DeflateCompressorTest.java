@@ -0,0 +1,62 @@
+package com.hazelblast.codec;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DeflateCompressorTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenLevelTooLow_thenIllegalArgumentException() {
+        new DeflateCompressor(-2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenLevelTooHigh_thenIllegalArgumentException() {
+        new DeflateCompressor(10);
+    }
+
+    @Test
+    public void whenRepetitive_thenCompressedAndRestored() throws IOException {
+        byte[] bytes = new byte[100000];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = (byte) (k % 10);
+        }
+
+        DeflateCompressor compressor = new DeflateCompressor();
+        byte[] compressed = compressor.compress(bytes);
+
+        assertTrue(compressed.length < bytes.length / 10);
+        assertArrayEquals(bytes, compressor.decompress(compressed, bytes.length));
+    }
+
+    @Test
+    public void whenRandom_thenRestored() throws IOException {
+        byte[] bytes = new byte[10000];
+        new Random(1).nextBytes(bytes);
+
+        DeflateCompressor compressor = new DeflateCompressor(9);
+
+        assertArrayEquals(bytes, compressor.decompress(compressor.compress(bytes), bytes.length));
+    }
+
+    @Test(expected = IOException.class)
+    public void whenTruncated_thenIOException() throws IOException {
+        byte[] bytes = new byte[10000];
+        new Random(1).nextBytes(bytes);
+
+        DeflateCompressor compressor = new DeflateCompressor();
+        byte[] compressed = compressor.compress(bytes);
+
+        compressor.decompress(Arrays.copyOf(compressed, compressed.length / 2), bytes.length);
+    }
+
+    @Test
+    public void whenRegistry_thenDeflateCompressorIsRegisteredByDefault() {
+        assertTrue(new CodecRegistry().getCompressor(DeflateCompressor.ID) instanceof DeflateCompressor);
+    }
+}
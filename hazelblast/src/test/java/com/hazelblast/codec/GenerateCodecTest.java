@@ -0,0 +1,115 @@
+package com.hazelblast.codec;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GenerateCodecTest {
+
+    @Test
+    public void whenAnnotated_thenCodecIsGenerated() throws ClassNotFoundException {
+        Class codecClass = Class.forName(CodecRegistry.getGeneratedCodecName(Order.class));
+
+        assertEquals("com.hazelblast.codec.GenerateCodecTest_OrderCodec", codecClass.getName());
+        assertTrue(Codec.class.isAssignableFrom(codecClass));
+    }
+
+    @Test
+    public void whenAnnotated_thenGeneratedCodecIsUsedWithoutRegistration() throws IOException {
+        Order order = new Order("order-1", 10L);
+        order.setCustomerName("peter");
+        order.express = true;
+        order.getLines().add(new OrderLine("article-1", 2));
+        order.getLines().add(new OrderLine("article-2", 3));
+
+        CodecRegistry writer = new CodecRegistry();
+        byte[] bytes = writer.toBytes(order);
+        assertNotNull(writer.getCodec(Order.class));
+
+        //a different registry, so the codec is found by class name.
+        Order found = (Order) new CodecRegistry().fromBytes(bytes);
+
+        assertEquals("order-1", found.getOrderId());
+        assertEquals(10L, found.getCreationTime());
+        assertEquals("peter", found.getCustomerName());
+        assertTrue(found.express);
+        assertEquals(2, found.getLines().size());
+        assertEquals("article-2", found.getLines().get(1).getArticleId());
+        assertEquals(3, found.getLines().get(1).getQuantity());
+    }
+
+    @Test
+    public void whenCodecRegistered_thenRegisteredCodecWins() throws IOException {
+        CodecRegistry registry = new CodecRegistry();
+        ImmutableObjectCodec<OrderLine> codec = new ImmutableObjectCodec<OrderLine>(OrderLine.class);
+        registry.register(codec);
+
+        assertSame(codec, registry.getCodec(OrderLine.class));
+    }
+
+    @Test
+    public void whenNotSerializable_thenGeneratedCodecIsSmallerThanSerialization() throws IOException {
+        byte[] bytes = new CodecRegistry().toBytes(new OrderLine("article-1", 2));
+
+        //type tag, class name, string and varint; no class descriptors.
+        assertTrue(bytes.length < 64);
+    }
+
+    @GenerateCodec
+    static class Order {
+        private final String orderId;
+        private final long creationTime;
+        private final List<OrderLine> lines = new LinkedList<OrderLine>();
+        private String customerName;
+        boolean express;
+        private transient int hash;
+
+        Order(String orderId, long creationTime) {
+            this.orderId = orderId;
+            this.creationTime = creationTime;
+        }
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        public List<OrderLine> getLines() {
+            return lines;
+        }
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        public void setCustomerName(String customerName) {
+            this.customerName = customerName;
+        }
+    }
+
+    @GenerateCodec
+    static class OrderLine {
+        private final String articleId;
+        private final int quantity;
+
+        OrderLine(String articleId, int quantity) {
+            this.articleId = articleId;
+            this.quantity = quantity;
+        }
+
+        public String getArticleId() {
+            return articleId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+}
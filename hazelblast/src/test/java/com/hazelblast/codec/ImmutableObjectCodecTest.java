@@ -0,0 +1,103 @@
+package com.hazelblast.codec;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ImmutableObjectCodecTest {
+
+    @Test(expected = NullPointerException.class)
+    public void whenNullType_thenNullPointerException() {
+        new ImmutableObjectCodec<Object>(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenNoMatchingConstructor_thenIllegalArgumentException() {
+        new ImmutableObjectCodec<NoMatchingConstructor>(NoMatchingConstructor.class);
+    }
+
+    @Test
+    public void whenRegistered_thenObjectIsEncodedWithCodec() throws IOException {
+        CodecRegistry registry = new CodecRegistry();
+        registry.register(new ImmutableObjectCodec<OrderId>(OrderId.class));
+
+        OrderId found = (OrderId) registry.fromBytes(registry.toBytes(new OrderId("customer", 10, true)));
+
+        assertEquals("customer", found.customerId);
+        assertEquals(10, found.sequence);
+        assertTrue(found.express);
+    }
+
+    @Test
+    public void whenNestedInCollection_thenObjectIsEncodedWithCodec() throws IOException {
+        CodecRegistry registry = new CodecRegistry();
+        registry.register(new ImmutableObjectCodec<OrderId>(OrderId.class));
+
+        List<OrderId> ids = new ArrayList<OrderId>(Arrays.asList(new OrderId("a", 1, false), new OrderId("b", 2, true)));
+        List found = (List) registry.fromBytes(registry.toBytes(ids));
+
+        assertEquals(2, found.size());
+        assertEquals("b", ((OrderId) found.get(1)).customerId);
+    }
+
+    @Test
+    public void whenNullField_thenNullIsRead() throws IOException {
+        CodecRegistry registry = new CodecRegistry();
+        registry.register(new ImmutableObjectCodec<OrderId>(OrderId.class));
+
+        OrderId found = (OrderId) registry.fromBytes(registry.toBytes(new OrderId(null, 1, false)));
+
+        assertNull(found.customerId);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenCodecMissingOnReadingSide_thenIOException() throws IOException {
+        CodecRegistry writer = new CodecRegistry();
+        writer.register(new ImmutableObjectCodec<OrderId>(OrderId.class));
+
+        new CodecRegistry().fromBytes(writer.toBytes(new OrderId("a", 1, false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenNotRegistered_thenObjectThatIsNotSerializableFails() throws IOException {
+        new CodecRegistry().toBytes(new OrderId("a", 1, false));
+    }
+
+    @Test
+    public void whenUnregistered_thenCodecIsRemoved() {
+        CodecRegistry registry = new CodecRegistry();
+        ImmutableObjectCodec<OrderId> codec = new ImmutableObjectCodec<OrderId>(OrderId.class);
+        registry.register(codec);
+
+        assertSame(codec, registry.unregister(OrderId.class));
+        assertNull(registry.getCodec(OrderId.class));
+        assertNull(registry.getCodec(OrderId.class.getName()));
+    }
+
+    static final class OrderId {
+        private static final long CONSTANT = 1;
+
+        private final String customerId;
+        private final int sequence;
+        private final boolean express;
+
+        OrderId(String customerId, int sequence, boolean express) {
+            this.customerId = customerId;
+            this.sequence = sequence;
+            this.express = express;
+        }
+    }
+
+    static final class NoMatchingConstructor {
+        private final String value;
+
+        NoMatchingConstructor(int value) {
+            this.value = "" + value;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.hazelblast.server;
+
+import com.hazelblast.server.exceptions.CursorNotFoundException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class IteratorCursorsTest {
+
+    private IteratorCursors cursors;
+
+    @Before
+    public void setUp() {
+        cursors = new IteratorCursors("member");
+        cursors.setPageSize(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenPageSizeTooSmall_thenIllegalArgumentException() {
+        cursors.setPageSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenIdleTimeoutTooSmall_thenIllegalArgumentException() {
+        cursors.setIdleTimeoutMs(0);
+    }
+
+    @Test
+    public void whenSinglePage_thenNoCursorKept() {
+        IteratorPage page = cursors.open(Arrays.asList(1, 2).iterator());
+
+        assertEquals(Arrays.<Object>asList(1, 2), page.getElements());
+        assertTrue(page.isLast());
+        assertEquals(0, cursors.size());
+    }
+
+    @Test
+    public void whenNull_thenEmptyLastPage() {
+        IteratorPage page = cursors.open(null);
+
+        assertEquals(Collections.emptyList(), page.getElements());
+        assertTrue(page.isLast());
+    }
+
+    @Test
+    public void whenMultiplePages() {
+        IteratorPage page = cursors.open(Arrays.asList(1, 2, 3, 4, 5).iterator());
+        assertEquals(Arrays.<Object>asList(1, 2), page.getElements());
+        assertFalse(page.isLast());
+        assertEquals("member", page.getMemberUuid());
+        assertEquals(1, cursors.size());
+
+        page = cursors.next(page.getCursorId());
+        assertEquals(Arrays.<Object>asList(3, 4), page.getElements());
+        assertFalse(page.isLast());
+
+        page = cursors.next(page.getCursorId());
+        assertEquals(Arrays.<Object>asList(5), page.getElements());
+        assertTrue(page.isLast());
+        assertEquals(0, cursors.size());
+    }
+
+    @Test(expected = CursorNotFoundException.class)
+    public void whenCursorNotFound_thenCursorNotFoundException() {
+        cursors.next(10);
+    }
+
+    @Test
+    public void whenIdle_thenExpiredAndClosed() throws InterruptedException {
+        cursors.setIdleTimeoutMs(1);
+        ClosableIterator iterator = new ClosableIterator(Arrays.asList(1, 2, 3).iterator());
+        IteratorPage page = cursors.open(iterator);
+
+        Thread.sleep(10);
+        cursors.expire();
+
+        assertEquals(0, cursors.size());
+        assertTrue(iterator.closed);
+        try {
+            cursors.next(page.getCursorId());
+            fail();
+        } catch (CursorNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void whenNotIdle_thenNotExpired() {
+        cursors.open(Arrays.asList(1, 2, 3).iterator());
+
+        cursors.expire();
+
+        assertEquals(1, cursors.size());
+    }
+
+    @Test
+    public void whenLastPage_thenIteratorClosed() {
+        ClosableIterator iterator = new ClosableIterator(Arrays.asList(1, 2, 3).iterator());
+        IteratorPage page = cursors.open(iterator);
+        assertFalse(iterator.closed);
+
+        cursors.next(page.getCursorId());
+
+        assertTrue(iterator.closed);
+    }
+
+    @Test
+    public void closeAll() {
+        ClosableIterator iterator = new ClosableIterator(Arrays.asList(1, 2, 3).iterator());
+        cursors.open(iterator);
+
+        cursors.closeAll();
+
+        assertEquals(0, cursors.size());
+        assertTrue(iterator.closed);
+    }
+
+    static class ClosableIterator implements Iterator<Object>, Closeable {
+        private final Iterator<?> iterator;
+        private volatile boolean closed;
+
+        ClosableIterator(Iterator<?> iterator) {
+            this.iterator = iterator;
+        }
+
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        public Object next() {
+            return iterator.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.hazelblast.server;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IteratorUploadsTest {
+
+    private IteratorUploads uploads;
+
+    @Before
+    public void setUp() {
+        uploads = new IteratorUploads();
+    }
+
+    @Test
+    public void whenNotOpen_thenChunkRejected() throws Exception {
+        assertFalse(uploads.offer(1, chunk(true, 1)));
+    }
+
+    @Test
+    public void whenChunksOffered_thenDecodedWhenConsumed() throws Exception {
+        Iterator<Object> upload = uploads.open(1, 1000, null);
+
+        assertTrue(uploads.offer(1, chunk(false, 1, 2)));
+        assertTrue(uploads.offer(1, chunk(true, 3)));
+
+        List<Object> elements = new ArrayList<Object>();
+        while (upload.hasNext()) {
+            elements.add(upload.next());
+        }
+        assertEquals(Arrays.<Object>asList(1, 2, 3), elements);
+    }
+
+    @Test
+    public void whenQueueFull_thenChunkRejectedAfterBoundedWait() throws Exception {
+        uploads.open(1, 1000, null);
+        for (int k = 0; k < IteratorUploads.QUEUE_CAPACITY; k++) {
+            assertTrue(uploads.offer(1, chunk(false, k)));
+        }
+
+        long startMs = System.currentTimeMillis();
+        assertFalse(uploads.offer(1, chunk(true, 100)));
+        assertTrue(System.currentTimeMillis() - startMs >= IteratorUploads.OFFER_TIMEOUT_MS / 2);
+    }
+
+    @Test
+    public void whenQueueFull_thenOfferWaitsForConsumer() throws Exception {
+        final Iterator<Object> upload = uploads.open(1, 1000, null);
+        for (int k = 0; k < IteratorUploads.QUEUE_CAPACITY; k++) {
+            assertTrue(uploads.offer(1, chunk(false, k)));
+        }
+
+        Thread consumer = new Thread() {
+            public void run() {
+                upload.next();
+            }
+        };
+        consumer.start();
+
+        assertTrue(uploads.offer(1, chunk(true, 100)));
+        consumer.join();
+    }
+
+    @Test
+    public void whenClosed_thenChunkRejected() throws Exception {
+        Iterator<Object> upload = uploads.open(1, 1000, null);
+
+        uploads.close(upload);
+
+        assertFalse(uploads.offer(1, chunk(true, 1)));
+        assertEquals(0, uploads.size());
+    }
+
+    private static byte[] chunk(boolean last, Object... elements) throws Exception {
+        return IteratorUpload.encodeChunk(new ArrayList<Object>(Arrays.asList(elements)), last, null);
+    }
+}
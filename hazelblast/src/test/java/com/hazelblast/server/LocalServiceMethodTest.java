@@ -0,0 +1,107 @@
+package com.hazelblast.server;
+
+import com.hazelblast.server.exceptions.PartitionMovedException;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LocalServiceMethodTest {
+
+    private HazelcastInstance hazelcastInstance;
+    private SliceServer server;
+    private Pojo pojo;
+
+    @Before
+    public void setUp() {
+        Hazelcast.shutdownAll();
+        hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+        pojo = new Pojo(hazelcastInstance);
+        server = new SliceServer(new PojoSlice(pojo), 100).start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        server.shutdown();
+        server.awaitTermination(20, TimeUnit.SECONDS);
+        Hazelcast.shutdownAll();
+    }
+
+    @Test
+    public void whenNoSliceServer_thenNull() {
+        LocalServiceMethod method = SliceServer.bindLocalMethod(
+                hazelcastInstance, "nonexisting", "SomeService", "someMethod", new String[]{});
+
+        assertNull(method);
+    }
+
+    @Test
+    public void whenBound_thenInvokeCallsService() throws Throwable {
+        LocalServiceMethod method = SliceServer.bindLocalMethod(
+                hazelcastInstance, Slice.DEFAULT_NAME, "SomeService", "echo", new String[]{String.class.getName()});
+
+        assertTrue(method.isBound());
+        assertEquals("foo", method.invoke(new Object[]{"foo"}, -1));
+        assertEquals("bar", method.invoke(new Object[]{"bar"}, -1));
+    }
+
+    @Test
+    public void whenServiceThrowsException_thenExceptionUnwrapped() throws Throwable {
+        LocalServiceMethod method = SliceServer.bindLocalMethod(
+                hazelcastInstance, Slice.DEFAULT_NAME, "SomeService", "fail", new String[]{});
+
+        try {
+            method.invoke(new Object[]{}, -1);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void whenServerShutdown_thenUnbound() throws Throwable {
+        LocalServiceMethod method = SliceServer.bindLocalMethod(
+                hazelcastInstance, Slice.DEFAULT_NAME, "SomeService", "echo", new String[]{String.class.getName()});
+
+        server.shutdown();
+        server.awaitTermination(20, TimeUnit.SECONDS);
+
+        assertFalse(method.isBound());
+        try {
+            method.invoke(new Object[]{"foo"}, -1);
+            fail();
+        } catch (PartitionMovedException expected) {
+        }
+    }
+
+    public static class Pojo implements HazelcastInstanceProvider {
+        @Exposed
+        public final SomeService someService = new SomeService();
+        private final HazelcastInstance hazelcastInstance;
+
+        public Pojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    public static class SomeService {
+        public String echo(String s) {
+            return s;
+        }
+
+        public void fail() {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.hazelblast.server;
+
+import com.hazelblast.server.annotations.Invalidates;
+import com.hazelblast.server.annotations.Memoized;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PartitionResultCacheTest {
+
+    private PartitionResultCache cache;
+    private Service service;
+    private Method summary;
+    private Method plain;
+    private Method update;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new PartitionResultCache(null);
+        cache.addPartition(1);
+        cache.addPartition(2);
+        service = new Service();
+        summary = Service.class.getMethod("summary", String.class);
+        plain = Service.class.getMethod("plain", String.class);
+        update = Service.class.getMethod("update", String.class);
+    }
+
+    @Test
+    public void whenMemoized_thenComputedOnce() throws Throwable {
+        assertEquals("a-1", cache.invoke(service, summary, new Object[]{"a"}, 1));
+        assertEquals("a-1", cache.invoke(service, summary, new Object[]{"a"}, 1));
+
+        assertEquals(1, service.computations);
+        assertEquals(1, cache.size(1));
+    }
+
+    @Test
+    public void whenDifferentArguments_thenComputedSeparately() throws Throwable {
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        cache.invoke(service, summary, new Object[]{"b"}, 1);
+
+        assertEquals(2, service.computations);
+    }
+
+    @Test
+    public void whenDifferentPartition_thenComputedSeparately() throws Throwable {
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        cache.invoke(service, summary, new Object[]{"a"}, 2);
+
+        assertEquals(2, service.computations);
+    }
+
+    @Test
+    public void whenNotPartitioned_thenNotMemoized() throws Throwable {
+        cache.invoke(service, summary, new Object[]{"a"}, -1);
+        cache.invoke(service, summary, new Object[]{"a"}, -1);
+
+        assertEquals(2, service.computations);
+    }
+
+    @Test
+    public void whenNotMemoized_thenNotMemoized() throws Throwable {
+        cache.invoke(service, plain, new Object[]{"a"}, 1);
+        cache.invoke(service, plain, new Object[]{"a"}, 1);
+
+        assertEquals(2, service.computations);
+    }
+
+    @Test
+    public void whenFull_thenLeastRecentlyUsedDropped() throws Throwable {
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        cache.invoke(service, summary, new Object[]{"b"}, 1);
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        cache.invoke(service, summary, new Object[]{"c"}, 1);
+
+        assertEquals(2, cache.size(1));
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        assertEquals(3, service.computations);
+    }
+
+    @Test
+    public void whenPartitionDropped_thenComputedAgain() throws Throwable {
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        cache.invoke(service, summary, new Object[]{"a"}, 2);
+        cache.dropPartition(1);
+
+        assertEquals(0, cache.size(1));
+        assertEquals(1, cache.size(2));
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        assertEquals(3, service.computations);
+        assertEquals(0, cache.size(1));
+    }
+
+    @Test
+    public void whenPartitionNotAdded_thenNotMemoized() throws Throwable {
+        cache.invoke(service, summary, new Object[]{"a"}, 3);
+        cache.invoke(service, summary, new Object[]{"a"}, 3);
+
+        assertEquals(2, service.computations);
+        assertEquals(0, cache.size(3));
+    }
+
+    @Test
+    public void whenPartitionMovedAwayAndBackDuringCall_thenResultNotStored() throws Throwable {
+        Method moving = Service.class.getMethod("moving", PartitionResultCache.class);
+
+        cache.invoke(service, moving, new Object[]{cache}, 1);
+
+        assertEquals(0, cache.size(1));
+    }
+
+    @Test
+    public void whenMemoized_thenEveryCallGetsItsOwnCopy() throws Throwable {
+        Method list = Service.class.getMethod("list", String.class);
+        List<String> first = (List<String>) cache.invoke(service, list, new Object[]{"a"}, 1);
+        first.add("b");
+
+        List<String> second = (List<String>) cache.invoke(service, list, new Object[]{"a"}, 1);
+        List<String> third = (List<String>) cache.invoke(service, list, new Object[]{"a"}, 1);
+
+        assertEquals(Arrays.asList("a"), second);
+        assertNotSame(second, third);
+        assertEquals(1, service.computations);
+    }
+
+    @Test
+    public void whenResultCantBeEncoded_thenNotMemoized() throws Throwable {
+        Method unencodable = Service.class.getMethod("unencodable", String.class);
+        cache.invoke(service, unencodable, new Object[]{"a"}, 1);
+        cache.invoke(service, unencodable, new Object[]{"a"}, 1);
+
+        assertEquals(2, service.computations);
+    }
+
+    @Test
+    public void whenInvalidated_thenOnlyPartitionOfWriteDropped() throws Throwable {
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        cache.invoke(service, summary, new Object[]{"a"}, 2);
+        cache.invoke(service, update, new Object[]{"a"}, 1);
+
+        assertEquals("a-2", cache.invoke(service, summary, new Object[]{"a"}, 1));
+        assertEquals("a-1", cache.invoke(service, summary, new Object[]{"a"}, 2));
+    }
+
+    @Test
+    public void whenOtherServiceInstance_thenNotShared() throws Throwable {
+        Service other = new Service();
+        cache.invoke(service, summary, new Object[]{"a"}, 1);
+        cache.invoke(other, summary, new Object[]{"a"}, 1);
+
+        assertEquals(1, service.computations);
+        assertEquals(1, other.computations);
+    }
+
+    @Test
+    public void whenException_thenNotMemoized() throws Throwable {
+        Method failing = Service.class.getMethod("failing", String.class);
+        for (int k = 0; k < 2; k++) {
+            try {
+                cache.invoke(service, failing, new Object[]{"a"}, 1);
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+        }
+
+        assertEquals(2, service.computations);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMemoizedIterator_thenIllegalArgumentException() throws Throwable {
+        Method iterator = Service.class.getMethod("iterator", String.class);
+        cache.invoke(service, iterator, new Object[]{"a"}, 1);
+    }
+
+    @Test
+    public void register_whenValid() {
+        cache.register(ValidService.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void register_whenMemoizedIterator_thenIllegalArgumentException() {
+        cache.register(Service.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void register_whenInvalidatesUnknownMethod_thenIllegalArgumentException() {
+        cache.register(UnknownInvalidatesService.class);
+    }
+
+    public static class ValidService {
+        @Memoized
+        public String summary(String key) {
+            return key;
+        }
+
+        @Invalidates("summary")
+        public void update(String key) {
+        }
+    }
+
+    public static class UnknownInvalidatesService {
+        @Memoized
+        public String summary(String key) {
+            return key;
+        }
+
+        @Invalidates("sumary")
+        public void update(String key) {
+        }
+    }
+
+    public static class Service {
+        int computations;
+        int version = 1;
+
+        @Memoized(maxEntries = 2)
+        public String summary(String key) {
+            computations++;
+            return key + "-" + version;
+        }
+
+        public String plain(String key) {
+            computations++;
+            return key;
+        }
+
+        @Invalidates("summary")
+        public void update(String key) {
+            version++;
+        }
+
+        @Memoized
+        public String failing(String key) {
+            computations++;
+            throw new IllegalStateException();
+        }
+
+        @Memoized
+        public Iterator<String> iterator(String key) {
+            return null;
+        }
+
+        @Memoized
+        public String moving(PartitionResultCache cache) {
+            computations++;
+            cache.dropPartition(1);
+            cache.addPartition(1);
+            return "moved";
+        }
+
+        @Memoized
+        public List<String> list(String key) {
+            computations++;
+            return new ArrayList<String>(Arrays.asList(key));
+        }
+
+        @Memoized
+        public Object unencodable(String key) {
+            computations++;
+            return new Object();
+        }
+    }
+}
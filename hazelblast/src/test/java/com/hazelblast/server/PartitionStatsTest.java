@@ -0,0 +1,84 @@
+package com.hazelblast.server;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PartitionStatsTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenNoPartitions_thenIllegalArgumentException() {
+        new PartitionStats(0);
+    }
+
+    @Test
+    public void whenCallsRecorded_thenCountedPerPartition() {
+        PartitionStats stats = new PartitionStats(4);
+
+        stats.onCall(1, 100);
+        stats.onCall(1, 200);
+        stats.onCall(3, 50);
+
+        assertEquals(2, stats.getCallCount(1));
+        assertEquals(300, stats.getTotalTimeNs(1));
+        assertEquals(1, stats.getCallCount(3));
+        assertEquals(0, stats.getCallCount(0));
+        assertEquals(3, stats.getTotalCallCount());
+    }
+
+    @Test
+    public void whenNotPartitioned_thenIgnored() {
+        PartitionStats stats = new PartitionStats(4);
+
+        stats.onCall(-1, 100);
+        stats.onCall(4, 100);
+
+        assertEquals(0, stats.getTotalCallCount());
+    }
+
+    @Test
+    public void whenHotPartitions_thenHottestFirst() {
+        PartitionStats stats = new PartitionStats(4);
+        for (int k = 0; k < 5; k++) {
+            stats.onCall(2, 10);
+        }
+        stats.onCall(0, 10);
+        stats.onCall(3, 10);
+        stats.onCall(3, 10);
+
+        assertEquals(Arrays.asList(2, 3), stats.getHotPartitionIds(2));
+        assertEquals(Arrays.asList(2, 3, 0), stats.getHotPartitionIds(10));
+        assertEquals(3, stats.getHotPartitions().length);
+        assertTrue(stats.getHotPartitions()[0].startsWith("partition=2 calls=5"));
+    }
+
+    @Test
+    public void whenSummarized_thenOnlyCallsSincePreviousSummary() {
+        PartitionStats stats = new PartitionStats(4);
+        stats.onCall(1, 10);
+        stats.onCall(1, 10);
+
+        String first = stats.summarizeInterval(5);
+        assertTrue(first, first.startsWith("2 partitioned calls"));
+        assertNull(stats.summarizeInterval(5));
+
+        stats.onCall(2, 10);
+        String second = stats.summarizeInterval(5);
+        assertTrue(second, second.startsWith("1 partitioned calls"));
+        assertTrue(second, second.contains("partition=2 calls=1"));
+    }
+
+    @Test
+    public void whenReset_thenCleared() {
+        PartitionStats stats = new PartitionStats(4);
+        stats.onCall(1, 10);
+
+        stats.reset();
+
+        assertEquals(0, stats.getTotalCallCount());
+        assertEquals(0, stats.getTotalTimeNs(1));
+        assertEquals(0, stats.getHotPartitions().length);
+    }
+}
@@ -1,9 +1,15 @@
 package com.hazelblast.server;
 
+import com.hazelblast.server.annotations.Memoized;
+import com.hazelblast.server.pojoslice.Exposed;
+import com.hazelblast.server.pojoslice.HazelcastInstanceProvider;
+import com.hazelblast.server.pojoslice.PojoSlice;
 import com.hazelblast.server.pojoslice.PojoSliceFactory;
 import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 
 public class SliceContainerTest {
 
@@ -13,14 +19,43 @@ public class SliceContainerTest {
         System.setProperty("pojoPu.class", TestPojo.class.getName());
     }
 
-    // ================= partitions ================
-
-
     @After
     public void tearDown(){
         Hazelcast.shutdownAll();
     }
 
+    // ================= registration ================
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenServiceHasInvalidMemoizedMethod_thenRejectedWhenCreated() {
+        HazelcastInstance hazelcastInstance = Hazelcast.newHazelcastInstance(null);
+
+        new SliceContainer(new PojoSlice(new InvalidPojo(hazelcastInstance)));
+    }
+
+    public static class InvalidPojo implements HazelcastInstanceProvider {
+        @Exposed
+        public InvalidService invalidService = new InvalidService();
+
+        private final HazelcastInstance hazelcastInstance;
+
+        public InvalidPojo(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        public HazelcastInstance getHazelcastInstance() {
+            return hazelcastInstance;
+        }
+    }
+
+    public static class InvalidService {
+        @Memoized
+        public void notMemoizable(String key) {
+        }
+    }
+
+    // ================= partitions ================
+
     /*
     @Test
     public void containsPartition_whenNonExisting() {
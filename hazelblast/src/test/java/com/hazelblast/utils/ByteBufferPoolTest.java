@@ -0,0 +1,85 @@
+package com.hazelblast.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class ByteBufferPoolTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxPooledCapacityTooSmall_thenIllegalArgumentException() {
+        new ByteBufferPool(ByteBufferPool.MIN_POOLED_CAPACITY - 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxBuffersPerSizeNegative_thenIllegalArgumentException() {
+        new ByteBufferPool(ByteBufferPool.MIN_POOLED_CAPACITY, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenAcquireNegativeSize_thenIllegalArgumentException() {
+        new ByteBufferPool().acquire(-1);
+    }
+
+    @Test
+    public void acquire() {
+        ByteBufferPool pool = new ByteBufferPool();
+
+        ByteBuffer buffer = pool.acquire(5000);
+
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.position());
+        assertEquals(5000, buffer.limit());
+        assertEquals(8192, buffer.capacity());
+    }
+
+    @Test
+    public void whenReleased_thenReused() {
+        ByteBufferPool pool = new ByteBufferPool();
+        ByteBuffer buffer = pool.acquire(5000);
+        buffer.put((byte) 1);
+
+        pool.release(buffer);
+        assertEquals(1, pool.getPooledCount());
+
+        ByteBuffer found = pool.acquire(6000);
+        assertSame(buffer, found);
+        assertEquals(0, found.position());
+        assertEquals(6000, found.limit());
+        assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test
+    public void whenPoolFull_thenReleasedBufferDropped() {
+        ByteBufferPool pool = new ByteBufferPool(ByteBufferPool.MIN_POOLED_CAPACITY, 1);
+
+        pool.release(pool.acquire(10));
+        pool.release(pool.acquire(10));
+        pool.release(ByteBuffer.allocateDirect(ByteBufferPool.MIN_POOLED_CAPACITY));
+
+        assertEquals(1, pool.getPooledCount());
+    }
+
+    @Test
+    public void whenLargerThanMaxPooledCapacity_thenNotPooled() {
+        ByteBufferPool pool = new ByteBufferPool(ByteBufferPool.MIN_POOLED_CAPACITY, 1);
+
+        ByteBuffer buffer = pool.acquire(ByteBufferPool.MIN_POOLED_CAPACITY + 1);
+        assertEquals(ByteBufferPool.MIN_POOLED_CAPACITY + 1, buffer.capacity());
+
+        pool.release(buffer);
+        assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test
+    public void whenHeapBufferReleased_thenIgnored() {
+        ByteBufferPool pool = new ByteBufferPool();
+
+        pool.release(ByteBuffer.allocate(ByteBufferPool.MIN_POOLED_CAPACITY));
+        pool.release(null);
+
+        assertEquals(0, pool.getPooledCount());
+    }
+}
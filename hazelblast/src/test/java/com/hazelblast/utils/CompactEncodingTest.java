@@ -0,0 +1,155 @@
+package com.hazelblast.utils;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CompactEncodingTest {
+
+    @Test
+    public void primitives() throws IOException {
+        assertRoundTrip(null);
+        assertRoundTrip(true);
+        assertRoundTrip(false);
+        assertRoundTrip((byte) 10);
+        assertRoundTrip((short) 10);
+        assertRoundTrip('a');
+        assertRoundTrip(Integer.MIN_VALUE);
+        assertRoundTrip(-1);
+        assertRoundTrip(Integer.MAX_VALUE);
+        assertRoundTrip(Long.MIN_VALUE);
+        assertRoundTrip(Long.MAX_VALUE);
+        assertRoundTrip(1.5f);
+        assertRoundTrip(1.5d);
+    }
+
+    @Test
+    public void strings() throws IOException {
+        assertRoundTrip("");
+        assertRoundTrip("foo");
+        assertRoundTrip("\u20ac\u00e9");
+
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < 100000; k++) {
+            sb.append('x');
+        }
+        assertRoundTrip(sb.toString());
+    }
+
+    @Test
+    public void arrays() throws IOException {
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) roundTrip(new byte[]{1, 2, 3}));
+        assertArrayEquals(new int[]{-1, 0, Integer.MAX_VALUE}, (int[]) roundTrip(new int[]{-1, 0, Integer.MAX_VALUE}));
+        assertArrayEquals(new long[]{-1, 0, Long.MAX_VALUE}, (long[]) roundTrip(new long[]{-1, 0, Long.MAX_VALUE}));
+        assertTrue(Arrays.equals(new double[]{1.5, -2}, (double[]) roundTrip(new double[]{1.5, -2})));
+
+        String[] strings = {"a", null, "b"};
+        Object found = roundTrip(strings);
+        assertEquals(String[].class, found.getClass());
+        assertArrayEquals(strings, (String[]) found);
+    }
+
+    @Test
+    public void collections() throws IOException {
+        assertRoundTrip(new ArrayList<Object>(Arrays.asList(1, "2", 3L)));
+        assertRoundTrip(new LinkedList<Object>(Arrays.asList(1, "2", 3L)));
+        assertRoundTrip(new HashSet<Object>(Arrays.asList(1, "2", 3L)));
+        assertRoundTrip(new LinkedHashSet<Object>(Arrays.asList(1, "2", 3L)));
+
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put("a", 1);
+        map.put(2, Arrays.asList("b"));
+        assertRoundTrip(map);
+        assertRoundTrip(new LinkedHashMap<Object, Object>(map));
+        assertEquals(LinkedList.class, roundTrip(new LinkedList<Object>()).getClass());
+    }
+
+    @Test
+    public void otherCollections_thenClassPreserved() throws IOException {
+        Map<Object, Object> concurrentMap = new ConcurrentHashMap<Object, Object>();
+        concurrentMap.put("a", 1);
+        Object found = roundTrip(concurrentMap);
+        assertEquals(ConcurrentHashMap.class, found.getClass());
+        assertEquals(concurrentMap, found);
+
+        List<Object> copyOnWriteList = new CopyOnWriteArrayList<Object>(Arrays.asList(1, "2"));
+        found = roundTrip(copyOnWriteList);
+        assertEquals(CopyOnWriteArrayList.class, found.getClass());
+        assertEquals(copyOnWriteList, found);
+
+        assertEquals(Vector.class, roundTrip(new Vector<Object>(Arrays.asList(1))).getClass());
+        assertEquals(TreeMap.class, roundTrip(new TreeMap<Object, Object>()).getClass());
+        assertEquals(Collections.unmodifiableList(new ArrayList<Object>()).getClass(),
+                roundTrip(Collections.unmodifiableList(new ArrayList<Object>())).getClass());
+    }
+
+    @Test
+    public void enums() throws IOException {
+        assertSame(TimeUnit.SECONDS, roundTrip(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void serializableFallback() throws IOException {
+        Date date = new Date();
+        assertRoundTrip(date);
+        assertRoundTrip(new TreeMap<Object, Object>(Collections.singletonMap("a", "b")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenNotSerializable_thenIllegalArgumentException() throws IOException {
+        roundTrip(new Object());
+    }
+
+    @Test
+    public void byteBuffers() throws IOException {
+        ByteBuffer heap = ByteBuffer.wrap(new byte[]{0, 1, 2, 3});
+        heap.position(1);
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), roundTrip(heap));
+        assertEquals(1, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(20000);
+        direct.put(19999, (byte) 7);
+        ByteBuffer found = (ByteBuffer) roundTrip(direct);
+        assertEquals(20000, found.remaining());
+        assertEquals(7, found.get(19999));
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void whenPoolPassed_thenByteBufferReadIntoPooledDirectBuffer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactEncoding.writeByteBuffer(new DataOutputStream(bytes), ByteBuffer.wrap(new byte[]{1, 2, 3}));
+
+        ByteBufferPool pool = new ByteBufferPool();
+        ByteBuffer found = CompactEncoding.readByteBuffer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), pool);
+
+        assertTrue(found.isDirect());
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), found);
+    }
+
+    @Test
+    public void varIntIsCompact() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        CompactEncoding.writeVarInt(out, -1);
+        CompactEncoding.writeVarInt(out, 63);
+        assertEquals(2, bytes.size());
+    }
+
+    private static void assertRoundTrip(Object object) throws IOException {
+        assertEquals(object, roundTrip(object));
+    }
+
+    private static Object roundTrip(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactEncoding.writeObject(new DataOutputStream(bytes), object);
+        return CompactEncoding.readObject(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
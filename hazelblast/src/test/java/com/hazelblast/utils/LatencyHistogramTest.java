@@ -0,0 +1,93 @@
+package com.hazelblast.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void whenEmpty_thenZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNs(99));
+        assertEquals(0, histogram.getMeanNs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenPercentileTooLarge_thenIllegalArgumentException() {
+        new LatencyHistogram().getPercentileNs(100.1);
+    }
+
+    @Test
+    public void whenSmallValues_thenExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int k = 0; k < 10; k++) {
+            histogram.record(k);
+        }
+
+        assertEquals(10, histogram.getCount());
+        assertEquals(4, histogram.getPercentileNs(50));
+        assertEquals(9, histogram.getPercentileNs(100));
+        assertEquals(9, histogram.getMaxNs());
+    }
+
+    @Test
+    public void whenLargeValues_thenWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int k = 1; k <= 1000; k++) {
+            histogram.record(k * 1000L);
+        }
+
+        assertWithinError(500 * 1000L, histogram.getPercentileNs(50));
+        assertWithinError(990 * 1000L, histogram.getPercentileNs(99));
+        assertEquals(1000 * 1000L, histogram.getPercentileNs(100));
+        assertEquals(500500L, histogram.getMeanNs());
+    }
+
+    @Test
+    public void whenExtremeValues_thenRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNs(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNs(100));
+    }
+
+    @Test
+    public void whenBucketIndex_thenValueWithinBucket() {
+        long[] values = {0, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketHighestValue(index));
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.bucketHighestValue(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void whenReset_thenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNs());
+        assertEquals(0, histogram.getPercentileNs(50));
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(format(expected, actual), error <= 1d / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+
+    private static String format(long expected, long actual) {
+        return String.format("expected [%s] but was [%s]", expected, actual);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hazelblast.utils;
+
+import com.hazelcast.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+
+public class MethodStatsRegistryTest {
+
+    private MethodStatsRegistry registry;
+    private Method method;
+    private MBeanServer mBeanServer;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MethodStatsRegistry("com.hazelblast:type=TestMethodStats",
+                Logger.getLogger(MethodStatsRegistryTest.class.getName()));
+        method = String.class.getMethod("substring", int.class, int.class);
+        mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    }
+
+    @After
+    public void tearDown() {
+        registry.setJmxEnabled(false);
+    }
+
+    @Test
+    public void whenSameMethod_thenSameStats() {
+        assertSame(registry.get(method), registry.get(method));
+        assertEquals(1, registry.getAll().size());
+    }
+
+    @Test
+    public void whenJmxEnabled_thenRegistered() throws Exception {
+        MethodStats stats = registry.get(method);
+        stats.onCall(1000);
+        stats.onFailure(true);
+
+        registry.setJmxEnabled(true);
+
+        ObjectName objectName = registry.getObjectName(method);
+        assertEquals("\"substring(int,int)\"", objectName.getKeyProperty("method"));
+        assertTrue(mBeanServer.isRegistered(objectName));
+        assertEquals(1L, mBeanServer.getAttribute(objectName, "CallCount"));
+        assertEquals(1L, mBeanServer.getAttribute(objectName, "TimeoutCount"));
+    }
+
+    @Test
+    public void whenJmxEnabledBeforeCreation_thenRegisteredOnCreation() throws Exception {
+        registry.setJmxEnabled(true);
+
+        registry.get(method);
+
+        assertTrue(mBeanServer.isRegistered(registry.getObjectName(method)));
+    }
+
+    @Test
+    public void whenJmxDisabled_thenUnregistered() throws Exception {
+        registry.get(method);
+        registry.setJmxEnabled(true);
+
+        registry.setJmxEnabled(false);
+
+        assertFalse(mBeanServer.isRegistered(registry.getObjectName(method)));
+    }
+}